@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import org.example.bybit.dto.BybitOrderResponse;
+import org.example.bybit.dto.InstrumentInfoResponse;
+import org.example.bybit.service.BybitMarketService;
+import org.example.model.Direction;
+import org.example.strategy.params.ExitPlan;
+import org.example.util.JsonUtils;
+import org.example.util.MathUtils;
+import org.example.util.ValuesUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчеты, которые выполняются на пути от сигнала/тика до ордера: план выхода, округления, разбор ответов REST.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculationBenchmark {
+
+    private static final String SYMBOL = "BTCUSDT";
+
+    private Map<Double, Integer> pnlRules;
+    private BybitMarketService marketService;
+    private double price = 67_216.53;
+    private double quantity = 0.0123456;
+
+    @Setup
+    public void setUp() {
+        pnlRules = ValuesUtil.getDefaultPnlTpExitRules();
+
+        // Кэш инструментов заполняется из записанного ответа — HTTP-клиент не понадобится
+        marketService = new BybitMarketService(null);
+        InstrumentInfoResponse info = JsonUtils.fromJson(Payloads.INSTRUMENTS_INFO, InstrumentInfoResponse.class);
+        marketService.cacheInstrumentInfo(SYMBOL, info.getResult().getList().get(0));
+    }
+
+    @Benchmark
+    public ExitPlan exitPlanFromPnl() {
+        return ExitPlan.fromPnl(pnlRules, price, Direction.LONG);
+    }
+
+    @Benchmark
+    public double formatPrice() {
+        return MathUtils.formatPrice(0.1, price);
+    }
+
+    @Benchmark
+    public double roundLotSize() {
+        return marketService.roundLotSize(SYMBOL, quantity);
+    }
+
+    @Benchmark
+    public InstrumentInfoResponse fromJsonInstrumentsInfo() {
+        return JsonUtils.fromJson(Payloads.INSTRUMENTS_INFO, InstrumentInfoResponse.class);
+    }
+
+    @Benchmark
+    public BybitOrderResponse fromJsonOrderCreate() {
+        return JsonUtils.fromJson(Payloads.ORDER_CREATE, BybitOrderResponse.class);
+    }
+}
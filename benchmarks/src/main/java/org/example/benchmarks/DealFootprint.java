@@ -0,0 +1,57 @@
+package org.example.benchmarks;
+
+import org.example.deal.Deal;
+import org.example.deal.utils.OrderManager;
+import org.example.model.Direction;
+import org.example.model.EntryType;
+import org.example.model.Price;
+import org.example.model.Symbol;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Память на одну сделку (JOL): строится N типичных сделок — три TP из сигнала, привязанные SL и три TP-ордера,
+ * один выход, загруженная стратегия — и граф всех сделок делится на N. Общие объекты (стратегия, конфиг)
+ * учитываются один раз, как и в хранилище с тысячами сделок.
+ */
+public class DealFootprint {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        List<Deal> deals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            deals.add(typicalDeal(i));
+        }
+
+        System.out.println(ClassLayout.parseClass(Deal.class).toPrintable());
+        GraphLayout single = GraphLayout.parseInstance(deals.get(0));
+        System.out.println(single.toFootprint());
+        GraphLayout all = GraphLayout.parseInstance(deals.toArray());
+        System.out.printf("Одна сделка со всем графом: %d байт%n", single.totalSize());
+        System.out.printf("%d сделок: %d байт, %.0f байт на сделку, %.1f объектов на сделку%n",
+                count, all.totalSize(), (double) all.totalSize() / count, (double) all.totalCount() / count);
+    }
+
+    private static Deal typicalDeal(int i) {
+        double entry = 60_000 + i % 1_000;
+        Deal deal = new Deal(new Symbol("BTCUSDT"), Direction.LONG, EntryType.LIMIT, entry, entry * 0.98,
+                List.of(entry * 1.015, entry * 1.03, entry * 1.045));
+        deal.setId("BTCUSDT_ai_" + (1_700_000_000_000L + i));
+        deal.setChatId(42);
+        deal.setPriceScale(1);
+        deal.setQtyScale(3);
+        deal.setPositionSize(0.05);
+        deal.setLeverageUsed(5);
+        deal.addOrderId(new OrderManager("sl-" + i, OrderManager.OrderType.SL, Price.of(entry * 0.98, 1)));
+        for (int tp = 1; tp <= 3; tp++) {
+            deal.addOrderId(new OrderManager("tp" + tp + "-" + i, OrderManager.OrderType.TP, Price.of(entry * (1 + tp * 0.015), 1)));
+        }
+        deal.setActive(true);
+        deal.recordExit(deal.getTakeProfits().get(0), 0.02);
+        deal.getStrategy();
+        return deal;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Записанные ответы Bybit из resources/payloads — бенчмарки не ходят в сеть.
+ */
+final class Payloads {
+
+    static final String TICKER_SNAPSHOT = load("ticker_snapshot.json");
+    static final String TICKER_DELTA = load("ticker_delta.json");
+    static final String INSTRUMENTS_INFO = load("instruments_info.json");
+    static final String ORDER_CREATE = load("order_create.json");
+
+    private Payloads() {
+    }
+
+    private static String load(String name) {
+        try (InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Нет ресурса payloads/" + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.benchmarks;
+
+import org.example.bybit.client.BybitWebSocketClient;
+import org.example.deal.Deal;
+import org.example.model.Direction;
+import org.example.model.Symbol;
+import org.example.monitor.PriceMonitor;
+import org.example.monitor.dto.PriceUpdate;
+import org.example.monitor.trailing.TrailingManager;
+import org.example.result.OperationResult;
+import org.example.strategy.params.StopLossManager;
+import org.example.strategy.strategies.strategies.superStrategy.OnePriceUpdateController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь одного тика: разбор сообщения WebSocket → PriceMonitor → стратегия каждой сделки.
+ * Цены колеблются в пределах ±1% от входа — ниже первого PnL-уровня, поэтому REST-вызовов нет
+ * и измеряется только локальная обработка.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickPathBenchmark {
+
+    private static final double ENTRY_PRICE = 67_000.0;
+    private static final Symbol SYMBOL = new Symbol("BTCUSDT");
+
+    // Сделок на один символ — сколько стратегий вызывает каждый тик
+    @Param({"1", "10", "100"})
+    private int dealsPerSymbol;
+
+    private BybitWebSocketClient webSocketClient;
+    private PriceUpdate lastDecoded;
+
+    private PriceMonitor priceMonitor;
+    private OnePriceUpdateController controller;
+    private Deal deal;
+    private PriceUpdate[] ticks;
+    private int tickIndex;
+
+    @Setup
+    public void setUp() {
+        // Без connect(): используется только разбор сообщений
+        webSocketClient = new BybitWebSocketClient(update -> lastDecoded = update);
+
+        // Сетевые зависимости не нужны, пока цена не доходит до PnL-уровней и TP
+        TrailingManager trailingManager = new TrailingManager((d, newStop) -> OperationResult.success());
+        priceMonitor = new PriceMonitor(null, null, new StopLossManager(), null, null, trailingManager);
+        List<Deal> deals = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < dealsPerSymbol; i++) {
+            deals.add(newActiveDeal());
+        }
+        priceMonitor.getSymbolSubscribers().put(SYMBOL.toString(), deals);
+
+        controller = new OnePriceUpdateController();
+        deal = newActiveDeal();
+
+        ticks = new PriceUpdate[64];
+        for (int i = 0; i < ticks.length; i++) {
+            double offset = ((i * 37) % 200 - 100) / 10_000.0; // от -1% до +1%
+            ticks[i] = new PriceUpdate(SYMBOL, ENTRY_PRICE * (1 + offset));
+        }
+    }
+
+    @Benchmark
+    public PriceUpdate decodeSnapshot() {
+        webSocketClient.handleMessage(Payloads.TICKER_SNAPSHOT);
+        return lastDecoded;
+    }
+
+    @Benchmark
+    public PriceUpdate decodeDelta() {
+        webSocketClient.handleMessage(Payloads.TICKER_DELTA);
+        return lastDecoded;
+    }
+
+    @Benchmark
+    public void priceMonitorFanOut() {
+        priceMonitor.onPriceUpdate(nextTick());
+    }
+
+    @Benchmark
+    public Deal handlePriceUpdatePerDeal() {
+        controller.handlePriceUpdate(deal, nextTick(), null, null, null);
+        return deal;
+    }
+
+    private PriceUpdate nextTick() {
+        PriceUpdate tick = ticks[tickIndex];
+        tickIndex = (tickIndex + 1) & (ticks.length - 1);
+        return tick;
+    }
+
+    private static Deal newActiveDeal() {
+        Deal deal = new Deal(SYMBOL, Direction.LONG, null, ENTRY_PRICE, ENTRY_PRICE * 0.97,
+                List.of(ENTRY_PRICE * 1.05, ENTRY_PRICE * 1.10));
+        deal.setActive(true);
+        deal.getStrategy(); // стратегия создается лениво — не включаем это в замер
+        return deal;
+    }
+}
@@ -2,15 +2,26 @@
 package org.example;
 import lombok.Getter;
 import lombok.Setter;
+import io.github.cdimascio.dotenv.Dotenv;
 import org.example.bot.TradingBot;
+import org.example.bot.webhook.TelegramWebhookServer;
+import org.example.bybit.client.BybitPrivateStreamClient;
 import org.example.bybit.client.BybitWebSocketClient;
+import org.example.bybit.service.BybitAccountService;
+import org.example.metrics.Metrics;
+import org.example.metrics.MetricsHttpServer;
 import org.example.monitor.PriceMonitor;
+import org.example.monitor.replay.MarketDataRecorder;
 import org.example.util.LoggerUtils;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Getter
 @Setter
@@ -29,34 +40,119 @@ public class TradingBotApplication {
                     tradingBot.getMessageSender(),
                     tradingBot.getStopLossManager(),
                     tradingBot.getUpdateManager(),
-                    tradingBot.getBybitManager()
+                    tradingBot.getBybitManager(),
+                    tradingBot.getTrailingManager()
             );
+            tradingBot.setPriceMonitor(priceMonitor);
 
             // 🔥 Передаём ссылку на метод, принимающий PriceUpdate
             BybitWebSocketClient webSocketClient = new BybitWebSocketClient(priceMonitor::onPriceUpdate);
 
             priceMonitor.setWebSocketClient(webSocketClient);
+
+            // MARKET_DATA_RECORD_DIR — запись сырых кадров WebSocket для воспроизведения (ReplaySource)
+            String recordDir = Dotenv.load().get("MARKET_DATA_RECORD_DIR");
+            MarketDataRecorder marketDataRecorder = null;
+            if (recordDir != null && !recordDir.isBlank()) {
+                marketDataRecorder = new MarketDataRecorder(Path.of(recordDir),
+                        TimeUnit.MINUTES.toMillis(Long.parseLong(Dotenv.load().get("MARKET_DATA_SEGMENT_MINUTES", "15"))), 100_000);
+                webSocketClient.setFrameListener(marketDataRecorder::record);
+                LoggerUtils.info("Main - 📼 Запись рынка в " + recordDir);
+            }
+            MarketDataRecorder finalMarketDataRecorder = marketDataRecorder;
             webSocketClient.connect();
             tradingBot.getActiveDealStore().addOnDealAddedListener(priceMonitor::subscribe);
             tradingBot.getActiveDealStore().addOnDealRemovedListener(priceMonitor::unsubscribe);
 
             executor.submit(priceMonitor::startMonitoringAllDeals);
 
+            // BYBIT_PRIVATE_WS_URI — push баланса и исполнений (кэш баланса обновляется без REST); без него — только REST
+            BybitAccountService accountService = tradingBot.getBybitManager().getBybitAccountService();
+            String privateStreamUri = Dotenv.load().get("BYBIT_PRIVATE_WS_URI");
+            BybitPrivateStreamClient privateStream = null;
+            if (privateStreamUri != null && !privateStreamUri.isBlank()) {
+                privateStream = new BybitPrivateStreamClient(tradingBot.getBybitManager().getBybitAuthConfig(), privateStreamUri);
+                privateStream.addListener(accountService);
+                privateStream.connect();
+            }
+            BybitPrivateStreamClient finalPrivateStream = privateStream;
+            // Баланс запрашивается заранее, чтобы первый расчет позиции его не ждал
             executor.submit(() -> {
                 try {
-                    TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-                    botsApi.registerBot(tradingBot);
+                    LoggerUtils.info("Main - 💰 " + accountService.refresh());
                 } catch (Exception e) {
-                    LoggerUtils.error("Main - Ошибка запуска Telegram-бота: " + e.getMessage(), e);
+                    LoggerUtils.warn("Main - Баланс не получен при запуске: " + e.getMessage());
                 }
             });
 
+            // TELEGRAM_MODE=webhook — обновления приходят push-запросами, иначе long polling
+            Dotenv dotenv = Dotenv.load();
+            TelegramWebhookServer webhookServer = null;
+            if ("webhook".equalsIgnoreCase(dotenv.get("TELEGRAM_MODE", "polling"))) {
+                String secret = dotenv.get("TELEGRAM_WEBHOOK_SECRET");
+                webhookServer = new TelegramWebhookServer(
+                        Integer.parseInt(dotenv.get("TELEGRAM_WEBHOOK_PORT", "8443")),
+                        dotenv.get("TELEGRAM_WEBHOOK_PATH", "/telegram"),
+                        secret,
+                        tradingBot::onUpdateReceived);
+                webhookServer.start();
+                tradingBot.execute(SetWebhook.builder()
+                        .url(dotenv.get("TELEGRAM_WEBHOOK_URL"))
+                        .secretToken(secret)
+                        .build());
+                LoggerUtils.info("Main - Telegram: режим webhook");
+            } else {
+                executor.submit(() -> {
+                    try {
+                        TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+                        botsApi.registerBot(tradingBot);
+                    } catch (Exception e) {
+                        LoggerUtils.error("Main - Ошибка запуска Telegram-бота: " + e.getMessage(), e);
+                    }
+                });
+            }
+            TelegramWebhookServer finalWebhookServer = webhookServer;
+
+            // Метрики Prometheus на локальном адресе; METRICS_PORT=0 — выключено
+            MetricsHttpServer metricsServer = null;
+            int metricsPort = Integer.parseInt(dotenv.get("METRICS_PORT", "9464"));
+            if (metricsPort > 0) {
+                try {
+                    metricsServer = new MetricsHttpServer(dotenv.get("METRICS_HOST", "127.0.0.1"), metricsPort, Metrics.registry());
+                    metricsServer.start();
+                } catch (IOException e) {
+                    LoggerUtils.error("Main - Не удалось запустить сервер метрик на порту " + metricsPort, e);
+                    metricsServer = null;
+                }
+            }
+            MetricsHttpServer finalMetricsServer = metricsServer;
+
             LoggerUtils.info("Main - 🚀 Бот запущен...");
 
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 LoggerUtils.info("🛑 Завершение работы...");
                 webSocketClient.disconnect();
+                if (finalPrivateStream != null) {
+                    finalPrivateStream.disconnect();
+                }
+                accountService.shutdown();
+                if (finalMarketDataRecorder != null) {
+                    finalMarketDataRecorder.close();
+                    LoggerUtils.info(finalMarketDataRecorder.getStats());
+                }
+                tradingBot.getTrailingManager().shutdown();
+                tradingBot.getBybitManager().getBybitOrderService().getOrderAmender().shutdown();
+                if (finalWebhookServer != null) {
+                    finalWebhookServer.stop();
+                }
+                if (finalMetricsServer != null) {
+                    finalMetricsServer.stop();
+                }
                 executor.shutdownNow();
+                tradingBot.getChatDispatcher().shutdown();
+                tradingBot.getCommandHandler().getSessions().shutdown();
+                tradingBot.getMessageSender().getOutbox().shutdown(3_000);
+                tradingBot.getActiveDealStore().close();
             }));
 
         } catch (Exception e) {
@@ -9,44 +9,118 @@ import chat.giga.model.completion.ChatMessage;
 import chat.giga.model.completion.ChatMessageRole;
 import chat.giga.model.completion.CompletionRequest;
 import chat.giga.model.completion.CompletionResponse;
+import chat.giga.http.client.HttpClient;
+import chat.giga.http.client.HttpClientException;
+import chat.giga.http.client.JdkHttpClient;
+import chat.giga.http.client.SSL;
+import com.google.common.cache.CacheStats;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.example.deal.dto.DealRequest;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyRecorder;
+import org.example.metrics.Metrics;
 import org.example.util.JsonUtils;
 import org.example.util.LoggerUtils;
 import org.example.util.ValidationUtils;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AiService {
 
-    public AiService() {}
+    // Настройки по умолчанию (переопределяются через .env)
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final int DEFAULT_CONNECT_TIMEOUT_SEC = 15;
+    private static final int DEFAULT_READ_TIMEOUT_SEC = 60;
+    private static final int DEFAULT_TOKEN_REFRESH_MARGIN_SEC = 120;
+    // Минимальная уверенность локального разбора, при которой GigaChat не вызывается
+    private static final double LOCAL_PARSE_MIN_CONFIDENCE = 0.9;
+    private static final int DEFAULT_SIGNAL_CACHE_SIZE = 1000;
+    private static final int DEFAULT_SIGNAL_CACHE_TTL_MIN = 60;
+
+    private static final LatencyRecorder COMPLETION_LATENCY = Metrics.latency("ai_completion_seconds", "Запрос к GigaChat до ответа");
+    private static final Counter COMPLETION_ERRORS = Metrics.counter("ai_completion_errors_total", "Запросы к GigaChat, завершившиеся ошибкой");
+
+    // Один клиент на всё приложение: переиспользует TLS-соединения и кэшированный токен
+    private final GigaChatClient client;
+    private final CachedTokenAuthClient authClient;
+    private final PromptRegistry prompts;
+    private final SignalParser signalParser = new SignalParser();
+    private final SignalCache signalCache;
+
+    public AiService() {
+        Dotenv dotenv = Dotenv.load();
+        int poolSize = intSetting(dotenv, "GIGACHAT_POOL_SIZE", DEFAULT_POOL_SIZE);
+        int connectTimeout = intSetting(dotenv, "GIGACHAT_CONNECT_TIMEOUT_SEC", DEFAULT_CONNECT_TIMEOUT_SEC);
+        int readTimeout = intSetting(dotenv, "GIGACHAT_READ_TIMEOUT_SEC", DEFAULT_READ_TIMEOUT_SEC);
+        int refreshMargin = intSetting(dotenv, "GIGACHAT_TOKEN_REFRESH_MARGIN_SEC", DEFAULT_TOKEN_REFRESH_MARGIN_SEC);
+        this.prompts = PromptRegistry.load(dotenv.get("PROMPTS_DIR"));
+        this.signalCache = new SignalCache(
+                intSetting(dotenv, "SIGNAL_CACHE_SIZE", DEFAULT_SIGNAL_CACHE_SIZE),
+                Duration.ofMinutes(intSetting(dotenv, "SIGNAL_CACHE_TTL_MIN", DEFAULT_SIGNAL_CACHE_TTL_MIN)));
+        Metrics.counterFunction("ai_signal_cache_hits_total", "Попадания в кэш разобранных сигналов", () -> signalCache.getStats().hitCount());
+        Metrics.counterFunction("ai_signal_cache_misses_total", "Промахи кэша разобранных сигналов", () -> signalCache.getStats().missCount());
+        Metrics.gauge("ai_signal_cache_size", "Записей в кэше разобранных сигналов", signalCache::size);
+
+        // java.net.http.HttpClient сам держит пул keep-alive соединений; размер пула потоков настраивается
+        ExecutorService httpExecutor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread thread = new Thread(r, "gigachat-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpClient httpClient = JdkHttpClient.builder()
+                .httpClientBuilder(java.net.http.HttpClient.newBuilder().executor(httpExecutor))
+                .connectTimeout(Duration.ofSeconds(connectTimeout))
+                .readTimeout(Duration.ofSeconds(readTimeout))
+                .ssl(SSL.builder().verifySslCerts(true).build())
+                .build();
+
+        this.authClient = new CachedTokenAuthClient(
+                AuthClient.builder()
+                        .withOAuth(AuthClientBuilder.OAuthBuilder.builder()
+                                .scope(Scope.GIGACHAT_API_PERS)
+                                .clientId(dotenv.get("CLIENT_ID"))
+                                .clientSecret(dotenv.get("CLIENT_SECRET"))
+                                .httpClient(httpClient)
+                                .build())
+                        .build(),
+                Duration.ofSeconds(refreshMargin));
+        this.client = GigaChatClient.builder()
+                .authClient(authClient)
+                .apiHttpClient(httpClient)
+                .build();
+        authClient.warmUp();
+    }
+
+    private static int intSetting(Dotenv dotenv, String key, int defaultValue) {
+        String value = dotenv.get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LoggerUtils.warn("Некорректное значение " + key + "=" + value + ", используется " + defaultValue);
+            return defaultValue;
+        }
+    }
 
     /**
      * Отправляет запрос к GigaChat и возвращает ответ.
      */
     private String sendPostRequest(String promptText) {
         try {
-
-            GigaChatClient client = GigaChatClient.builder()
-                    .authClient(AuthClient.builder()
-                            .withOAuth(AuthClientBuilder.OAuthBuilder.builder()
-                                    .scope(Scope.GIGACHAT_API_PERS)
-                                    .clientId(Dotenv.load().get("CLIENT_ID"))
-                                    .clientSecret(Dotenv.load().get("CLIENT_SECRET"))
-                                    .build())
-                            .build())
-                    .build();
-            CompletionResponse response = client.completions(
-                    CompletionRequest.builder()
-                            .model(ModelName.GIGA_CHAT)
-                            .message(ChatMessage.builder()
-                                    .content(promptText)
-                                    .role(ChatMessageRole.USER)
-                                    .build())
-                            .build()
-            );
+            long start = System.nanoTime();
+            CompletionResponse response;
+            try {
+                response = complete(promptText);
+            } catch (RuntimeException e) {
+                COMPLETION_ERRORS.increment();
+                throw e;
+            } finally {
+                COMPLETION_LATENCY.recordSince(start);
+            }
 
             if (response.choices() != null && !response.choices().isEmpty()) {
                 String AiResponse = response.choices().get(0).message().content();
@@ -62,19 +136,24 @@ public class AiService {
         }
     }
 
-    /**
-     * Загружает текст промпта из файла ресурсов.
-     */
-    private String loadPrompt(String fileName) {
-        String resourcePath = "prompts/" + fileName;
-
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
-            if (is == null) {
-                throw new IllegalArgumentException("❌❌❌❌❌ Файл промпта не найден: " + resourcePath + "❌❌❌❌❌");
+    private CompletionResponse complete(String promptText) {
+        CompletionRequest request = CompletionRequest.builder()
+                .model(ModelName.GIGA_CHAT)
+                .message(ChatMessage.builder()
+                        .content(promptText)
+                        .role(ChatMessageRole.USER)
+                        .build())
+                .build();
+        try {
+            return client.completions(request);
+        } catch (HttpClientException e) {
+            if (e.statusCode() != 401) {
+                throw e;
             }
-            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            throw new RuntimeException("❌❌❌❌❌ Ошибка чтения промпта: " + resourcePath  + "❌❌❌❌❌", e);
+            // Токен отозван раньше срока — получаем новый и повторяем один раз
+            LoggerUtils.warn("GigaChat: 401, токен сброшен, повтор запроса");
+            authClient.invalidate();
+            return client.completions(request);
         }
     }
 
@@ -83,13 +162,31 @@ public class AiService {
      */
     public DealRequest parseSignal(String signalText) {
         ValidationUtils.checkNotNull(signalText, "Signal text cannot be null");
+
+        DealRequest cached = signalCache.get(signalText);
+        if (cached != null) {
+            LoggerUtils.debug("⚡ Сигнал найден в кэше");
+            return cached;
+        }
+
+        // Сигналы стандартного формата разбираются локально за микросекунды, ИИ — только запасной вариант
+        SignalParser.Result local = signalParser.parse(signalText);
+        if (local != null && local.confidence() >= LOCAL_PARSE_MIN_CONFIDENCE) {
+            LoggerUtils.debug("⚡ Сигнал разобран локально (уверенность " + local.confidence() + ")");
+            signalCache.put(signalText, local.request());
+            return local.request();
+        }
+        LoggerUtils.debug("🤖 Сигнал передан ИИ (локальная уверенность "
+                + (local != null ? local.confidence() : 0.0) + ")");
+
         String responseJson = null;
         try {
-            String promptTemplate = loadPrompt("get_signal_prompt.txt");
-            String fullPrompt = promptTemplate + "\n\n### СИГНАЛ\n" + signalText.trim();
+            String fullPrompt = prompts.render(PromptName.SIGNAL_PARSE, signalText.trim());
 
             responseJson = sendPostRequest(fullPrompt);
-            return JsonUtils.fromJson(responseJson, DealRequest.class);
+            DealRequest parsed = JsonUtils.fromJson(responseJson, DealRequest.class);
+            signalCache.put(signalText, parsed);
+            return parsed;
         } catch (Exception e) {
             String errorMsg = "❌ AI: Ошибка при парсинге сигнала. Ответ нейросети: " + (responseJson != null ? responseJson : "null");
             LoggerUtils.error(errorMsg, e);
@@ -100,12 +197,21 @@ public class AiService {
         }
     }
 
+    /**
+     * Счетчики кэша сигналов: попадания, промахи, вытеснения.
+     */
+    public String getSignalCacheStats() {
+        CacheStats stats = signalCache.getStats();
+        return String.format("Кэш сигналов: %d записей, попаданий %d, промахов %d (hit rate %.1f%%), вытеснено %d",
+                signalCache.size(), stats.hitCount(), stats.missCount(), stats.hitRate() * 100, stats.evictionCount());
+    }
+
     /**
      * Простой чат с ИИ (без промпта).
      */
     public String justChat(String messageText) {
         try {
-            String response = sendPostRequest(messageText);
+            String response = sendPostRequest(prompts.render(PromptName.CHAT, messageText));
             LoggerUtils.debug("🤖 ИИ: " + response);
             return response;
         } catch (Exception e) {
@@ -113,4 +219,13 @@ public class AiService {
             return "Извините, произошла ошибка при общении с ИИ.";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Разбор сделки ИИ (промпт deal_review_prompt.txt): риски, адекватность SL/TP. Вызывается из /check;
+     * ошибка запроса пробрасывается.
+     */
+    public String reviewDeal(String dealDescription) {
+        ValidationUtils.checkNotNull(dealDescription, "Deal description cannot be null");
+        return sendPostRequest(prompts.render(PromptName.DEAL_REVIEW, dealDescription.trim()));
+    }
+}
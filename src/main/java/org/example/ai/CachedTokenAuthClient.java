@@ -0,0 +1,136 @@
+package org.example.ai;
+
+import chat.giga.client.auth.AccessToken;
+import chat.giga.client.auth.AuthClient;
+import chat.giga.http.client.HttpClient;
+import chat.giga.http.client.HttpRequest;
+import org.example.util.LoggerUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэш OAuth-токена GigaChat поверх стандартного {@link AuthClient}.
+ * Токен обновляется заранее (за refreshMargin до истечения) в фоновом потоке,
+ * поэтому запросы к модели не ждут обмена токена. Если фоновое обновление не успело —
+ * токен получается синхронно, одним потоком (остальные ждут его же результат).
+ * Неудачное фоновое обновление повторяется с экспоненциальной задержкой не более {@value #MAX_BACKGROUND_RETRIES} раз,
+ * дальше токен получит первый настоящий запрос (например, при неверных ключах фон не шлет запросы бесконечно).
+ */
+public class CachedTokenAuthClient implements AuthClient {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(10); // первая задержка, дальше удваивается
+    private static final int MAX_BACKGROUND_RETRIES = 5;               // 10 + 20 + 40 + 80 + 160 с
+
+    private final AuthClient delegate;
+    private final Duration refreshMargin;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "gigachat-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile AccessToken token;
+    private ScheduledFuture<?> scheduledRefresh;
+    private int failedBackgroundRefreshes; // под блокировкой this
+
+    public CachedTokenAuthClient(AuthClient delegate, Duration refreshMargin) {
+        this.delegate = delegate;
+        this.refreshMargin = refreshMargin;
+    }
+
+    /**
+     * Получает первый токен в фоне, чтобы первый запрос пользователя не платил за OAuth.
+     */
+    public void warmUp() {
+        scheduler.execute(this::refreshInBackground);
+    }
+
+    @Override
+    public void authenticate(HttpRequest.HttpRequestBuilder requestBuilder) {
+        requestBuilder.header("Authorization", "Bearer " + getToken().token());
+    }
+
+    @Override
+    public AccessToken getToken() {
+        AccessToken current = token;
+        if (isUsable(current)) {
+            return current;
+        }
+        synchronized (this) {
+            current = token;
+            if (isUsable(current)) {
+                return current;
+            }
+            return refresh();
+        }
+    }
+
+    /**
+     * Сбрасывает токен (например, после 401 от API) — следующий запрос получит новый.
+     */
+    public synchronized void invalidate() {
+        token = null;
+    }
+
+    @Override
+    public boolean supportsHttpClient() {
+        return delegate.supportsHttpClient();
+    }
+
+    @Override
+    public HttpClient getHttpClient() {
+        return delegate.getHttpClient();
+    }
+
+    private boolean isUsable(AccessToken current) {
+        return current != null && Instant.now().isBefore(current.expiresAt().minusSeconds(5));
+    }
+
+    // Вызывается под блокировкой this
+    private AccessToken refresh() {
+        long start = System.currentTimeMillis();
+        AccessToken fresh = delegate.getToken();
+        token = fresh;
+        failedBackgroundRefreshes = 0;
+        LoggerUtils.debug("🔑 GigaChat: токен обновлен за " + (System.currentTimeMillis() - start)
+                + " мс, действует до " + fresh.expiresAt());
+        scheduleNextRefresh(fresh);
+        return fresh;
+    }
+
+    private void refreshInBackground() {
+        try {
+            synchronized (this) {
+                refresh();
+            }
+        } catch (Exception e) {
+            int failures;
+            synchronized (this) {
+                failures = ++failedBackgroundRefreshes;
+            }
+            if (failures > MAX_BACKGROUND_RETRIES) {
+                LoggerUtils.warn("GigaChat: не удалось обновить токен в фоне (" + failures + " попыток подряд), "
+                        + "фоновые повторы остановлены — токен получит следующий запрос: " + e.getMessage());
+                return;
+            }
+            long delayMs = RETRY_DELAY.toMillis() << (failures - 1);
+            LoggerUtils.warn("GigaChat: не удалось обновить токен в фоне, повтор через " + delayMs / 1000 + " с: " + e.getMessage());
+            scheduler.schedule(this::refreshInBackground, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduleNextRefresh(AccessToken fresh) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        long lifetimeMs = Duration.between(Instant.now(), fresh.expiresAt()).toMillis();
+        // Не раньше середины срока жизни — на случай, если запас больше самого срока
+        long delayMs = Math.max(lifetimeMs - refreshMargin.toMillis(), lifetimeMs / 2);
+        scheduledRefresh = scheduler.schedule(this::refreshInBackground, Math.max(delayMs, 1_000), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.ai;
+
+import lombok.Getter;
+
+/**
+ * Именованные промпты и их файлы в resources/prompts (или в каталоге PROMPTS_DIR).
+ * Необязательный промпт без файла работает как «передать ввод как есть».
+ */
+@Getter
+public enum PromptName {
+    SIGNAL_PARSE("get_signal_prompt.txt", true),
+    DEAL_REVIEW("deal_review_prompt.txt", true),
+    CHAT("chat_prompt.txt", false);
+
+    private final String fileName;
+    private final boolean required;
+
+    PromptName(String fileName, boolean required) {
+        this.fileName = fileName;
+        this.required = required;
+    }
+}
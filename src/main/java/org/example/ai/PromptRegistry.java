@@ -0,0 +1,154 @@
+package org.example.ai;
+
+import org.example.util.LoggerUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Реестр промптов: все шаблоны загружаются один раз при старте и хранятся уже разобранными.
+ * Источник — resources/prompts; если задан каталог (PROMPTS_DIR), файлы из него имеют приоритет
+ * и перечитываются при изменении на диске (WatchService в фоновом потоке).
+ * Карта шаблонов неизменяемая и подменяется целиком, поэтому чтение не требует блокировок.
+ */
+public class PromptRegistry {
+
+    private static final String RESOURCE_DIR = "prompts/";
+
+    private final Path overrideDir; // null — только classpath
+    private volatile Map<PromptName, PromptTemplate> templates;
+
+    private PromptRegistry(Path overrideDir) {
+        this.overrideDir = overrideDir;
+        this.templates = loadAll();
+    }
+
+    /**
+     * @param overrideDir каталог с промптами для горячей замены, может быть null или пустым
+     */
+    public static PromptRegistry load(String overrideDir) {
+        if (overrideDir == null || overrideDir.isBlank()) {
+            return new PromptRegistry(null);
+        }
+        Path dir = Path.of(overrideDir);
+        PromptRegistry registry = new PromptRegistry(dir);
+        registry.startWatching();
+        return registry;
+    }
+
+    public PromptTemplate get(PromptName name) {
+        return templates.get(name);
+    }
+
+    public String render(PromptName name, String input) {
+        return templates.get(name).render(input);
+    }
+
+    private Map<PromptName, PromptTemplate> loadAll() {
+        Map<PromptName, PromptTemplate> loaded = new EnumMap<>(PromptName.class);
+        for (PromptName name : PromptName.values()) {
+            loaded.put(name, loadTemplate(name));
+        }
+        return Map.copyOf(loaded);
+    }
+
+    private PromptTemplate loadTemplate(PromptName name) {
+        String text = readOverride(name);
+        if (text == null) {
+            text = readResource(name);
+        }
+        if (text == null) {
+            if (name.isRequired()) {
+                throw new IllegalArgumentException("❌❌❌❌❌ Файл промпта не найден: " + RESOURCE_DIR + name.getFileName() + "❌❌❌❌❌");
+            }
+            text = PromptTemplate.PLACEHOLDER;
+        }
+        return PromptTemplate.compile(name.name(), text);
+    }
+
+    private String readOverride(PromptName name) {
+        if (overrideDir == null) {
+            return null;
+        }
+        Path file = overrideDir.resolve(name.getFileName());
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LoggerUtils.error("Ошибка чтения промпта " + file + ", используется версия из ресурсов", e);
+            return null;
+        }
+    }
+
+    private String readResource(PromptName name) {
+        String resourcePath = RESOURCE_DIR + name.getFileName();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
+            return is == null ? null : new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("❌❌❌❌❌ Ошибка чтения промпта: " + resourcePath + "❌❌❌❌❌", e);
+        }
+    }
+
+    private void startWatching() {
+        if (!Files.isDirectory(overrideDir)) {
+            LoggerUtils.warn("PromptRegistry: каталог " + overrideDir + " не найден, горячая перезагрузка отключена");
+            return;
+        }
+        try {
+            WatchService watchService = FileSystems.getDefault().newWatchService();
+            overrideDir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            Thread watcher = new Thread(() -> watchLoop(watchService), "prompt-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+            LoggerUtils.info("📝 Промпты: горячая перезагрузка из " + overrideDir.toAbsolutePath());
+        } catch (IOException e) {
+            LoggerUtils.error("PromptRegistry: не удалось включить горячую перезагрузку для " + overrideDir, e);
+        }
+    }
+
+    private void watchLoop(WatchService watchService) {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Object context = event.context();
+                if (context instanceof Path path && isPromptFile(path.getFileName().toString())) {
+                    changed = true;
+                }
+            }
+            key.reset();
+            if (changed) {
+                try {
+                    templates = loadAll();
+                    LoggerUtils.info("📝 Промпты перезагружены из " + overrideDir);
+                } catch (RuntimeException e) {
+                    LoggerUtils.error("PromptRegistry: ошибка перезагрузки, остаются прежние промпты", e);
+                }
+            }
+        }
+    }
+
+    private static boolean isPromptFile(String fileName) {
+        for (PromptName name : PromptName.values()) {
+            if (name.getFileName().equals(fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
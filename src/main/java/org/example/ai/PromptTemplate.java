@@ -0,0 +1,47 @@
+package org.example.ai;
+
+/**
+ * Заранее разобранный шаблон промпта: текст разбит по плейсхолдеру {{input}} на части,
+ * поэтому сборка — один StringBuilder нужного размера без повторного поиска и конкатенаций.
+ * Если плейсхолдера в тексте нет, ввод добавляется в конец шаблона.
+ */
+public final class PromptTemplate {
+
+    public static final String PLACEHOLDER = "{{input}}";
+
+    private final String name;
+    private final String[] parts;
+    private final int fixedLength;
+
+    private PromptTemplate(String name, String[] parts) {
+        this.name = name;
+        this.parts = parts;
+        int length = 0;
+        for (String part : parts) {
+            length += part.length();
+        }
+        this.fixedLength = length;
+    }
+
+    public static PromptTemplate compile(String name, String text) {
+        if (!text.contains(PLACEHOLDER)) {
+            return new PromptTemplate(name, new String[]{text, ""});
+        }
+        // split с limit -1, чтобы не потерять пустые части в начале/конце
+        return new PromptTemplate(name, text.split(java.util.regex.Pattern.quote(PLACEHOLDER), -1));
+    }
+
+    public String render(String input) {
+        String value = input == null ? "" : input;
+        StringBuilder sb = new StringBuilder(fixedLength + (parts.length - 1) * value.length());
+        sb.append(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            sb.append(value).append(parts[i]);
+        }
+        return sb.toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
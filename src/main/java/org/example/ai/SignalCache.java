@@ -0,0 +1,71 @@
+package org.example.ai;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.example.deal.dto.DealRequest;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * LRU-кэш разобранных сигналов: нормализованный текст сигнала → DealRequest.
+ * Один и тот же сигнал часто пересылается из нескольких каналов — повтор разбирается без ИИ.
+ * Ограничен по размеру и времени жизни; наружу всегда отдаются копии, т.к. DealRequest изменяемый.
+ */
+public class SignalCache {
+
+    // Запятая между цифрами остается в ключе как есть: "2900,2800" может быть и списком, и дробью —
+    // такие сигналы не должны делить одну запись. Прочие запятые — шум
+    private static final Pattern LOOSE_COMMA = Pattern.compile("(?<!\\d),|,(?!\\d)");
+    // Минус перед числом меняет смысл ("-5" ≠ "5"), дефис-разделитель ("BTC - LONG") — шум
+    private static final Pattern LOOSE_DASH = Pattern.compile("-(?!\\d)");
+    // "65000.50" → "65000.5", "65000.00" → "65000"
+    private static final Pattern TRAILING_ZEROS = Pattern.compile("(\\d+\\.\\d*?)0+(?!\\d)");
+    private static final Pattern TRAILING_DOT = Pattern.compile("(\\d)\\.(?!\\d)");
+    // Эмодзи, пунктуация и прочие символы, не влияющие на смысл сигнала; '%' и '-' остаются ("SL 2%" ≠ "SL 2")
+    private static final Pattern NOISE = Pattern.compile("[^\\p{L}\\p{Nd}.,%\\-]+");
+
+    private final Cache<String, DealRequest> cache;
+
+    public SignalCache(long maxSize, Duration ttl) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return копия закэшированного запроса или null
+     */
+    public DealRequest get(String signalText) {
+        DealRequest cached = cache.getIfPresent(normalize(signalText));
+        return cached == null ? null : cached.copy();
+    }
+
+    public void put(String signalText, DealRequest request) {
+        if (request != null) {
+            cache.put(normalize(signalText), request.copy());
+        }
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    static String normalize(String signalText) {
+        String text = signalText.toLowerCase(Locale.ROOT);
+        text = LOOSE_COMMA.matcher(text).replaceAll(" ");
+        text = LOOSE_DASH.matcher(text).replaceAll(" ");
+        text = NOISE.matcher(text).replaceAll(" ");
+        text = TRAILING_ZEROS.matcher(text).replaceAll("$1");
+        text = TRAILING_DOT.matcher(text).replaceAll("$1");
+        return text.trim();
+    }
+}
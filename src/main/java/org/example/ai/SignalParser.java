@@ -0,0 +1,222 @@
+package org.example.ai;
+
+import org.example.deal.dto.DealRequest;
+import org.example.model.Direction;
+import org.example.model.EntryType;
+import org.example.model.Symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Локальный разбор сигналов фиксированного формата без обращения к ИИ:
+ * "BTC LONG entry 65000 SL 64000 TP 66000 67000", "#ETH шорт вход 3000,5 стоп 3100 тейк 2900 2800" и т.п.
+ * Возвращает DealRequest и оценку уверенности 0..1; при низкой уверенности сигнал отдается GigaChat.
+ * Запятая между цифрами: 1–2 цифры после нее — десятичная ("3000,5"), 4 и больше — разделитель списка
+ * ("tp 2900,2800"); ровно 3 цифры ("65,000") неоднозначны (тысячи или список) — решает ИИ.
+ * Символ считается надежным, если он помечен (#SOL, $SOL), записан с котировкой (BTCUSDT, BTC/USDT)
+ * или это единственное незнакомое слово сигнала; иначе, как и при отброшенных числах (диапазон "65000-65500"),
+ * уверенность ограничивается и сигнал уходит ИИ.
+ */
+public class SignalParser {
+
+    private static final Pattern DECIMAL_COMMA = Pattern.compile("(\\d),(\\d{1,2})(?!\\d)");
+    private static final Pattern AMBIGUOUS_COMMA = Pattern.compile("\\d,\\d{3}(?!\\d)");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s:=/|;,()\\[\\]#$@!*\\-–—]+");
+    private static final Pattern NUMBER = Pattern.compile("\\d+(\\.\\d+)?");
+    private static final Pattern SYMBOL = Pattern.compile("[a-z0-9]*[a-z][a-z0-9]*");
+    // Явный тикер: "#sol", "$sol", "btcusdt", "btc/usdt", "btc-usdt"
+    private static final Pattern TICKER = Pattern.compile("[#$]([a-z][a-z0-9]{1,19})|\\b([a-z0-9]{2,20}?)[/_-]?usdt\\b");
+    private static final Pattern TP_KEYWORD = Pattern.compile("(tp|тп|target|targets|цель|цели|тейк|тейки|take|takeprofit|тейкпрофит)\\d*");
+
+    private static final Set<String> LONG_WORDS = Set.of("long", "buy", "лонг", "покупка", "купить");
+    private static final Set<String> SHORT_WORDS = Set.of("short", "sell", "шорт", "продажа", "продать");
+    private static final Set<String> ENTRY_WORDS = Set.of("entry", "enter", "ep", "вход", "входа", "price", "цена", "open", "открытие");
+    private static final Set<String> MARKET_WORDS = Set.of("market", "mkt", "рынок", "рынку", "рыночный");
+    private static final Set<String> LIMIT_WORDS = Set.of("limit", "lmt", "лимит", "лимитка", "лимитный");
+    private static final Set<String> SL_WORDS = Set.of("sl", "stop", "stoploss", "стоп", "стоплосс", "сл");
+    // Связки внутри раздела ("вход по 3000", "sl at 64000", "entry zone ...") — раздел не прерывают
+    private static final Set<String> FILLER_WORDS = Set.of("по", "на", "в", "и", "at", "zone", "зона", "usdt", "usd");
+    // Прочие частые слова: завершают текущий раздел, числа после них не относятся ни к цене, ни к SL/TP ("leverage 10")
+    private static final Set<String> NOISE_WORDS = Set.of("perp", "perpetual", "futures", "фьючерс", "фьючерсы",
+            "signal", "сигнал", "leverage", "lev", "плечо", "cross", "isolated", "кросс", "изолированная", "bybit", "x");
+
+    private static final double MAX_UNKNOWN_PENALTY = 0.3;
+    // Потолок уверенности для сомнительного разбора — ниже порога локального разбора в AiService
+    private static final double UNSURE_MAX_CONFIDENCE = 0.6;
+
+    /**
+     * Результат локального разбора.
+     *
+     * @param confidence 0..1 — насколько разбор надежен (1 — все поля найдены и согласованы)
+     */
+    public record Result(DealRequest request, double confidence) {
+    }
+
+    private enum Section { NONE, ENTRY, SL, TP, SKIP }
+
+    /**
+     * @return результат или null, если не найден символ или направление
+     */
+    public Result parse(String signalText) {
+        if (signalText == null || signalText.isBlank()) {
+            return null;
+        }
+        boolean ambiguousComma = AMBIGUOUS_COMMA.matcher(signalText).find();
+        String normalized = DECIMAL_COMMA.matcher(signalText.toLowerCase(Locale.ROOT)).replaceAll("$1.$2")
+                .replace("stop-loss", "stoploss").replace("стоп-лосс", "стоплосс")
+                .replace("take-profit", "takeprofit").replace("тейк-профит", "тейкпрофит");
+
+        String ticker = explicitTicker(normalized);
+        String symbol = ticker;
+        int symbolCandidates = 0;
+        int droppedNumbers = 0;
+        Direction direction = null;
+        EntryType entryType = null;
+        Double entryPrice = null;
+        Double stopLoss = null;
+        List<Double> takeProfits = new ArrayList<>();
+        int unknownWords = 0;
+        Section section = Section.NONE;
+
+        for (String token : SEPARATORS.split(normalized)) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (NUMBER.matcher(token).matches()) {
+                double value = Double.parseDouble(token);
+                switch (section) {
+                    case TP -> takeProfits.add(value);
+                    case SL -> {
+                        if (stopLoss == null) stopLoss = value;
+                        else droppedNumbers++;
+                    }
+                    case ENTRY, NONE -> {
+                        // Число без ключевого слова после символа/направления считается ценой входа
+                        if (entryPrice == null && symbol != null) entryPrice = value;
+                        else if (section == Section.ENTRY) droppedNumbers++; // вторая граница диапазона и т.п.
+                    }
+                    case SKIP -> {
+                    }
+                }
+                continue;
+            }
+            if (LONG_WORDS.contains(token)) {
+                direction = direction == null ? Direction.LONG : direction;
+                section = Section.NONE;
+            } else if (SHORT_WORDS.contains(token)) {
+                direction = direction == null ? Direction.SHORT : direction;
+                section = Section.NONE;
+            } else if (ENTRY_WORDS.contains(token)) {
+                section = Section.ENTRY;
+            } else if (MARKET_WORDS.contains(token)) {
+                entryType = EntryType.MARKET;
+                section = Section.ENTRY;
+            } else if (LIMIT_WORDS.contains(token)) {
+                entryType = EntryType.LIMIT;
+                section = Section.ENTRY;
+            } else if (SL_WORDS.contains(token)) {
+                section = Section.SL;
+            } else if (TP_KEYWORD.matcher(token).matches()) {
+                section = Section.TP;
+            } else if (FILLER_WORDS.contains(token)) {
+                // пропускаем, раздел продолжается
+            } else if (NOISE_WORDS.contains(token)) {
+                section = Section.SKIP;
+            } else if (isLeverage(token) || token.endsWith("%")) {
+                section = Section.NONE; // значение уже в самом слове ("x10", "2%")
+            } else if (ticker != null && ticker.equals(stripQuote(token))) {
+                section = Section.NONE; // сам явный тикер
+            } else if (SYMBOL.matcher(token).matches() && token.length() <= 20) {
+                if (ticker == null && symbol == null) {
+                    symbol = token;
+                } else {
+                    unknownWords++;
+                }
+                symbolCandidates++;
+                section = ticker == null && symbolCandidates == 1 ? Section.NONE : Section.SKIP;
+            } else {
+                unknownWords++;
+                section = Section.SKIP;
+            }
+        }
+
+        if (symbol == null || direction == null) {
+            return null;
+        }
+
+        if (entryType == null) {
+            entryType = entryPrice != null ? EntryType.LIMIT : EntryType.MARKET;
+        }
+        if (entryType == EntryType.MARKET) {
+            entryPrice = null; // как в промпте ИИ: цена входа только для LIMIT
+        }
+
+        DealRequest request = new DealRequest();
+        try {
+            request.setSymbol(new Symbol(symbol.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        request.setDirection(direction);
+        request.setEntryType(entryType);
+        request.setEntryPrice(entryPrice);
+        request.setStopLoss(stopLoss);
+        request.setTakeProfits(takeProfits.isEmpty() ? null : takeProfits);
+
+        double confidence = confidence(request, unknownWords);
+        // Символ угадан из нескольких слов ("New signal ETH short"), числа отброшены или запятая неоднозначна — решает ИИ
+        if ((ticker == null && symbolCandidates > 1) || droppedNumbers > 0 || ambiguousComma) {
+            confidence = Math.min(confidence, UNSURE_MAX_CONFIDENCE);
+        }
+        return new Result(request, confidence);
+    }
+
+    private static String explicitTicker(String normalized) {
+        Matcher matcher = TICKER.matcher(normalized);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    // "btcusdt" -> "btc"
+    private static String stripQuote(String token) {
+        return token.endsWith("usdt") && token.length() > 4 ? token.substring(0, token.length() - 4) : token;
+    }
+
+    private static double confidence(DealRequest request, int unknownWords) {
+        double confidence = 0.5; // символ + направление
+        if (request.getStopLoss() != null) confidence += 0.25;
+        if (request.getTakeProfits() != null) confidence += 0.25;
+        if (!isConsistent(request)) confidence -= 0.4;
+        confidence -= Math.min(MAX_UNKNOWN_PENALTY, unknownWords * 0.1);
+        return Math.max(0.0, Math.min(1.0, confidence));
+    }
+
+    /**
+     * LONG: SL < вход < TP, SHORT — наоборот. Без цены входа сравниваются SL и TP.
+     */
+    private static boolean isConsistent(DealRequest request) {
+        boolean isLong = request.getDirection() == Direction.LONG;
+        Double sl = request.getStopLoss();
+        Double entry = request.getEntryPrice();
+        List<Double> tps = request.getTakeProfits() == null ? List.of() : request.getTakeProfits();
+
+        for (Double tp : tps) {
+            if (entry != null && (isLong ? tp <= entry : tp >= entry)) return false;
+            if (sl != null && (isLong ? tp <= sl : tp >= sl)) return false;
+        }
+        return sl == null || entry == null || (isLong ? sl < entry : sl > entry);
+    }
+
+    // "x10", "10x"
+    private static boolean isLeverage(String token) {
+        return token.length() > 1 && (token.charAt(0) == 'x' || token.charAt(token.length() - 1) == 'x')
+                && NUMBER.matcher(token.charAt(0) == 'x' ? token.substring(1) : token.substring(0, token.length() - 1)).matches();
+    }
+}
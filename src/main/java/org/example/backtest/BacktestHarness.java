@@ -0,0 +1,152 @@
+package org.example.backtest;
+
+import org.example.bybit.auth.BybitAuthConfig;
+import org.example.bybit.client.BybitHttpClient;
+import org.example.model.Direction;
+import org.example.model.Symbol;
+import org.example.strategy.config.StrategyConfig;
+import org.example.strategy.strategies.strategies.BasedStrategy;
+import org.example.strategy.strategies.strategies.superStrategy.AbstractStrategy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запуск бэктеста.
+ * <ul>
+ *     <li>без аргументов — синтетическая проверка: случайное блуждание на 2 млн минутных баров,
+ *     сотни сигналов, несколько десятков вариантов BasedStrategy параллельно; печатается скорость в барах/с;</li>
+ *     <li>{@code download <символ> <интервал> <дней> <файл.bars>} — загрузка свечей с Bybit в двоичный файл;</li>
+ *     <li>{@code convert <файл.csv> <символ> <файл.bars>} — CSV-выгрузка в двоичный файл;</li>
+ *     <li>{@code run <файл.bars> <сигналы.csv>} — BasedStrategy по сигналам из CSV
+ *     ({@code время_мс,LONG|SHORT,вход|MARKET,sl|-,tp1;tp2;...}).</li>
+ * </ul>
+ */
+public class BacktestHarness {
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "synthetic";
+        switch (mode) {
+            case "download" -> {
+                long end = System.currentTimeMillis();
+                long start = end - TimeUnit.DAYS.toMillis(Long.parseLong(args[3]));
+                PriceSeries series = new KlineDownloader(new BybitHttpClient(new BybitAuthConfig()))
+                        .download(new Symbol(args[1]), args[2], start, end);
+                PriceSeriesIO.writeBinary(series, Path.of(args[4]));
+                System.out.println("Сохранено " + series.size() + " баров в " + args[4]);
+            }
+            case "convert" -> {
+                PriceSeries series = PriceSeriesIO.readCsv(Path.of(args[1]), new Symbol(args[2]));
+                PriceSeriesIO.writeBinary(series, Path.of(args[3]));
+                System.out.println("Сохранено " + series.size() + " баров в " + args[3]);
+            }
+            case "run" -> {
+                PriceSeries series = PriceSeriesIO.readBinary(Path.of(args[1]));
+                List<BacktestSignal> signals = readSignals(Path.of(args[2]), series.getSymbol());
+                System.out.println(new Backtester(List.of(series), new FillModel()).run(new BasedStrategy(), signals));
+            }
+            default -> synthetic();
+        }
+    }
+
+    private static void synthetic() throws IOException {
+        Symbol symbol = new Symbol("BTCUSDT");
+        PriceSeries generated = randomWalk(symbol, 2_000_000, 67_000, 7);
+        Path file = Files.createTempFile("btcusdt", ".bars");
+        PriceSeriesIO.writeBinary(generated, file);
+        long loadStart = System.nanoTime();
+        PriceSeries series = PriceSeriesIO.readBinary(file);
+        System.out.printf("Загрузка %d баров: %.1f мс%n", series.size(), (System.nanoTime() - loadStart) / 1e6);
+        Files.delete(file);
+
+        // Сигнал раз в 4000 баров, по направлению последних 60 баров; SL 2%, три TP по 1.5%
+        List<BacktestSignal> signals = new ArrayList<>();
+        for (int bar = 1_000; bar < series.size() - 1; bar += 4_000) {
+            Direction direction = series.close(bar) >= series.close(bar - 60) ? Direction.LONG : Direction.SHORT;
+            double side = direction == Direction.LONG ? 1 : -1;
+            double entry = series.close(bar);
+            signals.add(new BacktestSignal(series.time(bar + 1), symbol, direction, bar % 8_000 == 1_000 ? null : entry,
+                    entry * (1 - side * 0.02),
+                    List.of(entry * (1 + side * 0.015), entry * (1 + side * 0.03), entry * (1 + side * 0.045))));
+        }
+
+        List<AbstractStrategy> strategies = new ArrayList<>();
+        for (int variant = 0; variant < 64; variant++) {
+            // Конфиг по умолчанию; варьируются трейлинг и доли лестницы из трех TP
+            StrategyConfig config = new StrategyConfig();
+            config.setTrailingEnabled(variant % 2 == 1);
+            config.setTrailingLoosePercent(1.0 + (variant / 2 % 4) * 0.5);
+            int first = 30 + (variant / 8) * 5;
+            Map<Integer, int[]> rules = new HashMap<>(config.getTpExitRules());
+            rules.put(3, new int[]{first, (100 - first) / 2, 100 - first - (100 - first) / 2});
+            config.setTpExitRules(rules);
+            BasedStrategy strategy = new BasedStrategy();
+            strategy.setConfig(config);
+            strategies.add(strategy);
+        }
+
+        Backtester backtester = new Backtester(List.of(series), new FillModel());
+        backtester.runAll(strategies.subList(0, 2), signals); // прогрев JIT
+        long start = System.nanoTime();
+        List<BacktestResult> results = backtester.runAll(strategies, signals);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(results.get(0));
+        System.out.println(results.get(1));
+        long bars = results.stream().mapToLong(BacktestResult::getBarsProcessed).sum();
+        System.out.printf("%d стратегий × %d сигналов: %.0f мс, %.1f млн баров/с%n",
+                strategies.size(), signals.size(), elapsed / 1e6, bars / (elapsed / 1e9) / 1e6);
+        System.out.println("Повторный прогон совпадает: "
+                + (backtester.run(strategies.get(5), signals).getNetPnl() == results.get(5).getNetPnl()));
+    }
+
+    /**
+     * Минутные бары случайного блуждания (синтетическая история для проверок).
+     */
+    public static PriceSeries randomWalk(Symbol symbol, int bars, double start, long seed) {
+        Random random = new Random(seed);
+        long[] time = new long[bars];
+        double[] open = new double[bars];
+        double[] high = new double[bars];
+        double[] low = new double[bars];
+        double[] close = new double[bars];
+        double price = start;
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < bars; i++) {
+            double next = price * (1 + random.nextGaussian() * 0.0012);
+            time[i] = t;
+            open[i] = price;
+            close[i] = next;
+            high[i] = Math.max(price, next) * (1 + Math.abs(random.nextGaussian()) * 0.0004);
+            low[i] = Math.min(price, next) * (1 - Math.abs(random.nextGaussian()) * 0.0004);
+            price = next;
+            t += 60_000;
+        }
+        return new PriceSeries(symbol, time, open, high, low, close);
+    }
+
+    private static List<BacktestSignal> readSignals(Path file, Symbol symbol) throws IOException {
+        List<BacktestSignal> signals = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] cells = line.split(",");
+            if (cells.length < 5 || !Character.isDigit(cells[0].charAt(0))) {
+                continue;
+            }
+            List<Double> takeProfits = cells[4].isBlank() ? List.of()
+                    : Arrays.stream(cells[4].split(";")).map(Double::parseDouble).toList();
+            signals.add(new BacktestSignal(Long.parseLong(cells[0]), symbol, Direction.fromString(cells[1]),
+                    "MARKET".equalsIgnoreCase(cells[2]) ? null : Double.parseDouble(cells[2]),
+                    "-".equals(cells[3]) ? null : Double.parseDouble(cells[3]), takeProfits));
+        }
+        return signals;
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.backtest;
+
+import lombok.Getter;
+import org.example.strategy.config.StrategyConfig;
+
+import java.util.Arrays;
+
+/**
+ * Итог прогона одной стратегии по набору сигналов. Денежные величины — в USDT,
+ * проценты — от {@link FillModel#getInitialBalance()}.
+ */
+@Getter
+public class BacktestResult {
+
+    private final String strategyName;
+    private final StrategyConfig config;
+    private final int signals;
+    private final int trades;             // вход исполнен
+    private final int notFilled;          // лимитный вход не исполнен (таймаут или конец истории)
+    private final int cancelled;          // до входа цена дошла до первого TP
+    private final int skipped;            // нет истории по символу или нельзя посчитать SL
+    private final int wins;
+    private final int losses;
+    private final int stopLossExits;      // исходный SL
+    private final int breakevenExits;     // SL, перенесенный в безубыток PnL-правилом
+    private final int trailingExits;      // SL, подтянутый трейлингом
+    private final int takeProfitExits;    // позиция закрыта лестницей TP целиком
+    private final int openAtEnd;          // закрыта по последней цене истории
+    private final int[] tpHits;           // сколько раз исполнен i-й шаг плана выхода
+    private final double netPnl;
+    private final double grossProfit;
+    private final double grossLoss;
+    private final double fees;
+    private final double maxDrawdown;
+    private final double initialBalance;
+    private final long barsProcessed;
+
+    BacktestResult(String strategyName, StrategyConfig config, int signals, int trades, int notFilled, int cancelled,
+                   int skipped, int wins, int losses, int stopLossExits, int breakevenExits, int trailingExits,
+                   int takeProfitExits, int openAtEnd, int[] tpHits, double netPnl, double grossProfit,
+                   double grossLoss, double fees, double maxDrawdown, double initialBalance, long barsProcessed) {
+        this.strategyName = strategyName;
+        this.config = config;
+        this.signals = signals;
+        this.trades = trades;
+        this.notFilled = notFilled;
+        this.cancelled = cancelled;
+        this.skipped = skipped;
+        this.wins = wins;
+        this.losses = losses;
+        this.stopLossExits = stopLossExits;
+        this.breakevenExits = breakevenExits;
+        this.trailingExits = trailingExits;
+        this.takeProfitExits = takeProfitExits;
+        this.openAtEnd = openAtEnd;
+        this.tpHits = tpHits;
+        this.netPnl = netPnl;
+        this.grossProfit = grossProfit;
+        this.grossLoss = grossLoss;
+        this.fees = fees;
+        this.maxDrawdown = maxDrawdown;
+        this.initialBalance = initialBalance;
+        this.barsProcessed = barsProcessed;
+    }
+
+    public int[] getTpHits() {
+        return Arrays.copyOf(tpHits, tpHits.length);
+    }
+
+    public double getNetPnlPercent() {
+        return netPnl / initialBalance * 100.0;
+    }
+
+    public double getMaxDrawdownPercent() {
+        return maxDrawdown / initialBalance * 100.0;
+    }
+
+    public double getWinRate() {
+        return trades == 0 ? 0 : (double) wins / trades;
+    }
+
+    /**
+     * Доля сделок, в которых исполнен i-й шаг плана выхода.
+     */
+    public double getTpHitRate(int step) {
+        return trades == 0 || step >= tpHits.length ? 0 : (double) tpHits[step] / trades;
+    }
+
+    public double getProfitFactor() {
+        return grossLoss == 0 ? (grossProfit > 0 ? Double.POSITIVE_INFINITY : 0) : grossProfit / grossLoss;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder hits = new StringBuilder();
+        for (int i = 0; i < tpHits.length; i++) {
+            hits.append(i == 0 ? "" : " / ").append(String.format("%.0f%%", getTpHitRate(i) * 100));
+        }
+        return String.format("""
+                        📊 Бэктест %s
+                        Сигналов: %d, сделок: %d (не исполнено %d, отменено %d, пропущено %d)
+                        PnL: %+.2f USDT (%+.2f%%), комиссии %.2f, profit factor %.2f
+                        Просадка: %.2f USDT (%.2f%%)
+                        Прибыльных: %d (%.1f%%), убыточных: %d
+                        Выходы: SL %d, безубыток %d, трейлинг %d, все TP %d, конец истории %d
+                        Исполнение шагов выхода: %s
+                        Баров обработано: %d""",
+                strategyName, signals, trades, notFilled, cancelled, skipped,
+                netPnl, getNetPnlPercent(), fees, getProfitFactor(),
+                maxDrawdown, getMaxDrawdownPercent(),
+                wins, getWinRate() * 100, losses,
+                stopLossExits, breakevenExits, trailingExits, takeProfitExits, openAtEnd,
+                hits.length() == 0 ? "—" : hits, barsProcessed);
+    }
+}
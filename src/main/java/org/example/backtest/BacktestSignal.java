@@ -0,0 +1,21 @@
+package org.example.backtest;
+
+import org.example.model.Direction;
+import org.example.model.Symbol;
+
+import java.util.List;
+
+/**
+ * Сигнал на вход, как он пришел бы в бота.
+ *
+ * @param entryPrice  цена лимитного входа; null — вход по рынку (open первого бара после сигнала)
+ * @param stopLoss    null — SL по defaultSlPercent конфига стратегии
+ * @param takeProfits пустой список — план выхода по PnL-правилам стратегии
+ */
+public record BacktestSignal(long timeMillis, Symbol symbol, Direction direction, Double entryPrice,
+                             Double stopLoss, List<Double> takeProfits) {
+
+    public BacktestSignal {
+        takeProfits = takeProfits != null ? List.copyOf(takeProfits) : List.of();
+    }
+}
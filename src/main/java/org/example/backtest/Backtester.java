@@ -0,0 +1,384 @@
+package org.example.backtest;
+
+import org.example.deal.Deal;
+import org.example.model.Direction;
+import org.example.model.EntryType;
+import org.example.model.Symbol;
+import org.example.strategy.config.StrategyConfig;
+import org.example.strategy.params.ExitPlan;
+import org.example.strategy.strategies.strategies.superStrategy.AbstractStrategy;
+import org.example.util.LoggerUtils;
+import org.example.util.ValuesUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Бэктест стратегий по истории цен.
+ * <p>
+ * Для каждого сигнала стратегия строит план выхода своим {@link AbstractStrategy#planExit(Deal)}
+ * (лестница TP или PnL-уровни из {@link StrategyConfig}), а дальше сделка ведется по барам так же,
+ * как в работе бота: исходный SL, исполнение шагов плана, перенос SL в безубыток при достижении
+ * PnL-правила ({@code OnePriceUpdateController}) и трейлинг ({@code TrailingManager}), если он включен в конфиге.
+ * Сам {@code onPriceUpdate} не вызывается: в работе он ходит в REST за позицией, а здесь позицию ведет
+ * модель исполнения ({@link FillModel}).
+ * <p>
+ * Цикл по барам работает только с примитивами; разные стратегии (конфиги) считаются параллельно
+ * в {@link ForkJoinPool}, серии цен общие и только читаются.
+ */
+public class Backtester {
+
+    private static final byte EXIT_STOP_LOSS = 0;
+    private static final byte EXIT_BREAKEVEN = 1;
+    private static final byte EXIT_TRAILING = 2;
+    private static final int MAX_EXIT_STEPS = 16;
+
+    private final Map<Symbol, PriceSeries> seriesBySymbol = new HashMap<>();
+    private final FillModel fillModel;
+    private final ForkJoinPool pool;
+
+    public Backtester(Collection<PriceSeries> series, FillModel fillModel) {
+        this(series, fillModel, ForkJoinPool.commonPool());
+    }
+
+    public Backtester(Collection<PriceSeries> series, FillModel fillModel, ForkJoinPool pool) {
+        for (PriceSeries s : series) {
+            seriesBySymbol.put(s.getSymbol(), s);
+        }
+        this.fillModel = fillModel;
+        this.pool = pool;
+    }
+
+    /**
+     * Прогоняет все стратегии по одним и тем же сигналам параллельно. Порядок результатов совпадает с порядком стратегий.
+     */
+    public List<BacktestResult> runAll(List<? extends AbstractStrategy> strategies, List<BacktestSignal> signals) {
+        BacktestResult[] results = new BacktestResult[strategies.size()];
+        if (!strategies.isEmpty()) {
+            pool.invoke(new RunTask(strategies, signals, results, 0, strategies.size()));
+        }
+        return Arrays.asList(results);
+    }
+
+    public BacktestResult run(AbstractStrategy strategy, List<BacktestSignal> signals) {
+        StrategyConfig config = strategy.getConfig();
+        Run run = new Run(signals.size());
+        for (BacktestSignal signal : signals) {
+            try {
+                simulate(strategy, config, signal, run);
+            } catch (RuntimeException e) {
+                LoggerUtils.warn("Бэктест: сигнал " + signal + " пропущен: " + e.getMessage());
+                run.skipped++;
+            }
+        }
+        return run.toResult(strategy.getClass().getSimpleName(), config, signals.size(), fillModel.getInitialBalance());
+    }
+
+    private final class RunTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends AbstractStrategy> strategies;
+        private final List<BacktestSignal> signals;
+        private final BacktestResult[] results;
+        private final int from;
+        private final int to;
+
+        private RunTask(List<? extends AbstractStrategy> strategies, List<BacktestSignal> signals,
+                        BacktestResult[] results, int from, int to) {
+            this.strategies = strategies;
+            this.signals = signals;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = run(strategies.get(from), signals);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RunTask(strategies, signals, results, from, middle),
+                    new RunTask(strategies, signals, results, middle, to));
+        }
+    }
+
+    private void simulate(AbstractStrategy strategy, StrategyConfig config, BacktestSignal signal, Run run) {
+        PriceSeries series = seriesBySymbol.get(signal.symbol());
+        if (series == null) {
+            run.skipped++;
+            return;
+        }
+        boolean isLong = signal.direction() == Direction.LONG;
+        double side = isLong ? 1 : -1;
+        double slippage = fillModel.getSlippagePercent() / 100.0;
+        boolean adverseFirst = fillModel.isAdverseFirst();
+        int size = series.size();
+        int bar = series.firstBarAtOrAfter(signal.timeMillis());
+
+        // --- Вход ---
+        Double limit = signal.entryPrice();
+        double fillPrice;
+        double entryFeeRate;
+        if (limit == null) {
+            if (bar >= size) {
+                run.notFilled++;
+                return;
+            }
+            fillPrice = series.open(bar) * (1 + side * slippage);
+            entryFeeRate = fillModel.getTakerFeePercent() / 100.0;
+        } else {
+            double firstTp = signal.takeProfits().isEmpty() ? Double.NaN : signal.takeProfits().get(0);
+            int deadline = fillModel.getEntryTimeoutBars() > 0 ? Math.min(size, bar + fillModel.getEntryTimeoutBars()) : size;
+            int startBar = bar;
+            boolean filled = false;
+            for (; bar < deadline; bar++) {
+                boolean touchesEntry = side * ((isLong ? series.low(bar) : series.high(bar)) - limit) <= 0;
+                boolean touchesTp = !Double.isNaN(firstTp) && side * ((isLong ? series.high(bar) : series.low(bar)) - firstTp) >= 0;
+                if (touchesEntry && (adverseFirst || !touchesTp)) {
+                    filled = true;
+                    break;
+                }
+                if (touchesTp) {
+                    // Как в OnePriceUpdateController: неактивная сделка закрывается, если цена ушла к первому TP
+                    run.barsProcessed += bar - startBar + 1;
+                    run.cancelled++;
+                    return;
+                }
+            }
+            run.barsProcessed += bar - startBar;
+            if (!filled) {
+                run.notFilled++;
+                return;
+            }
+            double open = series.open(bar);
+            fillPrice = side * (open - limit) <= 0 ? open : limit;
+            entryFeeRate = fillModel.getMakerFeePercent() / 100.0;
+        }
+        double entry = limit != null ? limit : fillPrice;
+
+        // --- SL и размер позиции (как DealCalculator, без округления по шагу лота) ---
+        double stop;
+        if (signal.stopLoss() != null) {
+            stop = signal.stopLoss();
+        } else if (config != null) {
+            stop = entry * (1 - side * config.getDefaultSlPercent());
+        } else {
+            run.skipped++;
+            return;
+        }
+        double stopDistance = side * (entry - stop);
+        if (stopDistance <= 0) {
+            run.skipped++;
+            return;
+        }
+        double balance = fillModel.getInitialBalance();
+        double riskPercent = config != null ? config.getMaxLossPrecen() : ValuesUtil.getDefaultLossPrecent();
+        double qty = balance * riskPercent / 100.0 / stopDistance;
+
+        Deal deal = new Deal(signal.symbol(), signal.direction(), limit != null ? EntryType.LIMIT : EntryType.MARKET,
+                entry, stop, signal.takeProfits());
+        deal.setPositionSize(qty);
+        deal.setLeverageUsed(findLeverage(config, entry, qty, balance));
+
+        // --- План выхода стратегии → примитивные массивы, шаги по удаленности от входа ---
+        ExitPlan plan = strategy.planExit(deal);
+        int steps = plan == null ? 0 : Math.min(plan.getSteps().size(), MAX_EXIT_STEPS);
+        double[] stepPrice = new double[steps];
+        double[] stepFraction = new double[steps];
+        if (steps > 0) {
+            List<ExitPlan.ExitStep> ordered = new ArrayList<>(plan.getSteps().subList(0, steps));
+            ordered.sort((a, b) -> Double.compare(side * a.getTakeProfit().toDouble(), side * b.getTakeProfit().toDouble()));
+            for (int i = 0; i < steps; i++) {
+                stepPrice[i] = ordered.get(i).getTakeProfit().toDouble();
+                stepFraction[i] = ordered.get(i).getPercentage() / 100.0;
+            }
+        }
+        boolean[] stepDone = new boolean[steps];
+
+        // PnL-правило: уровень достигнут, когда движение цены от входа ≥ ключа правила (плечо сокращается)
+        double breakevenPercent = Double.POSITIVE_INFINITY;
+        if (config != null) {
+            for (double level : config.getPnlTpExitRules().keySet()) {
+                breakevenPercent = Math.min(breakevenPercent, level);
+            }
+        }
+        boolean trailing = config != null && config.isTrailingEnabled();
+        double activationPct = trailing ? config.getTrailingActivationPercent() : 0;
+        double tightenPct = trailing ? config.getTrailingTightenPercent() : 0;
+        double loosePct = trailing ? config.getTrailingLoosePercent() : 0;
+        double tightPct = trailing ? config.getTrailingTightPercent() : 0;
+        boolean trailingActive = false;
+
+        // --- Ведение позиции ---
+        double makerFee = fillModel.getMakerFeePercent() / 100.0;
+        double takerFee = fillModel.getTakerFeePercent() / 100.0;
+        double fees = qty * fillPrice * entryFeeRate;
+        double pnl = -fees;
+        double remaining = 1.0;
+        double watermark = fillPrice;
+        byte stopKind = EXIT_STOP_LOSS;
+        boolean stoppedOut = false;
+        int startBar = bar;
+
+        for (; bar < size; bar++) {
+            double favorable = isLong ? series.high(bar) : series.low(bar);
+            double adverse = isLong ? series.low(bar) : series.high(bar);
+
+            if (adverseFirst && side * (adverse - stop) <= 0) {
+                stoppedOut = true;
+                break;
+            }
+            for (int i = 0; i < steps; i++) {
+                if (!stepDone[i] && side * (favorable - stepPrice[i]) >= 0) {
+                    stepDone[i] = true;
+                    run.tpHits[i]++;
+                    double part = Math.min(stepFraction[i], remaining);
+                    if (part > 0) {
+                        double fee = qty * part * stepPrice[i] * makerFee;
+                        pnl += qty * part * side * (stepPrice[i] - fillPrice) - fee;
+                        fees += fee;
+                        remaining -= part;
+                    }
+                }
+            }
+            if (remaining <= 1e-9) {
+                break;
+            }
+            if (!adverseFirst && side * (adverse - stop) <= 0) {
+                stoppedOut = true;
+                break;
+            }
+
+            // Безубыток и трейлинг считаются по итогам бара и действуют со следующего
+            watermark = isLong ? Math.max(watermark, favorable) : Math.min(watermark, favorable);
+            double movePercent = side * (watermark - entry) / entry * 100.0;
+            if (movePercent >= breakevenPercent && side * (entry - stop) > 0) {
+                stop = entry;
+                stopKind = EXIT_BREAKEVEN;
+            }
+            if (trailing && (trailingActive || movePercent >= activationPct)) {
+                trailingActive = true;
+                double distance = movePercent >= tightenPct ? tightPct : loosePct;
+                double target = watermark * (1 - side * distance / 100.0);
+                if (side * (target - stop) > 0) {
+                    stop = target;
+                    stopKind = EXIT_TRAILING;
+                }
+            }
+        }
+        run.barsProcessed += Math.min(bar, size - 1) - startBar + 1;
+
+        // --- Выход остатка ---
+        int exitBar;
+        if (remaining <= 1e-9) {
+            exitBar = bar;
+            run.takeProfitExits++;
+        } else if (stoppedOut) {
+            exitBar = bar;
+            double open = series.open(bar);
+            double price = (side * (open - stop) <= 0 ? open : stop) * (1 - side * slippage); // гэп через SL — по open
+            double fee = qty * remaining * price * takerFee;
+            pnl += qty * remaining * side * (price - fillPrice) - fee;
+            fees += fee;
+            switch (stopKind) {
+                case EXIT_BREAKEVEN -> run.breakevenExits++;
+                case EXIT_TRAILING -> run.trailingExits++;
+                default -> run.stopLossExits++;
+            }
+        } else {
+            exitBar = size - 1;
+            double price = series.close(exitBar);
+            double fee = qty * remaining * price * takerFee;
+            pnl += qty * remaining * side * (price - fillPrice) - fee;
+            fees += fee;
+            run.openAtEnd++;
+        }
+        run.recordTrade(series.time(exitBar), pnl, fees, steps);
+    }
+
+    // Как DealCalculator.findValidLeverage: первое плечо, при котором маржа ≤ 50% баланса
+    private static int findLeverage(StrategyConfig config, double entry, double qty, double balance) {
+        int[] options = config != null ? config.getLeverageTrails() : ValuesUtil.getDefaultLeverageTrails();
+        for (int leverage : options) {
+            double required = qty * entry / leverage;
+            if (required > 0 && required <= balance * 0.5) {
+                return leverage;
+            }
+        }
+        return 3;
+    }
+
+    /**
+     * Накопитель одного прогона (один поток).
+     */
+    private static final class Run {
+        private int notFilled;
+        private int cancelled;
+        private int skipped;
+        private int stopLossExits;
+        private int breakevenExits;
+        private int trailingExits;
+        private int takeProfitExits;
+        private int openAtEnd;
+        private final int[] tpHits = new int[MAX_EXIT_STEPS];
+        private int maxSteps;
+        private long barsProcessed;
+
+        private int trades;
+        private final long[] exitTime;
+        private final double[] tradePnl;
+        private double fees;
+
+        private Run(int capacity) {
+            this.exitTime = new long[capacity];
+            this.tradePnl = new double[capacity];
+        }
+
+        private void recordTrade(long time, double pnl, double tradeFees, int steps) {
+            exitTime[trades] = time;
+            tradePnl[trades] = pnl;
+            trades++;
+            fees += tradeFees;
+            maxSteps = Math.max(maxSteps, steps);
+        }
+
+        private BacktestResult toResult(String name, StrategyConfig config, int signals, double initialBalance) {
+            // Кривая капитала — по времени закрытия сделок
+            Integer[] order = new Integer[trades];
+            for (int i = 0; i < trades; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(exitTime[a], exitTime[b]));
+            double equity = 0;
+            double peak = 0;
+            double maxDrawdown = 0;
+            double grossProfit = 0;
+            double grossLoss = 0;
+            int wins = 0;
+            for (int index : order) {
+                double pnl = tradePnl[index];
+                equity += pnl;
+                peak = Math.max(peak, equity);
+                maxDrawdown = Math.max(maxDrawdown, peak - equity);
+                if (pnl > 0) {
+                    wins++;
+                    grossProfit += pnl;
+                } else {
+                    grossLoss -= pnl;
+                }
+            }
+            return new BacktestResult(name, config, signals, trades, notFilled, cancelled, skipped, wins, trades - wins,
+                    stopLossExits, breakevenExits, trailingExits, takeProfitExits, openAtEnd,
+                    Arrays.copyOf(tpHits, maxSteps), equity, grossProfit, grossLoss, fees, maxDrawdown,
+                    initialBalance, barsProcessed);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.backtest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Модель исполнения ордеров в бэктесте.
+ * По барам неизвестно, что было раньше внутри бара — минимум или максимум; по умолчанию считается,
+ * что сначала цена шла против позиции (SL проверяется раньше TP), это занижает, а не завышает результат.
+ */
+@Getter
+@Setter
+public class FillModel {
+
+    // Комиссии Bybit (linear, базовый уровень), % от оборота
+    private double makerFeePercent = 0.02;
+    private double takerFeePercent = 0.055;
+    // Проскальзывание рыночных выходов (SL, вход по рынку), % от цены
+    private double slippagePercent = 0.02;
+    // Внутри бара сначала неблагоприятный экстремум
+    private boolean adverseFirst = true;
+    // Лимитный вход отменяется, если не исполнен за столько баров; 0 — не отменяется
+    private int entryTimeoutBars = 0;
+    // Баланс, от которого считаются риск на сделку (maxLossPrecen) и PnL в %
+    private double initialBalance = 10_000;
+}
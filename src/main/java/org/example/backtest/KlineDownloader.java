@@ -0,0 +1,64 @@
+package org.example.backtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.bybit.client.BybitHttpClient;
+import org.example.model.Symbol;
+import org.example.util.LoggerUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Загрузка истории свечей с публичного /v5/market/kline (страницами по 1000, от новых к старым).
+ * Результат сохраняется через {@link PriceSeriesIO#writeBinary}, дальше бэктесты работают офлайн.
+ */
+public class KlineDownloader {
+
+    private static final String KLINE_ENDPOINT = "/v5/market/kline";
+    private static final int PAGE_LIMIT = 1000;
+
+    private final BybitHttpClient httpClient;
+
+    public KlineDownloader(BybitHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * @param interval интервал Bybit: 1, 3, 5, 15, 30, 60, 120, 240, 360, 720, D, W, M
+     */
+    public PriceSeries download(Symbol symbol, String interval, long startMillis, long endMillis) {
+        PriceSeriesIO.Columns columns = new PriceSeriesIO.Columns();
+        long cursor = endMillis;
+        while (cursor >= startMillis) {
+            Map<String, String> params = new HashMap<>();
+            params.put("category", "linear");
+            params.put("symbol", symbol.toString());
+            params.put("interval", interval);
+            params.put("start", String.valueOf(startMillis));
+            params.put("end", String.valueOf(cursor));
+            params.put("limit", String.valueOf(PAGE_LIMIT));
+
+            JsonNode response = httpClient.get(KLINE_ENDPOINT, params, JsonNode.class);
+            if (response == null || response.path("retCode").asInt(-1) != 0) {
+                throw new IllegalStateException("Bybit не вернул свечи " + symbol + ": "
+                        + (response != null ? response.path("retMsg").asText() : "пустой ответ"));
+            }
+            JsonNode rows = response.path("result").path("list");
+            if (rows.isEmpty()) {
+                break;
+            }
+            long oldest = Long.MAX_VALUE;
+            for (JsonNode row : rows) {
+                long time = row.get(0).asLong();
+                oldest = Math.min(oldest, time);
+                if (time >= startMillis && (columns.size() == 0 || time < columns.lastTime())) {
+                    columns.add(time, row.get(1).asDouble(), row.get(2).asDouble(), row.get(3).asDouble(), row.get(4).asDouble());
+                }
+            }
+            cursor = oldest - 1;
+            LoggerUtils.debug("KlineDownloader " + symbol + ": загружено " + columns.size() + " свечей");
+        }
+        LoggerUtils.info("📥 История " + symbol + " (" + interval + "): " + columns.size() + " свечей");
+        return columns.toSeries(symbol);
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.backtest;
+
+import lombok.Getter;
+import org.example.model.Symbol;
+
+import java.util.Arrays;
+
+/**
+ * История цены одного символа в колоночном виде: бар i — time[i], open[i], high[i], low[i], close[i].
+ * Сделки (trades) хранятся как бары с open = high = low = close.
+ * Массивы после создания не меняются, поэтому одна серия читается из любого числа потоков без копирования.
+ */
+public final class PriceSeries {
+
+    @Getter
+    private final Symbol symbol;
+    private final long[] time;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+
+    public PriceSeries(Symbol symbol, long[] time, double[] open, double[] high, double[] low, double[] close) {
+        int size = time.length;
+        if (open.length != size || high.length != size || low.length != size || close.length != size) {
+            throw new IllegalArgumentException("Колонки серии " + symbol + " разной длины");
+        }
+        for (int i = 1; i < size; i++) {
+            if (time[i] < time[i - 1]) {
+                throw new IllegalArgumentException("Серия " + symbol + " не упорядочена по времени (бар " + i + ")");
+            }
+        }
+        this.symbol = symbol;
+        this.time = time;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+    }
+
+    public static PriceSeries ofTrades(Symbol symbol, long[] time, double[] price) {
+        return new PriceSeries(symbol, time, price, price, price, price);
+    }
+
+    public int size() {
+        return time.length;
+    }
+
+    public long time(int bar) {
+        return time[bar];
+    }
+
+    public double open(int bar) {
+        return open[bar];
+    }
+
+    public double high(int bar) {
+        return high[bar];
+    }
+
+    public double low(int bar) {
+        return low[bar];
+    }
+
+    public double close(int bar) {
+        return close[bar];
+    }
+
+    /**
+     * Первый бар с временем ≥ timeMillis; size(), если таких нет.
+     */
+    public int firstBarAtOrAfter(long timeMillis) {
+        int index = Arrays.binarySearch(time, timeMillis);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && time[index - 1] == timeMillis) {
+            index--;
+        }
+        return index;
+    }
+
+    // Доступ к колонкам для записи и горячих циклов внутри пакета — без копирования
+    long[] timeColumn() {
+        return time;
+    }
+
+    double[] openColumn() {
+        return open;
+    }
+
+    double[] highColumn() {
+        return high;
+    }
+
+    double[] lowColumn() {
+        return low;
+    }
+
+    double[] closeColumn() {
+        return close;
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.backtest;
+
+import org.example.model.Symbol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Загрузка и сохранение {@link PriceSeries}.
+ * <ul>
+ *     <li>CSV — выгрузки Bybit: свечи {@code startTime,open,high,low,close[,...]} (время в мс)
+ *     или сделки {@code timestamp,symbol,side,size,price[,...]} (время в секундах с дробной частью).
+ *     Формат определяется по заголовку; строки без числового времени пропускаются.</li>
+ *     <li>Двоичный колоночный формат: заголовок (магия, версия, символ, число баров), затем колонки целиком
+ *     (time, open, high, low, close) в little-endian. Загружается одним чтением файла, без разбора текста —
+ *     CSV достаточно сконвертировать один раз.</li>
+ * </ul>
+ */
+public final class PriceSeriesIO {
+
+    private static final int MAGIC = 0x42415253; // "BARS"
+    private static final int VERSION = 1;
+
+    private PriceSeriesIO() {
+    }
+
+    public static PriceSeries readCsv(Path file, Symbol symbol) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            boolean trades = header != null && header.toLowerCase().contains("side");
+            Columns columns = new Columns();
+            if (header != null && Character.isDigit(header.charAt(0))) {
+                parseCsvLine(header, trades, columns); // файл без заголовка
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                parseCsvLine(line, trades, columns);
+            }
+            return columns.toSeries(symbol);
+        }
+    }
+
+    private static void parseCsvLine(String line, boolean trades, Columns columns) {
+        String[] cells = line.split(",");
+        if (cells.length < 5 || cells[0].isEmpty() || !Character.isDigit(cells[0].charAt(0))) {
+            return;
+        }
+        if (trades) {
+            long time = (long) (Double.parseDouble(cells[0]) * 1000);
+            double price = Double.parseDouble(cells[4]);
+            columns.add(time, price, price, price, price);
+        } else {
+            columns.add(Long.parseLong(cells[0]), Double.parseDouble(cells[1]), Double.parseDouble(cells[2]),
+                    Double.parseDouble(cells[3]), Double.parseDouble(cells[4]));
+        }
+    }
+
+    public static void writeBinary(PriceSeries series, Path file) throws IOException {
+        byte[] symbol = series.getSymbol().toString().getBytes(StandardCharsets.UTF_8);
+        int size = series.size();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4 + symbol.length + 4 + size * 8 * 5).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(symbol.length).put(symbol).putInt(size);
+        buffer.asLongBuffer().put(series.timeColumn());
+        buffer.position(buffer.position() + size * 8);
+        for (double[] column : new double[][]{series.openColumn(), series.highColumn(), series.lowColumn(), series.closeColumn()}) {
+            buffer.asDoubleBuffer().put(column);
+            buffer.position(buffer.position() + size * 8);
+        }
+        buffer.flip();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public static PriceSeries readBinary(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Файл " + file + " не является серией цен");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия серии цен " + version + " в " + file);
+        }
+        byte[] symbol = new byte[buffer.getInt()];
+        buffer.get(symbol);
+        int size = buffer.getInt();
+        if (buffer.remaining() != (long) size * 8 * 5) {
+            throw new IOException("Файл " + file + " поврежден: ожидалось " + size + " баров");
+        }
+        long[] time = new long[size];
+        buffer.asLongBuffer().get(time);
+        buffer.position(buffer.position() + size * 8);
+        double[][] prices = new double[4][size];
+        for (double[] column : prices) {
+            buffer.asDoubleBuffer().get(column);
+            buffer.position(buffer.position() + size * 8);
+        }
+        return new PriceSeries(new Symbol(new String(symbol, StandardCharsets.UTF_8)), time, prices[0], prices[1], prices[2], prices[3]);
+    }
+
+    /**
+     * Растущие колонки для загрузки; при чтении обратного порядка (новые первыми) серия разворачивается.
+     */
+    static final class Columns {
+        private long[] time = new long[1024];
+        private double[] open = new double[1024];
+        private double[] high = new double[1024];
+        private double[] low = new double[1024];
+        private double[] close = new double[1024];
+        private int size;
+
+        void add(long t, double o, double h, double l, double c) {
+            if (size == time.length) {
+                int capacity = size * 2;
+                time = Arrays.copyOf(time, capacity);
+                open = Arrays.copyOf(open, capacity);
+                high = Arrays.copyOf(high, capacity);
+                low = Arrays.copyOf(low, capacity);
+                close = Arrays.copyOf(close, capacity);
+            }
+            time[size] = t;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long lastTime() {
+            return time[size - 1];
+        }
+
+        PriceSeries toSeries(Symbol symbol) {
+            long[] t = Arrays.copyOf(time, size);
+            double[] o = Arrays.copyOf(open, size);
+            double[] h = Arrays.copyOf(high, size);
+            double[] l = Arrays.copyOf(low, size);
+            double[] c = Arrays.copyOf(close, size);
+            if (size > 1 && t[0] > t[size - 1]) {
+                reverse(t);
+                reverse(o);
+                reverse(h);
+                reverse(l);
+                reverse(c);
+            }
+            return new PriceSeries(symbol, t, o, h, l, c);
+        }
+
+        private static void reverse(long[] values) {
+            for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+                long tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+            }
+        }
+
+        private static void reverse(double[] values) {
+            for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+                double tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+            }
+        }
+    }
+}
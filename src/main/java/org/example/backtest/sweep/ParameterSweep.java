@@ -0,0 +1,94 @@
+package org.example.backtest.sweep;
+
+import org.example.backtest.BacktestResult;
+import org.example.backtest.BacktestSignal;
+import org.example.backtest.Backtester;
+import org.example.strategy.strategies.strategies.superStrategy.AbstractStrategy;
+import org.example.util.LoggerUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Подбор параметров правил выхода: каждый вариант {@link SweepSpace} прогоняется {@link Backtester}
+ * по одним и тем же сигналам и истории (серии цен общие и только читаются), варианты распределяются
+ * по ядрам пулом fork/join бэктестера с перехватом работы. Результат — таблица, отсортированная по целевой функции.
+ */
+public class ParameterSweep {
+
+    /**
+     * Целевая функция рейтинга.
+     */
+    public enum Objective {
+        NET_PNL(BacktestResult::getNetPnl),
+        PROFIT_FACTOR(BacktestResult::getProfitFactor),
+        // PnL на единицу максимальной просадки
+        RETURN_TO_DRAWDOWN(r -> r.getMaxDrawdown() == 0 ? r.getNetPnl() : r.getNetPnl() / r.getMaxDrawdown());
+
+        private final ToDoubleFunction<BacktestResult> score;
+
+        Objective(ToDoubleFunction<BacktestResult> score) {
+            this.score = score;
+        }
+    }
+
+    private final Backtester backtester;
+    private final List<BacktestSignal> signals;
+    private final Supplier<? extends AbstractStrategy> strategyFactory;
+
+    public ParameterSweep(Backtester backtester, List<BacktestSignal> signals, Supplier<? extends AbstractStrategy> strategyFactory) {
+        this.backtester = backtester;
+        this.signals = signals;
+        this.strategyFactory = strategyFactory;
+    }
+
+    /**
+     * @param minTrades варианты с меньшим числом сделок в рейтинг не попадают (статистически пусты)
+     */
+    public List<SweepResult> run(List<SweepCandidate> candidates, Objective objective, int minTrades) {
+        List<AbstractStrategy> strategies = new ArrayList<>(candidates.size());
+        for (SweepCandidate candidate : candidates) {
+            AbstractStrategy strategy = strategyFactory.get();
+            strategy.setConfig(candidate.config());
+            strategies.add(strategy);
+        }
+
+        long start = System.nanoTime();
+        List<BacktestResult> results = backtester.runAll(strategies, signals);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        List<SweepResult> ranked = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            BacktestResult result = results.get(i);
+            if (result.getTrades() >= minTrades) {
+                ranked.add(new SweepResult(0, objective.score.applyAsDouble(result), candidates.get(i), result));
+            }
+        }
+        ranked.sort(Comparator.comparingDouble(SweepResult::score).reversed());
+        for (int i = 0; i < ranked.size(); i++) {
+            SweepResult r = ranked.get(i);
+            ranked.set(i, new SweepResult(i + 1, r.score(), r.candidate(), r.result()));
+        }
+        LoggerUtils.info("🧪 Подбор параметров: " + candidates.size() + " вариантов × " + signals.size()
+                + " сигналов за " + elapsedMillis + " мс, в рейтинге " + ranked.size());
+        return ranked;
+    }
+
+    /**
+     * Текстовая таблица первых top строк рейтинга.
+     */
+    public static String table(List<SweepResult> ranked, int top) {
+        StringBuilder sb = new StringBuilder(String.format("%4s %10s %9s %8s %6s %6s %7s  %s%n",
+                "#", "score", "PnL%", "DD%", "PF", "win%", "сделок", "параметры"));
+        for (SweepResult r : ranked.subList(0, Math.min(top, ranked.size()))) {
+            BacktestResult result = r.result();
+            sb.append(String.format("%4d %10.3f %+9.2f %8.2f %6.2f %6.1f %7d  %s%n",
+                    r.rank(), r.score(), result.getNetPnlPercent(), result.getMaxDrawdownPercent(),
+                    result.getProfitFactor(), result.getWinRate() * 100, result.getTrades(), r.candidate().label()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.backtest.sweep;
+
+import org.example.strategy.config.StrategyConfig;
+
+/**
+ * Вариант конфига в подборе и его краткое описание для таблицы результатов.
+ */
+public record SweepCandidate(String label, StrategyConfig config) {
+}
@@ -0,0 +1,55 @@
+package org.example.backtest.sweep;
+
+import org.example.backtest.BacktestHarness;
+import org.example.backtest.BacktestSignal;
+import org.example.backtest.Backtester;
+import org.example.backtest.FillModel;
+import org.example.backtest.PriceSeries;
+import org.example.backtest.PriceSeriesIO;
+import org.example.model.Direction;
+import org.example.model.Symbol;
+import org.example.strategy.strategies.strategies.BasedStrategy;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запуск подбора параметров: {@code [файл.bars] [grid|random N]}.
+ * Без файла — синтетическое случайное блуждание; сигналы генерируются по импульсу последних 60 баров
+ * с SL 2% и тремя TP (1.5/3/4.5%), чтобы сравнивать именно правила выхода.
+ */
+public class SweepHarness {
+
+    public static void main(String[] args) throws Exception {
+        PriceSeries series = args.length > 0 && args[0].endsWith(".bars")
+                ? PriceSeriesIO.readBinary(Path.of(args[0]))
+                : BacktestHarness.randomWalk(new Symbol("BTCUSDT"), 1_000_000, 67_000, 11);
+        int modeIndex = args.length > 0 && args[0].endsWith(".bars") ? 1 : 0;
+        String mode = args.length > modeIndex ? args[modeIndex] : "grid";
+
+        List<BacktestSignal> signals = momentumSignals(series, 2_000);
+        SweepSpace space = new SweepSpace();
+        List<SweepCandidate> candidates = "random".equals(mode)
+                ? space.sample(Integer.parseInt(args[modeIndex + 1]), 42)
+                : space.grid();
+
+        ParameterSweep sweep = new ParameterSweep(new Backtester(List.of(series), new FillModel()), signals, BasedStrategy::new);
+        long start = System.nanoTime();
+        List<SweepResult> ranked = sweep.run(candidates, ParameterSweep.Objective.RETURN_TO_DRAWDOWN, 20);
+        System.out.printf("%d вариантов × %d сигналов: %.1f с%n", candidates.size(), signals.size(), (System.nanoTime() - start) / 1e9);
+        System.out.print(ParameterSweep.table(ranked, 15));
+    }
+
+    private static List<BacktestSignal> momentumSignals(PriceSeries series, int every) {
+        List<BacktestSignal> signals = new ArrayList<>();
+        for (int bar = 100; bar < series.size() - 1; bar += every) {
+            Direction direction = series.close(bar) >= series.close(bar - 60) ? Direction.LONG : Direction.SHORT;
+            double side = direction == Direction.LONG ? 1 : -1;
+            double entry = series.close(bar);
+            signals.add(new BacktestSignal(series.time(bar + 1), series.getSymbol(), direction, entry, entry * (1 - side * 0.02),
+                    List.of(entry * (1 + side * 0.015), entry * (1 + side * 0.03), entry * (1 + side * 0.045))));
+        }
+        return signals;
+    }
+}
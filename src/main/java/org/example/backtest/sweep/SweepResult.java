@@ -0,0 +1,9 @@
+package org.example.backtest.sweep;
+
+import org.example.backtest.BacktestResult;
+
+/**
+ * Результат одного варианта: место в рейтинге, значение целевой функции и полный отчет бэктеста.
+ */
+public record SweepResult(int rank, double score, SweepCandidate candidate, BacktestResult result) {
+}
@@ -0,0 +1,136 @@
+package org.example.backtest.sweep;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.example.strategy.config.StrategyConfig;
+import org.example.util.ValuesUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Пространство параметров {@link StrategyConfig} для подбора правил выхода.
+ * <ul>
+ *     <li>tpDecays — форма распределения объема по лестнице TP: доля i-го TP ∝ decay^i
+ *     (0.5 — почти все на первом TP, 1 — поровну); применяется ко всем количествам TP от 1 до 9;</li>
+ *     <li>pnlLevelScales — множитель уровней PnL-правил по умолчанию (8/15/23%), доли те же;</li>
+ *     <li>slPercents — defaultSlPercent (для сигналов без SL);</li>
+ *     <li>трейлинг: выключен или каждая комбинация activation/loose/tight/tighten.</li>
+ * </ul>
+ * Сетка — декартово произведение; случайная выборка берет каждое значение равномерно между минимумом
+ * и максимумом измерения.
+ */
+@Getter
+@Setter
+public class SweepSpace {
+
+    private static final int MAX_TP_COUNT = 9;
+
+    private double[] tpDecays = {0.5, 0.65, 0.8, 1.0};
+    private double[] pnlLevelScales = {0.5, 1.0, 1.5};
+    private double[] slPercents = {ValuesUtil.getDefaultSlPercent()};
+    private boolean[] trailingModes = {false, true};
+    private double[] trailingActivationPercents = {ValuesUtil.getTrailingActivationPercent()};
+    private double[] trailingLoosePercents = {1.5, 3.0};
+    private double[] trailingTightPercents = {ValuesUtil.getTrailingTightPercent()};
+    private double[] trailingTightenPercents = {ValuesUtil.getTrailingTightenPercent()};
+
+    public List<SweepCandidate> grid() {
+        List<SweepCandidate> candidates = new ArrayList<>();
+        for (double decay : tpDecays) {
+            for (double pnlScale : pnlLevelScales) {
+                for (double sl : slPercents) {
+                    for (boolean trailing : trailingModes) {
+                        if (!trailing) {
+                            candidates.add(candidate(decay, pnlScale, sl, false, 0, 0, 0, 0));
+                            continue;
+                        }
+                        for (double activation : trailingActivationPercents) {
+                            for (double loose : trailingLoosePercents) {
+                                for (double tight : trailingTightPercents) {
+                                    for (double tighten : trailingTightenPercents) {
+                                        candidates.add(candidate(decay, pnlScale, sl, true, activation, loose, tight, tighten));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    public List<SweepCandidate> sample(int count, long seed) {
+        Random random = new Random(seed);
+        List<SweepCandidate> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean trailing = trailingModes[random.nextInt(trailingModes.length)];
+            candidates.add(candidate(
+                    uniform(random, tpDecays), uniform(random, pnlLevelScales), uniform(random, slPercents), trailing,
+                    uniform(random, trailingActivationPercents), uniform(random, trailingLoosePercents),
+                    uniform(random, trailingTightPercents), uniform(random, trailingTightenPercents)));
+        }
+        return candidates;
+    }
+
+    private static double uniform(Random random, double[] range) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : range) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return max == min ? min : min + random.nextDouble() * (max - min);
+    }
+
+    private static SweepCandidate candidate(double decay, double pnlScale, double sl, boolean trailing,
+                                            double activation, double loose, double tight, double tighten) {
+        StrategyConfig config = new StrategyConfig();
+        config.setDefaultSlPercent(sl);
+        config.setTpExitRules(tpExitRules(decay));
+        Map<Double, Integer> pnlRules = new HashMap<>();
+        for (Map.Entry<Double, Integer> rule : ValuesUtil.getDefaultPnlTpExitRules().entrySet()) {
+            pnlRules.put(Math.round(rule.getKey() * pnlScale * 100) / 100.0, rule.getValue());
+        }
+        config.setPnlTpExitRules(pnlRules);
+        config.setTrailingEnabled(trailing);
+        String label = String.format("tp^%.2f pnl×%.2f sl=%.1f%%", decay, pnlScale, sl * 100);
+        if (trailing) {
+            config.setTrailingActivationPercent(activation);
+            config.setTrailingLoosePercent(loose);
+            config.setTrailingTightPercent(tight);
+            config.setTrailingTightenPercent(tighten);
+            label += String.format(" trail %.2f/%.2f/%.2f/%.2f", activation, loose, tight, tighten);
+        }
+        return new SweepCandidate(label, config);
+    }
+
+    /**
+     * Доли объема лестниц из 1..9 TP: ∝ decay^i, в целых процентах с суммой ровно 100.
+     */
+    static Map<Integer, int[]> tpExitRules(double decay) {
+        Map<Integer, int[]> rules = new TreeMap<>();
+        for (int count = 1; count <= MAX_TP_COUNT; count++) {
+            double[] weights = new double[count];
+            double total = 0;
+            for (int i = 0; i < count; i++) {
+                weights[i] = Math.pow(decay, i);
+                total += weights[i];
+            }
+            int[] split = new int[count];
+            int assigned = 0;
+            for (int i = 0; i < count; i++) {
+                split[i] = Math.max(1, (int) Math.floor(weights[i] / total * 100));
+                assigned += split[i];
+            }
+            split[0] += 100 - assigned; // остаток округления — на первый TP
+            rules.put(count, split);
+        }
+        return rules;
+    }
+}
@@ -4,22 +4,34 @@ import lombok.Getter;
 import lombok.Setter;
 import org.example.ai.AiService;
 import org.example.bybit.BybitManager;
+import org.example.bybit.dto.WalletSnapshot;
 import org.example.deal.utils.ActiveDealStore;
 import org.example.deal.Deal;
 import org.example.deal.utils.DealCalculator;
 import org.example.result.OperationResult;
+import org.example.update.RestoreSession;
 import org.example.update.UpdateManager;
-import org.example.deal.dto.DealRequest;
 import org.example.deal.dto.DealValidationResult;
+import org.example.metrics.DealTrace;
+import org.example.metrics.Metrics;
+import org.example.metrics.TraceStage;
+import org.example.metrics.Tracer;
 import org.example.model.Direction;
 import org.example.model.EntryType;
+import org.example.model.Symbol;
+import org.example.monitor.PriceMonitor;
+import org.example.monitor.trailing.TrailingManager;
+import org.example.monitor.trailing.TrailingSession;
 import org.example.strategy.strategies.strategies.StrategyFactory;
 import org.example.util.EmojiUtils;
 import org.example.util.LoggerUtils;
+import org.example.util.ValuesUtil;
 
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 
 @Getter
@@ -27,14 +39,11 @@ import java.util.List;
 public class BotCommandHandler {
     private BybitManager bybitManager;
     private final ActiveDealStore activeDealStore;
-    private String strategyName = "ai";
-    private boolean waitingSignal = false;
     private  UpdateManager updateManager;
     private MessageSender messageSender;
     private final AiService aiService;
-    private boolean justChat = false;
-    private DealRequest dealRequest;
-    private Deal deal;
+    // Состояние диалога — отдельно для каждого чата
+    private final ChatSessionStore sessions = new ChatSessionStore(Duration.ofMinutes(ValuesUtil.getChatSessionIdleMinutes()));
     // -----------------
 
     public BotCommandHandler(BybitManager bybitManager, AiService aiService, ActiveDealStore activeDealStore, MessageSender messageSender, UpdateManager updateManager) {
@@ -45,21 +54,30 @@ public class BotCommandHandler {
         this.aiService = aiService;
     }
     public void handleCommand(long chatId, String command, String messageText) {
+        ChatSession session = sessions.get(chatId);
 
         switch (command.toLowerCase()) {
             case "/start", "/help" -> sendHelpMessage(chatId);
-            case "/getsgnl" -> handleGetSignal(chatId, messageText);
-            case "/check" -> handleCheck(chatId);
-            case "/amount" -> handleAmount(chatId);
-            case "/go" -> handleGo(chatId);
+            case "/getsgnl" -> handleGetSignal(session, messageText);
+            case "/check" -> handleCheck(session);
+            case "/amount" -> handleAmount(session);
+            case "/go" -> handleGo(session);
             case "/list" -> handleList(chatId);
-            case "/write" -> handleWrite(chatId, messageText);
+            case "/write" -> handleWrite(session, messageText);
             case "/orders" -> handleOrders(chatId);
             case "/calculate" -> handleCalculate(chatId);
-            case "/lossupdate" -> updateLossPrecent(chatId);
-            case "/exit" -> handleExit(chatId);
-            case "/update" -> handleUpdateDeals(chatId, messageText.isEmpty()? "defaultValue" : messageText);
-            case "/setstrat" -> handleSetStrategy(chatId, messageText);
+            case "/lossupdate" -> updateLossPrecent(session);
+            case "/exit" -> handleExit(session);
+            case "/update" -> handleUpdateDeals(session, messageText.isEmpty()? "defaultValue" : messageText);
+            case "/setstrat" -> handleSetStrategy(session, messageText);
+            case "/reconcile" -> handleReconcile(session, messageText);
+            case "/trail" -> handleTrail(chatId, messageText);
+            case "/cachestats" -> messageSender.send(chatId, EmojiUtils.INFO + " " + aiService.getSignalCacheStats());
+            case "/queues" -> messageSender.send(chatId, EmojiUtils.INFO + " " + messageSender.getBot().getChatDispatcher().getStats()
+                    + "\n" + messageSender.getOutbox().getStats());
+            case "/metrics" -> messageSender.send(chatId, Metrics.registry().toSummary());
+            case "/trace" -> handleTrace(chatId, messageText);
+            case "/risk" -> handleRisk(chatId);
             default -> messageSender.send(chatId, EmojiUtils.INFO + " Неизвестная команда: " + command);
         }
     }
@@ -77,23 +95,37 @@ public class BotCommandHandler {
                 /calculate - расчёт средней цены входа
                 /exit - отмена текущего действия
                 /update - обновить сделки из Bybit
+                /reconcile [strategy_name] - сверить все сделки с Bybit без диалога (новым позициям — стратегия по умолчанию)
+                /trail [SYMBOL] - включить/выключить трейлинг-стоп сделки; без аргумента — список
+                /cachestats - статистика кэша разобранных сигналов
+                /queues - очереди входящих команд и исходящих сообщений
+                /metrics - счетчики и задержки (WebSocket, REST, ордера, ИИ, Telegram)
+                /risk - суммарный риск сделок: номинал, маржа, убыток по SL по направлениям и группам монет
+                /trace [номер|id сделки|символ] - этапы сделки от сигнала до ордеров; без аргумента — перцентили по этапам
                 /setstrat <strategy_name> - установить стратегию по умолчанию для новых сделок (например, /setstrat fixed_risk)
                 """; // <-- Обновлённый текст помощи
         messageSender.send(chatId, helpText);
     }
-    private void cycleBreak(long chatId) {
+    private void cycleBreak(ChatSession session) {
+        long chatId = session.getChatId();
+        Deal deal = session.getDeal();
+        if (deal == null) {
+            return;
+        }
         if (activeDealStore.containsDeal(deal.getId())) {
            messageSender.send(chatId, bybitManager.getBybitOrderService().closeDeal(deal).getMessage());
         }
 
         activeDealStore.removeDeal(deal.getId());
-        LoggerUtils.info("cycleBreak(): сделка " + (deal != null ? deal.getId() : "null") + " удалена из activeDealStore");
-        deal = null;
+        LoggerUtils.info("cycleBreak(): сделка " + deal.getId() + " удалена из activeDealStore");
+        session.setDeal(null);
     }
 
-    private void handleGetSignal(long chatId, String messageText) {
-        if (!waitingSignal) {
-            waitingSignal = true;
+    private void handleGetSignal(ChatSession session, String messageText) {
+        long chatId = session.getChatId();
+        String strategyName = session.getStrategyName();
+        if (!session.isWaitingSignal()) {
+            session.setWaitingSignal(true);
             messageSender.send(chatId, "Жду сигнал");
             return;
         }
@@ -101,13 +133,13 @@ public class BotCommandHandler {
         messageText = messageText.replace("/getsgnl", "").trim();
         if (messageText.isEmpty()) {
             messageSender.sendWarn(chatId, "Сигнал пустой. Отмена.", "handleGetSignal");
-            waitingSignal = false;
+            session.setWaitingSignal(false);
             return;
         }
         if (messageText.startsWith("/")) {
             messageSender.sendWarn(chatId, "Нельзя отправлять команду как сигнал. Отмена.", "handleGetSignal");
             LoggerUtils.warn("Попытка использовать команду как сигнал: " + messageText);
-            waitingSignal = false;
+            session.setWaitingSignal(false);
             return;
         }
 
@@ -128,30 +160,34 @@ public class BotCommandHandler {
                 String errorMsg = "Не удалось обработать сигнал после двух попыток";
                 messageSender.sendError(chatId, errorMsg, secondAttemptEx, "handleGetSignal");
                 LoggerUtils.error(errorMsg + ". Первое исключение:", firstAttemptEx);
-                cycleBreak(chatId);
-                waitingSignal = false;
+                cycleBreak(session);
+                session.setWaitingSignal(false);
                 return;
             }
         }
 
         // Если хотя бы одна попытка прошла успешно
-        deal = createdDeal;
-        messageSender.send(chatId, deal.toString());
+        session.setDeal(createdDeal);
+        messageSender.send(chatId, createdDeal.toString());
         LoggerUtils.info("Сделка создана успешно");
-        waitingSignal = false;
+        session.setWaitingSignal(false);
     }
-    private void handleCheck(long chatId) {
+    private void handleCheck(ChatSession session) {
+        long chatId = session.getChatId();
+        Deal deal = session.getDeal();
         if (deal == null) {
             messageSender.sendWarn(chatId, "Проверять нечего, Deal is null", "handleCheck()");
-            cycleBreak(chatId);
+            cycleBreak(session);
             return;
         }
         try {
+            long validateStart = System.nanoTime();
             DealValidationResult result = deal.getStrategy().validateDeal(deal, bybitManager.getBybitMarketService());
+            Tracer.record(deal, TraceStage.VALIDATE, validateStart, result.getErrors().isEmpty());
 
             if (!result.getErrors().isEmpty()) {
                 messageSender.send(chatId, result.formatErrors().toString());
-                cycleBreak(chatId);
+                cycleBreak(session);
                 return;
             }
 
@@ -160,19 +196,34 @@ public class BotCommandHandler {
             } else {
                 messageSender.send(chatId, EmojiUtils.OKAY + " Проверка пройдена: всё в порядке");
             }
+            sendAiReview(chatId, deal);
 
         } catch (Exception e) {
             messageSender.sendError(chatId, "Ошибка проверки сделки", e, "handleCheck()");
         }
     }
 
-    private void handleAmount(long chatId) {
+    // Замечания ИИ к сделке перед /go: только подсказка, недоступность ИИ проверку не проваливает
+    private void sendAiReview(long chatId, Deal deal) {
+        try {
+            messageSender.send(chatId, EmojiUtils.ROBO + " Замечания ИИ:\n" + aiService.reviewDeal(deal.toString()));
+        } catch (Exception e) {
+            messageSender.sendWarn(chatId, "ИИ-разбор сделки недоступен: " + e.getMessage(), "handleCheck()");
+        }
+    }
+
+    private void handleAmount(ChatSession session) {
+        long chatId = session.getChatId();
+        Deal deal = session.getDeal();
         if (deal == null) {
             messageSender.sendWarn(chatId, "Проверять нечего, Deal is null", "handleAmount()");
             return;
         }
         try {
-            messageSender.send(chatId,  EmojiUtils.OKAY + "\n" + deal.getStrategy().calculateDeal(deal, new DealCalculator(bybitManager.getBybitAccountService(), bybitManager.getBybitMarketService())));
+            long calculateStart = System.nanoTime();
+            String calculation = deal.getStrategy().calculateDeal(deal, new DealCalculator(bybitManager.getBybitAccountService(), bybitManager.getBybitMarketService(), activeDealStore.getRiskBook()));
+            Tracer.record(deal, TraceStage.CALCULATE, calculateStart, true);
+            messageSender.send(chatId,  EmojiUtils.OKAY + "\n" + calculation);
 
         } catch (Exception e) {
             messageSender.sendError(chatId, "Ошибка расчёта позиции", e, "handleAmount()");
@@ -182,7 +233,9 @@ public class BotCommandHandler {
 
 
 
-    private void handleGo(long chatId) {
+    private void handleGo(ChatSession session) {
+        long chatId = session.getChatId();
+        Deal deal = session.getDeal();
         if (deal == null) {
             messageSender.sendWarn(chatId, "Сделки нет!", "handleGo()");
             return;
@@ -198,24 +251,44 @@ public class BotCommandHandler {
                         messageSender.send(chatId, EmojiUtils.OKAY + " Сделка открыта!\n" + deal.bigDealToString() + "\n" + result.getMessage());
                     } else {
                         messageSender.sendWarn(chatId, result.getMessage(), "handleGo()");
-                        cycleBreak(chatId);
+                        cycleBreak(session);
                     }
                 } else {
                     messageSender.send(chatId, "🕒 Лимитный ордер выставлен. Ожидаем вход...");
                 }
             } else {
                 messageSender.sendWarn(chatId, "❌ Ордер не был размещён.", "handleGo()");
-                cycleBreak(chatId);
+                cycleBreak(session);
             }
         } catch (Exception e) {
             // Только для truly неожиданных ошибок (NPE, DI-сбой и т.п.)
             messageSender.sendError(chatId, "❌ Критическая ошибка", e, "handleGo()");
-            cycleBreak(chatId);
+            cycleBreak(session);
         }
     }
 
 
 
+    private void handleRisk(long chatId) {
+        // Проценты — от последнего известного баланса, без запроса к бирже
+        WalletSnapshot wallet = bybitManager.getBybitAccountService().peekWalletSnapshot();
+        messageSender.send(chatId, activeDealStore.getRiskBook().summary(wallet != null ? wallet.getTotalEquity() : 0));
+    }
+
+    private void handleTrace(long chatId, String messageText) {
+        String query = messageText.trim();
+        if (query.isEmpty()) {
+            messageSender.send(chatId, Tracer.summary());
+            return;
+        }
+        DealTrace trace = Tracer.find(query);
+        if (trace == null) {
+            messageSender.sendWarn(chatId, "Трасса не найдена: " + query, "handleTrace()");
+            return;
+        }
+        messageSender.send(chatId, trace.waterfall());
+    }
+
     private void handleList(long chatId) {
         List<Deal> deals = activeDealStore.getAllDeals();
         if (deals.isEmpty()) {
@@ -229,14 +302,15 @@ public class BotCommandHandler {
         messageSender.send(chatId, sb.toString());
     }
 
-    private void handleWrite(long chatId, String messageText) {
-        if (!justChat) {
+    private void handleWrite(ChatSession session, String messageText) {
+        long chatId = session.getChatId();
+        if (!session.isJustChat()) {
             messageSender.send(chatId, "Функция добавления заметок пока не реализована. Переключено в режим общения с ИИ");
-            justChat = true;
+            session.setJustChat(true);
             return;
         }
         messageSender.send(chatId, "Функция добавления заметок пока не реализована. Переключено в режим работы со сделками");
-        justChat = false;
+        session.setJustChat(false);
     }
 
     private void handleOrders(long chatId) {
@@ -247,18 +321,20 @@ public class BotCommandHandler {
         messageSender.send(chatId, "Функция расчёта средней цены входа пока не реализована.");
     }
 
-    private void handleExit(long chatId) {
-        messageSender.send(chatId, "Cделка обнулена.");
-        cycleBreak(chatId);
+    private void handleExit(ChatSession session) {
+        messageSender.send(session.getChatId(), "Cделка обнулена.");
+        cycleBreak(session);
     }
 
 
-    private void handleUpdateDeals(long chatId, String strategyName) {
+    private void handleUpdateDeals(ChatSession session, String strategyName) {
+       long chatId = session.getChatId();
+       RestoreSession restoreSession = session.getRestoreSession();
        try {
-           if (updateManager.isCreateDealsProcess()) {
+           if (restoreSession.isCreateDealsProcess()) {
                // Это ответ пользователя на запрос стратегии
-               String result = updateManager.updateDeals(activeDealStore, chatId, strategyName);
-               if (updateManager.isCreateDealsProcess()) {
+               String result = updateManager.updateDeals(activeDealStore, chatId, strategyName, restoreSession);
+               if (restoreSession.isCreateDealsProcess()) {
                    messageSender.sendWithButtons(chatId, result, StrategyFactory.getAvailableStrategies());
                    return;
                }
@@ -267,8 +343,8 @@ public class BotCommandHandler {
            }
 
             // Первый вызов /update — просто синхронизация
-            String result = updateManager.updateDeals(activeDealStore, chatId, "");
-            if (updateManager.isCreateDealsProcess()) {
+            String result = updateManager.updateDeals(activeDealStore, chatId, "", restoreSession);
+            if (restoreSession.isCreateDealsProcess()) {
                 messageSender.sendWithButtons(chatId, result, StrategyFactory.getAvailableStrategies());
             } else {
                 messageSender.sendAndClearButtons(chatId, result);
@@ -282,6 +358,66 @@ public class BotCommandHandler {
     }
 
 
+    /**
+     * Обработчик команды /reconcile [strategy]
+     * Массовая сверка всех позиций и ордеров с Bybit одной сводкой.
+     */
+    private void handleReconcile(ChatSession session, String messageText) {
+        long chatId = session.getChatId();
+        String strategy = messageText.isBlank() ? session.getStrategyName() : messageText.trim().split("\\s+")[0].toLowerCase();
+        try {
+            messageSender.sendAndClearButtons(chatId, updateManager.reconcileAll(activeDealStore, chatId, strategy, session.getRestoreSession()));
+        } catch (Exception e) {
+            String errorMsg = "Ошибка в handleReconcile";
+            messageSender.sendAndClearButtons(chatId, errorMsg + ": " + e.getMessage());
+            LoggerUtils.error(errorMsg, e);
+        }
+    }
+
+
+    /**
+     * Обработчик команды /trail [SYMBOL]
+     * Без аргумента — активные сессии трейлинга, с символом — включает/выключает трейлинг сделки.
+     */
+    private void handleTrail(long chatId, String messageText) {
+        PriceMonitor priceMonitor = messageSender.getBot().getPriceMonitor();
+        TrailingManager trailingManager = messageSender.getBot().getTrailingManager();
+        if (messageText.isBlank()) {
+            List<TrailingSession> sessionsList = trailingManager.getSessions();
+            messageSender.send(chatId, sessionsList.isEmpty()
+                    ? EmojiUtils.INFO + " Трейлинг не запущен ни для одной сделки"
+                    : EmojiUtils.INFO + " Трейлинг:\n" + sessionsList.stream().map(TrailingSession::toString).collect(Collectors.joining("\n")));
+            return;
+        }
+        if (priceMonitor == null) {
+            messageSender.sendWarn(chatId, "Мониторинг цен еще не запущен", "handleTrail()");
+            return;
+        }
+        Symbol symbol;
+        try {
+            symbol = new Symbol(messageText.trim().split("\\s+")[0].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            messageSender.sendWarn(chatId, "Некорректный символ: " + messageText, "handleTrail()");
+            return;
+        }
+        Deal deal = activeDealStore.getAllDeals().stream()
+                .filter(d -> symbol.equals(d.getSymbol()))
+                .findFirst().orElse(null);
+        if (deal == null) {
+            messageSender.sendWarn(chatId, "Нет активной сделки по " + symbol, "handleTrail()");
+            return;
+        }
+        if (trailingManager.isTrailing(deal.getId())) {
+            trailingManager.stop(deal.getId());
+            messageSender.send(chatId, EmojiUtils.OKAY + " Трейлинг для " + symbol + " выключен");
+            return;
+        }
+        OperationResult result = priceMonitor.startTrailing(deal);
+        result.logErrorIfFailed();
+        messageSender.send(chatId, (result.isSuccess() ? EmojiUtils.OKAY : EmojiUtils.WARN) + " " + result.getMessage());
+    }
+
+
     // --- Вспомогательные методы --- //
     private Deal getActiveDeal(long chatId) {
         List<Deal> deals = activeDealStore.getAllDeals();
@@ -298,7 +434,8 @@ public class BotCommandHandler {
      * Устанавливает стратегию по умолчанию для будущих сделок.
      * Пример использования: /setstrat fixed_risk
      */
-    private void handleSetStrategy(long chatId, String messageText) {
+    private void handleSetStrategy(ChatSession session, String messageText) {
+        long chatId = session.getChatId();
         // Извлекаем название стратегии из текста сообщения
         String[] parts = messageText.trim().split("\\s+", 2); // Разделяем по пробелам, максимум на 2 части
         if (parts.length < 2) {
@@ -315,13 +452,14 @@ public class BotCommandHandler {
         }
 
         // Сохраняем стратегию по умолчанию
-        this.strategyName = strategyNameInput.toLowerCase(); // Приводим к нижнему регистру для единообразия
-        messageSender.send(chatId, EmojiUtils.OKAY + " Стратегия по умолчанию для новых сделок установлена на: " + this.strategyName);
-        LoggerUtils.info("Стратегия по умолчанию изменена пользователем на " + this.strategyName);
+        session.setStrategyName(strategyNameInput.toLowerCase()); // Приводим к нижнему регистру для единообразия
+        messageSender.send(chatId, EmojiUtils.OKAY + " Стратегия по умолчанию для новых сделок установлена на: " + session.getStrategyName());
+        LoggerUtils.info("Стратегия по умолчанию изменена пользователем (" + chatId + ") на " + session.getStrategyName());
     }
     // ------------------
-    private  void updateLossPrecent(long chatId) {
-        double updateLoss = StrategyFactory.getStrategy(strategyName).RiskUpdate(bybitManager.getBybitAccountService());
+    private  void updateLossPrecent(ChatSession session) {
+        long chatId = session.getChatId();
+        double updateLoss = StrategyFactory.getStrategy(session.getStrategyName()).RiskUpdate(bybitManager.getBybitAccountService());
         String message = "Предел риска обновлен на " +  updateLoss + "$ на позицию";
         messageSender.send(chatId, message);
         LoggerUtils.info(message);
@@ -0,0 +1,137 @@
+package org.example.bot;
+
+import org.example.metrics.Metrics;
+import org.example.util.LoggerUtils;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Разводит обработку обновлений Telegram по чатам: у каждого chatId своя последовательная очередь
+ * (команды одного чата выполняются строго по порядку), а разные чаты обрабатываются параллельно
+ * на общем пуле потоков. Поток long polling только ставит задачу в очередь и сразу возвращается.
+ */
+public class ChatDispatcher {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory());
+    private final Map<Long, ChatQueue> queues = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    public ChatDispatcher() {
+        Metrics.counterFunction("chat_commands_submitted_total", "Обновления Telegram, поставленные в очереди чатов", submitted::sum);
+        Metrics.counterFunction("chat_commands_processed_total", "Выполненные обновления Telegram", processed::sum);
+        Metrics.counterFunction("chat_commands_failed_total", "Обновления Telegram, завершившиеся ошибкой", failed::sum);
+        Metrics.gauge("chat_commands_queued", "Обновлений Telegram в очередях чатов", this::getTotalQueued);
+    }
+
+    /**
+     * Ставит задачу в очередь чата.
+     *
+     * @return глубина очереди чата вместе с этой задачей (1 — чат был свободен)
+     */
+    public int submit(long chatId, Runnable task) {
+        ChatQueue queue = queues.computeIfAbsent(chatId, ChatQueue::new);
+        int depth = queue.depth.incrementAndGet();
+        queue.tasks.add(task);
+        submitted.increment();
+        maxDepth.accumulateAndGet(depth, Math::max);
+        queue.schedule();
+        return depth;
+    }
+
+    public int getQueueDepth(long chatId) {
+        ChatQueue queue = queues.get(chatId);
+        return queue == null ? 0 : queue.depth.get();
+    }
+
+    public int getTotalQueued() {
+        int total = 0;
+        for (ChatQueue queue : queues.values()) {
+            total += queue.depth.get();
+        }
+        return total;
+    }
+
+    public String getStats() {
+        return String.format("Очереди чатов: чатов %d, в очереди %d, макс. глубина %d, принято %d, выполнено %d, ошибок %d",
+                queues.size(), getTotalQueued(), maxDepth.get(), submitted.sum(), processed.sum(), failed.sum());
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Очередь одного чата. В каждый момент её разбирает не больше одного потока (флаг running).
+     */
+    private final class ChatQueue {
+        private final long chatId;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private ChatQueue(long chatId) {
+            this.chatId = chatId;
+        }
+
+        private void schedule() {
+            if (running.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                        processed.increment();
+                    } catch (Exception e) {
+                        failed.increment();
+                        LoggerUtils.error("Ошибка обработки обновления чата " + chatId, e);
+                    } finally {
+                        depth.decrementAndGet();
+                    }
+                }
+            } finally {
+                running.set(false);
+            }
+            // Задача могла прийти между poll() == null и сбросом флага
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    private static final class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "chat-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.bot;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.example.deal.Deal;
+import org.example.deal.dto.DealRequest;
+import org.example.update.RestoreSession;
+
+/**
+ * Состояние диалога одного чата: текущая сделка, ожидание сигнала, режим чата с ИИ,
+ * выбранная стратегия и пошаговое восстановление сделок.
+ * Команды одного чата выполняются последовательно ({@link ChatDispatcher}), поэтому синхронизация не нужна.
+ */
+@Getter
+@Setter
+public class ChatSession {
+    private final long chatId;
+    private String strategyName = "ai";
+    private boolean waitingSignal = false;
+    private boolean justChat = false;
+    private DealRequest dealRequest;
+    private Deal deal;
+    private final RestoreSession restoreSession = new RestoreSession();
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+
+    public ChatSession(long chatId) {
+        this.chatId = chatId;
+    }
+
+    void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+}
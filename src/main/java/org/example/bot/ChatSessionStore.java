@@ -0,0 +1,59 @@
+package org.example.bot;
+
+import org.example.util.LoggerUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сессии чатов по chatId. Сессия создается при первом обращении и удаляется после простоя idleTimeout
+ * (проверка раз в минуту в фоновом потоке).
+ */
+public class ChatSessionStore {
+
+    private final Map<Long, ChatSession> sessions = new ConcurrentHashMap<>();
+    private final Duration idleTimeout;
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chat-session-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChatSessionStore(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        evictor.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Сессия чата (создается при необходимости); отмечает обращение.
+     */
+    public ChatSession get(long chatId) {
+        ChatSession session = sessions.computeIfAbsent(chatId, ChatSession::new);
+        session.touch();
+        return session;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    void evictIdle() {
+        long threshold = System.currentTimeMillis() - idleTimeout.toMillis();
+        sessions.values().removeIf(session -> {
+            if (session.getLastAccessMillis() >= threshold) {
+                return false;
+            }
+            LoggerUtils.info("🧹 Сессия чата " + session.getChatId() + " удалена после простоя"
+                    + (session.getDeal() != null ? " (неподтвержденная сделка " + session.getDeal().getId() + ")" : ""));
+            return true;
+        });
+    }
+
+    public void shutdown() {
+        evictor.shutdownNow();
+    }
+}
@@ -4,9 +4,8 @@ import lombok.Getter;
 import lombok.Setter;
 import org.example.util.EmojiUtils;
 import org.example.util.LoggerUtils;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.example.util.ValuesUtil;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.util.List;
 
@@ -15,9 +14,14 @@ import java.util.List;
 public class MessageSender {
     private final TradingBot bot;
     private final ButtonManager buttonManager = new ButtonManager();
+    // Сообщения уходят асинхронно, с учетом лимитов Telegram
+    private final OutboundMessageQueue outbox;
 
     public MessageSender(TradingBot bot) {
         this.bot = bot;
+        this.outbox = new OutboundMessageQueue(bot::execute,
+                ValuesUtil.getTelegramChatBurst(), ValuesUtil.getTelegramChatPerSecond(),
+                ValuesUtil.getTelegramGlobalPerSecond(), ValuesUtil.getTelegramSenderThreads());
     }
 
     public void send(long chatId, String msg) {
@@ -36,18 +40,9 @@ public class MessageSender {
     }
 
     private void send(long chatId, String msg, ReplyKeyboard replyKeyboard) {
-        SendMessage message = new SendMessage();
-        message.setChatId(String.valueOf(chatId));
-        message.setText(msg);
-        message.setReplyMarkup(replyKeyboard);
-
-        try {
-            bot.execute(message);
-            LoggerUtils.info(EmojiUtils.ROBO + "(" + chatId + "): " + msg);
-        } catch (TelegramApiException e) {
-            LoggerUtils.error("Не удалось отправить сообщение в Telegram", e);
-            // НЕ делай e.printStackTrace() — логгер уже всё записал
-        }
+        outbox.enqueue(chatId, msg, replyKeyboard);
+        // Полный текст пишется в DEBUG при фактической отправке
+        LoggerUtils.info(EmojiUtils.ROBO + "(" + chatId + "): сообщение в очереди, " + (msg == null ? 0 : msg.length()) + " симв.");
     }
 
 
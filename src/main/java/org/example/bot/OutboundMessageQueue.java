@@ -0,0 +1,337 @@
+package org.example.bot;
+
+import org.example.metrics.LatencyRecorder;
+import org.example.metrics.Metrics;
+import org.example.util.EmojiUtils;
+import org.example.util.LoggerUtils;
+import org.example.util.TokenBucket;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Асинхронная очередь исходящих сообщений Telegram.
+ * <ul>
+ *     <li>вызывающий поток только кладет сообщение в очередь чата;</li>
+ *     <li>лимиты соблюдаются маркерными корзинами — на каждый чат и общей;</li>
+ *     <li>подряд идущие сообщения одному чату склеиваются в одно (до 4096 символов);</li>
+ *     <li>на 429 сообщение возвращается в начало очереди и отправляется через retry_after.</li>
+ * </ul>
+ * В каждый момент для одного чата отправляется не больше одного сообщения, поэтому порядок сохраняется.
+ */
+public class OutboundMessageQueue {
+
+    public static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 1_000;
+    private static final LatencyRecorder SEND_LATENCY = Metrics.latency("telegram_send_seconds", "Запрос sendMessage к Telegram API");
+
+    @FunctionalInterface
+    public interface Transport {
+        void send(SendMessage message) throws TelegramApiException;
+    }
+
+    private record Outgoing(String text, ReplyKeyboard markup, int attempts) {
+    }
+
+    private final Transport transport;
+    private final int chatBurst;
+    private final double chatPerSecond;
+    private final TokenBucket globalBucket;
+    private final Map<Long, ChatOutbox> outboxes = new ConcurrentHashMap<>();
+    private final DelayQueue<Turn> turns = new DelayQueue<>();
+    private final ExecutorService senders;
+    private final Thread scheduler;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder apiCalls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public OutboundMessageQueue(Transport transport, int chatBurst, double chatPerSecond, int globalPerSecond, int senderThreads) {
+        this.transport = transport;
+        this.chatBurst = chatBurst;
+        this.chatPerSecond = chatPerSecond;
+        this.globalBucket = new TokenBucket(globalPerSecond, globalPerSecond);
+        AtomicInteger counter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "telegram-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.counterFunction("telegram_messages_enqueued_total", "Сообщения, поставленные в очередь отправки", enqueued::sum);
+        Metrics.counterFunction("telegram_messages_delivered_total", "Доставленные части сообщений", delivered::sum);
+        Metrics.counterFunction("telegram_api_calls_total", "Запросы sendMessage", apiCalls::sum);
+        Metrics.counterFunction("telegram_messages_coalesced_total", "Части, склеенные с предыдущими", coalesced::sum);
+        Metrics.counterFunction("telegram_rate_limited_total", "Ответы 429 от Telegram", rateLimited::sum);
+        Metrics.counterFunction("telegram_messages_failed_total", "Сообщения, которые не удалось доставить", failed::sum);
+        Metrics.gauge("telegram_messages_pending", "Частей сообщений в очереди отправки", pending::get);
+        this.scheduler = new Thread(this::scheduleLoop, "telegram-outbox");
+        this.scheduler.setDaemon(true);
+        this.scheduler.start();
+    }
+
+    /**
+     * Ставит сообщение в очередь чата и сразу возвращается. Длинный текст режется на части по 4096 символов.
+     */
+    public void enqueue(long chatId, String text, ReplyKeyboard markup) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        ChatOutbox outbox = outboxes.computeIfAbsent(chatId, id -> new ChatOutbox(id, new TokenBucket(chatBurst, chatPerSecond)));
+        boolean wakeUp;
+        synchronized (outbox) {
+            List<String> parts = split(text);
+            for (int i = 0; i < parts.size(); i++) {
+                // Клавиатура прикрепляется к последней части
+                outbox.messages.addLast(new Outgoing(parts.get(i), i == parts.size() - 1 ? markup : null, 0));
+                pending.incrementAndGet();
+            }
+            enqueued.increment();
+            wakeUp = !outbox.scheduled;
+            outbox.scheduled = true;
+        }
+        if (wakeUp) {
+            turns.add(new Turn(outbox, 0));
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public String getStats() {
+        return String.format("Исходящие Telegram: в очереди %d, принято %d, доставлено %d, запросов к API %d, склеено %d, 429: %d, ошибок %d",
+                pending.get(), enqueued.sum(), delivered.sum(), apiCalls.sum(), coalesced.sum(), rateLimited.sum(), failed.sum());
+    }
+
+    /**
+     * Ждет отправки оставшихся сообщений (не дольше timeoutMillis) и останавливает потоки.
+     */
+    public void shutdown(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pending.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        scheduler.interrupt();
+        senders.shutdownNow();
+    }
+
+    private void scheduleLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Turn turn = turns.take();
+                ChatOutbox outbox = turn.outbox;
+
+                long chatWait = outbox.bucket.nanosUntilAvailable();
+                if (chatWait > 0) {
+                    turns.add(new Turn(outbox, chatWait));
+                    continue;
+                }
+                long globalWait;
+                while ((globalWait = globalBucket.nanosUntilAvailable()) > 0) {
+                    TimeUnit.NANOSECONDS.sleep(globalWait);
+                }
+                globalBucket.tryAcquire();
+                outbox.bucket.tryAcquire();
+                senders.execute(() -> deliver(outbox));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void deliver(ChatOutbox outbox) {
+        List<Outgoing> batch = outbox.takeBatch();
+        if (batch.isEmpty()) {
+            outbox.finishTurn(this, 0);
+            return;
+        }
+        Outgoing merged = merge(batch);
+        SendMessage message = new SendMessage();
+        message.setChatId(String.valueOf(outbox.chatId));
+        message.setText(merged.text());
+        message.setReplyMarkup(merged.markup());
+
+        long nextDelayNanos = 0;
+        try {
+            apiCalls.increment();
+            long start = System.nanoTime();
+            try {
+                transport.send(message);
+            } finally {
+                SEND_LATENCY.recordSince(start);
+            }
+            delivered.add(batch.size());
+            pending.addAndGet(-batch.size());
+            if (batch.size() > 1) {
+                coalesced.add(batch.size() - 1);
+            }
+            LoggerUtils.debug(EmojiUtils.ROBO + "(" + outbox.chatId + "): " + merged.text());
+        } catch (TelegramApiRequestException e) {
+            Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+            if (e.getErrorCode() != null && e.getErrorCode() == 429) {
+                rateLimited.increment();
+                long waitSec = retryAfter != null ? retryAfter : 1;
+                LoggerUtils.warn("Telegram 429 для чата " + outbox.chatId + ", повтор через " + waitSec + " с");
+                outbox.bucket.drain();
+                outbox.requeue(batch, false);
+                nextDelayNanos = TimeUnit.SECONDS.toNanos(waitSec);
+            } else {
+                // 4xx кроме 429 — повтор не поможет (чат заблокирован, неверная разметка и т.п.)
+                fail(outbox, batch, e);
+            }
+        } catch (TelegramApiException e) {
+            if (batch.get(0).attempts() + 1 < MAX_ATTEMPTS) {
+                LoggerUtils.warn("Не удалось отправить сообщение в чат " + outbox.chatId + ", повтор: " + e.getMessage());
+                outbox.requeue(batch, true);
+                nextDelayNanos = TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MILLIS);
+            } else {
+                fail(outbox, batch, e);
+            }
+        } catch (RuntimeException e) {
+            fail(outbox, batch, e);
+        }
+        outbox.finishTurn(this, nextDelayNanos);
+    }
+
+    private void fail(ChatOutbox outbox, List<Outgoing> batch, Exception e) {
+        failed.add(batch.size());
+        pending.addAndGet(-batch.size());
+        LoggerUtils.error("Не удалось отправить сообщение в Telegram (чат " + outbox.chatId + ", "
+                + batch.size() + " сообщ.)", e);
+    }
+
+    private static Outgoing merge(List<Outgoing> batch) {
+        if (batch.size() == 1) {
+            return batch.get(0);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Outgoing outgoing : batch) {
+            if (sb.length() > 0) {
+                sb.append("\n\n");
+            }
+            sb.append(outgoing.text());
+        }
+        return new Outgoing(sb.toString(), batch.get(batch.size() - 1).markup(), batch.get(0).attempts());
+    }
+
+    static List<String> split(String text) {
+        if (text.length() <= MAX_MESSAGE_LENGTH) {
+            return List.of(text);
+        }
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(start + MAX_MESSAGE_LENGTH, text.length());
+            if (end < text.length()) {
+                // Ищем перевод строки строго внутри части: с ним самим она не длиннее лимита
+                int newline = text.lastIndexOf('\n', end - 1);
+                if (newline > start) {
+                    end = newline + 1; // режем по строке, если получается
+                }
+            }
+            assert end - start <= MAX_MESSAGE_LENGTH : "часть длиннее лимита Telegram: " + (end - start);
+            parts.add(text.substring(start, end));
+            start = end;
+        }
+        return parts;
+    }
+
+    /**
+     * Очередь сообщений одного чата. scheduled = true, пока у чата есть ход в планировщике или идет отправка.
+     */
+    private static final class ChatOutbox {
+        private final long chatId;
+        private final TokenBucket bucket;
+        private final Deque<Outgoing> messages = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private ChatOutbox(long chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+
+        // Подряд идущие сообщения склеиваются, пока влезают в лимит; сообщение с клавиатурой завершает пачку
+        private synchronized List<Outgoing> takeBatch() {
+            List<Outgoing> batch = new ArrayList<>();
+            int length = 0;
+            Outgoing next;
+            while ((next = messages.peekFirst()) != null) {
+                int added = next.text().length() + (batch.isEmpty() ? 0 : 2);
+                if (!batch.isEmpty() && length + added > MAX_MESSAGE_LENGTH) {
+                    break;
+                }
+                messages.pollFirst();
+                batch.add(next);
+                length += added;
+                if (next.markup() != null) {
+                    break;
+                }
+            }
+            return batch;
+        }
+
+        private synchronized void requeue(List<Outgoing> batch, boolean countAttempt) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                Outgoing outgoing = batch.get(i);
+                messages.addFirst(countAttempt
+                        ? new Outgoing(outgoing.text(), outgoing.markup(), outgoing.attempts() + 1)
+                        : outgoing);
+            }
+        }
+
+        private void finishTurn(OutboundMessageQueue queue, long delayNanos) {
+            synchronized (this) {
+                if (messages.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            queue.turns.add(new Turn(this, delayNanos));
+        }
+    }
+
+    private static final class Turn implements Delayed {
+        private final ChatOutbox outbox;
+        private final long readyAtNanos;
+
+        private Turn(ChatOutbox outbox, long delayNanos) {
+            this.outbox = outbox;
+            this.readyAtNanos = System.nanoTime() + delayNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAtNanos, ((Turn) other).readyAtNanos);
+        }
+    }
+}
@@ -2,30 +2,42 @@ package org.example.bot;
 
 import io.github.cdimascio.dotenv.Dotenv;
 import lombok.Getter;
+import lombok.Setter;
 import org.example.ai.AiService;
 import org.example.bybit.BybitManager;
 import org.example.deal.utils.ActiveDealStore;
 import org.example.deal.utils.DealCalculator;
 import org.example.update.UpdateManager;
+import org.example.monitor.PriceMonitor;
+import org.example.monitor.trailing.ExchangeStopMover;
+import org.example.monitor.trailing.TrailingManager;
 import org.example.strategy.params.StopLossManager;
 import org.example.strategy.strategies.strategies.StrategyFactory;
 import org.example.util.LoggerUtils;
+import org.example.util.ValuesUtil;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.nio.file.Path;
 @Getter
 public class TradingBot extends TelegramLongPollingBot {
     private boolean tradingMode = true;
     private boolean chatMode = false;
     private final AiService aiService = new AiService();
     private final UserStorage userStorage = new UserStorage();
+    // Журнал сделок восстанавливается до создания клиентов биржи — без сетевых вызовов
+    private final ActiveDealStore activeDealStore = ActiveDealStore.openJournaled(
+            Path.of(Dotenv.load().get("DEAL_JOURNAL_DIR", "data/journal")));
     private final BybitManager bybitManager = new BybitManager();
-    private final StopLossManager stopLossManager = new StopLossManager();
-    private final ActiveDealStore activeDealStore = new ActiveDealStore();
+    private final StopLossManager stopLossManager = new StopLossManager(bybitManager.getBybitOrderService().getOrderAmender());
+    private final TrailingManager trailingManager = new TrailingManager(new ExchangeStopMover(bybitManager, stopLossManager));
     private final MessageSender messageSender = new MessageSender(this);
-    private final UpdateManager updateManager = new UpdateManager(bybitManager, new DealCalculator(bybitManager.getBybitAccountService(), bybitManager.getBybitMarketService()));
+    private final UpdateManager updateManager = new UpdateManager(bybitManager, new DealCalculator(bybitManager.getBybitAccountService(), bybitManager.getBybitMarketService(), activeDealStore.getRiskBook()));
     private final BotCommandHandler commandHandler = new BotCommandHandler(bybitManager, aiService, activeDealStore, messageSender, updateManager);
+    private final ChatDispatcher chatDispatcher = new ChatDispatcher();
+    // Создается в TradingBotApplication после бота (нужен WebSocket-клиент)
+    @Setter
+    private PriceMonitor priceMonitor;
 
 
     public TradingBot() {
@@ -46,70 +58,75 @@ public class TradingBot extends TelegramLongPollingBot {
         return Dotenv.load().get("BOT_TOKEN");
     }
 
+    /**
+     * Вызывается в потоке long polling: только ставит обновление в очередь его чата,
+     * чтобы медленная команда (REST Bybit, ответ ИИ) не задерживала остальные чаты.
+     */
     @Override
     public void onUpdateReceived(Update update) {
-        if (update.hasMessage() && update.getMessage().hasText()) {
-
-            String messageText = update.getMessage().getText();
-            long chatId = update.getMessage().getChatId();
-            String username = update.getMessage().getChat().getUserName();
-            String firstName = update.getMessage().getChat().getFirstName();
-
-            LoggerUtils.info("\n\uD83D\uDCAC @" + username + "(" + chatId + ") " + firstName + ": " + messageText);
-
-            userStorage.addBlockedUser(chatId);
-            if (userStorage.isBlocked(chatId)) {
-                sendMessage(chatId, "Error: 473404 more info - @clamser");
-                sendMessage(340827223L, "\n\uD83D\uDCAC @" + username + "(" + chatId + ") " + firstName + ": " + messageText + "\n\nПерсонаж забанен  ");
-                return;
-            }
-
-            if (messageText.equals("/start")) {
-                sendMessage(chatId, "Добро пожаловать! Здесь вы можете пообщаться с GigaChat бесплатно :) ");
-                return;
-            }
+        if (!update.hasMessage() || !update.getMessage().hasText()) {
+            return;
+        }
+        long chatId = update.getMessage().getChatId();
+        int depth = chatDispatcher.submit(chatId, () -> handleUpdate(update));
+        if (depth >= ValuesUtil.getChatBusyQueueDepth()) {
+            sendMessage(chatId, "⏳ Обрабатываю предыдущие команды, ваша в очереди (" + (depth - 1) + " впереди)");
+        }
+    }
 
-            if (userStorage.isPremium(chatId)) {
-                if (tradingMode) {
+    private void handleUpdate(Update update) {
+        String messageText = update.getMessage().getText();
+        long chatId = update.getMessage().getChatId();
+        String username = update.getMessage().getChat().getUserName();
+        String firstName = update.getMessage().getChat().getFirstName();
 
-                    if (commandHandler.isJustChat()) {
-                        sendMessage(chatId, commandHandler.getAiService().justChat(messageText));
-                        return;
-                    }
+        LoggerUtils.info("\n\uD83D\uDCAC @" + username + "(" + chatId + ") " + firstName + ": " + messageText);
 
-                    if (commandHandler.isWaitingSignal()) {
-                        messageText = "/getsgnl " + messageText;
-                    }
+        userStorage.addBlockedUser(chatId);
+        if (userStorage.isBlocked(chatId)) {
+            sendMessage(chatId, "Error: 473404 more info - @clamser");
+            sendMessage(340827223L, "\n\uD83D\uDCAC @" + username + "(" + chatId + ") " + firstName + ": " + messageText + "\n\nПерсонаж забанен  ");
+            return;
+        }
 
-                    if (commandHandler.getUpdateManager().isCreateDealsProcess() && StrategyFactory.isStrategyAvailable(messageText)) {
-                        messageText = "/update " + messageText;
-                    }
+        if (messageText.equals("/start")) {
+            sendMessage(chatId, "Добро пожаловать! Здесь вы можете пообщаться с GigaChat бесплатно :) ");
+            return;
+        }
 
-                    if (messageText.startsWith("/")) {
-                        String[] parts = messageText.split(" ", 2);
-                        String command = parts[0];
-                        String args = parts.length > 1 ? parts[1] : "";
-                        commandHandler.handleCommand(chatId, command, args);
-                    }
+        if (userStorage.isPremium(chatId)) {
+            if (tradingMode) {
+                ChatSession session = commandHandler.getSessions().get(chatId);
+                if (session.isJustChat()) {
+                    sendMessage(chatId, commandHandler.getAiService().justChat(messageText));
                     return;
                 }
+                handleTradingMessage(session, messageText);
+                return;
             }
-
-            sendMessage(chatId, commandHandler.getAiService().justChat(messageText));
         }
+
+        sendMessage(chatId, commandHandler.getAiService().justChat(messageText));
     }
 
+    private void handleTradingMessage(ChatSession session, String messageText) {
+        if (session.isWaitingSignal()) {
+            messageText = "/getsgnl " + messageText;
+        }
 
+        if (session.getRestoreSession().isCreateDealsProcess() && StrategyFactory.isStrategyAvailable(messageText)) {
+            messageText = "/update " + messageText;
+        }
 
-    public void sendMessage(long chatId, String text) {
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(text);
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            LoggerUtils.error("Ошибка отправки сообщения telegram", e);
-            e.printStackTrace();
+        if (messageText.startsWith("/")) {
+            String[] parts = messageText.split(" ", 2);
+            String command = parts[0];
+            String args = parts.length > 1 ? parts[1] : "";
+            commandHandler.handleCommand(session.getChatId(), command, args);
         }
     }
-}
\ No newline at end of file
+
+    public void sendMessage(long chatId, String text) {
+        messageSender.send(chatId, text);
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.bot.webhook;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.util.LoggerUtils;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Прием обновлений Telegram через webhook на встроенном JDK HttpServer.
+ * Запрос проверяется по заголовку X-Telegram-Bot-Api-Secret-Token, тело разбирается в {@link Update}
+ * и передается в тот же обработчик, что и при long polling. Ответ 200 отдается сразу после постановки
+ * в очередь чата — Telegram не ждет выполнения команды.
+ */
+public class TelegramWebhookServer {
+
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Consumer<Update> updateConsumer;
+    private final byte[] secret;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public TelegramWebhookServer(int port, String path, String secretToken, Consumer<Update> updateConsumer) throws IOException {
+        if (secretToken == null || secretToken.isBlank()) {
+            throw new IllegalArgumentException("Для webhook нужен секретный токен (TELEGRAM_WEBHOOK_SECRET)");
+        }
+        this.updateConsumer = updateConsumer;
+        this.secret = secretToken.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "telegram-webhook-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext(path, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        LoggerUtils.info("🌐 Webhook Telegram слушает порт " + server.getAddress().getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String header = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+            // Сравнение за постоянное время, чтобы токен нельзя было подобрать по задержке ответа
+            if (header == null || !MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8))) {
+                LoggerUtils.warn("Webhook: отклонен запрос без верного секрета от " + exchange.getRemoteAddress());
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            Update update;
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] bytes = body.readNBytes(MAX_BODY_BYTES);
+                update = mapper.readValue(bytes, Update.class);
+            } catch (IOException e) {
+                LoggerUtils.warn("Webhook: не удалось разобрать Update: " + e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            try {
+                updateConsumer.accept(update);
+            } catch (RuntimeException e) {
+                // Ошибку обработки не отдаем Telegram, иначе он будет повторять то же обновление
+                LoggerUtils.error("Webhook: ошибка обработки обновления " + update.getUpdateId(), e);
+            }
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+}
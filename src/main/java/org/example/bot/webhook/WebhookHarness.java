@@ -0,0 +1,49 @@
+package org.example.bot.webhook;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Локальная проверка webhook-режима: отправляет заготовленный Update (JSON) на запущенный сервер.
+ * Запуск: WebhookHarness &lt;url&gt; &lt;secret&gt; [файл.json]
+ * Без файла используется resources/webhook/sample_update.json.
+ */
+public class WebhookHarness {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Использование: WebhookHarness <url> <secret> [update.json]");
+            return;
+        }
+        String body = args.length > 2
+                ? Files.readString(Path.of(args[2]), StandardCharsets.UTF_8)
+                : readSample();
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(args[0]))
+                .header("Content-Type", "application/json")
+                .header(TelegramWebhookServer.SECRET_HEADER, args[1])
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+
+        long start = System.nanoTime();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        System.out.printf("HTTP %d за %.1f мс%n", response.statusCode(), (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    private static String readSample() throws Exception {
+        try (InputStream is = WebhookHarness.class.getClassLoader().getResourceAsStream("webhook/sample_update.json")) {
+            if (is == null) {
+                throw new IllegalStateException("Не найден ресурс webhook/sample_update.json");
+            }
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -7,11 +7,23 @@ import org.example.bybit.service.*;
 
 @Getter
 public class BybitManager {
-    private final BybitAuthConfig bybitAuthConfig = new BybitAuthConfig();
-    private final BybitHttpClient bybitHttpClient = new BybitHttpClient(bybitAuthConfig);
-    private final BybitAccountService bybitAccountService = new BybitAccountService(bybitHttpClient);
-    private final BybitOrderService bybitOrderService = new BybitOrderService(bybitHttpClient);
-    private final BybitMarketService bybitMarketService = new BybitMarketService(bybitHttpClient);
-    private final BybitPositionTrackerService bybitPositionTrackerService = new BybitPositionTrackerService(bybitHttpClient);
+    private final BybitAuthConfig bybitAuthConfig;
+    private final BybitHttpClient bybitHttpClient;
+    private final BybitAccountService bybitAccountService;
+    private final BybitOrderService bybitOrderService;
+    private final BybitMarketService bybitMarketService;
+    private final BybitPositionTrackerService bybitPositionTrackerService;
 
+    public BybitManager() {
+        this(new BybitAuthConfig());
+    }
+
+    public BybitManager(BybitAuthConfig bybitAuthConfig) {
+        this.bybitAuthConfig = bybitAuthConfig;
+        this.bybitHttpClient = new BybitHttpClient(bybitAuthConfig);
+        this.bybitAccountService = new BybitAccountService(bybitHttpClient);
+        this.bybitOrderService = new BybitOrderService(bybitHttpClient);
+        this.bybitMarketService = new BybitMarketService(bybitHttpClient);
+        this.bybitPositionTrackerService = new BybitPositionTrackerService(bybitHttpClient);
+    }
 }
@@ -15,4 +15,11 @@ public class BybitAuthConfig {
         this.BYBIT_API_SECRET = dotenv.get("BYBIT_API_SECRET");
         this.BYBIT_API_BASE_URL = dotenv.get("BYBIT_API_BASE_URL");
     }
+
+    // Явные параметры вместо .env (например, для MockBybitExchange)
+    public BybitAuthConfig(String apiKey, String apiSecret, String baseUrl) {
+        this.BYBIT_API_KEY = apiKey;
+        this.BYBIT_API_SECRET = apiSecret;
+        this.BYBIT_API_BASE_URL = baseUrl;
+    }
 }
@@ -2,6 +2,8 @@
 package org.example.bybit.client;
 
 import org.example.bybit.auth.BybitAuthConfig;
+import org.example.metrics.LatencyRecorder;
+import org.example.metrics.Metrics;
 import org.example.util.BybitRequestUtils;
 import org.example.util.JsonUtils;
 import org.example.util.LoggerUtils;
@@ -28,6 +30,9 @@ import java.util.concurrent.TimeUnit;
  */
 public class BybitHttpClient {
 
+    private static final LatencyRecorder RATE_LIMIT_WAIT = Metrics.latency("bybit_rest_rate_limit_wait_seconds",
+            "Ожидание разрешения RateLimiter перед запросом");
+
     private final HttpClient client;
     private final BybitAuthConfig authConfig;
 
@@ -335,11 +340,22 @@ public class BybitHttpClient {
      */
     private String sendRequestWithRateLimit(HttpRequest request) throws IOException, InterruptedException {
         // 1. Проверяем лимит перед отправкой
+        long waitStart = System.nanoTime();
         rateLimiter.acquire();
+        RATE_LIMIT_WAIT.recordSince(waitStart);
         LoggerUtils.debug("RateLimiter: Запрос разрешен. Отправка " + request.method() + " " + request.uri());
 
-        // 2. Отправляем запрос
-        return sendRequest(request);
+        // 2. Отправляем запрос; задержка и ошибки — по эндпоинту (набор путей конечен)
+        String endpoint = request.uri().getPath();
+        long start = System.nanoTime();
+        try {
+            return sendRequest(request);
+        } catch (IOException | RuntimeException e) {
+            Metrics.counter("bybit_rest_errors_total", "REST-запросы Bybit, завершившиеся ошибкой", "endpoint", endpoint).increment();
+            throw e;
+        } finally {
+            Metrics.latency("bybit_rest_request_seconds", "Время REST-запроса к Bybit", "endpoint", endpoint).recordSince(start);
+        }
     }
 
     /**
@@ -0,0 +1,185 @@
+package org.example.bybit.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.bybit.auth.BybitAuthConfig;
+import org.example.bybit.dto.BalanceResponse;
+import org.example.bybit.dto.ExecutionEvent;
+import org.example.metrics.Counter;
+import org.example.metrics.Metrics;
+import org.example.util.BybitRequestUtils;
+import org.example.util.LoggerUtils;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Приватный WebSocket Bybit v5: авторизация ключом API и подписка на wallet и execution.
+ * События передаются слушателям ({@link PrivateStreamListener}); переподключение — как у {@link BybitWebSocketClient}.
+ */
+public class BybitPrivateStreamClient {
+    private static final Counter WALLET_PUSHES = Metrics.counter("bybit_private_ws_messages_total", "Сообщения приватного WebSocket", "topic", "wallet");
+    private static final Counter EXECUTIONS = Metrics.counter("bybit_private_ws_messages_total", "Сообщения приватного WebSocket", "topic", "execution");
+    private static final long AUTH_EXPIRES_MILLIS = 10_000;
+
+    private final BybitAuthConfig authConfig;
+    private final String uri;
+    private final List<PrivateStreamListener> listeners = new CopyOnWriteArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bybit-private-ws");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile WebSocketClient client;
+    private volatile boolean authenticated;
+
+    public BybitPrivateStreamClient(BybitAuthConfig authConfig, String uri) {
+        this.authConfig = authConfig;
+        this.uri = uri;
+    }
+
+    public void addListener(PrivateStreamListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    public void connect() {
+        connectAsync();
+        scheduler.scheduleAtFixedRate(this::reconnectIfClosed, 30, 30, TimeUnit.SECONDS);
+        // Bybit закрывает приватное соединение без ping дольше 20 секунд
+        scheduler.scheduleAtFixedRate(() -> send("{\"op\":\"ping\"}"), 15, 15, TimeUnit.SECONDS);
+    }
+
+    private void connectAsync() {
+        try {
+            authenticated = false;
+            client = new WebSocketClient(new URI(uri)) {
+                @Override
+                public void onOpen(ServerHandshake handshake) {
+                    LoggerUtils.info("✅ Приватный WebSocket Bybit подключен, авторизация...");
+                    authenticate();
+                }
+
+                @Override
+                public void onMessage(String message) {
+                    handleMessage(message);
+                }
+
+                @Override
+                public void onClose(int code, String reason, boolean remote) {
+                    authenticated = false;
+                    LoggerUtils.info("❌ Приватный WebSocket закрыт: " + reason + " (code: " + code + ")");
+                }
+
+                @Override
+                public void onError(Exception ex) {
+                    LoggerUtils.error("🚨 Ошибка приватного WebSocket: " + ex.getMessage(), ex);
+                }
+            };
+            client.connect();
+        } catch (Exception e) {
+            LoggerUtils.error("❌ Ошибка запуска приватного WebSocket", e);
+        }
+    }
+
+    // Подпись: HMAC-SHA256("GET/realtime" + expires) секретом API, как в документации Bybit v5
+    private void authenticate() {
+        try {
+            long expires = System.currentTimeMillis() + AUTH_EXPIRES_MILLIS;
+            String signature = BybitRequestUtils.generateSignature(authConfig.getBYBIT_API_SECRET(), "GET/realtime" + expires);
+            send("{\"op\":\"auth\",\"args\":[\"" + authConfig.getBYBIT_API_KEY() + "\"," + expires + ",\"" + signature + "\"]}");
+        } catch (Exception e) {
+            LoggerUtils.error("❌ Не удалось подписать авторизацию приватного WebSocket", e);
+        }
+    }
+
+    /**
+     * Разбор сообщения приватного потока; вынесен из onMessage, чтобы вызывать без соединения.
+     */
+    public void handleMessage(String message) {
+        try {
+            JsonNode root = objectMapper.readTree(message);
+            String op = root.path("op").asText("");
+            if (!op.isEmpty()) {
+                handleOperation(op, root);
+                return;
+            }
+            String topic = root.path("topic").asText("");
+            JsonNode data = root.path("data");
+            if (topic.equals("wallet")) {
+                for (JsonNode node : data) {
+                    WALLET_PUSHES.increment();
+                    BalanceResponse.BalanceAccount account = objectMapper.treeToValue(node, BalanceResponse.BalanceAccount.class);
+                    listeners.forEach(listener -> listener.onWallet(account));
+                }
+            } else if (topic.equals("execution") || topic.startsWith("execution.")) {
+                for (JsonNode node : data) {
+                    EXECUTIONS.increment();
+                    ExecutionEvent execution = objectMapper.treeToValue(node, ExecutionEvent.class);
+                    listeners.forEach(listener -> listener.onExecution(execution));
+                }
+            }
+        } catch (Exception e) {
+            LoggerUtils.error("Ошибка разбора сообщения приватного WebSocket: " + message, e);
+        }
+    }
+
+    private void handleOperation(String op, JsonNode root) {
+        boolean success = root.path("success").asBoolean(false);
+        switch (op) {
+            case "auth" -> {
+                if (!success) {
+                    LoggerUtils.warn("Авторизация приватного WebSocket отклонена: " + root.path("ret_msg").asText());
+                    return;
+                }
+                authenticated = true;
+                send("{\"op\":\"subscribe\",\"args\":[\"wallet\",\"execution\"]}");
+                LoggerUtils.info("🔐 Приватный WebSocket авторизован, подписка на wallet и execution");
+                listeners.forEach(PrivateStreamListener::onConnected);
+            }
+            case "subscribe" -> {
+                if (!success) {
+                    LoggerUtils.warn("Подписка приватного WebSocket отклонена: " + root.path("ret_msg").asText());
+                }
+            }
+            default -> LoggerUtils.debug("Приватный WebSocket: " + root);
+        }
+    }
+
+    private void reconnectIfClosed() {
+        WebSocketClient current = client;
+        if (current == null || !current.isOpen()) {
+            LoggerUtils.info("🔄 Переподключение приватного WebSocket...");
+            connectAsync();
+        }
+    }
+
+    private void send(String message) {
+        WebSocketClient current = client;
+        if (current != null && current.isOpen()) {
+            current.send(message);
+        }
+    }
+
+    public void disconnect() {
+        scheduler.shutdownNow();
+        try {
+            if (client != null) {
+                client.close();
+            }
+        } catch (Exception e) {
+            LoggerUtils.error("Ошибка при отключении приватного WebSocket", e);
+        }
+    }
+}
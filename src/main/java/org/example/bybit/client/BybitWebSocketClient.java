@@ -4,6 +4,9 @@ package org.example.bybit.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.cdimascio.dotenv.Dotenv;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyRecorder;
+import org.example.metrics.Metrics;
 import org.example.model.Symbol;
 import org.example.monitor.dto.PriceUpdate;
 import org.example.util.LoggerUtils;
@@ -19,17 +22,33 @@ import java.util.function.Consumer;
 
 
 public class BybitWebSocketClient {
-    private static final String WEBSOCKET_URI = Dotenv.load().get("WEBSOCKET_URI");
+    private static final Counter MESSAGES = Metrics.counter("bybit_ws_messages_total", "Получено сообщений WebSocket");
+    private static final Counter PARSE_ERRORS = Metrics.counter("bybit_ws_parse_errors_total", "Сообщения WebSocket, которые не удалось разобрать");
+    private static final LatencyRecorder DECODE = Metrics.latency("bybit_ws_decode_seconds", "От получения кадра до готового PriceUpdate");
 
     private final Consumer<PriceUpdate> messageHandler;
+    private final String uri; // null — WEBSOCKET_URI из .env
 
     private WebSocketClient client;
     private final Set<String> subscribedSymbols = new HashSet<>();
     private final ObjectMapper objectMapper = new ObjectMapper(); // можно использовать ваш JsonUtils.createObjectMapper()
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private volatile Consumer<String> frameListener; // сырые кадры до разбора (запись рынка), null — не нужны
 
     public BybitWebSocketClient(Consumer<PriceUpdate> messageHandler) {
+        this(messageHandler, null);
+    }
+
+    public BybitWebSocketClient(Consumer<PriceUpdate> messageHandler, String uri) {
         this.messageHandler = messageHandler;
+        this.uri = uri;
+    }
+
+    /**
+     * Получатель сырых сообщений WebSocket, вызывается в потоке соединения перед разбором — не должен блокировать.
+     */
+    public void setFrameListener(Consumer<String> frameListener) {
+        this.frameListener = frameListener;
     }
 
     public void connect() {
@@ -38,7 +57,7 @@ public class BybitWebSocketClient {
     }
     private void connectAsync() {
         try {
-            client = new WebSocketClient(new URI(WEBSOCKET_URI)) {
+            client = new WebSocketClient(new URI(uri != null ? uri : Dotenv.load().get("WEBSOCKET_URI"))) {
                 @Override
                 public void onOpen(ServerHandshake handshake) {
                     LoggerUtils.info("✅ Подключение к WebSocket Bybit установлено");
@@ -47,28 +66,13 @@ public class BybitWebSocketClient {
 
                 @Override
                 public void onMessage(String message) {
-                    if (message.contains("op") && message.contains("success")) {
-                        LoggerUtils.info("🟢 Подтверждение подписки: " + message);
-                        return;
-                    }
-
-                    try {
-                        JsonNode root = objectMapper.readTree(message);
-                        JsonNode dataNode = root.path("data");
-
-                        if (dataNode.isMissingNode()) return;
-
-                        // Поддержка одиночного объекта и массива
-                        if (dataNode.isArray()) {
-                            for (JsonNode node : dataNode) {
-                                processTickerNode(node);
-                            }
-                        } else {
-                            processTickerNode(dataNode);
-                        }
-                    } catch (Exception e) {
-                        LoggerUtils.error("Ошибка парсинга WebSocket-сообщения: " + message, e);
+                    long receivedNanos = System.nanoTime();
+                    MESSAGES.increment();
+                    Consumer<String> listener = frameListener;
+                    if (listener != null) {
+                        listener.accept(message);
                     }
+                    handleMessage(message, receivedNanos);
                 }
 
                 @Override
@@ -87,8 +91,42 @@ public class BybitWebSocketClient {
         }
     }
 
+    /**
+     * Разбор сообщения WebSocket: тикеры из data передаются в messageHandler.
+     * Вынесен из onMessage, чтобы разбор можно было вызывать без соединения (бенчмарки, воспроизведение).
+     */
+    public void handleMessage(String message) {
+        handleMessage(message, System.nanoTime());
+    }
+
+    private void handleMessage(String message, long receivedNanos) {
+        if (message.contains("op") && message.contains("success")) {
+            LoggerUtils.info("🟢 Подтверждение подписки: " + message);
+            return;
+        }
+
+        try {
+            JsonNode root = objectMapper.readTree(message);
+            JsonNode dataNode = root.path("data");
+
+            if (dataNode.isMissingNode()) return;
+
+            // Поддержка одиночного объекта и массива
+            if (dataNode.isArray()) {
+                for (JsonNode node : dataNode) {
+                    processTickerNode(node, receivedNanos);
+                }
+            } else {
+                processTickerNode(dataNode, receivedNanos);
+            }
+        } catch (Exception e) {
+            PARSE_ERRORS.increment();
+            LoggerUtils.error("Ошибка парсинга WebSocket-сообщения: " + message, e);
+        }
+    }
+
     // Отдельный метод для обработки одного тикера
-    private void processTickerNode(JsonNode node) {
+    private void processTickerNode(JsonNode node, long receivedNanos) {
         try {
             Symbol symbol = new Symbol(node.path("symbol").asText(null));
             String lastPriceStr = node.path("lastPrice").asText(null);
@@ -99,6 +137,8 @@ public class BybitWebSocketClient {
 
             // Создаём DTO и отправляем дальше
             PriceUpdate update = new PriceUpdate(symbol, lastPrice);
+            update.setReceivedNanos(receivedNanos);
+            DECODE.recordSince(receivedNanos);
             messageHandler.accept(update);
 
         } catch (NumberFormatException e) {
@@ -0,0 +1,22 @@
+package org.example.bybit.client;
+
+import org.example.bybit.dto.BalanceResponse;
+import org.example.bybit.dto.ExecutionEvent;
+
+/**
+ * Получатель событий приватного WebSocket Bybit. Вызывается в потоке соединения — не должен блокировать.
+ */
+public interface PrivateStreamListener {
+
+    /**
+     * Соединение (пере)установлено и авторизовано; события за время разрыва могли быть потеряны.
+     */
+    default void onConnected() {
+    }
+
+    default void onWallet(BalanceResponse.BalanceAccount account) {
+    }
+
+    default void onExecution(ExecutionEvent execution) {
+    }
+}
@@ -30,6 +30,14 @@ public class BalanceResponse {
         private String totalEquity;
         @JsonProperty("totalAvailableBalance")
         private String totalAvailableBalance;
+        @JsonProperty("totalWalletBalance")
+        private String totalWalletBalance;
+        @JsonProperty("totalMarginBalance")
+        private String totalMarginBalance;
+        @JsonProperty("totalInitialMargin")
+        private String totalInitialMargin;
+        @JsonProperty("totalMaintenanceMargin")
+        private String totalMaintenanceMargin;
         @JsonProperty("coin")
         private List<CoinBalance> coin;
     }
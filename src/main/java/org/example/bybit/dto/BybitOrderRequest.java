@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.example.deal.Deal;
 import org.example.model.Direction;
+import org.example.model.Price;
+import org.example.model.Qty;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -29,19 +31,19 @@ public class BybitOrderRequest {
         request.symbol = deal.getSymbol().toString();
         request.orderType = deal.getEntryType().toString().toLowerCase();
         request.side = deal.getDirection() == Direction.LONG ? "Buy" : "Sell";
-        request.qty = String.valueOf(deal.getPositionSize());
-        request.price = deal.getEntryPrice() != null ? String.valueOf(deal.getEntryPrice()) : null;
+        request.qty = Qty.of(deal.getPositionSize(), deal.getQtyScale()).toPlainString();
+        request.price = deal.getEntryPrice() != null ? Price.of(deal.getEntryPrice(), deal.getPriceScale()).toPlainString() : null;
         request.reduceOnly = false;
         request.timeInForce = "GTC";
         return request;
     }
-    public static BybitOrderRequest forTakeProfit(Deal deal, double price, double qty) {
+    public static BybitOrderRequest forTakeProfit(Deal deal, Price price, Qty qty) {
         BybitOrderRequest request = new BybitOrderRequest();
         request.symbol = deal.getSymbol().toString();
         request.orderType = "Limit";
         request.side = deal.getDirection() == Direction.LONG ? "Sell" : "Buy";
-        request.qty = String.format("%.3f", qty);
-        request.price = String.valueOf(price);
+        request.qty = qty.toPlainString();
+        request.price = price.toPlainString();
         request.reduceOnly = true;
         request.timeInForce = "GTC";
         return request;
@@ -52,7 +54,7 @@ public class BybitOrderRequest {
         request.symbol = deal.getSymbol().toString();
         request.orderType = "Market";
         request.side = deal.getDirection() == Direction.LONG ? "Sell" : "Buy";
-        request.qty = String.valueOf(deal.getPositionSize());
+        request.qty = Qty.of(deal.getPositionSize(), deal.getQtyScale()).toPlainString();
         request.price = null;
         request.reduceOnly = true;
         request.timeInForce = "GTC";
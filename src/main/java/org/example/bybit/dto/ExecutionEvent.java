@@ -0,0 +1,24 @@
+package org.example.bybit.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * Исполнение ордера из приватного топика execution (Bybit v5).
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ExecutionEvent {
+    private String category;
+    private String symbol;
+    private String orderId;
+    private String orderLinkId;
+    private String side;
+    private String execId;
+    private String execPrice;
+    private String execQty;
+    private String execFee;
+    private String execType;
+    private String closedSize;
+    private String execTime;
+}
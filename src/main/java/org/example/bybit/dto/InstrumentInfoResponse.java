@@ -36,6 +36,9 @@ public class InstrumentInfoResponse {
     public static class Instrument {
         @JsonProperty("lotSizeFilter")
         private LotSizeFilter lotSizeFilter;
+
+        @JsonProperty("priceFilter")
+        private PriceFilter priceFilter;
     }
 
     @Getter
@@ -55,4 +58,16 @@ public class InstrumentInfoResponse {
         @JsonProperty("minOrderQty")
         private double minOrderQty;
     }
+
+    @Getter
+    @Setter
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class PriceFilter {
+
+        /**
+         * Шаг цены (tickSize). Строкой, чтобы точно определить количество знаков ("0.10" → 2).
+         */
+        @JsonProperty("tickSize")
+        private String tickSize;
+    }
 }
@@ -0,0 +1,68 @@
+package org.example.bybit.dto;
+
+import lombok.Getter;
+
+/**
+ * Состояние единого торгового аккаунта на момент updatedAtMillis (из REST wallet-balance или push-топика wallet).
+ * Пустые поля Bybit (например, маржа у аккаунта без позиций) читаются как 0.
+ */
+@Getter
+public class WalletSnapshot {
+
+    public enum Source {
+        REST,
+        PUSH
+    }
+
+    private final double totalEquity;
+    private final double totalWalletBalance;
+    private final double totalAvailableBalance;
+    private final double totalMarginBalance;
+    private final double totalInitialMargin;
+    private final double totalMaintenanceMargin;
+    private final long updatedAtMillis;
+    private final Source source;
+
+    public WalletSnapshot(double totalEquity, double totalWalletBalance, double totalAvailableBalance,
+                          double totalMarginBalance, double totalInitialMargin, double totalMaintenanceMargin,
+                          long updatedAtMillis, Source source) {
+        this.totalEquity = totalEquity;
+        this.totalWalletBalance = totalWalletBalance;
+        this.totalAvailableBalance = totalAvailableBalance;
+        this.totalMarginBalance = totalMarginBalance;
+        this.totalInitialMargin = totalInitialMargin;
+        this.totalMaintenanceMargin = totalMaintenanceMargin;
+        this.updatedAtMillis = updatedAtMillis;
+        this.source = source;
+    }
+
+    public static WalletSnapshot from(BalanceResponse.BalanceAccount account, long updatedAtMillis, Source source) {
+        if (account.getTotalEquity() == null || account.getTotalEquity().isBlank()) {
+            throw new RuntimeException("Поле totalEquity не найдено");
+        }
+        return new WalletSnapshot(
+                Double.parseDouble(account.getTotalEquity()),
+                parseOrZero(account.getTotalWalletBalance()),
+                parseOrZero(account.getTotalAvailableBalance()),
+                parseOrZero(account.getTotalMarginBalance()),
+                parseOrZero(account.getTotalInitialMargin()),
+                parseOrZero(account.getTotalMaintenanceMargin()),
+                updatedAtMillis,
+                source);
+    }
+
+    public long ageMillis() {
+        return System.currentTimeMillis() - updatedAtMillis;
+    }
+
+    private static double parseOrZero(String value) {
+        return value == null || value.isBlank() ? 0 : Double.parseDouble(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Equity %.2f, доступно %.2f, кошелек %.2f, IM %.2f, MM %.2f USDT (%s, %d мс назад)",
+                totalEquity, totalAvailableBalance, totalWalletBalance, totalInitialMargin, totalMaintenanceMargin,
+                source, ageMillis());
+    }
+}
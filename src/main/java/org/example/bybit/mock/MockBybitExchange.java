@@ -0,0 +1,420 @@
+package org.example.bybit.mock;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.util.BybitRequestUtils;
+import org.example.util.LoggerUtils;
+import org.example.util.TokenBucket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Встраиваемая фейковая биржа Bybit для интеграционных и нагрузочных прогонов без сети.
+ * <ul>
+ *     <li>REST (JDK HttpServer): /v5/market/{time,tickers,instruments-info}, /v5/order/{create,amend,cancel,cancel-all,realtime},
+ *     /v5/position/{list,set-leverage,close-position}, /v5/account/wallet-balance;</li>
+ *     <li>приватные запросы проверяются так же, как на Bybit: HMAC-SHA256 от timestamp + apiKey + recvWindow + (query | body);</li>
+ *     <li>WebSocket с тикерами и приватными топиками wallet / execution ({@link MockWebSocketServer});</li>
+ *     <li>исполнение ордеров — {@link MockMatchingEngine}, цены — {@link #setPrice} или сценарии {@link PricePath};</li>
+ *     <li>задержка, доля ошибок и лимит запросов задаются в {@link MockExchangeConfig}.</li>
+ * </ul>
+ * Бот подключается через .env: BYBIT_API_BASE_URL = {@link #getBaseUrl()}, WEBSOCKET_URI = {@link #getWebSocketUri()},
+ * ключи — из конфига.
+ */
+public class MockBybitExchange implements AutoCloseable {
+
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final long DEFAULT_RECV_WINDOW = 5_000;
+
+    private final MockExchangeConfig config;
+    private final MockMatchingEngine engine;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Random random;
+    private final TokenBucket rateLimit;
+
+    private final HttpServer httpServer;
+    private final ExecutorService httpExecutor;
+    private final MockWebSocketServer webSocketServer;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mock-exchange-ticker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejectedSign = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    public MockBybitExchange(MockExchangeConfig config) throws IOException {
+        this.config = config;
+        this.engine = new MockMatchingEngine(config.getInstruments(), config.getInitialBalance(), config.getDefaultLeverage());
+        this.random = new Random(config.getRandomSeed());
+        this.rateLimit = config.getRateLimitPerSecond() > 0
+                ? new TokenBucket(config.getRateLimitPerSecond(), config.getRateLimitPerSecond())
+                : null;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.httpExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mock-exchange-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpServer = HttpServer.create(new InetSocketAddress(config.getHost(), config.getHttpPort()), 0);
+        this.httpServer.createContext("/v5/", this::handle);
+        this.httpServer.setExecutor(httpExecutor);
+        this.webSocketServer = new MockWebSocketServer(new InetSocketAddress(config.getHost(), config.getWebSocketPort()));
+        if (config.isVerifySignature()) {
+            webSocketServer.setCredentials(config.getApiKey(), config.getApiSecret());
+        }
+        // Как на Bybit: после исполнения — execution, затем wallet с новым балансом
+        engine.setFillListener(execution -> {
+            webSocketServer.publishPrivate("execution", List.of(execution));
+            webSocketServer.publishPrivate("wallet", List.of(walletAccount()));
+        });
+    }
+
+    public void start() throws InterruptedException {
+        httpServer.start();
+        webSocketServer.startAndWait();
+        LoggerUtils.info("🧪 Mock Bybit: REST " + getBaseUrl() + ", WebSocket " + getWebSocketUri());
+    }
+
+    public String getBaseUrl() {
+        return "http://" + config.getHost() + ":" + httpServer.getAddress().getPort();
+    }
+
+    public String getWebSocketUri() {
+        return "ws://" + config.getHost() + ":" + webSocketServer.getPort();
+    }
+
+    public MockMatchingEngine getEngine() {
+        return engine;
+    }
+
+    public MockWebSocketServer getWebSocketServer() {
+        return webSocketServer;
+    }
+
+    /**
+     * Новая цена: исполнение ордеров и рассылка тикера подписчикам.
+     */
+    public void setPrice(String symbol, double price) {
+        engine.onPrice(symbol, price);
+        webSocketServer.publishTicker(symbol, MockMatchingEngine.format(price, engine.getInstrument(symbol).priceScale()));
+    }
+
+    /**
+     * Проигрывает сценарий цены в фоне.
+     *
+     * @return завершается после последнего тика (cancel — остановить сценарий)
+     */
+    public CompletableFuture<Void> play(PricePath path) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        double[] prices = path.prices();
+        AtomicInteger index = new AtomicInteger();
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        task.set(ticker.scheduleAtFixedRate(() -> {
+            int i = index.getAndIncrement();
+            if (done.isDone() || i >= prices.length) {
+                done.complete(null);
+                task.get().cancel(false);
+                return;
+            }
+            try {
+                setPrice(path.symbol(), prices[i]);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }, 0, Math.max(path.intervalMillis(), 1), TimeUnit.MILLISECONDS));
+        return done;
+    }
+
+    public String getStats() {
+        return String.format("Mock Bybit: запросов %d, отклонено по подписи %d, по лимиту %d, внесенных ошибок %d, WS-клиентов %d",
+                requests.sum(), rejectedSign.sum(), rateLimited.sum(), injectedErrors.sum(), webSocketServer.getSubscriberCount());
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        httpServer.stop(0);
+        httpExecutor.shutdownNow();
+        try {
+            webSocketServer.stop(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- REST ---
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            simulateLatency();
+
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            String body = "POST".equals(method) ? readBody(exchange) : "";
+
+            Map<String, Object> response;
+            if (rateLimit != null && !rateLimit.tryAcquire()) {
+                rateLimited.increment();
+                response = envelope(10006, "Too many visits!", Map.of());
+            } else if (config.getErrorRate() > 0 && nextDouble() < config.getErrorRate()) {
+                injectedErrors.increment();
+                response = envelope(10016, "Internal system error.", Map.of());
+            } else if (!path.startsWith("/v5/market/") && config.isVerifySignature()
+                    && (response = verifySignature(exchange, "GET".equals(method) ? nullToEmpty(rawQuery) : body)) != null) {
+                rejectedSign.increment();
+            } else {
+                response = route(method, path, parseQuery(rawQuery), body);
+            }
+            send(exchange, 200, response);
+        } catch (RuntimeException e) {
+            LoggerUtils.error("Mock Bybit: ошибка обработки " + exchange.getRequestURI(), e);
+        }
+    }
+
+    private Map<String, Object> route(String method, String path, Map<String, String> query, String body) {
+        try {
+            Map<String, Object> params = "POST".equals(method) ? parseBody(body) : new HashMap<>(query);
+            return switch (method + " " + path) {
+                case "GET /v5/market/time" -> marketTime();
+                case "GET /v5/market/tickers" -> tickers(query.get("symbol"));
+                case "GET /v5/market/instruments-info" -> instrumentsInfo(query.get("symbol"));
+                case "POST /v5/order/create" -> ok(Map.of("orderId", engine.createOrder(params), "orderLinkId", ""));
+                case "POST /v5/order/amend" -> {
+                    engine.amendOrder(params);
+                    yield ok(Map.of("orderId", String.valueOf(params.get("orderId")), "orderLinkId", ""));
+                }
+                case "POST /v5/order/cancel" -> {
+                    engine.cancelOrder(params);
+                    yield ok(Map.of("orderId", String.valueOf(params.get("orderId")), "orderLinkId", ""));
+                }
+                case "POST /v5/order/cancel-all" -> ok(Map.of("success", String.valueOf(engine.cancelAll(stringOrNull(params.get("symbol"))))));
+                case "GET /v5/order/realtime" -> page(engine.openOrders(query.get("symbol")), query);
+                case "GET /v5/position/list" -> page(engine.positions(query.get("symbol")), query);
+                case "POST /v5/position/set-leverage" -> setLeverage(params);
+                case "POST /v5/position/close-position" -> {
+                    String orderId = engine.closePosition(String.valueOf(params.get("symbol")));
+                    yield orderId != null ? ok(Map.of("orderId", orderId)) : envelope(110017, "position is zero", Map.of());
+                }
+                case "GET /v5/account/wallet-balance" -> walletBalance();
+                default -> envelope(10001, "unknown endpoint " + method + " " + path, Map.of());
+            };
+        } catch (MockMatchingEngine.Rejection e) {
+            return envelope(e.getRetCode(), e.getMessage(), Map.of());
+        }
+    }
+
+    private Map<String, Object> marketTime() {
+        long nanos = System.currentTimeMillis() * 1_000_000L;
+        return ok(Map.of("timeSecond", String.valueOf(nanos / 1_000_000_000L), "timeNano", String.valueOf(nanos)));
+    }
+
+    private Map<String, Object> tickers(String symbol) {
+        Double price = symbol != null ? engine.getLastPrice(symbol) : null;
+        if (price == null) {
+            return envelope(10001, "params error: symbol invalid or no price", Map.of());
+        }
+        String last = MockMatchingEngine.format(price, engine.getInstrument(symbol).priceScale());
+        Map<String, Object> ticker = new LinkedHashMap<>();
+        ticker.put("symbol", symbol);
+        ticker.put("lastPrice", last);
+        ticker.put("markPrice", last);
+        ticker.put("indexPrice", last);
+        ticker.put("bid1Price", last);
+        ticker.put("ask1Price", last);
+        return ok(Map.of("category", "linear", "list", List.of(ticker)));
+    }
+
+    private Map<String, Object> instrumentsInfo(String symbol) {
+        MockMatchingEngine.Instrument instrument = engine.getInstrument(symbol);
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("symbol", instrument.symbol());
+        item.put("contractType", "LinearPerpetual");
+        item.put("status", "Trading");
+        item.put("priceFilter", Map.of("tickSize", instrument.tickSize()));
+        item.put("lotSizeFilter", Map.of("qtyStep", instrument.qtyStep(), "minOrderQty", instrument.minOrderQty()));
+        return ok(Map.of("category", "linear", "list", List.of(item), "nextPageCursor", ""));
+    }
+
+    private Map<String, Object> setLeverage(Map<String, Object> params) {
+        double buy = Double.parseDouble(String.valueOf(params.getOrDefault("buyLeverage", "0")));
+        if (!engine.setLeverage(String.valueOf(params.get("symbol")), buy)) {
+            return envelope(110043, "leverage not modified", Map.of());
+        }
+        return ok(Map.of());
+    }
+
+    private Map<String, Object> walletBalance() {
+        return ok(Map.of("list", List.of(walletAccount())));
+    }
+
+    // Аккаунт в формате wallet-balance и приватного топика wallet
+    private Map<String, Object> walletAccount() {
+        String equity = MockMatchingEngine.format(engine.getEquity(), 4);
+        String available = MockMatchingEngine.format(engine.getAvailableBalance(), 4);
+        String wallet = MockMatchingEngine.format(engine.getWalletBalance(), 4);
+        Map<String, Object> coin = new LinkedHashMap<>();
+        coin.put("coin", "USDT");
+        coin.put("equity", equity);
+        coin.put("walletBalance", wallet);
+        coin.put("totalAvailableBalance", available);
+        Map<String, Object> account = new LinkedHashMap<>();
+        account.put("accountType", "UNIFIED");
+        account.put("totalEquity", equity);
+        account.put("totalWalletBalance", wallet);
+        account.put("totalMarginBalance", equity);
+        account.put("totalAvailableBalance", available);
+        account.put("totalInitialMargin", MockMatchingEngine.format(engine.getInitialMargin(), 4));
+        account.put("totalMaintenanceMargin", "0");
+        account.put("coin", List.of(coin));
+        return account;
+    }
+
+    // Курсор — смещение в списке, как строка (у Bybit он непрозрачный, клиенту это неважно)
+    private Map<String, Object> page(List<Map<String, Object>> items, Map<String, String> query) {
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : 20;
+        int from = query.containsKey("cursor") ? Integer.parseInt(query.get("cursor")) : 0;
+        int to = Math.min(items.size(), from + limit);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("category", "linear");
+        result.put("list", items.subList(Math.min(from, to), to));
+        result.put("nextPageCursor", to < items.size() ? String.valueOf(to) : "");
+        return ok(result);
+    }
+
+    /**
+     * @return ответ с ошибкой или null, если подпись верна
+     */
+    private Map<String, Object> verifySignature(HttpExchange exchange, String payload) {
+        String apiKey = exchange.getRequestHeaders().getFirst("X-BAPI-API-KEY");
+        String sign = exchange.getRequestHeaders().getFirst("X-BAPI-SIGN");
+        String timestamp = exchange.getRequestHeaders().getFirst("X-BAPI-TIMESTAMP");
+        String recvWindow = exchange.getRequestHeaders().getFirst("X-BAPI-RECV-WINDOW");
+        if (apiKey == null || !apiKey.equals(config.getApiKey())) {
+            return envelope(10003, "API key is invalid.", Map.of());
+        }
+        if (sign == null || timestamp == null) {
+            return envelope(10004, "error sign! missing X-BAPI-SIGN or X-BAPI-TIMESTAMP", Map.of());
+        }
+        long window = recvWindow != null ? Long.parseLong(recvWindow) : DEFAULT_RECV_WINDOW;
+        long drift = System.currentTimeMillis() - Long.parseLong(timestamp);
+        if (drift > window || drift < -1_000) {
+            return envelope(10002, "invalid request, please check your server timestamp or recv_window param", Map.of());
+        }
+        try {
+            String expected = BybitRequestUtils.generateSignature(config.getApiSecret(),
+                    timestamp + apiKey + (recvWindow != null ? recvWindow : "") + payload);
+            if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), sign.getBytes(StandardCharsets.UTF_8))) {
+                return envelope(10004, "error sign! origin_string[" + timestamp + apiKey + recvWindow + payload + "]", Map.of());
+            }
+        } catch (Exception e) {
+            return envelope(10004, "error sign! " + e.getMessage(), Map.of());
+        }
+        return null;
+    }
+
+    private void simulateLatency() {
+        long delay = config.getLatencyMillis();
+        if (config.getLatencyJitterMillis() > 0) {
+            delay += (long) (nextDouble() * config.getLatencyJitterMillis());
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+
+    private Map<String, Object> parseBody(String body) {
+        if (body == null || body.isBlank()) {
+            return new HashMap<>();
+        }
+        try {
+            return mapper.readValue(body, new TypeReference<HashMap<String, Object>>() {});
+        } catch (IOException e) {
+            throw new MockMatchingEngine.Rejection(10001, "params error: body is not JSON");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readNBytes(MAX_BODY_BYTES), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, Map<String, Object> response) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Map<String, Object> ok(Map<String, Object> result) {
+        return envelope(0, "OK", result);
+    }
+
+    private static Map<String, Object> envelope(int retCode, String retMsg, Map<String, Object> result) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("retCode", retCode);
+        response.put("retMsg", retMsg);
+        response.put("result", result);
+        response.put("retExtInfo", Map.of());
+        response.put("time", System.currentTimeMillis());
+        return response;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String stringOrNull(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.bybit.mock;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Настройки {@link MockBybitExchange}. Порт 0 — выбрать свободный.
+ */
+@Getter
+@Setter
+public class MockExchangeConfig {
+    private String host = "127.0.0.1";
+    private int httpPort = 0;
+    private int webSocketPort = 0;
+
+    // ключи, которыми клиент подписывает запросы (как BYBIT_API_KEY / BYBIT_API_SECRET)
+    private String apiKey = "mock-api-key";
+    private String apiSecret = "mock-api-secret";
+    private boolean verifySignature = true;
+
+    // задержка ответа REST: latencyMillis + случайно до latencyJitterMillis
+    private long latencyMillis = 0;
+    private long latencyJitterMillis = 0;
+    // доля запросов, на которые вернется retCode 10016 (0..1)
+    private double errorRate = 0.0;
+    // запросов в секунду до retCode 10006 (0 — без ограничения)
+    private int rateLimitPerSecond = 0;
+    private long randomSeed = 42;
+
+    private double initialBalance = 10_000.0;
+    private double defaultLeverage = 10;
+    private Map<String, MockMatchingEngine.Instrument> instruments = defaultInstruments();
+
+    public void addInstrument(String symbol, String tickSize, String qtyStep, String minOrderQty) {
+        instruments.put(symbol, new MockMatchingEngine.Instrument(symbol, tickSize, qtyStep, minOrderQty));
+    }
+
+    private static Map<String, MockMatchingEngine.Instrument> defaultInstruments() {
+        Map<String, MockMatchingEngine.Instrument> map = new LinkedHashMap<>();
+        map.put("BTCUSDT", new MockMatchingEngine.Instrument("BTCUSDT", "0.10", "0.001", "0.001"));
+        map.put("ETHUSDT", new MockMatchingEngine.Instrument("ETHUSDT", "0.01", "0.01", "0.01"));
+        map.put("SOLUSDT", new MockMatchingEngine.Instrument("SOLUSDT", "0.010", "0.1", "0.1"));
+        return map;
+    }
+}
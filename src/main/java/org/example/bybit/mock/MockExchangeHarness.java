@@ -0,0 +1,120 @@
+package org.example.bybit.mock;
+
+import org.example.bybit.BybitManager;
+import org.example.bybit.auth.BybitAuthConfig;
+import org.example.bybit.client.BybitWebSocketClient;
+import org.example.bybit.dto.BybitOrderRequest;
+import org.example.bybit.dto.BybitOrderResponse;
+import org.example.deal.Deal;
+import org.example.deal.utils.OrderManager;
+import org.example.model.Direction;
+import org.example.model.EntryType;
+import org.example.model.Price;
+import org.example.model.Qty;
+import org.example.model.Symbol;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Запуск фейковой биржи.
+ * <ul>
+ *     <li>без аргументов — самопроверка: настоящие сервисы бота открывают LONG, ставят SL/TP, двигают SL через amend,
+ *     цена по сценарию падает до SL, позиция закрывается;</li>
+ *     <li>{@code serve [httpPort] [wsPort]} — биржа работает со случайным блужданием BTCUSDT,
+ *     печатаются строки для .env.</li>
+ * </ul>
+ */
+public class MockExchangeHarness {
+
+    private static final String SYMBOL = "BTCUSDT";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "serve".equals(args[0])) {
+            serve(args);
+        } else {
+            selfCheck();
+        }
+    }
+
+    private static void serve(String[] args) throws Exception {
+        MockExchangeConfig config = new MockExchangeConfig();
+        config.setHttpPort(args.length > 1 ? Integer.parseInt(args[1]) : 18080);
+        config.setWebSocketPort(args.length > 2 ? Integer.parseInt(args[2]) : 18081);
+        MockBybitExchange exchange = new MockBybitExchange(config);
+        exchange.start();
+        exchange.play(PricePath.randomWalk(SYMBOL, 500, 67_000, 0.05, Integer.MAX_VALUE / 1024, config.getRandomSeed()));
+
+        System.out.println("BYBIT_API_BASE_URL=" + exchange.getBaseUrl());
+        System.out.println("WEBSOCKET_URI=" + exchange.getWebSocketUri());
+        System.out.println("BYBIT_PRIVATE_WS_URI=" + exchange.getWebSocketUri());
+        System.out.println("BYBIT_API_KEY=" + config.getApiKey());
+        System.out.println("BYBIT_API_SECRET=" + config.getApiSecret());
+        Runtime.getRuntime().addShutdownHook(new Thread(exchange::close));
+        Thread.currentThread().join();
+    }
+
+    private static void selfCheck() throws Exception {
+        MockExchangeConfig config = new MockExchangeConfig();
+        try (MockBybitExchange exchange = new MockBybitExchange(config)) {
+            exchange.start();
+            exchange.setPrice(SYMBOL, 67_000);
+
+            BybitManager bybit = new BybitManager(new BybitAuthConfig(config.getApiKey(), config.getApiSecret(), exchange.getBaseUrl()));
+            System.out.println("lastPrice = " + bybit.getBybitMarketService().getLastPrice(SYMBOL)
+                    + ", tickSize = " + bybit.getBybitMarketService().getTickSize(SYMBOL)
+                    + ", баланс = " + bybit.getBybitAccountService().getUsdtBalance());
+
+            Deal deal = new Deal(new Symbol(SYMBOL), Direction.LONG, EntryType.MARKET, 67_000.0, 66_000.0, List.of(69_000.0));
+            deal.setPositionSize(0.05);
+            deal.setLeverageUsed(5);
+            bybit.getBybitOrderService().setLeverage(deal);
+
+            BybitOrderResponse entry = bybit.getBybitOrderService().placeOrder(BybitOrderRequest.forEntry(deal));
+            System.out.println("вход: " + entry);
+
+            BybitOrderResponse sl = bybit.getBybitOrderService().setStopLoss(deal);
+            deal.addOrderId(new OrderManager(sl.getOrderResult().getOrderId(), OrderManager.OrderType.SL,
+                    Price.of(deal.getStopLoss(), deal.getPriceScale())));
+            BybitOrderResponse tp = bybit.getBybitOrderService().placeOrder(
+                    BybitOrderRequest.forTakeProfit(deal, Price.of(69_000.0, 1), Qty.of(0.025, 3)));
+            System.out.println("SL: " + sl + "\nTP: " + tp);
+
+            deal.setStopLoss(66_500.0);
+            System.out.println("amend SL: " + bybit.getBybitOrderService().getOrderAmender().amendStopLoss(deal).join().getMessage());
+            System.out.println("ордера: " + bybit.getBybitPositionTrackerService().getOrders(SYMBOL));
+
+            AtomicInteger ticks = new AtomicInteger();
+            CountDownLatch subscribed = new CountDownLatch(1);
+            BybitWebSocketClient ws = new BybitWebSocketClient(update -> {
+                ticks.incrementAndGet();
+                subscribed.countDown();
+            }, exchange.getWebSocketUri());
+            ws.connect();
+            waitForConnection(exchange);
+            ws.subscribeToTicker(new Symbol(SYMBOL));
+            while (subscribed.getCount() > 0) {
+                exchange.setPrice(SYMBOL, 67_000);
+                subscribed.await(50, TimeUnit.MILLISECONDS);
+            }
+
+            exchange.play(PricePath.linear(SYMBOL, 5, 67_000, 66_400, 61)).get(10, TimeUnit.SECONDS);
+            ws.disconnect();
+
+            System.out.println("тиков по WebSocket: " + ticks.get());
+            System.out.println("позиция: " + bybit.getBybitPositionTrackerService().getPositionBySymbol(SYMBOL));
+            System.out.println("ордера после SL: " + bybit.getBybitPositionTrackerService().getOrders(SYMBOL));
+            System.out.println("баланс: " + bybit.getBybitAccountService().getUsdtBalance());
+            System.out.println(exchange.getStats());
+        }
+    }
+
+    private static void waitForConnection(MockBybitExchange exchange) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (exchange.getWebSocketServer().getSubscriberCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package org.example.bybit.mock;
+
+import org.example.util.FixedPointUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Упрощенная модель счета Bybit (linear, one-way mode): позиции, лимитные и условные ордера, баланс USDT.
+ * <ul>
+ *     <li>Market исполняется сразу по последней цене;</li>
+ *     <li>Limit — когда цена доходит до лимита (если цена уже лучше — сразу по последней цене);</li>
+ *     <li>условный ордер (triggerPrice + triggerDirection: 1 — рост до, 2 — падение до) после срабатывания
+ *     становится Market или Limit;</li>
+ *     <li>reduceOnly не увеличивает позицию; при закрытии позиции оставшиеся reduceOnly-ордера отменяются.</li>
+ * </ul>
+ * Комиссии, ликвидации и стакан не моделируются. Все методы синхронизированы — вызываются из потоков HTTP и тикера.
+ */
+public class MockMatchingEngine {
+
+    /**
+     * Параметры инструмента так, как их отдает /v5/market/instruments-info.
+     */
+    public record Instrument(String symbol, String tickSize, String qtyStep, String minOrderQty) {
+        int priceScale() {
+            return FixedPointUtils.scaleOf(tickSize);
+        }
+
+        int qtyScale() {
+            return FixedPointUtils.scaleOf(qtyStep);
+        }
+    }
+
+    /**
+     * Отказ биржи: retCode и retMsg в формате Bybit.
+     */
+    public static class Rejection extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int retCode;
+
+        public Rejection(int retCode, String retMsg) {
+            super(retMsg);
+            this.retCode = retCode;
+        }
+
+        public int getRetCode() {
+            return retCode;
+        }
+    }
+
+    static final class Order {
+        String orderId;
+        String symbol;
+        String side;            // Buy / Sell
+        String orderType;       // Market / Limit
+        double qty;
+        double price;           // 0 — нет
+        double triggerPrice;    // 0 — обычный ордер
+        int triggerDirection;   // 1 — срабатывает при росте, 2 — при падении
+        boolean reduceOnly;
+        String status;          // New / Untriggered / Filled / Cancelled / Deactivated
+        long createdTime;
+        double filledQty;
+    }
+
+    static final class Position {
+        String side = "";       // Buy / Sell / "" — нет позиции
+        double size;
+        double avgPrice;
+        double leverage;
+        double realisedPnl;
+    }
+
+    private final Map<String, Instrument> instruments;
+    private final Map<String, Double> lastPrices = new HashMap<>();
+    private final Map<String, Order> openOrders = new LinkedHashMap<>();
+    private final Map<String, Position> positions = new HashMap<>();
+    private final AtomicLong orderSeq = new AtomicLong(1_000_000);
+    private final double defaultLeverage;
+    private double walletBalance;
+    private Consumer<Map<String, Object>> fillListener; // исполнения для приватного топика execution
+
+    public MockMatchingEngine(Map<String, Instrument> instruments, double initialBalance, double defaultLeverage) {
+        this.instruments = new HashMap<>(instruments);
+        this.walletBalance = initialBalance;
+        this.defaultLeverage = defaultLeverage;
+    }
+
+    /**
+     * Получатель исполнений (поля как в топике execution Bybit); вызывается под блокировкой движка.
+     */
+    public synchronized void setFillListener(Consumer<Map<String, Object>> fillListener) {
+        this.fillListener = fillListener;
+    }
+
+    public synchronized Instrument getInstrument(String symbol) {
+        Instrument instrument = instruments.get(symbol);
+        if (instrument == null) {
+            throw new Rejection(10001, "params error: symbol invalid");
+        }
+        return instrument;
+    }
+
+    public synchronized Double getLastPrice(String symbol) {
+        return lastPrices.get(symbol);
+    }
+
+    /**
+     * Новая цена символа: срабатывают условные ордера и исполняются лимитные.
+     *
+     * @return число исполненных ордеров
+     */
+    public synchronized int onPrice(String symbol, double price) {
+        getInstrument(symbol);
+        lastPrices.put(symbol, price);
+        int filled = 0;
+        for (Order order : new ArrayList<>(openOrders.values())) {
+            if (symbol.equals(order.symbol) && openOrders.containsKey(order.orderId) && tryExecute(order, price)) {
+                filled++;
+            }
+        }
+        return filled;
+    }
+
+    public synchronized String createOrder(Map<String, Object> params) {
+        String symbol = required(params, "symbol");
+        Instrument instrument = getInstrument(symbol);
+
+        Order order = new Order();
+        order.orderId = String.valueOf(orderSeq.incrementAndGet());
+        order.symbol = symbol;
+        order.side = required(params, "side");
+        if (!"Buy".equals(order.side) && !"Sell".equals(order.side)) {
+            throw new Rejection(10001, "params error: side invalid");
+        }
+        order.orderType = "market".equalsIgnoreCase(required(params, "orderType")) ? "Market" : "Limit";
+        order.qty = number(params, "qty");
+        order.price = optionalNumber(params, "price");
+        order.triggerPrice = optionalNumber(params, "triggerPrice");
+        order.triggerDirection = (int) optionalNumber(params, "triggerDirection");
+        order.reduceOnly = Boolean.parseBoolean(String.valueOf(params.getOrDefault("reduceOnly", "false")));
+        order.createdTime = System.currentTimeMillis();
+
+        if (order.qty < Double.parseDouble(instrument.minOrderQty())) {
+            throw new Rejection(10001, "The number of contracts is below the minimum allowed");
+        }
+        if ("Limit".equals(order.orderType) && order.price <= 0) {
+            throw new Rejection(10001, "params error: price invalid");
+        }
+        if (order.triggerPrice > 0 && order.triggerDirection != 1 && order.triggerDirection != 2) {
+            throw new Rejection(10001, "params error: triggerDirection invalid");
+        }
+        if (order.reduceOnly && !canReduce(order)) {
+            throw new Rejection(110017, "current position is zero, cannot fix reduce-only order qty");
+        }
+        Double lastPrice = lastPrices.get(symbol);
+        if (lastPrice == null) {
+            throw new Rejection(10001, "no market price for " + symbol);
+        }
+
+        order.status = order.triggerPrice > 0 ? "Untriggered" : "New";
+        openOrders.put(order.orderId, order);
+        tryExecute(order, lastPrice);
+        return order.orderId;
+    }
+
+    public synchronized void amendOrder(Map<String, Object> params) {
+        Order order = findOpen(params);
+        double triggerPrice = optionalNumber(params, "triggerPrice");
+        double price = optionalNumber(params, "price");
+        double qty = optionalNumber(params, "qty");
+        if (triggerPrice <= 0 && price <= 0 && qty <= 0) {
+            throw new Rejection(10001, "params error: nothing to amend");
+        }
+        if (triggerPrice > 0) {
+            if (!"Untriggered".equals(order.status)) {
+                throw new Rejection(110001, "order does not have a trigger price or already triggered");
+            }
+            order.triggerPrice = triggerPrice;
+        }
+        if (price > 0) {
+            order.price = price;
+        }
+        if (qty > 0) {
+            order.qty = qty;
+        }
+        Double lastPrice = lastPrices.get(order.symbol);
+        if (lastPrice != null) {
+            tryExecute(order, lastPrice);
+        }
+    }
+
+    public synchronized void cancelOrder(Map<String, Object> params) {
+        Order order = findOpen(params);
+        order.status = "Cancelled";
+        openOrders.remove(order.orderId);
+    }
+
+    public synchronized int cancelAll(String symbol) {
+        int cancelled = 0;
+        for (Iterator<Order> it = openOrders.values().iterator(); it.hasNext(); ) {
+            Order order = it.next();
+            if (symbol == null || symbol.equals(order.symbol)) {
+                order.status = "Cancelled";
+                it.remove();
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * @return false, если плечо уже такое (Bybit отвечает "leverage not modified")
+     */
+    public synchronized boolean setLeverage(String symbol, double leverage) {
+        getInstrument(symbol);
+        if (leverage < 1 || leverage > 100) {
+            throw new Rejection(10001, "params error: leverage invalid");
+        }
+        Position position = position(symbol);
+        if (position.leverage == leverage) {
+            return false;
+        }
+        position.leverage = leverage;
+        return true;
+    }
+
+    /**
+     * Закрывает позицию рыночным ордером по последней цене.
+     *
+     * @return orderId закрывающего ордера или null, если позиции нет
+     */
+    public synchronized String closePosition(String symbol) {
+        Position position = positions.get(symbol);
+        if (position == null || position.size == 0) {
+            return null;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("side", "Buy".equals(position.side) ? "Sell" : "Buy");
+        params.put("orderType", "Market");
+        params.put("qty", String.valueOf(position.size));
+        params.put("reduceOnly", "true");
+        return createOrder(params);
+    }
+
+    // --- Снимки для ответов REST ---
+
+    public synchronized List<Map<String, Object>> openOrders(String symbol) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Order order : openOrders.values()) {
+            if (symbol == null || symbol.equals(order.symbol)) {
+                result.add(toMap(order));
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<Map<String, Object>> positions(String symbol) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Position> entry : positions.entrySet()) {
+            if (symbol != null && !symbol.equals(entry.getKey())) {
+                continue;
+            }
+            // Bybit по symbol отдает и пустую позицию, а по settleCoin — только открытые
+            if (symbol == null && entry.getValue().size == 0) {
+                continue;
+            }
+            result.add(toMap(entry.getKey(), entry.getValue()));
+        }
+        if (symbol != null && result.isEmpty()) {
+            result.add(toMap(symbol, position(symbol)));
+        }
+        return result;
+    }
+
+    public synchronized double getWalletBalance() {
+        return walletBalance;
+    }
+
+    public synchronized double getEquity() {
+        double equity = walletBalance;
+        for (Map.Entry<String, Position> entry : positions.entrySet()) {
+            equity += unrealisedPnl(entry.getKey(), entry.getValue());
+        }
+        return equity;
+    }
+
+    public synchronized double getAvailableBalance() {
+        return getEquity() - getInitialMargin();
+    }
+
+    public synchronized double getInitialMargin() {
+        double margin = 0;
+        for (Position position : positions.values()) {
+            if (position.size > 0) {
+                margin += position.size * position.avgPrice / position.leverage;
+            }
+        }
+        return margin;
+    }
+
+    // --- Исполнение ---
+
+    // Вызывается под блокировкой this
+    private boolean tryExecute(Order order, double price) {
+        if ("Untriggered".equals(order.status)) {
+            boolean triggered = order.triggerDirection == 1 ? price >= order.triggerPrice : price <= order.triggerPrice;
+            if (!triggered) {
+                return false;
+            }
+            order.status = "New";
+        }
+        if ("Limit".equals(order.orderType)) {
+            boolean marketable = "Buy".equals(order.side) ? price <= order.price : price >= order.price;
+            if (!marketable) {
+                return false;
+            }
+        }
+        fill(order, price);
+        if ("Filled".equals(order.status) && fillListener != null) {
+            fillListener.accept(toExecution(order, price));
+        }
+        return true;
+    }
+
+    private void fill(Order order, double price) {
+        openOrders.remove(order.orderId);
+        Position position = position(order.symbol);
+        double qty = order.qty;
+        if (order.reduceOnly) {
+            if (!canReduce(order)) {
+                order.status = "Deactivated";
+                return;
+            }
+            qty = Math.min(qty, position.size);
+        }
+        order.status = "Filled";
+        order.filledQty = qty;
+
+        if (position.size == 0 || position.side.equals(order.side)) {
+            position.avgPrice = (position.avgPrice * position.size + price * qty) / (position.size + qty);
+            position.size = roundQty(order.symbol, position.size + qty);
+            position.side = order.side;
+            return;
+        }
+
+        double closeQty = Math.min(qty, position.size);
+        double pnl = (price - position.avgPrice) * closeQty * ("Buy".equals(position.side) ? 1 : -1);
+        walletBalance += pnl;
+        position.realisedPnl += pnl;
+        position.size = roundQty(order.symbol, position.size - closeQty);
+        double rest = qty - closeQty;
+        if (rest > 0) {
+            position.side = order.side;
+            position.size = roundQty(order.symbol, rest);
+            position.avgPrice = price;
+        } else if (position.size == 0) {
+            position.side = "";
+            position.avgPrice = 0;
+            cancelReduceOnly(order.symbol);
+        }
+    }
+
+    private boolean canReduce(Order order) {
+        Position position = positions.get(order.symbol);
+        return position != null && position.size > 0 && !position.side.equals(order.side);
+    }
+
+    private void cancelReduceOnly(String symbol) {
+        for (Iterator<Order> it = openOrders.values().iterator(); it.hasNext(); ) {
+            Order order = it.next();
+            if (symbol.equals(order.symbol) && order.reduceOnly) {
+                order.status = "Deactivated";
+                it.remove();
+            }
+        }
+    }
+
+    private Position position(String symbol) {
+        return positions.computeIfAbsent(symbol, s -> {
+            Position position = new Position();
+            position.leverage = defaultLeverage;
+            return position;
+        });
+    }
+
+    private double unrealisedPnl(String symbol, Position position) {
+        Double last = lastPrices.get(symbol);
+        if (position.size == 0 || last == null) {
+            return 0;
+        }
+        return (last - position.avgPrice) * position.size * ("Buy".equals(position.side) ? 1 : -1);
+    }
+
+    private Order findOpen(Map<String, Object> params) {
+        Object orderId = params.get("orderId");
+        Order order = orderId != null ? openOrders.get(orderId.toString()) : null;
+        if (order == null) {
+            throw new Rejection(110001, "order not exists or too late to cancel");
+        }
+        return order;
+    }
+
+    private double roundQty(String symbol, double qty) {
+        int scale = instruments.get(symbol).qtyScale();
+        return FixedPointUtils.toDouble(FixedPointUtils.toMantissa(qty, scale), scale);
+    }
+
+    private Map<String, Object> toExecution(Order order, double price) {
+        Instrument instrument = instruments.get(order.symbol);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("category", "linear");
+        map.put("symbol", order.symbol);
+        map.put("orderId", order.orderId);
+        map.put("side", order.side);
+        map.put("execId", order.orderId + "-1");
+        map.put("execPrice", format(price, instrument.priceScale()));
+        map.put("execQty", format(order.filledQty, instrument.qtyScale()));
+        map.put("execFee", "0");
+        map.put("execType", "Trade");
+        map.put("execTime", String.valueOf(System.currentTimeMillis()));
+        return map;
+    }
+
+    private Map<String, Object> toMap(Order order) {
+        Instrument instrument = instruments.get(order.symbol);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("orderId", order.orderId);
+        map.put("symbol", order.symbol);
+        map.put("side", order.side);
+        map.put("orderType", order.orderType);
+        map.put("qty", format(order.qty, instrument.qtyScale()));
+        map.put("price", order.price > 0 ? format(order.price, instrument.priceScale()) : "0");
+        map.put("triggerPrice", order.triggerPrice > 0 ? format(order.triggerPrice, instrument.priceScale()) : "0");
+        map.put("triggerDirection", order.triggerDirection);
+        map.put("reduceOnly", order.reduceOnly);
+        map.put("stopOrderType", order.triggerPrice > 0 ? (order.reduceOnly ? "StopLoss" : "Stop") : "");
+        map.put("tpslMode", order.triggerPrice > 0 && order.reduceOnly ? "Full" : "");
+        map.put("orderStatus", order.status);
+        map.put("createdTime", String.valueOf(order.createdTime));
+        return map;
+    }
+
+    private Map<String, Object> toMap(String symbol, Position position) {
+        Instrument instrument = instruments.get(symbol);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("symbol", symbol);
+        map.put("side", position.side);
+        map.put("size", format(position.size, instrument.qtyScale()));
+        map.put("avgPrice", format(position.avgPrice, instrument.priceScale()));
+        map.put("leverage", String.valueOf(position.leverage));
+        map.put("positionValue", format(position.size * position.avgPrice, 4));
+        map.put("unrealisedPnl", format(unrealisedPnl(symbol, position), 4));
+        map.put("cumRealisedPnl", format(position.realisedPnl, 4));
+        map.put("cumulatedRealisedPnl", format(position.realisedPnl, 4));
+        map.put("tpslMode", "Full");
+        map.put("positionStatus", "Normal");
+        map.put("bustPrice", "0");
+        map.put("trailingStop", "0");
+        map.put("isolatedMargin", "0");
+        return map;
+    }
+
+    static String format(double value, int scale) {
+        return FixedPointUtils.toPlainString(FixedPointUtils.toMantissa(value, scale), scale);
+    }
+
+    private static String required(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+        if (value == null || value.toString().isBlank()) {
+            throw new Rejection(10001, "params error: " + name + " is required");
+        }
+        return value.toString();
+    }
+
+    private static double number(Map<String, Object> params, String name) {
+        try {
+            return Double.parseDouble(required(params, name));
+        } catch (NumberFormatException e) {
+            throw new Rejection(10001, "params error: " + name + " invalid");
+        }
+    }
+
+    private static double optionalNumber(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+        if (value == null || value.toString().isBlank()) {
+            return 0;
+        }
+        return number(params, name);
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.bybit.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.util.BybitRequestUtils;
+import org.example.util.LoggerUtils;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket Bybit (v5, linear): подписка на tickers.SYMBOL и рассылка тикеров подписчикам.
+ * Приватные топики (wallet, execution) доставляются после op auth — подпись проверяется, если заданы ключи.
+ * Формат сообщений — как у Bybit, поэтому {@link org.example.bybit.client.BybitWebSocketClient}
+ * и {@link org.example.bybit.client.BybitPrivateStreamClient} работают без изменений.
+ */
+public class MockWebSocketServer extends WebSocketServer {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<WebSocket, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final Set<WebSocket> authenticated = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile String apiKey;    // null — авторизация без проверки подписи
+    private volatile String apiSecret;
+
+    public MockWebSocketServer(InetSocketAddress address) {
+        super(address);
+        setReuseAddr(true);
+    }
+
+    /**
+     * Запускает сервер и ждет, пока он начнет принимать соединения.
+     */
+    public void startAndWait() throws InterruptedException {
+        start();
+        if (!started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Mock WebSocket не запустился за 10 с");
+        }
+    }
+
+    /**
+     * Рассылает тикер всем подписанным на tickers.symbol.
+     */
+    public void publishTicker(String symbol, String lastPrice) {
+        String topic = "tickers." + symbol;
+        String message = "{\"topic\":\"" + topic + "\",\"type\":\"snapshot\",\"data\":{\"symbol\":\"" + symbol
+                + "\",\"lastPrice\":\"" + lastPrice + "\",\"markPrice\":\"" + lastPrice + "\",\"indexPrice\":\"" + lastPrice
+                + "\"},\"ts\":" + System.currentTimeMillis() + "}";
+        for (Map.Entry<WebSocket, Set<String>> entry : subscriptions.entrySet()) {
+            if (entry.getValue().contains(topic) && entry.getKey().isOpen()) {
+                entry.getKey().send(message);
+            }
+        }
+    }
+
+    /**
+     * Ключи для проверки op auth: HMAC-SHA256("GET/realtime" + expires) секретом.
+     */
+    public void setCredentials(String apiKey, String apiSecret) {
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+    }
+
+    /**
+     * Рассылает сообщение приватного топика авторизованным подписчикам; data — массив записей, как у Bybit.
+     */
+    public void publishPrivate(String topic, List<Map<String, Object>> data) {
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(Map.of("topic", topic, "id", topic + "-" + System.nanoTime(),
+                    "creationTime", System.currentTimeMillis(), "data", data));
+        } catch (Exception e) {
+            LoggerUtils.error("Mock WebSocket: не удалось сериализовать " + topic, e);
+            return;
+        }
+        for (WebSocket conn : authenticated) {
+            Set<String> topics = subscriptions.get(conn);
+            if (topics != null && topics.contains(topic) && conn.isOpen()) {
+                conn.send(message);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        subscriptions.put(conn, ConcurrentHashMap.newKeySet());
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        subscriptions.remove(conn);
+        authenticated.remove(conn);
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        try {
+            JsonNode root = objectMapper.readTree(message);
+            String op = root.path("op").asText("");
+            Set<String> topics = subscriptions.computeIfAbsent(conn, c -> ConcurrentHashMap.newKeySet());
+            switch (op) {
+                case "subscribe" -> root.path("args").forEach(arg -> topics.add(arg.asText()));
+                case "unsubscribe" -> root.path("args").forEach(arg -> topics.remove(arg.asText()));
+                case "auth" -> {
+                    boolean success = verifyAuth(root.path("args"));
+                    if (success) {
+                        authenticated.add(conn);
+                    }
+                    conn.send("{\"success\":" + success + ",\"ret_msg\":\"" + (success ? "" : "Invalid signature") + "\",\"op\":\"auth\",\"conn_id\":\"mock\"}");
+                    return;
+                }
+                case "ping" -> {
+                    conn.send("{\"success\":true,\"ret_msg\":\"pong\",\"op\":\"ping\"}");
+                    return;
+                }
+                default -> {
+                    conn.send("{\"success\":false,\"ret_msg\":\"unknown op\",\"op\":\"" + op + "\"}");
+                    return;
+                }
+            }
+            conn.send("{\"success\":true,\"ret_msg\":\"\",\"op\":\"" + op + "\",\"conn_id\":\"mock\"}");
+        } catch (Exception e) {
+            LoggerUtils.warn("Mock WebSocket: некорректное сообщение " + message);
+        }
+    }
+
+    private boolean verifyAuth(JsonNode args) {
+        String key = apiKey;
+        if (key == null) {
+            return true;
+        }
+        try {
+            long expires = args.path(1).asLong();
+            String expected = BybitRequestUtils.generateSignature(apiSecret, "GET/realtime" + expires);
+            return key.equals(args.path(0).asText()) && expires > System.currentTimeMillis()
+                    && expected.equals(args.path(2).asText());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        LoggerUtils.error("Mock WebSocket: ошибка соединения", ex);
+    }
+
+    @Override
+    public void onStart() {
+        started.countDown();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.bybit.mock;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Сценарий цены для {@link MockBybitExchange#play(PricePath)}: последовательность цен символа с шагом intervalMillis.
+ */
+public record PricePath(String symbol, long intervalMillis, double[] prices) {
+
+    public PricePath {
+        if (prices == null || prices.length == 0) {
+            throw new IllegalArgumentException("Пустой сценарий цены для " + symbol);
+        }
+        prices = prices.clone();
+    }
+
+    public static PricePath of(String symbol, long intervalMillis, double... prices) {
+        return new PricePath(symbol, intervalMillis, prices);
+    }
+
+    /**
+     * Равномерное движение от from до to за steps шагов (включая обе границы).
+     */
+    public static PricePath linear(String symbol, long intervalMillis, double from, double to, int steps) {
+        double[] prices = new double[Math.max(steps, 2)];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = from + (to - from) * i / (prices.length - 1);
+        }
+        return new PricePath(symbol, intervalMillis, prices);
+    }
+
+    /**
+     * Случайное блуждание: каждый шаг меняет цену на нормально распределенную долю со стандартным отклонением stepPercent.
+     */
+    public static PricePath randomWalk(String symbol, long intervalMillis, double start, double stepPercent, int steps, long seed) {
+        Random random = new Random(seed);
+        double[] prices = new double[steps];
+        double price = start;
+        for (int i = 0; i < steps; i++) {
+            prices[i] = price;
+            price = Math.max(price * (1 + random.nextGaussian() * stepPercent / 100.0), Double.MIN_NORMAL);
+        }
+        return new PricePath(symbol, intervalMillis, prices);
+    }
+
+    /**
+     * Сценарии подряд (символ и интервал — как у первого).
+     */
+    public PricePath then(PricePath next) {
+        double[] joined = Arrays.copyOf(prices, prices.length + next.prices.length);
+        System.arraycopy(next.prices, 0, joined, prices.length, next.prices.length);
+        return new PricePath(symbol, intervalMillis, joined);
+    }
+
+    @Override
+    public double[] prices() {
+        return prices.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "PricePath{" + symbol + ", " + prices.length + " тиков по " + intervalMillis + " мс}";
+    }
+}
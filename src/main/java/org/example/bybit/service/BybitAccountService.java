@@ -1,50 +1,231 @@
 package org.example.bybit.service;
 
 import lombok.Getter;
+import org.example.bybit.client.PrivateStreamListener;
 import org.example.bybit.dto.BalanceResponse;
 import org.example.bybit.client.BybitHttpClient;
+import org.example.bybit.dto.ExecutionEvent;
+import org.example.bybit.dto.WalletSnapshot;
+import org.example.metrics.Counter;
+import org.example.metrics.Metrics;
 import org.example.util.LoggerUtils;
+import org.example.util.ValuesUtil;
 
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Баланс аккаунта с кэшем снимка {@link WalletSnapshot}.
+ * <ul>
+ *     <li>снимок свежий, пока моложе maxAgeMillis и не инвалидирован — запрос к бирже не нужен;</li>
+ *     <li>обновление по REST одно на всех: параллельные вызовы ждут уже идущий запрос;</li>
+ *     <li>push wallet из приватного WebSocket заменяет снимок сразу, исполнение ордера (execution) его инвалидирует —
+ *     если push баланса не пришел за walletPushGraceMillis, снимок обновляется по REST в фоне;</li>
+ *     <li>снимок старше половины срока обновляется в фоне при чтении, чтобы расчет позиции не ждал биржу.</li>
+ * </ul>
+ */
+public class BybitAccountService implements PrivateStreamListener {
+    private static final Counter CACHE_HITS = Metrics.counter("wallet_cache_requests_total", "Запросы баланса аккаунта", "result", "hit");
+    private static final Counter CACHE_MISSES = Metrics.counter("wallet_cache_requests_total", "Запросы баланса аккаунта", "result", "miss");
+    private static final Counter REST_REFRESHES = Metrics.counter("wallet_refreshes_total", "Обновления снимка баланса", "source", "rest");
+    private static final Counter PUSH_REFRESHES = Metrics.counter("wallet_refreshes_total", "Обновления снимка баланса", "source", "push");
+
+    // Снимок и поколение инвалидации, в котором он получен
+    private record Cached(WalletSnapshot snapshot, long generation) {
+    }
 
-public class BybitAccountService {
     private final BybitHttpClient httpClient;
+    private final long maxAgeMillis;
+    private final AtomicLong generation = new AtomicLong();
+    private final Object refreshLock = new Object();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "wallet-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Cached cached;
+    private CompletableFuture<WalletSnapshot> refreshing; // под refreshLock; null — запроса нет
     @Getter
     private double lastTotalUSDTBalance;
+
     public BybitAccountService(BybitHttpClient httpClient) {
+        this(httpClient, TimeUnit.SECONDS.toMillis(ValuesUtil.getWalletMaxAgeSeconds()));
+    }
+
+    public BybitAccountService(BybitHttpClient httpClient, long maxAgeMillis) {
         this.httpClient = httpClient;
+        this.maxAgeMillis = maxAgeMillis;
     }
 
 
     /**
-     * Получает баланс USDT на деривативном аккаунте (accountType = CONTRACT).
+     * Получает баланс USDT на едином аккаунте — totalEquity из снимка кошелька.
      *
-     * @return объект ответа с балансом
+     * @return totalEquity в USDT
      */
     public double getUsdtBalance() {
+        return getWalletSnapshot().getTotalEquity();
+    }
+
+    /**
+     * Доступно для новых позиций (totalAvailableBalance) — equity за вычетом занятой маржи.
+     */
+    public double getAvailableBalance() {
+        return getWalletSnapshot().getTotalAvailableBalance();
+    }
+
+    /**
+     * Снимок кошелька: из кэша, если он свежий, иначе по REST (один запрос на всех ожидающих).
+     */
+    public WalletSnapshot getWalletSnapshot() {
+        Cached current = cached;
+        if (current != null && current.generation() == generation.get()) {
+            long age = current.snapshot().ageMillis();
+            if (age < maxAgeMillis) {
+                CACHE_HITS.increment();
+                if (age > maxAgeMillis / 2) {
+                    refreshInBackground();
+                }
+                return current.snapshot();
+            }
+        }
+        CACHE_MISSES.increment();
+        return refresh();
+    }
+
+    /**
+     * Снимок без обращения к бирже; null, если баланс еще не запрашивался.
+     */
+    public WalletSnapshot peekWalletSnapshot() {
+        Cached current = cached;
+        return current == null ? null : current.snapshot();
+    }
+
+    /**
+     * Помечает снимок устаревшим: следующий getWalletSnapshot пойдет на биржу,
+     * если до этого не придет push баланса. Через walletPushGraceMillis без push — обновление в фоне.
+     */
+    public void invalidate() {
+        long invalidated = generation.incrementAndGet();
+        refresher.schedule(() -> {
+            Cached current = cached;
+            if (current == null || current.generation() < invalidated) {
+                refreshQuietly();
+            }
+        }, ValuesUtil.getWalletPushGraceMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Принудительное обновление по REST. Если запрос уже идет — ждет его результата.
+     */
+    public WalletSnapshot refresh() {
+        CompletableFuture<WalletSnapshot> future;
+        boolean owner = false;
+        synchronized (refreshLock) {
+            if (refreshing == null) {
+                refreshing = new CompletableFuture<>();
+                owner = true;
+            }
+            future = refreshing;
+        }
+        if (owner) {
+            long requestGeneration = generation.get();
+            try {
+                WalletSnapshot snapshot = fetchWalletSnapshot();
+                store(snapshot, requestGeneration);
+                future.complete(snapshot);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (refreshLock) {
+                    refreshing = null;
+                }
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public void onConnected() {
+        // Push-события за время разрыва потеряны
+        invalidate();
+    }
+
+    @Override
+    public void onWallet(BalanceResponse.BalanceAccount account) {
+        try {
+            store(WalletSnapshot.from(account, System.currentTimeMillis(), WalletSnapshot.Source.PUSH), generation.get());
+            PUSH_REFRESHES.increment();
+        } catch (RuntimeException e) {
+            LoggerUtils.warn("Push баланса не разобран: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onExecution(ExecutionEvent execution) {
+        LoggerUtils.debug("Исполнение " + execution.getSymbol() + " " + execution.getSide() + " " + execution.getExecQty()
+                + " @ " + execution.getExecPrice() + " — баланс будет обновлен");
+        invalidate();
+    }
+
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private WalletSnapshot fetchWalletSnapshot() {
         String endpoint = "/v5/account/wallet-balance";
         Map<String, String> queryParams = Map.of("accountType", "unified");
+        long requestedAt = System.currentTimeMillis();
         BalanceResponse response = httpClient.signedGet(endpoint, queryParams, BalanceResponse.class);
+        REST_REFRESHES.increment();
 
-        LoggerUtils.info(response.toString());
+        LoggerUtils.debug("BALANCE = " + response);
 
         if (response.getResult() == null || response.getResult().getList() == null) {
             throw new RuntimeException("Пустой результат. Проверь accountType или доступ API.");
         }
 
-
-        LoggerUtils.info("BALANCE = " + response);
-
-        lastTotalUSDTBalance = response.getResult().getList().stream()
-                .map(BalanceResponse.BalanceAccount::getTotalEquity) // ✅
-                .filter(Objects::nonNull)
-                .mapToDouble(Double::parseDouble)
+        BalanceResponse.BalanceAccount account = response.getResult().getList().stream()
+                .filter(a -> a.getTotalEquity() != null)
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Поле totalEquity не найдено"));
+        // Время снимка — начало запроса: push, пришедший во время запроса, новее ответа
+        return WalletSnapshot.from(account, requestedAt, WalletSnapshot.Source.REST);
+    }
 
-        return lastTotalUSDTBalance;
+    // Более старый снимок (ответ REST, обогнанный push) не заменяет более новый
+    private synchronized void store(WalletSnapshot snapshot, long snapshotGeneration) {
+        Cached current = cached;
+        if (current != null && current.snapshot().getUpdatedAtMillis() > snapshot.getUpdatedAtMillis()) {
+            return;
+        }
+        cached = new Cached(snapshot, snapshotGeneration);
+        lastTotalUSDTBalance = snapshot.getTotalEquity();
     }
 
+    private void refreshInBackground() {
+        synchronized (refreshLock) {
+            if (refreshing != null) {
+                return;
+            }
+        }
+        refresher.execute(this::refreshQuietly);
+    }
 
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            LoggerUtils.warn("Фоновое обновление баланса не удалось: " + e.getMessage());
+        }
+    }
 }
@@ -3,6 +3,7 @@ package org.example.bybit.service;
 import org.example.bybit.dto.InstrumentInfoResponse;
 import org.example.bybit.dto.TickerResponse;
 import org.example.bybit.client.BybitHttpClient;
+import org.example.util.FixedPointUtils;
 import org.example.util.LoggerUtils;
 
 import java.math.BigDecimal;
@@ -65,6 +66,30 @@ public class BybitMarketService {
         return qtyStep;
     }
 
+    // Количество знаков после запятой в цене инструмента (по tickSize)
+    public int getPriceScale(String symbol) {
+        InstrumentInfoResponse.Instrument instrumentInfo = getInstrumentInfoFromCacheOrApi(symbol);
+        InstrumentInfoResponse.PriceFilter priceFilter = instrumentInfo.getPriceFilter();
+        if (priceFilter == null || priceFilter.getTickSize() == null) {
+            throw new IllegalStateException("Нет tickSize для символа: " + symbol);
+        }
+        return FixedPointUtils.scaleOf(priceFilter.getTickSize());
+    }
+
+    // Шаг цены инструмента (tickSize)
+    public double getTickSize(String symbol) {
+        InstrumentInfoResponse.PriceFilter priceFilter = getInstrumentInfoFromCacheOrApi(symbol).getPriceFilter();
+        if (priceFilter == null || priceFilter.getTickSize() == null) {
+            throw new IllegalStateException("Нет tickSize для символа: " + symbol);
+        }
+        return Double.parseDouble(priceFilter.getTickSize());
+    }
+
+    // Количество знаков после запятой в объёме инструмента (по qtyStep)
+    public int getQtyScale(String symbol) {
+        return FixedPointUtils.scaleOf(getLotSizeStep(symbol));
+    }
+
     // корректирует quantity чтобы оно соответствовало правилам minOrderQty и qtyStep
     public double roundLotSize(String symbol, double quantity) {
         // 1. Проверка на недопустимые входные данные
@@ -104,6 +129,11 @@ public class BybitMarketService {
     }
 
 
+    // Кладет параметры инструмента в кэш без запроса к API (прогрев кэша, бенчмарки)
+    public void cacheInstrumentInfo(String symbol, InstrumentInfoResponse.Instrument instrument) {
+        instrumentInfoCache.put(symbol, instrument);
+    }
+
     private InstrumentInfoResponse.Instrument getInstrumentInfoFromCacheOrApi(String symbol) {
 
         InstrumentInfoResponse.Instrument cachedInfo = instrumentInfoCache.get(symbol);
@@ -6,7 +6,12 @@ import org.example.bybit.dto.SetLeverageResponse;
 import org.example.bybit.client.BybitHttpClient;
 import org.example.deal.Deal;
 import org.example.deal.utils.OrderManager;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyRecorder;
+import org.example.metrics.Metrics;
 import org.example.model.Direction;
+import org.example.model.Price;
+import org.example.model.Qty;
 import org.example.result.OperationResult;
 import org.example.util.JsonUtils;
 import org.example.util.LoggerUtils;
@@ -15,18 +20,31 @@ import java.util.List;
 import java.util.Map;
 
 public class BybitOrderService {
+    private static final LatencyRecorder ORDER_ROUND_TRIP = Metrics.latency("bybit_order_place_seconds",
+            "Размещение ордера: от отправки /v5/order/create до ответа");
+    private static final Counter ORDERS_REJECTED = Metrics.counter("bybit_orders_rejected_total", "Ордера, отклоненные Bybit");
     private final BybitHttpClient bybitHttpClient;
+    // Изменение SL/TP на месте (/v5/order/amend) вместо отмены и создания
+    private final OrderAmender orderAmender;
 
     public BybitOrderService(BybitHttpClient bybitHttpClient) {
         this.bybitHttpClient = bybitHttpClient;
+        this.orderAmender = new OrderAmender(bybitHttpClient);
+    }
+
+    public OrderAmender getOrderAmender() {
+        return orderAmender;
     }
     public BybitOrderResponse placeOrder(BybitOrderRequest request) {
         try {
 
             String jsonBody = JsonUtils.toJson(request);
+            long start = System.nanoTime();
             BybitOrderResponse response = bybitHttpClient.signedPost("/v5/order/create", jsonBody, BybitOrderResponse.class);
+            ORDER_ROUND_TRIP.recordSince(start);
 
             if (!"OK".equalsIgnoreCase(response.getRetMsg())) {
+                ORDERS_REJECTED.increment();
                 LoggerUtils.error(
                         "Ошибка создания ордера: " + response,
                         new IllegalStateException("BybitHttpClient вернул статус retMsg: " + response.getRetMsg()));
@@ -67,14 +85,14 @@ public class BybitOrderService {
             slRequest.setSymbol(deal.getSymbol().toString());
             slRequest.setSide(deal.getDirection() == Direction.LONG ? "Sell" : "Buy");
             slRequest.setOrderType("Market");
-            slRequest.setQty(String.format("%.3f", deal.getPositionSize()));
+            slRequest.setQty(Qty.of(deal.getPositionSize(), deal.getQtyScale()).toPlainString());
             slRequest.setReduceOnly(true);
 
 
             // Стоп-лосс — это условный триггерный ордер
             Map<String, String> params = slRequest.toParamMap();
             params.put("triggerDirection", deal.getDirection() == Direction.LONG ? "2" : "1");
-            params.put("triggerPrice", String.valueOf(deal.getStopLoss()));
+            params.put("triggerPrice", Price.of(deal.getStopLoss(), deal.getPriceScale()).toPlainString());
             params.put("orderFilter", "StopOrder");
             params.put("category", "linear");
 
@@ -134,7 +152,7 @@ public class BybitOrderService {
         return deal.getOrdersIdList().stream()
                 .filter(o -> orderId.equals(o.getOrderId()))
                 .findFirst()
-                .map(OrderManager::getOrderPrice)
+                .map(order -> order.getOrderPrice().toDouble())
                 .orElse(Double.NaN);
     }
 
@@ -12,74 +12,54 @@ import org.example.util.LoggerUtils;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class BybitPositionTrackerService {
+    private static final int PAGE_LIMIT = 50; // максимум Bybit для /v5/order/realtime
+
     private final BybitHttpClient httpClient;
 
+    // Предзагрузка следующей страницы списка, пока вызывающий обрабатывает текущую
+    private final ExecutorService prefetchExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "bybit-page-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public BybitPositionTrackerService(BybitHttpClient httpClient) {
         this.httpClient = httpClient;
     }
 
     /**
-     * Получает список всех активных позиций с биржи Bybit.
+     * Получает список всех активных позиций с биржи Bybit (все страницы).
      *
      * @return список позиций, может быть пустым, но не null
      * @throws IOException при ошибках сети или парсинга
      */
     public List<PositionInfo> getPositionList() throws IOException {
-        try {
-            Map<String, String> params = Map.of(
-                    "category", "linear",
-                    "settleCoin", "USDT"
-            );
-
-            // ✅ Шаг 1: Получаем как Object — Jackson примет JSON и сделает Map
-            Object rawResponse = httpClient.signedGet("/v5/position/list", params, Object.class);
-
-            // ✅ Шаг 2: Превращаем Object -> JSON строку
-            String jsonString = JsonUtils.toJson(rawResponse);
-
-            // ✅ Шаг 3: Теперь парсим как карта
-            Map<String, Object> root = JsonUtils.fromJson(jsonString, Map.class);
-            System.out.println(root.toString());
-
-            if (!Integer.valueOf(0).equals(root.get("retCode"))) {
-                String errorMsg = (String) root.get("retMsg");
-                LoggerUtils.warn("Bybit вернул ошибку в /v5/position/list: " + errorMsg);
-                return Collections.emptyList();
-            }
-
-            Map<String, Object> result = (Map<String, Object>) root.get("result");
-            if (result == null) {
-                return Collections.emptyList();
-            }
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> list = (List<Map<String, Object>>) result.get("list");
-            if (list == null || list.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            return list.stream()
-                    .map(item -> {
-                        try {
-                            String json = JsonUtils.toJson(item);
-                            return JsonUtils.fromJson(json, PositionInfo.class);
-                        } catch (Exception e) {
-                            LoggerUtils.error("Ошибка конвертации позиции из JSON: " + item, e);
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-
+        try (CursorIterator<PositionInfo> positions = iteratePositions("USDT", true)) {
+            return collect(positions);
         } catch (Exception e) {
             LoggerUtils.error("Ошибка при получении списка позиций", e);
             throw new IOException("Не удалось получить список позиций", e);
         }
     }
 
+    /**
+     * Постраничный обход позиций по settleCoin (limit=50, следует nextPageCursor).
+     *
+     * @param prefetch загружать следующую страницу, пока обрабатывается текущая
+     */
+    public CursorIterator<PositionInfo> iteratePositions(String settleCoin, boolean prefetch) {
+        Map<String, String> params = Map.of(
+                "category", "linear",
+                "settleCoin", settleCoin
+        );
+        return new CursorIterator<>(cursor -> fetchPage("/v5/position/list", params, cursor, PositionInfo.class),
+                prefetch ? prefetchExecutor : null);
+    }
+
 
     /**
      * Получает позицию по конкретному символу.
@@ -183,7 +163,7 @@ public class BybitPositionTrackerService {
     }
 
     /**
-     * Получает список активных ордеров по символу.
+     * Получает список активных ордеров по символу (все страницы).
      * <p>
      * Важно: использует {@code stopOrderType} и {@code triggerPrice}, а не {@code orderType}.
      *
@@ -192,50 +172,8 @@ public class BybitPositionTrackerService {
      * @throws IOException при ошибках сети или парсинга
      */
     public List<OrderInfo> getOrders(String symbol) throws IOException {
-        try {
-            Map<String, String> params = new HashMap<>();
-            params.put("category", "linear");
-            params.put("symbol", symbol);
-
-            // Получаем ответ как Object → сериализуем в JSON строку → парсим в Map
-            Object rawResponse = httpClient.signedGet("/v5/order/realtime", params, Object.class);
-            String jsonString = JsonUtils.toJson(rawResponse);
-            Map<String, Object> root = JsonUtils.fromJson(jsonString, Map.class);
-
-            // Проверяем retCode как Integer
-            if (!Integer.valueOf(0).equals(root.get("retCode"))) {
-                String errorMsg = (String) root.getOrDefault("retMsg", "Unknown error");
-                LoggerUtils.warn("Bybit вернул ошибку в /v5/order/realtime: " + errorMsg);
-                return Collections.emptyList();
-            }
-
-            Map<String, Object> result = (Map<String, Object>) root.get("result");
-            if (result == null) {
-                LoggerUtils.debug("Ответ от /v5/order/realtime: 'result' is null");
-                return Collections.emptyList();
-            }
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> list = (List<Map<String, Object>>) result.get("list");
-            if (list == null || list.isEmpty()) {
-                LoggerUtils.debug("Список ордеров пуст для символа: " + symbol);
-                return Collections.emptyList();
-            }
-
-            // Конвертируем каждый элемент в OrderInfo
-            return list.stream()
-                    .map(item -> {
-                        try {
-                            String json = JsonUtils.toJson(item);
-                            return JsonUtils.fromJson(json, OrderInfo.class);
-                        } catch (Exception e) {
-                            LoggerUtils.error("Ошибка конвертации ордера из JSON: " + item, e);
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-
+        try (CursorIterator<OrderInfo> orders = iterateOrders(symbol, true)) {
+            return collect(orders);
         } catch (Exception e) {
             LoggerUtils.error("Ошибка при получении списка ордеров для символа " + symbol, e);
             throw new IOException("Не удалось получить список ордеров", e);
@@ -243,50 +181,88 @@ public class BybitPositionTrackerService {
     }
 
     public List<OrderInfo> getOrdersBySettleCoin(String settleCoin) throws IOException {
-        try {
-            Map<String, String> params = new HashMap<>();
-            params.put("category", "linear");
-            params.put("settleCoin", settleCoin); // ← ключевой параметр: все USDT-ордера
+        try (CursorIterator<OrderInfo> orders = iterateOrdersBySettleCoin(settleCoin, true)) {
+            return collect(orders);
+        } catch (Exception e) {
+            LoggerUtils.error("Ошибка при получении ордеров по settleCoin=" + settleCoin, e);
+            throw new IOException("Не удалось получить список ордеров", e);
+        }
+    }
 
-            Object rawResponse = httpClient.signedGet("/v5/order/realtime", params, Object.class);
-            String jsonString = JsonUtils.toJson(rawResponse);
-            Map<String, Object> root = JsonUtils.fromJson(jsonString, Map.class);
+    /**
+     * Постраничный обход активных ордеров символа (limit=50, следует nextPageCursor).
+     */
+    public CursorIterator<OrderInfo> iterateOrders(String symbol, boolean prefetch) {
+        Map<String, String> params = Map.of(
+                "category", "linear",
+                "symbol", symbol
+        );
+        return new CursorIterator<>(cursor -> fetchPage("/v5/order/realtime", params, cursor, OrderInfo.class),
+                prefetch ? prefetchExecutor : null);
+    }
 
-            if (!Integer.valueOf(0).equals(root.get("retCode"))) {
-                String errorMsg = (String) root.getOrDefault("retMsg", "Unknown error");
-                LoggerUtils.warn("Bybit вернул ошибку в /v5/order/realtime?settleCoin=" + settleCoin + ": " + errorMsg);
-                return Collections.emptyList();
-            }
+    /**
+     * Постраничный обход всех активных ордеров по settleCoin (limit=50, следует nextPageCursor).
+     * Позволяет остановиться, не загружая остальные страницы (см. {@link CursorIterator#close()}).
+     */
+    public CursorIterator<OrderInfo> iterateOrdersBySettleCoin(String settleCoin, boolean prefetch) {
+        Map<String, String> params = Map.of(
+                "category", "linear",
+                "settleCoin", settleCoin // ← ключевой параметр: все USDT-ордера
+        );
+        return new CursorIterator<>(cursor -> fetchPage("/v5/order/realtime", params, cursor, OrderInfo.class),
+                prefetch ? prefetchExecutor : null);
+    }
 
-            Map<String, Object> result = (Map<String, Object>) root.get("result");
-            if (result == null || result.get("list") == null) {
-                return Collections.emptyList();
-            }
+    private static <T> List<T> collect(Iterator<T> iterator) {
+        List<T> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        return result;
+    }
 
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> list = (List<Map<String, Object>>) result.get("list");
-            if (list.isEmpty()) {
-                LoggerUtils.debug("Нет активных ордеров для settleCoin=" + settleCoin);
-                return Collections.emptyList();
+    /**
+     * Загружает одну страницу списка. Ошибка Bybit на первой странице — пустой результат (как раньше),
+     * на следующих — исключение, чтобы не потерять хвост списка молча.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CursorIterator.Page<T> fetchPage(String endpoint, Map<String, String> baseParams,
+                                                 String cursor, Class<T> type) throws IOException {
+        Map<String, String> params = new HashMap<>(baseParams);
+        params.put("limit", String.valueOf(PAGE_LIMIT));
+        if (cursor != null) {
+            params.put("cursor", cursor);
+        }
+
+        Map<String, Object> root;
+        try {
+            root = httpClient.signedGet(endpoint, params, Map.class);
+        } catch (RuntimeException e) {
+            throw new IOException("Ошибка запроса " + endpoint + " " + params, e);
+        }
+
+        if (!Integer.valueOf(0).equals(root.get("retCode"))) {
+            String errorMsg = String.valueOf(root.getOrDefault("retMsg", "Unknown error"));
+            if (cursor != null) {
+                throw new IOException("Bybit вернул ошибку в " + endpoint + " (cursor=" + cursor + "): " + errorMsg);
             }
+            LoggerUtils.warn("Bybit вернул ошибку в " + endpoint + " " + baseParams + ": " + errorMsg);
+            return CursorIterator.Page.empty();
+        }
 
-            return list.stream()
-                    .map(item -> {
-                        try {
-                            String json = JsonUtils.toJson(item);
-                            return JsonUtils.fromJson(json, OrderInfo.class);
-                        } catch (Exception e) {
-                            LoggerUtils.error("Ошибка конвертации ордера из JSON: " + item, e);
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
+        Map<String, Object> result = (Map<String, Object>) root.get("result");
+        if (result == null || result.get("list") == null) {
+            return CursorIterator.Page.empty();
+        }
 
-        } catch (Exception e) {
-            LoggerUtils.error("Ошибка при получении ордеров по settleCoin=" + settleCoin, e);
-            throw new IOException("Не удалось получить список ордеров", e);
+        List<Map<String, Object>> list = (List<Map<String, Object>>) result.get("list");
+        List<T> items = new ArrayList<>(list.size());
+        for (Map<String, Object> item : list) {
+            try {
+                items.add(JsonUtils.fromJson(JsonUtils.toJson(item), type));
+            } catch (Exception e) {
+                LoggerUtils.error("Ошибка конвертации " + type.getSimpleName() + " из JSON: " + item, e);
+            }
         }
+        return new CursorIterator.Page<>(items, (String) result.get("nextPageCursor"));
     }
 }
-
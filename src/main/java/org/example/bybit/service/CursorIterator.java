@@ -0,0 +1,132 @@
+package org.example.bybit.service;
+
+import org.example.util.LoggerUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Итератор по постраничному списку Bybit (nextPageCursor).
+ * Страницы загружаются по мере чтения; в памяти держится только текущая (и, при prefetch, следующая).
+ * Можно прекратить чтение в любой момент — достаточно вызвать {@link #close()}, чтобы отменить предзагрузку.
+ * Ошибки сети на второй и следующих страницах пробрасываются как {@link UncheckedIOException}.
+ */
+public class CursorIterator<T> implements Iterator<T>, AutoCloseable {
+
+    @FunctionalInterface
+    interface PageFetcher<T> {
+        Page<T> fetch(String cursor) throws IOException;
+    }
+
+    record Page<T>(List<T> items, String nextCursor) {
+        static <T> Page<T> empty() {
+            return new Page<>(Collections.emptyList(), null);
+        }
+    }
+
+    private final PageFetcher<T> fetcher;
+    private final Executor prefetchExecutor; // null — без предзагрузки
+
+    private Iterator<T> current = Collections.emptyIterator();
+    private CompletableFuture<Page<T>> pending;
+    private String nextCursor;
+    private boolean started;
+    private boolean exhausted;
+    private boolean closed;
+    private int pages;
+
+    CursorIterator(PageFetcher<T> fetcher, Executor prefetchExecutor) {
+        this.fetcher = fetcher;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (!advance()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Количество уже загруженных страниц.
+     */
+    public int getPages() {
+        return pages;
+    }
+
+    private boolean advance() {
+        if (closed || exhausted) {
+            return false;
+        }
+        String requestedCursor = started ? nextCursor : null;
+        Page<T> page = pending != null ? await(pending) : fetch(requestedCursor);
+        pending = null;
+        started = true;
+        pages++;
+
+        current = page.items().iterator();
+        String cursor = page.nextCursor();
+        if (cursor == null || cursor.isEmpty() || page.items().isEmpty()) {
+            exhausted = true;
+        } else if (cursor.equals(requestedCursor)) {
+            LoggerUtils.warn("CursorIterator: биржа вернула тот же курсор '" + cursor + "', чтение остановлено");
+            exhausted = true;
+        } else {
+            nextCursor = cursor;
+            if (prefetchExecutor != null) {
+                pending = CompletableFuture.supplyAsync(() -> fetch(cursor), prefetchExecutor);
+            }
+        }
+        return true;
+    }
+
+    private Page<T> fetch(String cursor) {
+        try {
+            return fetcher.fetch(cursor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Page<T> await(CompletableFuture<Page<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            return Page.empty();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        current = Collections.emptyIterator();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+}
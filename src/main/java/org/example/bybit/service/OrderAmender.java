@@ -0,0 +1,184 @@
+package org.example.bybit.service;
+
+import org.example.bybit.client.BybitHttpClient;
+import org.example.bybit.dto.BybitOrderResponse;
+import org.example.deal.Deal;
+import org.example.deal.utils.OrderManager;
+import org.example.model.Price;
+import org.example.model.Qty;
+import org.example.result.OperationResult;
+import org.example.util.JsonUtils;
+import org.example.util.LoggerUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Изменение существующих ордеров через /v5/order/amend — один запрос вместо отмены и создания нового.
+ * Частые изменения одного ордера объединяются: пока запрос по ордеру выполняется, новые цели
+ * только заменяют ожидающую, и после ответа отправляется последняя. Все вызывающие получают
+ * результат того запроса, который фактически ушел на биржу после их вызова.
+ */
+public class OrderAmender {
+
+    private static final String AMEND_ENDPOINT = "/v5/order/amend";
+
+    /**
+     * Что меняем: triggerPrice (условные ордера, SL), price (лимитные, TP), qty. null — не менять.
+     */
+    public record Amendment(Price triggerPrice, Price price, Qty qty) {
+    }
+
+    private static final class Pending {
+        private final Deal deal;
+        private Amendment amendment;
+        private final List<CompletableFuture<OperationResult>> waiters = new ArrayList<>();
+
+        private Pending(Deal deal, Amendment amendment) {
+            this.deal = deal;
+            this.amendment = amendment;
+        }
+    }
+
+    private final BybitHttpClient httpClient;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "order-amender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // orderId → ожидающее изменение; наличие ключа в inFlight означает, что запрос по ордеру уже идет
+    private final Map<String, Pending> queued = new HashMap<>();
+    private final Map<String, Boolean> inFlight = new HashMap<>();
+
+    public OrderAmender(BybitHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Переносит триггер SL-ордера сделки на deal.getStopLoss().
+     */
+    public CompletableFuture<OperationResult> amendStopLoss(Deal deal) {
+        OrderManager slOrder = findOrder(deal, OrderManager.OrderType.SL);
+        if (slOrder == null) {
+            return CompletableFuture.completedFuture(OperationResult.failure("У сделки " + deal.getId() + " нет привязанного SL-ордера"));
+        }
+        return amend(deal, slOrder.getOrderId(),
+                new Amendment(Price.of(deal.getStopLoss(), deal.getPriceScale()), null, null));
+    }
+
+    /**
+     * Меняет цену и/или объем лимитного TP-ордера.
+     */
+    public CompletableFuture<OperationResult> amendTakeProfit(Deal deal, String orderId, Price price, Qty qty) {
+        return amend(deal, orderId, new Amendment(null, price, qty));
+    }
+
+    public CompletableFuture<OperationResult> amend(Deal deal, String orderId, Amendment amendment) {
+        CompletableFuture<OperationResult> future = new CompletableFuture<>();
+        boolean start;
+        synchronized (this) {
+            Pending pending = queued.get(orderId);
+            if (pending == null) {
+                pending = new Pending(deal, amendment);
+                queued.put(orderId, pending);
+            } else {
+                pending.amendment = merge(pending.amendment, amendment); // более новая цель заменяет прежнюю
+                LoggerUtils.debug("OrderAmender: изменение ордера " + orderId + " объединено с ожидающим");
+            }
+            pending.waiters.add(future);
+            start = inFlight.putIfAbsent(orderId, Boolean.TRUE) == null;
+        }
+        if (start) {
+            executor.execute(() -> drain(orderId));
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void drain(String orderId) {
+        while (true) {
+            Pending pending;
+            synchronized (this) {
+                pending = queued.remove(orderId);
+                if (pending == null) {
+                    inFlight.remove(orderId);
+                    return;
+                }
+            }
+            OperationResult result = send(pending.deal, orderId, pending.amendment);
+            for (CompletableFuture<OperationResult> waiter : pending.waiters) {
+                waiter.complete(result);
+            }
+        }
+    }
+
+    private OperationResult send(Deal deal, String orderId, Amendment amendment) {
+        Map<String, String> body = new HashMap<>();
+        body.put("category", "linear");
+        body.put("symbol", deal.getSymbol().toString());
+        body.put("orderId", orderId);
+        if (amendment.triggerPrice() != null) body.put("triggerPrice", amendment.triggerPrice().toPlainString());
+        if (amendment.price() != null) body.put("price", amendment.price().toPlainString());
+        if (amendment.qty() != null) body.put("qty", amendment.qty().toPlainString());
+
+        try {
+            BybitOrderResponse response = httpClient.signedPost(AMEND_ENDPOINT, JsonUtils.toJson(body), BybitOrderResponse.class);
+            if (response == null || !response.isSuccess()) {
+                String retMsg = response != null ? response.getRetMsg() : "пустой ответ";
+                return OperationResult.failure("❌ Bybit отклонил изменение ордера " + orderId + " (" + deal.getSymbol() + "): " + retMsg);
+            }
+            updateLocalOrder(deal, orderId, amendment);
+            LoggerUtils.info("✏️ Ордер " + orderId + " (" + deal.getSymbol() + ") изменен: " + body);
+            return OperationResult.success("Ордер " + orderId + " изменен");
+        } catch (Exception e) {
+            return OperationResult.failure("❌ Ошибка изменения ордера " + orderId + " (" + deal.getSymbol() + ")", e);
+        }
+    }
+
+    // Цена в OrderManager сделки должна совпадать с биржей — по ней ищутся и отображаются ордера
+    private static void updateLocalOrder(Deal deal, String orderId, Amendment amendment) {
+        Price newPrice = amendment.triggerPrice() != null ? amendment.triggerPrice() : amendment.price();
+        if (newPrice == null) {
+            return;
+        }
+        deal.updateOrderPrice(orderId, newPrice);
+    }
+
+    private static Amendment merge(Amendment older, Amendment newer) {
+        return new Amendment(
+                newer.triggerPrice() != null ? newer.triggerPrice() : older.triggerPrice(),
+                newer.price() != null ? newer.price() : older.price(),
+                newer.qty() != null ? newer.qty() : older.qty());
+    }
+
+    /**
+     * Триггер SL-ордера, который последним подтвердила биржа: цена в OrderManager задается при выставлении
+     * (восстановлении) ордера и меняется только после успешного amend. null — SL-ордера нет.
+     */
+    public static Double confirmedStopLoss(Deal deal) {
+        OrderManager slOrder = findOrder(deal, OrderManager.OrderType.SL);
+        return slOrder == null || slOrder.getOrderPrice() == null ? null : slOrder.getOrderPrice().toDouble();
+    }
+
+    public static boolean hasStopLossOrder(Deal deal) {
+        return findOrder(deal, OrderManager.OrderType.SL) != null;
+    }
+
+    private static OrderManager findOrder(Deal deal, OrderManager.OrderType type) {
+        for (OrderManager order : deal.getOrdersIdList()) {
+            if (order.getOrderType() == type) {
+                return order;
+            }
+        }
+        return null;
+    }
+}
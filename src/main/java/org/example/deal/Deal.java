@@ -1,8 +1,11 @@
 package org.example.deal;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.example.deal.utils.OrderManager;
+import org.example.model.Price;
+import org.example.model.Qty;
 import org.example.model.Symbol;
 import org.example.model.Direction;
 import org.example.model.EntryType;
@@ -13,13 +16,18 @@ import org.example.strategy.params.ExitPlan;
 import org.example.strategy.strategies.strategies.superStrategy.AbstractStrategy;
 import org.example.strategy.strategies.strategies.StrategyFactory;
 import org.example.util.EmojiUtils;
+import org.example.util.FixedPointUtils;
 import org.example.util.LoggerUtils;
 
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Сделка. Составные изменения (данные позиции, привязка ордеров, выходы) выполняются под монитором сделки,
+ * слушатель вызывается уже после его освобождения; {@link org.example.deal.journal.DealCodec} читает сделку
+ * под тем же монитором, поэтому в журнал и снапшот не попадает наполовину измененная сделка.
+ */
 @Getter
 @Setter
 public class Deal {
@@ -37,19 +45,42 @@ public class Deal {
     private EntryType entryType;
     private Double potentialLoss;
     private double requiredCapital;
-    private List<Double> takeProfits;
     private PositionInfo positionInfo;
-    private List <OrderManager> ordersIdList;
-    private List<String> executedTpOrderIds = new ArrayList<>(); // Для трейлинга (пока просто переменная)
+    private int priceScale = -1; // знаков после запятой в цене инструмента (-1 — еще не известно)
+    private int qtyScale = -1;   // знаков после запятой в объёме инструмента (-1 — еще не известно)
+
+    // Компактное хранение: массивы точного размера, которые при изменении заменяются новыми (copy-on-write).
+    // Списки из геттеров — неизменяемые снимки поверх текущего массива
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private double[] takeProfits;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private OrderManager[] orders = NO_ORDERS;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String[] executedTpOrderIds = NO_ORDER_IDS; // Для трейлинга (пока просто переменная)
+    // Выходы по TP: мантиссы парами [цена, объем, цена, объем, ...] и их scale в том же порядке
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long[] exitMantissas = NO_EXITS;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private byte[] exitScales = NO_EXIT_SCALES;
 
 
     private String strategyName = "ai";
-    private AbstractStrategy strategy;
+    private AbstractStrategy strategy; // общий экземпляр из StrategyFactory
 
     private boolean active = false;
     private boolean positivePnL = false;
-    private List<ExitStep> executedExits = new ArrayList<>();
-    private Map<Double, Integer> tpToPercentage = new HashMap<>();
+    private long traceId; // трасса этапов от сигнала до ордеров (0 — трассы нет), см. Tracer
+    private DealChangeListener changeListener; // журнал хранилища сделок (null — сделка не в хранилище)
+
+    private static final OrderManager[] NO_ORDERS = new OrderManager[0];
+    private static final String[] NO_ORDER_IDS = new String[0];
+    private static final long[] NO_EXITS = new long[0];
+    private static final byte[] NO_EXIT_SCALES = new byte[0];
 
     public Deal(Symbol symbol, Direction direction, EntryType entryType, Double entryPrice,
                 Double stopLoss, List<Double> takeProfits) {
@@ -60,11 +91,12 @@ public class Deal {
         this.entryType = entryType;
         this.entryPrice = entryPrice;
         this.stopLoss = stopLoss;
-        this.takeProfits = new ArrayList<>(takeProfits != null ? takeProfits : Collections.emptyList());
+        this.takeProfits = takeProfits != null
+                ? takeProfits.stream().mapToDouble(Double::doubleValue).toArray()
+                : new double[0];
         this.positionSize = 0.0;
         this.leverageUsed = 1;
         this.requiredCapital = 0.0;
-        this.ordersIdList = new ArrayList<>();
     }
 
     public Deal(DealRequest request) {
@@ -86,6 +118,29 @@ public class Deal {
         this.strategyName = strategyName.toLowerCase();
         this.strategy = null;
         LoggerUtils.debug("Стратегия для сделки " + this.id + " установлена на: " + this.strategyName);
+        fireStateChanged(this.id);
+    }
+
+    public void setId(String id) {
+        String previousId = this.id;
+        this.id = id;
+        fireStateChanged(previousId);
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+        fireStateChanged(this.id);
+    }
+
+    public void setStopLoss(Double stopLoss) {
+        this.stopLoss = stopLoss;
+        fireStateChanged(this.id);
+    }
+
+    private void fireStateChanged(String previousId) {
+        if (changeListener != null) {
+            changeListener.onStateChanged(this, previousId);
+        }
     }
     //Получает экземпляр стратегии, связанной с этой сделкой.
     public AbstractStrategy getStrategy() {
@@ -116,7 +171,7 @@ public class Deal {
     }
 
     public List<Double> getTakeProfits() {
-        return Collections.unmodifiableList(takeProfits);
+        return new DoubleArrayView(takeProfits);
     }
 
 
@@ -133,11 +188,13 @@ public class Deal {
         double oldEntryPrice = this.entryPrice;
         double oldStopLoss = this.stopLoss;
 
-        this.positionInfo = positionInfo;
-        this.leverageUsed = positionInfo.getLeverage();
-        this.positionSize = positionInfo.getSize();
-        this.entryPrice = positionInfo.getAvgPrice();
-        this.potentialLoss = Math.round(positionSize * Math.abs(entryPrice - stopLoss) * 1000.0) / 1000.0;
+        synchronized (this) {
+            this.positionInfo = positionInfo;
+            this.leverageUsed = positionInfo.getLeverage();
+            this.positionSize = positionInfo.getSize();
+            this.entryPrice = positionInfo.getAvgPrice();
+            this.potentialLoss = Math.round(positionSize * Math.abs(entryPrice - stopLoss) * 1000.0) / 1000.0;
+        }
         double roi = getRoi();
 
 
@@ -152,6 +209,7 @@ public class Deal {
                         "Stop Loss: " + oldStopLoss + " → " + this.stopLoss + "\n" +
                         "ROI: " + roi + "\n"
         );
+        fireStateChanged(this.id);
     }
     // === Логика управления сделкой ===
 
@@ -160,34 +218,55 @@ public class Deal {
     /**
      * Зафиксирован выход по одному из TP.
      * Обновляет список выполненных выходов и, при необходимости, помечает сделку как неактивную.
+     * TP сравниваются как {@link Price} на scale инструмента, а не через equals у Double.
      *
      * @param exitPrice Цена выхода.
      * @param exitAmount Количество вышедших контрактов/монет.
      */
-    public void recordExit(double exitPrice, double exitAmount) {
+    public void recordExit(Price exitPrice, Qty exitAmount) {
         if (!active) {
             LoggerUtils.warn("Попытка записать выход для неактивной сделки " + this.id);
             return;
         }
-        if (!takeProfits.contains(exitPrice)) {
+        if (!isTakeProfit(exitPrice)) {
             LoggerUtils.warn("Попытка записать выход по неизвестному TP (" + exitPrice + ") для сделки " + this.id);
             return;
         }
 
-        ExitStep exit = new ExitStep(exitPrice, exitAmount);
-        executedExits.add(exit);
+        ExitStep exit = new ExitStep(exitPrice.withScale(getPriceScale()), exitAmount);
+        boolean allTakeProfitsDone;
+        synchronized (this) {
+            appendExit(exit);
+            // Если все TP выполнены — сделка считается закрытой
+            // Используем >= на случай, если выходов больше, чем TP (например, Market order закрыл всё)
+            allTakeProfitsDone = getExecutedExitsCount() >= takeProfits.length && takeProfits.length > 0;
+            if (allTakeProfitsDone) {
+                this.active = false;
+            }
+        }
         LoggerUtils.debug("Зарегистрирован выход: цена=" + exitPrice + ", количество=" + exitAmount + " для сделки " + this.id);
-
-        // Если все TP выполнены — сделка считается закрытой
-        // Используем >= на случай, если выходов больше, чем TP (например, Market order закрыл всё)
-        if (executedExits.size() >= takeProfits.size() && !takeProfits.isEmpty()) {
-            this.active = false;
+        if (allTakeProfitsDone) {
             LoggerUtils.info("Сделка " + this.id + " помечена как неактивная, так как все TP выполнены.");
         }
+        if (changeListener != null) {
+            changeListener.onExitRecorded(this, exit);
+        }
     }
 
+    public void recordExit(double exitPrice, double exitAmount) {
+        recordExit(Price.of(exitPrice, getPriceScale()), Qty.of(exitAmount, getQtyScale()));
+    }
 
-
+    private boolean isTakeProfit(Price price) {
+        int scale = getPriceScale();
+        Price target = price.withScale(scale);
+        for (double tp : takeProfits) {
+            if (Price.of(tp, scale).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     /**
      * Возвращает количество оставшихся (еще не выполненных) TP.
@@ -195,18 +274,56 @@ public class Deal {
      * @return Количество оставшихся TP.
      */
     public int getRemainingTakeProfitsCount() {
-        AtomicInteger count = new AtomicInteger(0); // Инициализируем счетчик
-        takeProfits.forEach(tp -> {
-            // Проверяем, был ли уже выход по этому TP
-            boolean executed = executedExits.stream().anyMatch(e -> Double.compare(e.exitPrice(), tp) == 0);
-            if (!executed) {
-                count.incrementAndGet();
+        int scale = getPriceScale();
+        Set<Price> executedPrices = new HashSet<>();
+        for (int i = 0; i < exitScales.length; i += 2) {
+            executedPrices.add(Price.ofMantissa(exitMantissas[i], exitScales[i]));
+        }
+        int remaining = 0;
+        for (double tp : takeProfits) {
+            if (!executedPrices.contains(Price.of(tp, scale))) {
+                remaining++;
             }
-        });
-        int remaining = count.get();
+        }
         LoggerUtils.info("Оставшиеся TP для сделки " + this.id + ": " + remaining);
         return remaining;
     }
+
+    /**
+     * Scale цены инструмента. Если он еще не получен с биржи — берется максимальное
+     * количество знаков среди известных цен сделки (как MathUtils.formatPrice по entryPrice).
+     */
+    public int getPriceScale() {
+        if (priceScale >= 0) {
+            return priceScale;
+        }
+        int scale = 0;
+        if (entryPrice != null) scale = Math.max(scale, FixedPointUtils.scaleOf(entryPrice));
+        if (stopLoss != null) scale = Math.max(scale, FixedPointUtils.scaleOf(stopLoss));
+        for (double tp : takeProfits) {
+            scale = Math.max(scale, FixedPointUtils.scaleOf(tp));
+        }
+        return scale;
+    }
+
+    public int getQtyScale() {
+        return qtyScale >= 0 ? qtyScale : FixedPointUtils.scaleOf(positionSize);
+    }
+
+    /**
+     * Scale цены, полученный с биржи, без догадок по ценам сделки (-1 — еще не известен).
+     */
+    public int getInstrumentPriceScale() {
+        return priceScale;
+    }
+
+    /**
+     * Scale объёма, полученный с биржи, без догадок по размеру позиции (-1 — еще не известен).
+     */
+    public int getInstrumentQtyScale() {
+        return qtyScale;
+    }
+
     public boolean isPositivePNL() {
         if (positionInfo != null) {
             positivePnL = positionInfo.getUnrealisedPnl() > 0;
@@ -221,7 +338,7 @@ public class Deal {
         return "🟢\"" + strategyName + "\uD83E\uDDE0\" " + symbol + " " + direction.toString().charAt(0) + " " + entryType +
                 "\n EP: " + entryPrice +
                 "\n SL: " + stopLoss +
-                "\n TP: " + takeProfits + "\n";
+                "\n TP: " + getTakeProfits() + "\n";
     }
 
     public String bigDealToString() {
@@ -251,35 +368,143 @@ public class Deal {
 
 
         if (order.getOrderType() == OrderManager.OrderType.SL) {
-            ordersIdList.removeIf(om -> om.getOrderType() == OrderManager.OrderType.SL);
-            ordersIdList.add(order);
-            setStopLoss(order.getOrderPrice());
+            synchronized (this) {
+                OrderManager[] kept = Arrays.stream(orders)
+                        .filter(om -> om.getOrderType() != OrderManager.OrderType.SL)
+                        .toArray(OrderManager[]::new);
+                OrderManager[] next = Arrays.copyOf(kept, kept.length + 1);
+                next[kept.length] = order;
+                orders = next;
+                this.stopLoss = order.getOrderPrice().toDouble();
+            }
+            fireOrderBound(order);
             String message = "🔗SL заменен: " + order.getOrderId() + " -> " + order.getOrderPrice() + "\n";
             return OperationResult.success(message); // ← ВЫХОД
         }
         if (order.getOrderType() == OrderManager.OrderType.TP) {
-            if (takeProfits == null) takeProfits = new ArrayList<>();
-            takeProfits.add(order.getOrderPrice());
-            takeProfits.sort(Double::compareTo);
+            synchronized (this) {
+                double[] nextTakeProfits = Arrays.copyOf(takeProfits, takeProfits.length + 1);
+                nextTakeProfits[takeProfits.length] = order.getOrderPrice().toDouble();
+                Arrays.sort(nextTakeProfits);
+                takeProfits = nextTakeProfits;
+                OrderManager[] next = Arrays.copyOf(orders, orders.length + 1);
+                next[orders.length] = order; // ← только здесь
+                orders = next;
+            }
             String message = "🔗 Привязан TP (лимит): " + order.getOrderId() + " -> " + order.getOrderPrice() + "\n";
-            ordersIdList.add(order); // ← только здесь
+            fireOrderBound(order);
             return OperationResult.success(message);
         }
        return OperationResult.failure("Неизвестный тип ордера");
     }
 
+    /**
+     * Новая цена привязанного ордера после изменения на бирже (amend); журнал хранилища получает обновление.
+     *
+     * @return false — ордера с таким id у сделки нет
+     */
+    public boolean updateOrderPrice(String orderId, Price price) {
+        for (OrderManager order : orders) {
+            if (orderId.equals(order.getOrderId())) {
+                synchronized (this) {
+                    order.setOrderPrice(price);
+                }
+                fireOrderBound(order);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void fireOrderBound(OrderManager order) {
+        if (changeListener != null) {
+            changeListener.onOrderBound(this, order);
+        }
+    }
+
 
     public List<OrderManager> getOrdersIdList() {
-        return Collections.unmodifiableList(ordersIdList);
+        return Collections.unmodifiableList(Arrays.asList(orders));
+    }
+
+    public void setOrdersIdList(List<OrderManager> ordersIdList) {
+        this.orders = ordersIdList == null || ordersIdList.isEmpty() ? NO_ORDERS : ordersIdList.toArray(NO_ORDERS);
     }
 
     public void clearOrdersIdList() {
-        this.ordersIdList.clear();
+        this.orders = NO_ORDERS;
+        if (changeListener != null) {
+            changeListener.onOrdersCleared(this);
+        }
     }
     // === Вспомогательные классы ===
 
 
-        public record ExitStep(double exitPrice, double exitAmount) {
+    public record ExitStep(Price exitPrice, Qty exitAmount) {
+    }
+
+    public List<String> getExecutedTpOrderIds() {
+        return Collections.unmodifiableList(Arrays.asList(executedTpOrderIds));
+    }
+
+    public void setExecutedTpOrderIds(List<String> executedTpOrderIds) {
+        this.executedTpOrderIds = executedTpOrderIds == null || executedTpOrderIds.isEmpty()
+                ? NO_ORDER_IDS : executedTpOrderIds.toArray(NO_ORDER_IDS);
+    }
+
+    /**
+     * Выполненные выходы; ExitStep собираются из массивов при каждом вызове.
+     */
+    public List<ExitStep> getExecutedExits() {
+        List<ExitStep> exits = new ArrayList<>(getExecutedExitsCount());
+        for (int i = 0; i < exitScales.length; i += 2) {
+            exits.add(new ExitStep(Price.ofMantissa(exitMantissas[i], exitScales[i]),
+                    Qty.ofMantissa(exitMantissas[i + 1], exitScales[i + 1])));
+        }
+        return Collections.unmodifiableList(exits);
+    }
+
+    public void setExecutedExits(List<ExitStep> executedExits) {
+        this.exitMantissas = NO_EXITS;
+        this.exitScales = NO_EXIT_SCALES;
+        if (executedExits != null) {
+            executedExits.forEach(this::appendExit);
+        }
+    }
+
+    public int getExecutedExitsCount() {
+        return exitScales.length / 2;
+    }
+
+    private void appendExit(ExitStep exit) {
+        int n = exitScales.length;
+        long[] mantissas = Arrays.copyOf(exitMantissas, n + 2);
+        byte[] scales = Arrays.copyOf(exitScales, n + 2);
+        mantissas[n] = exit.exitPrice().mantissa();
+        scales[n] = (byte) exit.exitPrice().scale();
+        mantissas[n + 1] = exit.exitAmount().mantissa();
+        scales[n + 1] = (byte) exit.exitAmount().scale();
+        exitMantissas = mantissas;
+        exitScales = scales;
+    }
+
+    // Неизменяемый список поверх double[] без копирования (элементы упаковываются при чтении)
+    private static final class DoubleArrayView extends AbstractList<Double> implements RandomAccess {
+        private final double[] values;
+
+        DoubleArrayView(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
     }
 
 
@@ -287,10 +512,10 @@ public class Deal {
      * Внутренний метод поиска orderId по типу.
      */
     public List<String> getOrderIdsByType(OrderManager.OrderType type) {
-        if (ordersIdList == null || ordersIdList.isEmpty()) {
+        if (orders.length == 0) {
             return Collections.emptyList();
         }
-        return ordersIdList.stream()
+        return Arrays.stream(orders)
                 .filter(order -> order.getOrderType() == type)
                 .map(OrderManager::getOrderId)
                 .filter(Objects::nonNull) // на всякий случай
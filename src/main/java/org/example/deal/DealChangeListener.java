@@ -0,0 +1,24 @@
+package org.example.deal;
+
+import org.example.deal.utils.OrderManager;
+
+/**
+ * Слушатель изменений сделки. Используется хранилищем сделок для журналирования
+ * (привязка ордеров, выходы по TP, смена id/SL/активности).
+ * Вызывается в потоке, который изменил сделку, поэтому реализация должна быть быстрой.
+ */
+public interface DealChangeListener {
+
+    void onOrderBound(Deal deal, OrderManager order);
+
+    void onOrdersCleared(Deal deal);
+
+    void onExitRecorded(Deal deal, Deal.ExitStep exit);
+
+    /**
+     * Изменилось состояние сделки (id, SL, активность, данные позиции, стратегия).
+     *
+     * @param previousId id сделки до изменения (совпадает с текущим, если id не менялся)
+     */
+    void onStateChanged(Deal deal, String previousId);
+}
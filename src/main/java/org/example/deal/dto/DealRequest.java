@@ -5,6 +5,7 @@ import lombok.*;
 import org.example.model.Symbol;
 import org.example.model.Direction;
 import org.example.model.EntryType;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -32,5 +33,16 @@ public class DealRequest {
     @JsonProperty("take_profits")
     private List<Double> takeProfits;
 
+    // Независимая копия: запрос дальше изменяется стратегией, а оригинал может лежать в кэше
+    public DealRequest copy() {
+        DealRequest copy = new DealRequest();
+        copy.symbol = symbol;
+        copy.direction = direction;
+        copy.entryType = entryType;
+        copy.entryPrice = entryPrice;
+        copy.stopLoss = stopLoss;
+        copy.takeProfits = takeProfits == null ? null : new ArrayList<>(takeProfits);
+        return copy;
+    }
 }
 
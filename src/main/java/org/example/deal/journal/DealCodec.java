@@ -0,0 +1,185 @@
+package org.example.deal.journal;
+
+import org.example.deal.Deal;
+import org.example.deal.utils.OrderManager;
+import org.example.model.Direction;
+import org.example.model.EntryType;
+import org.example.model.Price;
+import org.example.model.Qty;
+import org.example.model.Symbol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Бинарная сериализация сделки для журнала и снапшота.
+ * Сохраняется только состояние, которое нельзя восстановить без биржи:
+ * параметры сигнала, привязки ордеров, выполненные выходы, стратегия.
+ * PositionInfo, ExitPlan и экземпляр стратегии не сохраняются — они пересчитываются.
+ */
+public class DealCodec {
+
+    /**
+     * Пишет сделку под ее монитором — согласованный срез относительно составных изменений Deal.
+     */
+    public static void write(DataOutput out, Deal deal) throws IOException {
+        synchronized (deal) {
+            writeDeal(out, deal);
+        }
+    }
+
+    private static void writeDeal(DataOutput out, Deal deal) throws IOException {
+        writeNullableString(out, deal.getId());
+        out.writeLong(deal.getChatId());
+        writeNullableString(out, deal.getNote());
+        out.writeUTF(deal.getSymbol().toString());
+        writeNullableString(out, deal.getDirection() == null ? null : deal.getDirection().name());
+        writeNullableString(out, deal.getEntryType() == null ? null : deal.getEntryType().name());
+        writeNullableDouble(out, deal.getEntryPrice());
+        writeNullableDouble(out, deal.getStopLoss());
+        writeNullableDouble(out, deal.getPotentialLoss());
+        out.writeDouble(deal.getPositionSize());
+        out.writeDouble(deal.getLeverageUsed());
+        out.writeDouble(deal.getRequiredCapital());
+        // Только scale с биржи (-1 — неизвестен): догадки по ценам сделки не закрепляются при восстановлении
+        out.writeByte(deal.getInstrumentPriceScale());
+        out.writeByte(deal.getInstrumentQtyScale());
+        out.writeUTF(deal.getStrategyName());
+        out.writeBoolean(deal.isActive());
+
+        List<Double> takeProfits = deal.getTakeProfits();
+        out.writeInt(takeProfits.size());
+        for (Double tp : takeProfits) {
+            out.writeDouble(tp);
+        }
+
+        List<OrderManager> orders = deal.getOrdersIdList();
+        out.writeInt(orders.size());
+        for (OrderManager order : orders) {
+            writeNullableString(out, order.getOrderId());
+            out.writeByte(order.getOrderType().ordinal());
+            Price price = order.getOrderPrice();
+            out.writeBoolean(price != null);
+            if (price != null) {
+                out.writeLong(price.mantissa());
+                out.writeByte(price.scale());
+            }
+        }
+
+        List<String> executedTpOrderIds = deal.getExecutedTpOrderIds();
+        out.writeInt(executedTpOrderIds.size());
+        for (String orderId : executedTpOrderIds) {
+            out.writeUTF(orderId);
+        }
+
+        List<Deal.ExitStep> exits = deal.getExecutedExits();
+        out.writeInt(exits.size());
+        for (Deal.ExitStep exit : exits) {
+            out.writeLong(exit.exitPrice().mantissa());
+            out.writeByte(exit.exitPrice().scale());
+            out.writeLong(exit.exitAmount().mantissa());
+            out.writeByte(exit.exitAmount().scale());
+        }
+    }
+
+    public static Deal read(DataInput in) throws IOException {
+        String id = readNullableString(in);
+        long chatId = in.readLong();
+        String note = readNullableString(in);
+        Symbol symbol = new Symbol(in.readUTF());
+        String direction = readNullableString(in);
+        String entryType = readNullableString(in);
+        Double entryPrice = readNullableDouble(in);
+        Double stopLoss = readNullableDouble(in);
+        Double potentialLoss = readNullableDouble(in);
+        double positionSize = in.readDouble();
+        double leverageUsed = in.readDouble();
+        double requiredCapital = in.readDouble();
+        int priceScale = in.readByte();
+        int qtyScale = in.readByte();
+        String strategyName = in.readUTF();
+        boolean active = in.readBoolean();
+
+        int tpCount = in.readInt();
+        List<Double> takeProfits = new ArrayList<>(tpCount);
+        for (int i = 0; i < tpCount; i++) {
+            takeProfits.add(in.readDouble());
+        }
+
+        OrderManager.OrderType[] orderTypes = OrderManager.OrderType.values();
+        int orderCount = in.readInt();
+        List<OrderManager> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            String orderId = readNullableString(in);
+            OrderManager.OrderType type = orderTypes[in.readByte()];
+            Price price = in.readBoolean() ? Price.ofMantissa(in.readLong(), in.readByte()) : null;
+            orders.add(new OrderManager(orderId, type, price));
+        }
+
+        int executedTpCount = in.readInt();
+        List<String> executedTpOrderIds = new ArrayList<>(executedTpCount);
+        for (int i = 0; i < executedTpCount; i++) {
+            executedTpOrderIds.add(in.readUTF());
+        }
+
+        int exitCount = in.readInt();
+        List<Deal.ExitStep> exits = new ArrayList<>(exitCount);
+        for (int i = 0; i < exitCount; i++) {
+            Price exitPrice = Price.ofMantissa(in.readLong(), in.readByte());
+            Qty exitAmount = Qty.ofMantissa(in.readLong(), in.readByte());
+            exits.add(new Deal.ExitStep(exitPrice, exitAmount));
+        }
+
+        Deal deal = new Deal(symbol,
+                direction == null ? null : Direction.valueOf(direction),
+                entryType == null ? null : EntryType.valueOf(entryType),
+                entryPrice, stopLoss, takeProfits);
+        deal.setId(id);
+        deal.setChatId(chatId);
+        deal.setNote(note);
+        deal.setPotentialLoss(potentialLoss);
+        deal.setPositionSize(positionSize);
+        deal.setLeverageUsed(leverageUsed);
+        deal.setRequiredCapital(requiredCapital);
+        if (priceScale >= 0) {
+            deal.setPriceScale(priceScale);
+        }
+        if (qtyScale >= 0) {
+            deal.setQtyScale(qtyScale);
+        }
+        deal.setStrategyName(strategyName);
+        deal.setActive(active);
+        deal.setOrdersIdList(orders);
+        deal.setExecutedTpOrderIds(executedTpOrderIds);
+        deal.setExecutedExits(exits);
+        return deal;
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableDouble(DataOutput out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readNullableDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    private DealCodec() {
+    }
+}
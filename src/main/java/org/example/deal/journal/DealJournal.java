@@ -0,0 +1,280 @@
+package org.example.deal.journal;
+
+import org.example.deal.Deal;
+import org.example.util.LoggerUtils;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only журнал сделок поверх memory-mapped файла + компактный снапшот.
+ *
+ * Формат журнала: [int MAGIC][int VERSION], далее записи [int длина][int crc32][тело].
+ * Тело: [byte тип события][UTF ключ — id сделки до изменения][сделка в формате {@link DealCodec}, кроме REMOVE].
+ * После каждой записи пишется терминатор (длина 0), а длина самой записи — последней,
+ * поэтому оборванная запись при падении процесса просто не читается.
+ *
+ * Каждая запись несет полное состояние сделки, поэтому повторное применение идемпотентно:
+ * падение между записью снапшота и сбросом журнала ничего не ломает.
+ *
+ * Надежность: каждая запись сбрасывается на диск ({@link MappedByteBuffer#force(int, int)}) до возврата из append,
+ * поэтому записанное событие переживает не только падение процесса, но и отключение питания.
+ * Снапшот пишется через fsync и атомарный move.
+ * Согласованность: append и snapshot сериализованы монитором журнала, а каждая сделка кодируется под своим
+ * монитором (см. {@link DealCodec#write}); изменения сделки, идущие параллельно со снапшотом, попадают
+ * в журнал следующей записью и при восстановлении применяются поверх снапшота.
+ */
+public class DealJournal implements Closeable {
+
+    private static final int MAGIC = 0x444A524E; // "DJRN"
+    private static final int SNAPSHOT_MAGIC = 0x44534E50; // "DSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8; // длина + crc32
+    private static final int TERMINATOR_SIZE = 4;
+
+    public static final int DEFAULT_CAPACITY = 16 * 1024 * 1024;
+    public static final int DEFAULT_SNAPSHOT_EVERY = 5_000;
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int snapshotEvery;
+
+    private final ExposedByteArrayOutputStream bytes = new ExposedByteArrayOutputStream(512);
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final CRC32 crc = new CRC32();
+
+    private Supplier<Collection<Deal>> snapshotSource = Collections::emptyList;
+    private int writePosition = HEADER_SIZE;
+    private int recordsSinceSnapshot;
+    private boolean closed;
+
+    private DealJournal(Path dir, int capacity, int snapshotEvery) throws IOException {
+        Files.createDirectories(dir);
+        this.journalFile = dir.resolve("deals.journal");
+        this.snapshotFile = dir.resolve("deals.snapshot");
+        this.capacity = capacity;
+        this.snapshotEvery = snapshotEvery;
+        this.channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        int magic = buffer.getInt(0);
+        if (magic == 0) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(HEADER_SIZE, 0);
+        } else if (magic != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Файл " + journalFile + " не является журналом сделок версии " + VERSION);
+        }
+    }
+
+    public static DealJournal open(Path dir) throws IOException {
+        return new DealJournal(dir, DEFAULT_CAPACITY, DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    public static DealJournal open(Path dir, int capacity, int snapshotEvery) throws IOException {
+        return new DealJournal(dir, capacity, snapshotEvery);
+    }
+
+    /**
+     * Источник текущих сделок для снапшота (обычно хранилище сделок).
+     */
+    public void setSnapshotSource(Supplier<Collection<Deal>> snapshotSource) {
+        this.snapshotSource = snapshotSource;
+    }
+
+    /**
+     * Восстанавливает сделки: снапшот + записи журнала после него.
+     * Вызывается один раз при старте, до первой записи. Биржа не нужна.
+     */
+    public synchronized Collection<Deal> replay() throws IOException {
+        long start = System.nanoTime();
+        Map<String, Deal> deals = new LinkedHashMap<>();
+        int fromSnapshot = readSnapshot(deals);
+
+        int position = HEADER_SIZE;
+        int records = 0;
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > capacity) {
+                break;
+            }
+            byte[] body = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                LoggerUtils.warn("DealJournal: повреждённая запись на позиции " + position + ", хвост журнала отброшен");
+                break;
+            }
+            apply(deals, body);
+            position += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+
+        writePosition = position;
+        recordsSinceSnapshot = records;
+        if (position + TERMINATOR_SIZE <= capacity) {
+            buffer.putInt(position, 0); // отрезаем оборванный хвост, если он был
+        }
+
+        long tookMicros = (System.nanoTime() - start) / 1_000;
+        LoggerUtils.info("📒 Журнал сделок восстановлен: " + deals.size() + " сделок (снапшот: " + fromSnapshot
+                + ", записей журнала: " + records + ") за " + tookMicros / 1000.0 + " мс");
+        return deals.values();
+    }
+
+    private void apply(Map<String, Deal> deals, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        JournalEventType type = JournalEventType.fromCode(in.readByte());
+        String key = in.readUTF();
+        deals.remove(key);
+        if (type != JournalEventType.REMOVE) {
+            Deal deal = DealCodec.read(in);
+            deals.put(deal.getId(), deal);
+        }
+    }
+
+    /**
+     * Дописывает событие в журнал. Для REMOVE сделка может быть null.
+     *
+     * @param key id сделки до изменения (ключ, под которым она была записана ранее)
+     */
+    public synchronized void append(JournalEventType type, String key, Deal deal) {
+        if (closed) {
+            return;
+        }
+        try {
+            bytes.reset();
+            out.writeByte(type.getCode());
+            out.writeUTF(key);
+            if (type != JournalEventType.REMOVE) {
+                DealCodec.write(out, deal);
+            }
+            int length = bytes.size();
+            int needed = RECORD_HEADER_SIZE + length + TERMINATOR_SIZE;
+
+            if (recordsSinceSnapshot >= snapshotEvery || writePosition + needed > capacity) {
+                // Снапшот берет текущее состояние хранилища, в котором это событие уже применено;
+                // запись ниже все равно делается — повторное применение безопасно.
+                snapshot();
+            }
+            if (writePosition + needed > capacity) {
+                LoggerUtils.error("DealJournal: запись " + length + " байт не помещается в журнал " + capacity + " байт");
+                return;
+            }
+
+            crc.reset();
+            crc.update(bytes.buffer(), 0, length);
+            buffer.putInt(writePosition + RECORD_HEADER_SIZE + length, 0);
+            buffer.put(writePosition + RECORD_HEADER_SIZE, bytes.buffer(), 0, length);
+            buffer.putInt(writePosition + 4, (int) crc.getValue());
+            buffer.putInt(writePosition, length);
+            buffer.force(writePosition, RECORD_HEADER_SIZE + length + TERMINATOR_SIZE);
+
+            writePosition += RECORD_HEADER_SIZE + length;
+            recordsSinceSnapshot++;
+        } catch (IOException | RuntimeException e) {
+            LoggerUtils.error("DealJournal: не удалось записать событие " + type + " для сделки " + key, e);
+        }
+    }
+
+    /**
+     * Пишет компактный снапшот всех сделок (tmp-файл + атомарный move) и сбрасывает журнал.
+     * Если снапшот не удался, журнал не трогается.
+     */
+    public synchronized void snapshot() {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            Collection<Deal> deals = snapshotSource.get();
+            CRC32 snapshotCrc = new CRC32();
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                         new CheckedOutputStream(file, snapshotCrc), 64 * 1024))) {
+                data.writeInt(SNAPSHOT_MAGIC);
+                data.writeInt(VERSION);
+                data.writeInt(deals.size());
+                for (Deal deal : deals) {
+                    DealCodec.write(data, deal);
+                }
+                data.flush();
+                new DataOutputStream(file).writeLong(snapshotCrc.getValue());
+                file.getFD().sync();
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+            writePosition = HEADER_SIZE;
+            recordsSinceSnapshot = 0;
+            LoggerUtils.debug("DealJournal: снапшот записан, сделок: " + deals.size());
+        } catch (IOException | RuntimeException e) {
+            LoggerUtils.error("DealJournal: не удалось записать снапшот, журнал сохранён без сброса", e);
+        }
+    }
+
+    private int readSnapshot(Map<String, Deal> deals) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        CRC32 snapshotCrc = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshotFile), 64 * 1024)) {
+            DataInputStream data = new DataInputStream(new CheckedInputStream(file, snapshotCrc));
+            if (data.readInt() != SNAPSHOT_MAGIC || data.readInt() != VERSION) {
+                throw new IOException("Файл " + snapshotFile + " не является снапшотом сделок версии " + VERSION);
+            }
+            int count = data.readInt();
+            List<Deal> restored = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                restored.add(DealCodec.read(data));
+            }
+            long expected = snapshotCrc.getValue();
+            if (new DataInputStream(file).readLong() != expected) {
+                throw new IOException("Контрольная сумма снапшота " + snapshotFile + " не совпадает");
+            }
+            restored.forEach(deal -> deals.put(deal.getId(), deal));
+            return count;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        snapshot();
+        closed = true;
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            LoggerUtils.error("DealJournal: ошибка закрытия журнала " + journalFile, e);
+        }
+    }
+
+    // ByteArrayOutputStream без копирования массива при записи в mmap
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
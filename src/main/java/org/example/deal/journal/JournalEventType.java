@@ -0,0 +1,31 @@
+package org.example.deal.journal;
+
+import lombok.Getter;
+
+/**
+ * Тип события в журнале сделок. Код пишется в файл — существующие коды не менять.
+ */
+@Getter
+public enum JournalEventType {
+    ADD(1),
+    REMOVE(2),
+    ORDER_BOUND(3),
+    ORDERS_CLEARED(4),
+    EXIT(5),
+    STATE_CHANGED(6);
+
+    private final byte code;
+
+    JournalEventType(int code) {
+        this.code = (byte) code;
+    }
+
+    public static JournalEventType fromCode(byte code) {
+        for (JournalEventType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный тип события журнала: " + code);
+    }
+}
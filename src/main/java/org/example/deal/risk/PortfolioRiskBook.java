@@ -0,0 +1,231 @@
+package org.example.deal.risk;
+
+import org.example.deal.Deal;
+import org.example.model.Direction;
+import org.example.strategy.config.StrategyConfig;
+import org.example.util.FixedPointUtils;
+import org.example.util.ValuesUtil;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Суммарный риск всех сделок хранилища, который ведется инкрементально.
+ * <ul>
+ *     <li>у каждой сделки есть вклад ({@link Exposure}): номинал, маржа и убыток при срабатывании SL;</li>
+ *     <li>при изменении сделки старый вклад вычитается из сумм и добавляется новый — без обхода всех сделок;</li>
+ *     <li>суммы ведутся по направлению и по группе коррелирующих монет ({@link ValuesUtil#getRiskBucket}) в LongAdder
+ *     с фиксированной точкой: запись не блокирует читателей, чтение не зависит от числа сделок,
+ *     а вычитание ранее добавленного вклада возвращает сумму точно к прежнему значению.</li>
+ * </ul>
+ * Вклад есть только у сделок с размером позиции и ценой входа. Сделка без SL считается риском на весь номинал.
+ * Номинал — по цене входа; движение цены не пересчитывает суммы, их двигают изменения SL и синхронизация позиции.
+ */
+public class PortfolioRiskBook {
+
+    private static final int SCALE = 4; // 0.0001 USDT
+
+    /**
+     * Вклад одной сделки (USDT в мантиссах SCALE).
+     */
+    public record Exposure(Direction direction, String bucket, long notional, long margin, long lossAtStop, boolean unprotected) {
+
+        static Exposure of(Deal deal) {
+            Double entry = deal.getEntryPrice();
+            double size = deal.getPositionSize();
+            if (deal.getDirection() == null || entry == null || entry <= 0 || size <= 0) {
+                return null;
+            }
+            double notional = size * entry;
+            double leverage = deal.getLeverageUsed() > 0 ? deal.getLeverageUsed() : 1;
+            Double stopLoss = deal.getStopLoss();
+            boolean unprotected = stopLoss == null || stopLoss <= 0;
+            double loss = unprotected ? notional
+                    : Math.max(0, (deal.getDirection() == Direction.LONG ? entry - stopLoss : stopLoss - entry) * size);
+            return new Exposure(deal.getDirection(), ValuesUtil.getRiskBucket(deal.getSymbol().toString()),
+                    mantissa(notional), mantissa(notional / leverage), mantissa(loss), unprotected);
+        }
+
+        public double getLossAtStop() {
+            return FixedPointUtils.toDouble(lossAtStop, SCALE);
+        }
+
+        public double getMargin() {
+            return FixedPointUtils.toDouble(margin, SCALE);
+        }
+    }
+
+    // Суммы одного среза (направление, группа в направлении)
+    private static final class Totals {
+        final LongAdder deals = new LongAdder();
+        final LongAdder notional = new LongAdder();
+        final LongAdder margin = new LongAdder();
+        final LongAdder lossAtStop = new LongAdder();
+        final LongAdder unprotected = new LongAdder();
+
+        void apply(Exposure exposure, int sign) {
+            deals.add(sign);
+            notional.add(sign * exposure.notional());
+            margin.add(sign * exposure.margin());
+            lossAtStop.add(sign * exposure.lossAtStop());
+            if (exposure.unprotected()) {
+                unprotected.add(sign);
+            }
+        }
+    }
+
+    // Ключ — сама сделка (equals не переопределен): id сделки меняется после выставления ордера
+    private final Map<Deal, Exposure> exposures = new ConcurrentHashMap<>();
+    private final Totals[] byDirection = {new Totals(), new Totals()};
+    private final Map<String, Totals[]> byBucket = new ConcurrentHashMap<>();
+
+    /**
+     * Пересчитывает вклад сделки (добавление, смена SL, размера, плеча, синхронизация с позицией).
+     */
+    public void update(Deal deal) {
+        Exposure next = Exposure.of(deal);
+        // compute сериализует обновления одной сделки: вычитается ровно тот вклад, который был добавлен
+        exposures.compute(deal, (d, previous) -> {
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            if (next != null) {
+                apply(next, 1);
+            }
+            return next;
+        });
+    }
+
+    public void remove(Deal deal) {
+        exposures.computeIfPresent(deal, (d, previous) -> {
+            apply(previous, -1);
+            return null;
+        });
+    }
+
+    public void clear() {
+        exposures.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Текущий вклад сделки; null — сделка не учитывается.
+     */
+    public Exposure exposureOf(Deal deal) {
+        return exposures.get(deal);
+    }
+
+    public int getDealCount() {
+        return (int) (byDirection[0].deals.sum() + byDirection[1].deals.sum());
+    }
+
+    public double getTotalNotional() {
+        return value(byDirection[0].notional.sum() + byDirection[1].notional.sum());
+    }
+
+    public double getNotional(Direction direction) {
+        return value(totals(direction).notional.sum());
+    }
+
+    public double getTotalMargin() {
+        return value(byDirection[0].margin.sum() + byDirection[1].margin.sum());
+    }
+
+    /**
+     * Убыток, если сработают SL всех сделок.
+     */
+    public double getTotalLossAtStop() {
+        return value(byDirection[0].lossAtStop.sum() + byDirection[1].lossAtStop.sum());
+    }
+
+    public double getLossAtStop(Direction direction) {
+        return value(totals(direction).lossAtStop.sum());
+    }
+
+    public double getBucketLossAtStop(String bucket, Direction direction) {
+        Totals[] totals = byBucket.get(bucket);
+        return totals == null ? 0 : value(totals[index(direction)].lossAtStop.sum());
+    }
+
+    public int getUnprotectedCount() {
+        return (int) (byDirection[0].unprotected.sum() + byDirection[1].unprotected.sum());
+    }
+
+    /**
+     * Сколько USDT убытка по SL еще может добавить сделка deal: меньшее из остатков общего лимита
+     * и лимита ее группы в ее направлении. Собственный текущий вклад сделки не учитывается (пересчет размера).
+     */
+    public double remainingRisk(Deal deal, double equity, StrategyConfig config) {
+        Exposure own = exposureOf(deal);
+        double ownLoss = own != null ? own.getLossAtStop() : 0;
+        double total = getTotalLossAtStop() - ownLoss;
+        String bucket = ValuesUtil.getRiskBucket(deal.getSymbol().toString());
+        double bucketLoss = getBucketLossAtStop(bucket, deal.getDirection())
+                - (own != null && own.bucket().equals(bucket) && own.direction() == deal.getDirection() ? ownLoss : 0);
+        return Math.min(equity * config.getMaxPortfolioRiskPercent() / 100.0 - total,
+                equity * config.getMaxBucketRiskPercent() / 100.0 - bucketLoss);
+    }
+
+    /**
+     * Сколько USDT маржи еще может занять сделка deal (без ее собственного текущего вклада).
+     */
+    public double remainingMargin(Deal deal, double equity, StrategyConfig config) {
+        Exposure own = exposureOf(deal);
+        return equity * config.getMaxPortfolioMarginPercent() / 100.0 - (getTotalMargin() - (own != null ? own.getMargin() : 0));
+    }
+
+    /**
+     * Сводка для чата; equity <= 0 — без процентов.
+     */
+    public String summary(double equity) {
+        StringBuilder sb = new StringBuilder("🛡 Риск портфеля: сделок ").append(getDealCount()).append('\n');
+        sb.append("Номинал: ").append(money(getTotalNotional(), equity))
+                .append(" (LONG ").append(money(getNotional(Direction.LONG), 0))
+                .append(", SHORT ").append(money(getNotional(Direction.SHORT), 0)).append(")\n");
+        sb.append("Маржа: ").append(money(getTotalMargin(), equity)).append('\n');
+        sb.append("Убыток по SL: ").append(money(getTotalLossAtStop(), equity))
+                .append(" (LONG ").append(money(getLossAtStop(Direction.LONG), 0))
+                .append(", SHORT ").append(money(getLossAtStop(Direction.SHORT), 0)).append(")\n");
+        Map<String, Totals[]> buckets = new TreeMap<>(byBucket);
+        for (Map.Entry<String, Totals[]> entry : buckets.entrySet()) {
+            for (Direction direction : Direction.values()) {
+                Totals totals = entry.getValue()[index(direction)];
+                if (totals.deals.sum() > 0) {
+                    sb.append("  ").append(entry.getKey()).append(' ').append(direction).append(": сделок ").append(totals.deals.sum())
+                            .append(", убыток по SL ").append(money(value(totals.lossAtStop.sum()), equity)).append('\n');
+                }
+            }
+        }
+        if (getUnprotectedCount() > 0) {
+            sb.append("⚠️ Без SL: ").append(getUnprotectedCount()).append('\n');
+        }
+        return sb.toString().stripTrailing();
+    }
+
+    private void apply(Exposure exposure, int sign) {
+        int direction = index(exposure.direction());
+        byDirection[direction].apply(exposure, sign);
+        byBucket.computeIfAbsent(exposure.bucket(), b -> new Totals[]{new Totals(), new Totals()})[direction].apply(exposure, sign);
+    }
+
+    private Totals totals(Direction direction) {
+        return byDirection[index(direction)];
+    }
+
+    private static int index(Direction direction) {
+        return direction == Direction.SHORT ? 1 : 0;
+    }
+
+    private static long mantissa(double value) {
+        return FixedPointUtils.toMantissa(value, SCALE);
+    }
+
+    private static double value(long mantissa) {
+        return FixedPointUtils.toDouble(mantissa, SCALE);
+    }
+
+    private static String money(double value, double equity) {
+        return equity > 0 ? String.format("%.2f USDT (%.1f%%)", value, value / equity * 100) : String.format("%.2f USDT", value);
+    }
+}
@@ -1,10 +1,18 @@
 package org.example.deal.utils;
 
+import lombok.Getter;
 import org.example.deal.Deal;
+import org.example.deal.DealChangeListener;
+import org.example.deal.journal.DealJournal;
+import org.example.deal.journal.JournalEventType;
+import org.example.deal.risk.PortfolioRiskBook;
 import org.example.model.Symbol;
 import org.example.result.OperationResult;
+import org.example.util.LoggerUtils;
 import org.example.util.ValidationUtils;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -13,6 +21,7 @@ import java.util.function.Consumer;
 /**
  * Хранилище активных сделок.
  * Обеспечивает потокобезопасный доступ, поддержку событий и эффективный поиск по символу.
+ * При наличии {@link DealJournal} все изменения сделок журналируются и восстанавливаются после рестарта.
  */
 public class ActiveDealStore {
     // Основное хранилище: id -> Deal
@@ -25,6 +34,52 @@ public class ActiveDealStore {
     private final List<Consumer<Deal>> onDealAddedListeners = new CopyOnWriteArrayList<>();
     private final List<Consumer<Deal>> onDealRemovedListeners = new CopyOnWriteArrayList<>();
 
+    // Журнал изменений (null — хранилище только в памяти)
+    private final DealJournal journal;
+    private final DealChangeListener changeListener = new JournalingListener();
+
+    // Суммарный риск сделок; ведется здесь же, при каждом изменении набора или состояния сделок
+    @Getter
+    private final PortfolioRiskBook riskBook = new PortfolioRiskBook();
+
+    public ActiveDealStore() {
+        this(null);
+    }
+
+    public ActiveDealStore(DealJournal journal) {
+        this.journal = journal;
+        if (journal != null) {
+            journal.setSnapshotSource(this::getAllDeals);
+        }
+    }
+
+    /**
+     * Открывает журнал в каталоге и восстанавливает из него сделки (без обращений к бирже).
+     * Если журнал прочитать не удалось — хранилище работает только в памяти, файлы журнала не трогаются.
+     */
+    public static ActiveDealStore openJournaled(Path dir) {
+        try {
+            DealJournal journal = DealJournal.open(dir);
+            Collection<Deal> restored = journal.replay();
+            ActiveDealStore store = new ActiveDealStore(journal);
+            restored.forEach(store::restoreDeal);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            LoggerUtils.error("❌ Не удалось восстановить журнал сделок из " + dir + ", хранилище работает без журнала", e);
+            return new ActiveDealStore();
+        }
+    }
+
+    // Восстановленная сделка: без слушателей и без повторной записи в журнал
+    private void restoreDeal(Deal deal) {
+        dealsById.put(deal.getId(), deal);
+        dealsBySymbol
+                .computeIfAbsent(deal.getSymbol(), k -> ConcurrentHashMap.newKeySet())
+                .add(deal);
+        deal.setChangeListener(changeListener);
+        riskBook.update(deal);
+    }
+
     // --- Управление сделками ---
 
     /**
@@ -56,6 +111,9 @@ public class ActiveDealStore {
         dealsBySymbol
                 .computeIfAbsent(deal.getSymbol(), k -> ConcurrentHashMap.newKeySet())
                 .add(deal);
+        deal.setChangeListener(changeListener);
+        journal(JournalEventType.ADD, deal.getId(), deal);
+        riskBook.update(deal);
 
         onDealAddedListeners.forEach(listener -> listener.accept(deal));
         return OperationResult.success(); // успешно добавлено
@@ -79,6 +137,9 @@ public class ActiveDealStore {
                 dealsBySymbol.remove(deal.getSymbol());
             }
         }
+        deal.setChangeListener(null);
+        journal(JournalEventType.REMOVE, id, null);
+        riskBook.remove(deal);
         // Уведомляем об удалении
         onDealRemovedListeners.forEach(listener -> listener.accept(deal));
         return OperationResult.success();
@@ -148,8 +209,62 @@ public class ActiveDealStore {
      * Полная очистка хранилища (для тестов)
      */
     public void clear() {
+        dealsById.values().forEach(deal -> deal.setChangeListener(null));
         dealsById.clear();
         dealsBySymbol.clear();
+        riskBook.clear();
+        if (journal != null) {
+            journal.snapshot();
+        }
+    }
+
+    /**
+     * Сбрасывает журнал в снапшот и закрывает его (вызывается при остановке приложения).
+     */
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // --- Журнал ---
+
+    private void journal(JournalEventType type, String key, Deal deal) {
+        if (journal != null) {
+            journal.append(type, key, deal);
+        }
+    }
+
+    /**
+     * Получает изменения сделок, которые лежат в хранилище.
+     * Дополнительно перекладывает сделку под новый id (id меняется после выставления ордера).
+     */
+    private class JournalingListener implements DealChangeListener {
+
+        @Override
+        public void onOrderBound(Deal deal, OrderManager order) {
+            journal(JournalEventType.ORDER_BOUND, deal.getId(), deal);
+        }
+
+        @Override
+        public void onOrdersCleared(Deal deal) {
+            journal(JournalEventType.ORDERS_CLEARED, deal.getId(), deal);
+        }
+
+        @Override
+        public void onExitRecorded(Deal deal, Deal.ExitStep exit) {
+            journal(JournalEventType.EXIT, deal.getId(), deal);
+            riskBook.update(deal);
+        }
+
+        @Override
+        public void onStateChanged(Deal deal, String previousId) {
+            if (previousId != null && !previousId.equals(deal.getId()) && dealsById.remove(previousId, deal)) {
+                dealsById.put(deal.getId(), deal);
+            }
+            journal(JournalEventType.STATE_CHANGED, previousId, deal);
+            riskBook.update(deal);
+        }
     }
 
     // --- События (Event Listeners) ---
@@ -3,6 +3,7 @@ package org.example.deal.utils;
 import org.example.bybit.service.BybitAccountService;
 import org.example.bybit.service.BybitMarketService;
 import org.example.deal.Deal;
+import org.example.deal.risk.PortfolioRiskBook;
 import org.example.model.Direction;
 import org.example.util.LoggerUtils;
 import org.example.util.MathUtils;
@@ -14,11 +15,17 @@ public class DealCalculator {
 
     private final BybitMarketService bybitMarketService;
     private final BybitAccountService accountService;
+    private final PortfolioRiskBook riskBook; // null — размер считается без учета остальных сделок
 
 
     public DealCalculator(BybitAccountService accountService, BybitMarketService bybitMarketService) {
+        this(accountService, bybitMarketService, null);
+    }
+
+    public DealCalculator(BybitAccountService accountService, BybitMarketService bybitMarketService, PortfolioRiskBook riskBook) {
         this.bybitMarketService = bybitMarketService;
         this.accountService = accountService;
+        this.riskBook = riskBook;
     }
 
     public String calculate(Deal deal) {
@@ -48,8 +55,16 @@ public class DealCalculator {
 
 
         // 2. Position size (и проверка minQty внутри)
+        String symbol = deal.getSymbol().toString();
+        deal.setPriceScale(bybitMarketService.getPriceScale(symbol));
+        deal.setQtyScale(bybitMarketService.getQtyScale(symbol));
         double actualBalance = fetchBalance();
-        double positionSize = calculatePositionSize(deal, strategyConfig, bybitMarketService, actualBalance); // <-- Передаем deal, config и сервис
+        double riskBudget = riskBook != null ? riskBook.remainingRisk(deal, actualBalance, strategyConfig) : Double.MAX_VALUE;
+        if (riskBudget <= 0) {
+            throw new IllegalStateException("\nЛимит риска портфеля исчерпан: убыток по SL открытых сделок уже "
+                    + MathUtils.formatPrice(0.01, riskBook.getTotalLossAtStop()) + " USDT (/risk)");
+        }
+        double positionSize = calculatePositionSize(deal, strategyConfig, bybitMarketService, actualBalance, riskBudget); // <-- Передаем deal, config и сервис
         deal.setPositionSize(positionSize);
 
         // 3. Leverage - теперь используем параметр из strategyConfig
@@ -65,12 +80,23 @@ public class DealCalculator {
             throw new IllegalStateException("\nНедостаточно средств. Нужно: " + requiredCapital + ", доступно: " + actualBalance);
         }
 
+        // 6. Маржа портфеля: эта сделка вместе с остальными
+        if (riskBook != null) {
+            double marginLeft = riskBook.remainingMargin(deal, actualBalance, strategyConfig);
+            if (requiredCapital > marginLeft) {
+                throw new IllegalStateException("\nЛимит маржи портфеля: нужно " + MathUtils.formatPrice(0.01, requiredCapital)
+                        + ", свободно в лимите " + MathUtils.formatPrice(0.01, Math.max(0, marginLeft)) + " USDT (/risk)");
+            }
+            riskBook.update(deal);
+        }
+
         LoggerUtils.debug("DealCalculator calculate - Закончился рассчет " + deal.getSymbol());
         return "QTY: " + MathUtils.formatPrice(0.01, positionSize) + "\n" +
                 "SL: " + MathUtils.formatPrice(deal.getEntryPrice(), deal.getStopLoss()) + "\n" +
                 "LV: " + leverageUsed + "x\n" +
                 "ReqCap: " + MathUtils.formatPrice(0.01, requiredCapital) + " USDT\n" +
-                "Balance: " + MathUtils.formatPrice(0.01, actualBalance) + " USDT";
+                "Balance: " + MathUtils.formatPrice(0.01, actualBalance) + " USDT" +
+                (riskBook != null ? "\nPortfolio SL risk: " + MathUtils.formatPrice(0.01, riskBook.getTotalLossAtStop()) + " USDT" : "");
     }
 
 
@@ -139,7 +165,7 @@ public class DealCalculator {
     }
 
     // Используем параметр из strategyConfig
-    private double calculatePositionSize(Deal deal, StrategyConfig strategyConfig, BybitMarketService bybitMarketService, double balance) {
+    private double calculatePositionSize(Deal deal, StrategyConfig strategyConfig, BybitMarketService bybitMarketService, double balance, double riskBudget) {
         LoggerUtils.debug("calculatePositionSize 🧮 Начало расчёта размера позиции");
 
         double delta = Math.abs(deal.getEntryPrice() - deal.getStopLoss());
@@ -150,6 +176,10 @@ public class DealCalculator {
 
         double maxLossPercent = strategyConfig.getMaxLossPrecen(); // например, 1.0 → 1%
         double maxLossUSD = balance * (maxLossPercent / 100.0);
+        if (riskBudget < maxLossUSD) {
+            LoggerUtils.info("Риск сделки урезан лимитом портфеля: " + maxLossUSD + " → " + riskBudget + " USDT");
+            maxLossUSD = riskBudget;
+        }
         double rawPositionSize = maxLossUSD / delta;
         double potentialLoss = rawPositionSize * delta;
 
@@ -165,6 +195,12 @@ public class DealCalculator {
 
         // Проверка minQty
         if (roundedSize < minQty) {
+            // minQty не должен выводить сделку за лимит портфеля, ради которого урезан риск
+            if (minQty * delta > riskBudget) {
+                throw new IllegalStateException("\nЛимит риска портфеля исчерпан: на сделку остается "
+                        + MathUtils.formatPrice(0.01, riskBudget) + " USDT, а минимальный объем " + minQty
+                        + " дает убыток по SL " + MathUtils.formatPrice(0.01, minQty * delta) + " USDT (/risk)");
+            }
             LoggerUtils.warn("устанавливаем = minQty в размер позиции");
             roundedSize = minQty;
         }
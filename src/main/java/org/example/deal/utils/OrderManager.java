@@ -1,6 +1,7 @@
 package org.example.deal.utils;
 
 import lombok.*;
+import org.example.model.Price;
 
 @Getter
 @Setter
@@ -10,7 +11,7 @@ public class OrderManager {
 
     private String orderId;
     private OrderType orderType;
-    private double orderPrice; //значение для примерного понимания, как правило не соответствует цене по факту, но очень близко к ней
+    private Price orderPrice; //значение для примерного понимания, как правило не соответствует цене по факту, но очень близко к ней
 
     @Override
     public String toString() {
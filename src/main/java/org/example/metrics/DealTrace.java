@@ -0,0 +1,99 @@
+package org.example.metrics;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Трасса одной сделки: этапы с отметками System.nanoTime() относительно начала трассы.
+ * Этапы добавляются из потоков команд чата и обработчиков исполнения, поэтому список под монитором.
+ */
+public class DealTrace {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final int BAR_WIDTH = 20;
+
+    public record Span(TraceStage stage, long startNanos, long endNanos, boolean success) {
+        public long durationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    private final long traceId;
+    private final String symbol;
+    private final long startedAtMillis;
+    private final long startNanos;
+    // Id сделки меняется после выставления ордера входа (становится orderId) — храним последний известный
+    private volatile String dealId;
+    private final List<Span> spans = new ArrayList<>();
+
+    DealTrace(long traceId, String symbol, String dealId, long startNanos) {
+        this.traceId = traceId;
+        this.symbol = symbol;
+        this.dealId = dealId;
+        this.startNanos = startNanos;
+        this.startedAtMillis = System.currentTimeMillis() - (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getDealId() {
+        return dealId;
+    }
+
+    void setDealId(String dealId) {
+        this.dealId = dealId;
+    }
+
+    synchronized void add(Span span) {
+        spans.add(span);
+    }
+
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * Каскад этапов: смещение от начала трассы, длительность и полоса на общей шкале.
+     * Паузы между этапами — обычно ожидание следующей команды пользователя (/check, /amount, /go).
+     */
+    public String waterfall() {
+        List<Span> snapshot = getSpans();
+        StringBuilder sb = new StringBuilder();
+        sb.append("🧵 Трасса #").append(traceId).append(' ').append(symbol)
+                .append(" (сделка ").append(dealId).append(", начало ").append(TIME.format(Instant.ofEpochMilli(startedAtMillis))).append(")\n");
+        if (snapshot.isEmpty()) {
+            return sb.append("этапов нет").toString();
+        }
+        long end = snapshot.stream().mapToLong(Span::endNanos).max().getAsLong();
+        long total = Math.max(1, end - startNanos);
+        long busy = 0;
+        for (Span span : snapshot) {
+            long offset = span.startNanos() - startNanos;
+            int from = (int) Math.min(offset * BAR_WIDTH / total, BAR_WIDTH - 1);
+            int width = (int) Math.min(Math.max(1, span.durationNanos() * BAR_WIDTH / total), BAR_WIDTH - from);
+            sb.append(String.format("+%-8s %-8s %s%s%s %s%s%n",
+                    LatencyRecorder.format(offset), LatencyRecorder.format(span.durationNanos()),
+                    ".".repeat(from), "█".repeat(width), ".".repeat(BAR_WIDTH - from - width),
+                    span.stage().getTitle(), span.success() ? "" : " ❌"));
+            busy += span.durationNanos();
+        }
+        sb.append("всего ").append(LatencyRecorder.format(total)).append(", из них в этапах ").append(LatencyRecorder.format(busy));
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        List<Span> snapshot = getSpans();
+        long busy = snapshot.stream().mapToLong(Span::durationNanos).sum();
+        return "#" + traceId + " " + symbol + " " + dealId + " — этапов " + snapshot.size() + ", " + LatencyRecorder.format(busy);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Общий реестр метрик приложения (как {@link org.example.util.LoggerUtils} — статический доступ из любого класса).
+ * Метрики получаются один раз и хранятся в static final полях классов:
+ * <pre>
+ * private static final LatencyRecorder DECODE = Metrics.latency("bybit_ws_decode_seconds", "...");
+ * </pre>
+ */
+public final class Metrics {
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    public static Counter counter(String name, String help) {
+        return REGISTRY.counter(name, help);
+    }
+
+    public static Counter counter(String name, String help, String labelName, String labelValue) {
+        return REGISTRY.counter(name, help, labelName, labelValue);
+    }
+
+    public static LatencyRecorder latency(String name, String help) {
+        return REGISTRY.latency(name, help);
+    }
+
+    public static LatencyRecorder latency(String name, String help, String labelName, String labelValue) {
+        return REGISTRY.latency(name, help, labelName, labelValue);
+    }
+
+    public static void gauge(String name, String help, DoubleSupplier supplier) {
+        REGISTRY.gauge(name, help, supplier);
+    }
+
+    public static void counterFunction(String name, String help, DoubleSupplier supplier) {
+        REGISTRY.counterFunction(name, help, supplier);
+    }
+}
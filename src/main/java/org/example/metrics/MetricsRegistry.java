@@ -0,0 +1,149 @@
+package org.example.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Реестр метрик: семейства по имени (для HELP/TYPE Prometheus), внутри — значения по метке.
+ * Получение метрики с тем же именем и меткой возвращает существующий экземпляр, поэтому
+ * классы могут держать ссылку в поле и не обращаться к реестру на горячем пути.
+ */
+public class MetricsRegistry {
+
+    enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String prometheusName;
+
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private record Family(String name, String help, Type type, Map<String, Object> series) {
+    }
+
+    // Сортировка по имени — стабильный порядок вывода
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    public Counter counter(String name, String help, String labelName, String labelValue) {
+        return (Counter) family(name, help, Type.COUNTER).series()
+                .computeIfAbsent(labelKey(labelName, labelValue), k -> new Counter());
+    }
+
+    public LatencyRecorder latency(String name, String help) {
+        return latency(name, help, null, null);
+    }
+
+    public LatencyRecorder latency(String name, String help, String labelName, String labelValue) {
+        return (LatencyRecorder) family(name, help, Type.SUMMARY).series()
+                .computeIfAbsent(labelKey(labelName, labelValue), k -> new LatencyRecorder());
+    }
+
+    /**
+     * Значение, которое вычисляется при чтении (размер очереди и т.п.). Повторная регистрация заменяет прежнюю.
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier) {
+        family(name, help, Type.GAUGE).series().put("", supplier);
+    }
+
+    /**
+     * Счетчик, который уже ведется в другом классе: значение читается из него при выводе.
+     */
+    public void counterFunction(String name, String help, DoubleSupplier supplier) {
+        family(name, help, Type.COUNTER).series().put("", supplier);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type, new ConcurrentHashMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована как " + family.type());
+        }
+        return family;
+    }
+
+    private static String labelKey(String labelName, String labelValue) {
+        if (labelName == null) {
+            return "";
+        }
+        String escaped = labelValue == null ? "" : labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return labelName + "=\"" + escaped + "\"";
+    }
+
+    /**
+     * Текстовый формат Prometheus 0.0.4. Задержки — summary в секундах.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            sb.append("# HELP ").append(family.name()).append(' ').append(family.help()).append('\n');
+            sb.append("# TYPE ").append(family.name()).append(' ').append(family.type().prometheusName).append('\n');
+            for (Map.Entry<String, Object> entry : new ConcurrentSkipListMap<>(family.series()).entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter counter) {
+                    line(sb, family.name(), labels, counter.get());
+                } else if (metric instanceof DoubleSupplier supplier) {
+                    line(sb, family.name(), labels, supplier.getAsDouble());
+                } else if (metric instanceof LatencyRecorder recorder) {
+                    for (double quantile : QUANTILES) {
+                        String quantileLabel = "quantile=\"" + quantile + "\"";
+                        line(sb, family.name(), labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                                recorder.percentile(quantile) / 1e9);
+                    }
+                    line(sb, family.name() + "_sum", labels, recorder.getSumNanos() / 1e9);
+                    line(sb, family.name() + "_count", labels, recorder.getCount());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (!labels.isEmpty()) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Краткая сводка для чата: счетчики и перцентили задержек, пустые метрики пропускаются.
+     */
+    public String toSummary() {
+        StringBuilder sb = new StringBuilder("📈 Метрики:\n");
+        for (Family family : families.values()) {
+            for (Map.Entry<String, Object> entry : new ConcurrentSkipListMap<>(family.series()).entrySet()) {
+                String name = family.name() + (entry.getKey().isEmpty() ? "" : "{" + entry.getKey() + "}");
+                Object metric = entry.getValue();
+                if (metric instanceof Counter counter && counter.get() > 0) {
+                    sb.append(name).append(" = ").append(counter.get()).append('\n');
+                } else if (metric instanceof DoubleSupplier supplier) {
+                    double value = supplier.getAsDouble();
+                    if (value != 0) {
+                        sb.append(name).append(" = ").append(value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.3f", value)).append('\n');
+                    }
+                } else if (metric instanceof LatencyRecorder recorder && recorder.getCount() > 0) {
+                    sb.append(name).append(": ").append(recorder.describe()).append('\n');
+                }
+            }
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.metrics;
+
+/**
+ * Этапы пути сделки от сигнала до подтверждения ордеров биржей.
+ */
+public enum TraceStage {
+    AI_PARSE("разбор сигнала ИИ"),
+    STORE("запись в хранилище сделок"),
+    VALIDATE("проверка (DealValidator)"),
+    CALCULATE("расчет позиции (DealCalculator)"),
+    LEVERAGE("установка плеча"),
+    ENTRY_ORDER("ордер входа"),
+    STOP_LOSS("стоп-лосс"),
+    TAKE_PROFITS("тейк-профиты");
+
+    private final String title;
+
+    TraceStage(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Значение метки stage в метрике deal_stage_seconds.
+     */
+    public String label() {
+        return name().toLowerCase();
+    }
+}
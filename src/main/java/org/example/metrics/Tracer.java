@@ -0,0 +1,137 @@
+package org.example.metrics;
+
+import org.example.deal.Deal;
+import org.example.util.ValuesUtil;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Трассировка сделок от сигнала до подтверждения ордеров (статический доступ, как {@link Metrics}).
+ * Последние трассы лежат в кольцевом буфере (ячейка = traceId % размер), старые перезаписываются.
+ * Длительности этапов дополнительно пишутся в deal_stage_seconds{stage} — оттуда перцентили по этапам.
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * Tracer.record(deal, TraceStage.ENTRY_ORDER, start, response.isSuccess());
+ * </pre>
+ */
+public final class Tracer {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final AtomicReferenceArray<DealTrace> BUFFER = new AtomicReferenceArray<>(ValuesUtil.getTraceBufferSize());
+    private static final Map<TraceStage, LatencyRecorder> STAGES = new EnumMap<>(TraceStage.class);
+
+    static {
+        for (TraceStage stage : TraceStage.values()) {
+            STAGES.put(stage, Metrics.latency("deal_stage_seconds", "Длительность этапа сделки от сигнала до ордеров", "stage", stage.label()));
+        }
+    }
+
+    private Tracer() {
+    }
+
+    /**
+     * Начинает новую трассу сделки с момента startNanos; прежняя трасса сделки (если была) остается в буфере.
+     */
+    public static DealTrace begin(Deal deal, long startNanos) {
+        DealTrace trace = new DealTrace(SEQUENCE.incrementAndGet(), String.valueOf(deal.getSymbol()), deal.getId(), startNanos);
+        BUFFER.set(slot(trace.getTraceId()), trace);
+        deal.setTraceId(trace.getTraceId());
+        return trace;
+    }
+
+    /**
+     * Записывает этап, закончившийся сейчас (или в endNanos). Сделка без трассы (восстановлена из журнала, найдена сверкой)
+     * получает новую трассу с началом в startNanos.
+     */
+    public static void record(Deal deal, TraceStage stage, long startNanos, boolean success) {
+        record(deal, stage, startNanos, System.nanoTime(), success);
+    }
+
+    public static void record(Deal deal, TraceStage stage, long startNanos, long endNanos, boolean success) {
+        STAGES.get(stage).record(endNanos - startNanos);
+        DealTrace trace = get(deal.getTraceId());
+        if (trace == null) {
+            trace = begin(deal, startNanos);
+        }
+        trace.setDealId(deal.getId());
+        trace.add(new DealTrace.Span(stage, startNanos, endNanos, success));
+    }
+
+    /**
+     * Трасса по id; null, если ее уже вытеснили из буфера.
+     */
+    public static DealTrace get(long traceId) {
+        if (traceId <= 0) {
+            return null;
+        }
+        DealTrace trace = BUFFER.get(slot(traceId));
+        return trace != null && trace.getTraceId() == traceId ? trace : null;
+    }
+
+    /**
+     * Поиск для /trace: номер трассы (#12 или 12), id сделки или символ — самая свежая подходящая.
+     */
+    public static DealTrace find(String query) {
+        String key = query.trim();
+        if (key.startsWith("#")) {
+            key = key.substring(1);
+        }
+        if (!key.isEmpty() && key.chars().allMatch(Character::isDigit) && key.length() < 18) {
+            DealTrace byId = get(Long.parseLong(key));
+            if (byId != null) {
+                return byId;
+            }
+        }
+        for (DealTrace trace : recent(BUFFER.length())) {
+            if (key.equals(trace.getDealId()) || key.equalsIgnoreCase(trace.getSymbol())) {
+                return trace;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * До limit последних трасс, новые первыми.
+     */
+    public static List<DealTrace> recent(int limit) {
+        List<DealTrace> result = new ArrayList<>();
+        long last = SEQUENCE.get();
+        for (long id = last; id > 0 && id > last - BUFFER.length() && result.size() < limit; id--) {
+            DealTrace trace = get(id);
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Перцентили по этапам за все время работы и список последних трасс.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("🧵 Этапы сделок:\n");
+        for (TraceStage stage : TraceStage.values()) {
+            LatencyRecorder recorder = STAGES.get(stage);
+            if (recorder.getCount() > 0) {
+                sb.append(stage.getTitle()).append(": ").append(recorder.describe()).append('\n');
+            }
+        }
+        List<DealTrace> recent = recent(10);
+        if (recent.isEmpty()) {
+            return sb.append("трасс пока нет").toString();
+        }
+        sb.append("Последние трассы (/trace <номер|id сделки|символ>):\n");
+        recent.forEach(trace -> sb.append(trace).append('\n'));
+        return sb.toString().stripTrailing();
+    }
+
+    private static int slot(long traceId) {
+        return (int) (traceId % BUFFER.length());
+    }
+}
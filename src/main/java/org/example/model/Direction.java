@@ -9,7 +9,8 @@ public enum Direction {
 
     @JsonCreator
     public static Direction fromString(String value) {
-        if (value == null) return null;
+        // Bybit отдает side = "" для пустой позиции
+        if (value == null || value.isBlank()) return null;
         return switch (value.trim().toUpperCase()) {
             case "LONG", "BUY" -> LONG;
             case "SHORT", "SELL" -> SHORT;
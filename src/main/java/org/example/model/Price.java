@@ -0,0 +1,94 @@
+package org.example.model;
+
+import org.example.util.FixedPointUtils;
+
+/**
+ * Цена с фиксированной точкой: long мантисса + scale инструмента (кол-во знаков после запятой в tickSize).
+ * Неизменяемый объект. Сравнение точное, без погрешности double.
+ */
+public final class Price implements Comparable<Price> {
+
+    public static final Price ZERO = new Price(0, 0);
+
+    private final long mantissa;
+    private final int scale;
+
+    private Price(long mantissa, int scale) {
+        FixedPointUtils.checkScale(scale);
+        this.mantissa = mantissa;
+        this.scale = scale;
+    }
+
+    public static Price ofMantissa(long mantissa, int scale) {
+        return new Price(mantissa, scale);
+    }
+
+    // Округляет double до scale инструмента
+    public static Price of(double value, int scale) {
+        return new Price(FixedPointUtils.toMantissa(value, scale), scale);
+    }
+
+    // scale определяется по кратчайшему представлению double — только для значений без известного инструмента
+    public static Price of(double value) {
+        return of(value, FixedPointUtils.scaleOf(value));
+    }
+
+    // Разбор строки с биржи ("65000.50") без промежуточного double
+    public static Price parse(CharSequence text) {
+        int scale = FixedPointUtils.declaredScale(text);
+        return new Price(FixedPointUtils.parseMantissa(text, scale), scale);
+    }
+
+    public static Price parse(CharSequence text, int scale) {
+        return new Price(FixedPointUtils.parseMantissa(text, scale), scale);
+    }
+
+    public long mantissa() {
+        return mantissa;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public Price withScale(int newScale) {
+        if (newScale == scale) {
+            return this;
+        }
+        return new Price(FixedPointUtils.rescale(mantissa, scale, newScale), newScale);
+    }
+
+    public double toDouble() {
+        return FixedPointUtils.toDouble(mantissa, scale);
+    }
+
+    public boolean isPositive() {
+        return mantissa > 0;
+    }
+
+    public String toPlainString() {
+        return FixedPointUtils.toPlainString(mantissa, scale);
+    }
+
+    @Override
+    public int compareTo(Price other) {
+        return FixedPointUtils.compare(mantissa, scale, other.mantissa, other.scale);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Price other)) return false;
+        return compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return FixedPointUtils.normalizedHash(mantissa, scale);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString();
+    }
+}
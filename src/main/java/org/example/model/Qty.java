@@ -0,0 +1,94 @@
+package org.example.model;
+
+import org.example.util.FixedPointUtils;
+
+/**
+ * Количество (объём) с фиксированной точкой: long мантисса + scale инструмента (кол-во знаков после запятой в qtyStep).
+ * Неизменяемый объект. Сравнение точное, без погрешности double.
+ */
+public final class Qty implements Comparable<Qty> {
+
+    public static final Qty ZERO = new Qty(0, 0);
+
+    private final long mantissa;
+    private final int scale;
+
+    private Qty(long mantissa, int scale) {
+        FixedPointUtils.checkScale(scale);
+        this.mantissa = mantissa;
+        this.scale = scale;
+    }
+
+    public static Qty ofMantissa(long mantissa, int scale) {
+        return new Qty(mantissa, scale);
+    }
+
+    // Округляет double до scale инструмента
+    public static Qty of(double value, int scale) {
+        return new Qty(FixedPointUtils.toMantissa(value, scale), scale);
+    }
+
+    // scale определяется по кратчайшему представлению double — только для значений без известного инструмента
+    public static Qty of(double value) {
+        return of(value, FixedPointUtils.scaleOf(value));
+    }
+
+    // Разбор строки с биржи ("0.125") без промежуточного double
+    public static Qty parse(CharSequence text) {
+        int scale = FixedPointUtils.declaredScale(text);
+        return new Qty(FixedPointUtils.parseMantissa(text, scale), scale);
+    }
+
+    public static Qty parse(CharSequence text, int scale) {
+        return new Qty(FixedPointUtils.parseMantissa(text, scale), scale);
+    }
+
+    public long mantissa() {
+        return mantissa;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public Qty withScale(int newScale) {
+        if (newScale == scale) {
+            return this;
+        }
+        return new Qty(FixedPointUtils.rescale(mantissa, scale, newScale), newScale);
+    }
+
+    public double toDouble() {
+        return FixedPointUtils.toDouble(mantissa, scale);
+    }
+
+    public boolean isPositive() {
+        return mantissa > 0;
+    }
+
+    public String toPlainString() {
+        return FixedPointUtils.toPlainString(mantissa, scale);
+    }
+
+    @Override
+    public int compareTo(Qty other) {
+        return FixedPointUtils.compare(mantissa, scale, other.mantissa, other.scale);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Qty other)) return false;
+        return compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return FixedPointUtils.normalizedHash(mantissa, scale);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString();
+    }
+}
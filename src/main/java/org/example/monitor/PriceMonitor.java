@@ -8,9 +8,14 @@ import org.example.bybit.client.BybitWebSocketClient;
 import org.example.bot.MessageSender;
 import org.example.deal.utils.ActiveDealStore;
 import org.example.deal.Deal;
+import org.example.metrics.LatencyRecorder;
+import org.example.metrics.Metrics;
 import org.example.update.UpdateManager;
 import org.example.monitor.dto.PriceUpdate;
+import org.example.monitor.trailing.TrailingManager;
+import org.example.result.OperationResult;
 import org.example.strategy.params.StopLossManager;
+import org.example.strategy.config.StrategyConfig;
 import org.example.util.LoggerUtils;
 
 import java.util.List;
@@ -20,19 +25,26 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 @Data
 public class PriceMonitor {
+    private static final LatencyRecorder TICK_TO_STRATEGY = Metrics.latency("price_monitor_tick_to_strategy_seconds",
+            "От получения кадра WebSocket до вызова стратегий сделок символа");
+    private static final LatencyRecorder TICK_PROCESSING = Metrics.latency("price_monitor_tick_processing_seconds",
+            "Обработка одного тика: трейлинг и стратегии всех сделок символа");
+
     private BybitWebSocketClient webSocketClient;
     private final ActiveDealStore activeDealStore;
     private final StopLossManager stopLossManager;
     private final MessageSender messageSender;
     private final UpdateManager updateManager;
     private final BybitManager bybitManager;
+    private final TrailingManager trailingManager;
     private final Map<String, List<Deal>> symbolSubscribers = new ConcurrentHashMap<>();
 
     public PriceMonitor(ActiveDealStore activeDealStore,
                         MessageSender messageSender,
                         StopLossManager stopLossManager,
                         UpdateManager updateManager,
-                        BybitManager bybitManager)
+                        BybitManager bybitManager,
+                        TrailingManager trailingManager)
 
     {
         this.activeDealStore = activeDealStore;
@@ -40,6 +52,7 @@ public class PriceMonitor {
         this.stopLossManager = stopLossManager;
         this.updateManager = updateManager;
         this.bybitManager = bybitManager;
+        this.trailingManager = trailingManager;
     }
 
 
@@ -49,9 +62,26 @@ public class PriceMonitor {
                 .computeIfAbsent(symbol, k -> new CopyOnWriteArrayList<>())
                 .add(deal);
         webSocketClient.subscribeToTicker(deal.getSymbol());
+        StrategyConfig config = deal.getStrategy() != null ? deal.getStrategy().getConfig() : null;
+        if (config != null && config.isTrailingEnabled()) {
+            startTrailing(deal).logErrorIfFailed();
+        }
+    }
+
+    /**
+     * Включает трейлинг-стоп сделки (tickSize берется из кэша инструментов).
+     */
+    public OperationResult startTrailing(Deal deal) {
+        try {
+            double tickSize = bybitManager.getBybitMarketService().getTickSize(deal.getSymbol().toString());
+            return trailingManager.start(deal, tickSize);
+        } catch (Exception e) {
+            return OperationResult.failure("Не удалось запустить трейлинг для " + deal.getSymbol(), e);
+        }
     }
 
     public void unsubscribe(Deal deal) {
+        trailingManager.stop(deal.getId());
         String symbol = deal.getSymbol().getSymbol();
         List<Deal> deals = symbolSubscribers.get(symbol);
         if (deals != null) {
@@ -65,7 +95,9 @@ public class PriceMonitor {
     }
 
     public void onPriceUpdate(PriceUpdate update) {
+        long startNanos = System.nanoTime();
         String symbol = update.getSymbol().toString();
+        trailingManager.onTick(update.getSymbol(), update.getPrice());
 
         List<Deal> deals = symbolSubscribers.get(symbol);
         if (deals == null || deals.isEmpty()) {
@@ -73,9 +105,13 @@ public class PriceMonitor {
             return;
         }
 
+        if (update.getReceivedNanos() != 0) {
+            TICK_TO_STRATEGY.recordSince(update.getReceivedNanos());
+        }
         for (Deal deal : deals) {
             deal.getStrategy().onPriceUpdate(deal, update, updateManager, stopLossManager, bybitManager);
         }
+        TICK_PROCESSING.recordSince(startNanos);
 
     }
 
@@ -14,6 +14,8 @@ public class PriceUpdate {
     private final Symbol symbol;
     @JsonProperty("price")
     private final double price;
+    // System.nanoTime() получения кадра WebSocket (0 — неизвестно), для метрики задержки тик → стратегия
+    private long receivedNanos;
 
     public PriceUpdate(Symbol symbol, double price) {
         this.symbol = symbol;
@@ -0,0 +1,101 @@
+package org.example.monitor.replay;
+
+import org.example.util.LoggerUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Последовательное чтение кадров из сегментов {@link MarketDataRecorder} (все файлы каталога по порядку).
+ * Оборванный конец сегмента (запись прервалась при падении) не ошибка: чтение переходит к следующему файлу.
+ */
+public class MarketDataReader implements Iterator<MarketFrame>, AutoCloseable {
+
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private final Iterator<Path> segments;
+    private DataInputStream in;
+    private MarketFrame next;
+
+    public MarketDataReader(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> sorted = files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(MarketDataRecorder.SEGMENT_PREFIX) && name.endsWith(MarketDataRecorder.SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+            this.segments = sorted.iterator();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public MarketFrame next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        MarketFrame frame = next;
+        next = null;
+        return frame;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+    }
+
+    private MarketFrame readNext() {
+        try {
+            while (true) {
+                if (in == null) {
+                    if (!segments.hasNext()) {
+                        return null;
+                    }
+                    in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(segments.next()))));
+                }
+                try {
+                    long timestamp = in.readLong();
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_FRAME_BYTES) {
+                        throw new EOFException("некорректная длина кадра " + length);
+                    }
+                    byte[] bytes = in.readNBytes(length);
+                    if (bytes.length != length) {
+                        throw new EOFException("кадр оборван");
+                    }
+                    return new MarketFrame(timestamp, new String(bytes, StandardCharsets.UTF_8));
+                } catch (EOFException e) {
+                    if (e.getMessage() != null) {
+                        LoggerUtils.warn("Сегмент записи рынка оборван: " + e.getMessage());
+                    }
+                    close();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.monitor.replay;
+
+import org.example.util.LoggerUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Запись сырых кадров WebSocket в сжатые сегменты для последующего воспроизведения ({@link ReplaySource}).
+ * Поток WebSocket только кладет кадр в очередь; запись на диск — в отдельном потоке. Если диск не успевает
+ * и очередь полна, кадр отбрасывается (счетчик dropped), а не задерживает обработку тиков.
+ * <p>
+ * Сегмент — файл md-&lt;метка первого кадра&gt;.seg.gz; запись: long timestampMillis, int длина, UTF-8 байты.
+ * Новый сегмент начинается каждые segmentMillis. Поток gzip сбрасывается, когда очередь опустела,
+ * поэтому при падении теряется только хвост последних кадров, а поврежденный конец файла читатель пропускает.
+ */
+public class MarketDataRecorder implements AutoCloseable {
+
+    static final String SEGMENT_PREFIX = "md-";
+    static final String SEGMENT_SUFFIX = ".seg.gz";
+
+    private final Path directory;
+    private final long segmentMillis;
+    private final BlockingQueue<MarketFrame> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private DataOutputStream out;
+    private long segmentStartMillis;
+
+    public MarketDataRecorder(Path directory, long segmentMillis, int queueCapacity) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentMillis = segmentMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::writeLoop, "market-data-recorder");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Кадр с текущим временем. Вызывается из потока WebSocket, не блокирует.
+     */
+    public void record(String payload) {
+        if (closed || !queue.offer(new MarketFrame(System.currentTimeMillis(), payload))) {
+            dropped.increment();
+        }
+    }
+
+    public String getStats() {
+        return "Запись рынка: записано " + recorded.sum() + ", отброшено " + dropped.sum() + ", в очереди " + queue.size();
+    }
+
+    /**
+     * Дописывает очередь и закрывает текущий сегмент.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.interrupt();
+    }
+
+    private void writeLoop() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                MarketFrame frame = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    continue;
+                }
+                write(frame);
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LoggerUtils.error("Запись рынка остановлена: ошибка записи в " + directory, e);
+            closed = true;
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void write(MarketFrame frame) throws IOException {
+        if (out == null || frame.timestampMillis() - segmentStartMillis >= segmentMillis) {
+            closeSegment();
+            segmentStartMillis = frame.timestampMillis();
+            Path file = directory.resolve(segmentName(segmentStartMillis));
+            out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), 64 * 1024, true));
+            LoggerUtils.info("📼 Новый сегмент записи рынка: " + file.getFileName());
+        }
+        byte[] bytes = frame.payload().getBytes(StandardCharsets.UTF_8);
+        out.writeLong(frame.timestampMillis());
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        recorded.increment();
+    }
+
+    private void closeSegment() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            LoggerUtils.error("Не удалось закрыть сегмент записи рынка", e);
+        }
+        out = null;
+    }
+
+    // Метка дополнена нулями, чтобы сегменты сортировались по имени в порядке времени
+    static String segmentName(long startMillis) {
+        return String.format("%s%013d%s", SEGMENT_PREFIX, startMillis, SEGMENT_SUFFIX);
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.monitor.replay;
+
+/**
+ * Сырое сообщение WebSocket и время его получения (мс, часы машины записи).
+ */
+public record MarketFrame(long timestampMillis, String payload) {
+}
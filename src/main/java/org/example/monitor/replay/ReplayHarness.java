@@ -0,0 +1,95 @@
+package org.example.monitor.replay;
+
+import org.example.bybit.client.BybitWebSocketClient;
+import org.example.bybit.mock.MockBybitExchange;
+import org.example.bybit.mock.MockExchangeConfig;
+import org.example.bybit.mock.PricePath;
+import org.example.model.Symbol;
+import org.example.monitor.PriceMonitor;
+import org.example.monitor.dto.PriceUpdate;
+import org.example.monitor.trailing.TrailingManager;
+import org.example.result.OperationResult;
+import org.example.strategy.params.StopLossManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запуск воспроизведения записи рынка.
+ * <ul>
+ *     <li>{@code <каталог> [скорость]} — воспроизводит запись через PriceMonitor и печатает пропускную способность
+ *     (скорость по умолчанию — без пауз);</li>
+ *     <li>без аргументов — самопроверка: кадры фейковой биржи записываются через настоящий WebSocket-клиент,
+ *     затем запись воспроизводится дважды без пауз (последовательности тиков должны совпасть) и один раз в 10 раз быстрее.</li>
+ * </ul>
+ */
+public class ReplayHarness {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            double speed = args.length > 1 ? Double.parseDouble(args[1]) : ReplaySource.MAX_SPEED;
+            PriceMonitor priceMonitor = newOfflinePriceMonitor();
+            System.out.println(new ReplaySource(Path.of(args[0]), priceMonitor::onPriceUpdate).replay(speed));
+        } else {
+            selfCheck();
+        }
+    }
+
+    // PriceMonitor без сети: подписки WebSocket и REST-зависимости не нужны для разбора и раздачи тиков.
+    // Перенос SL трейлингом — в потоке воспроизведения, иначе решения зависели бы от пула переносов
+    private static PriceMonitor newOfflinePriceMonitor() {
+        TrailingManager trailingManager = new TrailingManager((deal, newStop) -> OperationResult.success(), Runnable::run);
+        return new PriceMonitor(null, null, new StopLossManager(), null, null, trailingManager);
+    }
+
+    private static void selfCheck() throws Exception {
+        Path directory = Files.createTempDirectory("market-data");
+        MockExchangeConfig config = new MockExchangeConfig();
+        try (MockBybitExchange exchange = new MockBybitExchange(config)) {
+            exchange.start();
+            exchange.setPrice("BTCUSDT", 67_000);
+            exchange.setPrice("ETHUSDT", 3_500);
+
+            try (MarketDataRecorder recorder = new MarketDataRecorder(directory, TimeUnit.SECONDS.toMillis(1), 10_000)) {
+                BybitWebSocketClient ws = new BybitWebSocketClient(update -> { }, exchange.getWebSocketUri());
+                ws.setFrameListener(recorder::record);
+                ws.connect();
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (exchange.getWebSocketServer().getSubscriberCount() == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                ws.subscribeToTicker(new Symbol("BTCUSDT"));
+                ws.subscribeToTicker(new Symbol("ETHUSDT"));
+                Thread.sleep(200);
+
+                exchange.play(PricePath.randomWalk("BTCUSDT", 2, 67_000, 0.05, 1_000, 42)
+                        .then(PricePath.randomWalk("ETHUSDT", 2, 3_500, 0.05, 500, 43))).get(30, TimeUnit.SECONDS);
+                Thread.sleep(200);
+                ws.disconnect();
+                System.out.println(recorder.getStats());
+            }
+        }
+        try (var files = Files.list(directory)) {
+            System.out.println("сегментов: " + files.count());
+        }
+
+        long first = checksum(directory, ReplaySource.MAX_SPEED);
+        long second = checksum(directory, ReplaySource.MAX_SPEED);
+        long paced = checksum(directory, 10);
+        System.out.println("контрольные суммы: " + first + " / " + second + " / " + paced
+                + (first == second && second == paced ? " — совпадают" : " — РАЗЛИЧАЮТСЯ"));
+    }
+
+    private static long checksum(Path directory, double speed) throws Exception {
+        long[] hash = {17};
+        PriceMonitor priceMonitor = newOfflinePriceMonitor();
+        ReplaySource source = new ReplaySource(directory, (PriceUpdate update) -> {
+            hash[0] = hash[0] * 31 + update.getSymbol().hashCode();
+            hash[0] = hash[0] * 31 + Double.hashCode(update.getPrice());
+            priceMonitor.onPriceUpdate(update);
+        });
+        System.out.println("x" + speed + ": " + source.replay(speed));
+        return hash[0];
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.monitor.replay;
+
+import lombok.Getter;
+import org.example.bybit.client.BybitWebSocketClient;
+import org.example.monitor.dto.PriceUpdate;
+import org.example.util.LoggerUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Воспроизведение записи {@link MarketDataRecorder}: кадры разбираются тем же
+ * {@link BybitWebSocketClient#handleMessage(String)}, что и в работе, и попадают в тот же
+ * {@code Consumer<PriceUpdate>} (обычно {@code PriceMonitor::onPriceUpdate}).
+ * <p>
+ * Все кадры обрабатываются последовательно в вызывающем потоке, поэтому при одной и той же записи
+ * порядок тиков и решения стратегий совпадают при любой скорости. Скорость влияет только на паузы
+ * между кадрами; {@link #getClock()} показывает время записи текущего кадра.
+ * <p>
+ * Трейлинг переносит SL в отдельном пуле, и при нем решения зависят от того, успел ли перенос до следующего
+ * тика. Для детерминированного воспроизведения {@code TrailingManager} создается с синхронным исполнителем
+ * ({@code Runnable::run}), как в {@link ReplayHarness}.
+ */
+public class ReplaySource {
+
+    /**
+     * Скорость без пауз между кадрами.
+     */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    private final Path directory;
+    private final Consumer<PriceUpdate> sink;
+    @Getter
+    private final VirtualClock clock = new VirtualClock(0);
+
+    public ReplaySource(Path directory, Consumer<PriceUpdate> sink) {
+        this.directory = directory;
+        this.sink = sink;
+    }
+
+    /**
+     * @param speed 1 — как в записи, N — в N раз быстрее, {@link #MAX_SPEED} (или ≤ 0) — без пауз
+     */
+    public ReplayStats replay(double speed) throws IOException {
+        boolean paced = speed > 0 && !Double.isInfinite(speed);
+        long[] updates = new long[1];
+        BybitWebSocketClient decoder = new BybitWebSocketClient(update -> {
+            updates[0]++;
+            sink.accept(update);
+        });
+
+        long frames = 0;
+        long firstTimestamp = 0;
+        long lastTimestamp = 0;
+        long wallStart = System.nanoTime();
+        try (MarketDataReader reader = new MarketDataReader(directory)) {
+            while (reader.hasNext()) {
+                MarketFrame frame = reader.next();
+                if (frames == 0) {
+                    firstTimestamp = frame.timestampMillis();
+                    clock.advanceTo(firstTimestamp);
+                }
+                if (paced) {
+                    long dueNanos = wallStart + (long) (TimeUnit.MILLISECONDS.toNanos(frame.timestampMillis() - firstTimestamp) / speed);
+                    waitUntil(dueNanos);
+                }
+                clock.advanceTo(frame.timestampMillis());
+                lastTimestamp = Math.max(lastTimestamp, frame.timestampMillis());
+                decoder.handleMessage(frame.payload());
+                frames++;
+            }
+        }
+        ReplayStats stats = new ReplayStats(frames, updates[0], lastTimestamp - firstTimestamp, System.nanoTime() - wallStart);
+        LoggerUtils.info("📼 " + stats);
+        return stats;
+    }
+
+    private static void waitUntil(long dueNanos) {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
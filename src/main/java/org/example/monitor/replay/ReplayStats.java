@@ -0,0 +1,29 @@
+package org.example.monitor.replay;
+
+/**
+ * Итог воспроизведения.
+ *
+ * @param frames        прочитано кадров
+ * @param priceUpdates  передано PriceUpdate в получатель
+ * @param virtualMillis длительность записи между первым и последним кадром
+ * @param wallNanos     фактическое время воспроизведения
+ */
+public record ReplayStats(long frames, long priceUpdates, long virtualMillis, long wallNanos) {
+
+    public double updatesPerSecond() {
+        return wallNanos == 0 ? 0 : priceUpdates * 1_000_000_000.0 / wallNanos;
+    }
+
+    /**
+     * Во сколько раз воспроизведение быстрее реального времени записи.
+     */
+    public double speedup() {
+        return wallNanos == 0 ? 0 : virtualMillis * 1_000_000.0 / wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Воспроизведение: кадров %d, обновлений цены %d, запись %.1f с, выполнено за %.3f с (%.0f обновлений/с, x%.1f)",
+                frames, priceUpdates, virtualMillis / 1000.0, wallNanos / 1e9, updatesPerSecond(), speedup());
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.monitor.replay;
+
+/**
+ * Часы воспроизведения: показывают время записи текущего кадра, а не настенное.
+ * Время только растет — кадры с меньшей меткой (перевод часов на машине записи) его не откатывают.
+ */
+public class VirtualClock {
+
+    private volatile long nowMillis;
+
+    public VirtualClock(long startMillis) {
+        this.nowMillis = startMillis;
+    }
+
+    public long currentTimeMillis() {
+        return nowMillis;
+    }
+
+    void advanceTo(long millis) {
+        if (millis > nowMillis) {
+            nowMillis = millis;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.monitor.trailing;
+
+import org.example.bybit.BybitManager;
+import org.example.bybit.dto.BybitOrderResponse;
+import org.example.deal.Deal;
+import org.example.deal.utils.OrderManager;
+import org.example.model.Price;
+import org.example.result.OperationResult;
+import org.example.strategy.params.StopLossManager;
+
+/**
+ * Перенос SL на бирже. Если у сделки есть SL-ордер, его триггер меняется на месте (/v5/order/amend) —
+ * один запрос, позиция все время под защитой. Иначе выставляется новый стоп.
+ */
+public class ExchangeStopMover implements TrailingManager.StopMover {
+
+    private final BybitManager bybitManager;
+    private final StopLossManager stopLossManager;
+
+    public ExchangeStopMover(BybitManager bybitManager, StopLossManager stopLossManager) {
+        this.bybitManager = bybitManager;
+        this.stopLossManager = stopLossManager;
+    }
+
+    @Override
+    public OperationResult move(Deal deal, double newStop) {
+        Double previousStop = deal.getStopLoss();
+        String previousOrderId = findStopOrderId(deal);
+        if (previousOrderId != null) {
+            // StopLossManager сам откатит SL сделки, если биржа не примет изменение
+            OperationResult amended = stopLossManager.moveStopLossConfirmed(deal, newStop).join();
+            return amended.isSuccess()
+                    ? OperationResult.success("SL " + deal.getSymbol() + " перенесен на " + deal.getStopLoss())
+                    : amended;
+        }
+
+        if (!stopLossManager.moveStopLoss(deal, newStop)) {
+            return OperationResult.failure("SL " + newStop + " не лучше текущего " + previousStop);
+        }
+
+        BybitOrderResponse response = bybitManager.getBybitOrderService().setStopLoss(deal);
+        if (!response.isSuccess() || response.getOrderResult() == null) {
+            deal.setStopLoss(previousStop);
+            return OperationResult.failure("❌ Не удалось перенести SL " + deal.getSymbol() + ": " + response.getRetMsg());
+        }
+
+        deal.addOrderId(new OrderManager(response.getOrderResult().getOrderId(), OrderManager.OrderType.SL,
+                Price.of(deal.getStopLoss(), deal.getPriceScale())));
+        return OperationResult.success("SL " + deal.getSymbol() + " перенесен на " + deal.getStopLoss());
+    }
+
+    private static String findStopOrderId(Deal deal) {
+        for (OrderManager order : deal.getOrdersIdList()) {
+            if (order.getOrderType() == OrderManager.OrderType.SL) {
+                return order.getOrderId();
+            }
+        }
+        return null;
+    }
+}
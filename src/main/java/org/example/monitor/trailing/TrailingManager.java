@@ -1,223 +1,308 @@
-//package org.example.monitor.trailing;
-//
-//import org.example.bybit.dto.TickerResponse;
-//import org.example.bybit.service.BybitOrderService;
-//import org.example.deal.Deal;
-//import org.example.model.Direction;
-//import org.example.model.EntryType;
-//
-//import java.util.concurrent.ConcurrentHashMap;
-//import java.util.concurrent.Executors;
-//import java.util.concurrent.ScheduledExecutorService;
-//import java.util.concurrent.TimeUnit;
-//
-///**
-// * Управляет всеми видами "скользящих" (trailing) ордеров:
-// * - Trailing Entry (подтягивание лимитного ордера на вход)
-// * - Trailing Partial Take Profit (фиксация части прибыли при развороте)
-// */
-//public class TrailingManager {
-//
-//    private final BybitOrderService orderService;
-//    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-//
-//    // Храним активные "трейлинг-сессии"
-//    private final ConcurrentHashMap<String, TrailingSession> sessions = new ConcurrentHashMap<>();
-//
-//    public TrailingManager(BybitOrderService orderService) {
-//        this.orderService = orderService;
-//    }
-//
-//    /**
-//     * Запускает трейлинг для лучшей цены входа.
-//     * Лимитный ордер на вход будет подтягиваться за ценой.
-//     */
-//    public void startTrailingEntry(Deal deal, double trailDistance, boolean byPercent) {
-//        String dealId = deal.getId();
-//        sessions.compute(dealId, (id, oldSession) -> {
-//            if (oldSession != null) {
-//                oldSession.cancel();
-//            }
-//            TrailingSession session = new TrailingEntrySession(deal, trailDistance, byPercent, orderService);
-//            scheduler.scheduleAtFixedRate(session::update, 0, 5, TimeUnit.SECONDS);
-//            return session;
-//        });
-//    }
-//
-//    /**
-//     * Запускает трейлинг для частичной фиксации прибыли.
-//     * При движении в прибыль — поднимает TP.
-//     * При развороте — закрывает часть позиции.
-//     */
-//    public void startTrailingPartialTp(Deal deal, double trailDistance, boolean byPercent, double exitPercentage) {
-//        String dealId = deal.getId();
-//        sessions.compute(dealId, (id, oldSession) -> {
-//            if (oldSession != null) {
-//                oldSession.cancel();
-//            }
-//            TrailingSession session = new TrailingPartialTpSession(
-//                    deal, trailDistance, byPercent, exitPercentage, orderService);
-//            scheduler.scheduleAtFixedRate(session::update, 0, 5, TimeUnit.SECONDS);
-//            return session;
-//        });
-//    }
-//
-//    /**
-//     * Останавливает трейлинг для сделки.
-//     */
-//    public void stop(String dealId) {
-//        sessions.computeIfPresent(dealId, (id, session) -> {
-//            session.cancel();
-//            return null;
-//        });
-//    }
-//
-//    /**
-//     * Останавливает все активные сессии (например, при завершении работы).
-//     */
-//    public void shutdown() {
-//        sessions.values().forEach(TrailingSession::cancel);
-//        sessions.clear();
-//        scheduler.shutdown();
-//    }
-//
-//    // === Внутренние классы ===
-//
-//    /**
-//     * Абстрактная сессия трейлинга.
-//     */
-//    private abstract static class TrailingSession {
-//        protected final Deal deal;
-//        protected final double trailDistance;
-//        protected final boolean byPercent;
-//        protected final BybitOrderService orderService;
-//        protected volatile boolean active = true;
-//
-//        public TrailingSession(Deal deal, double trailDistance, boolean byPercent, BybitOrderService orderService) {
-//            this.deal = deal;
-//            this.trailDistance = trailDistance;
-//            this.byPercent = byPercent;
-//            this.orderService = orderService;
-//        }
-//
-//        public abstract void update();
-//
-//        public void cancel() {
-//            active = false;
-//        }
-//    }
-//
-//    /**
-//     * Сессия: трейлинг для входа (подтягивает лимитный ордер на вход).
-//     */
-//    private static class TrailingEntrySession extends TrailingSession {
-//        private double highestPrice = Double.MIN_VALUE;
-//        private double lowestPrice = Double.MAX_VALUE;
-//
-//        public TrailingEntrySession(Deal deal, double trailDistance, boolean byPercent, BybitOrderService orderService) {
-//            super(deal, trailDistance, byPercent, orderService);
-//        }
-//
-//        @Override
-//        public void update() {
-//            if (!active || deal.getEntryType() != EntryType.LIMIT || deal.isActive()) {
-//                return;
-//            }
-//
-//            TickerResponse price = getCurrentPrice();
-//            if (price == null) return;
-//
-//            double currentPrice = extractPrice(price);
-//            if (deal.getDirection() == Direction.LONG) {
-//                highestPrice = Math.max(highestPrice, currentPrice);
-//                double newPrice = byPercent
-//                        ? highestPrice * (1 - trailDistance / 100.0)
-//                        : highestPrice - trailDistance;
-//                if (newPrice > deal.getEntryPrice()) {
-//                    deal.setEntryPrice(newPrice);
-//                    orderService.updateEntryOrder(deal); // обновляет ордер на бирже
-//                }
-//            } else { // SHORT
-//                lowestPrice = Math.min(lowestPrice, currentPrice);
-//                double newPrice = byPercent
-//                        ? lowestPrice * (1 + trailDistance / 100.0)
-//                        : lowestPrice + trailDistance;
-//                if (newPrice < deal.getEntryPrice()) {
-//                    deal.setEntryPrice(newPrice);
-//                    orderService.updateEntryOrder(deal);
-//                }
-//            }
-//        }
-//    }
-//
-//    /**
-//     * Сессия: трейлинг для частичного выхода.
-//     */
-//    private static class TrailingPartialTpSession extends TrailingSession {
-//        private final double exitPercentage;
-//        private double highestPrice = Double.MIN_VALUE;
-//        private double lowestPrice = Double.MAX_VALUE;
-//        private String activeOrderId = null;
-//
-//        public TrailingPartialTpSession(Deal deal, double trailDistance, boolean byPercent,
-//                                        double exitPercentage, BybitOrderService orderService) {
-//            super(deal, trailDistance, byPercent, orderService);
-//            this.exitPercentage = exitPercentage;
-//
-//        }
-//
-//        @Override
-//        public void update() {
-//            if (!active || !deal.isActive()) return;
-//
-//            TickerResponse price = getCurrentPrice();
-//            if (price == null) return;
-//
-//            double currentPrice = extractPrice(price);
-//
-//            if (deal.getDirection() == Direction.LONG) {
-//                highestPrice = Math.max(highestPrice, currentPrice);
-//                double triggerPrice = byPercent
-//                        ? highestPrice * (1 - trailDistance / 100.0)
-//                        : highestPrice - trailDistance;
-//
-//                if (currentPrice <= triggerPrice) {
-//                    // Цена упала до уровня → фиксируем часть
-//                    orderService.placePartialExit(deal, exitPercentage, "Trailing TP");
-//                    stop(deal.getId()); // останавливаем после срабатывания
-//                } else if (activeOrderId == null || triggerPrice > getTriggerPriceOf(activeOrderId)) {
-//                    // Обновляем условный ордер
-//                    orderService.updateTrailingTpOrder(deal, triggerPrice, exitPercentage);
-//                }
-//            } else { // SHORT
-//                lowestPrice = Math.min(lowestPrice, currentPrice);
-//                double triggerPrice = byPercent
-//                        ? lowestPrice * (1 + trailDistance / 100.0)
-//                        : lowestPrice + trailDistance;
-//
-//                if (currentPrice >= triggerPrice) {
-//                    orderService.placePartialExit(deal, exitPercentage, "Trailing TP");
-//                    stop(deal.getId());
-//                } else if (activeOrderId == null || triggerPrice < getTriggerPriceOf(activeOrderId)) {
-//                    orderService.updateTrailingTpOrder(deal, triggerPrice, exitPercentage);
-//                }
-//            }
-//        }
-//    }
-//
-//    // Вспомогательные методы (реализуйте под вашу систему)
-//    private TickerResponse getCurrentPrice() {
-//        // Например: bybitMarketService.getTicker(deal.getSymbol())
-//        return null;
-//    }
-//
-//    private double extractPrice(TickerResponse ticker) {
-//        // Извлечение lastPrice
-//        return 0.0;
-//    }
-//
-//    private double getTriggerPriceOf(String orderId) {
-//        // Получить текущий triggerPrice ордера с биржи
-//        return 0.0;
-//    }
-//}
\ No newline at end of file
+package org.example.monitor.trailing;
+
+import org.example.deal.Deal;
+import org.example.model.Direction;
+import org.example.model.Symbol;
+import org.example.result.OperationResult;
+import org.example.strategy.config.StrategyConfig;
+import org.example.util.FixedPointUtils;
+import org.example.util.LoggerUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Трейлинг-стоп по потоку тиков {@link org.example.monitor.PriceMonitor}.
+ * Опросов и отдельных потоков на сессию нет: каждый тик обновляет экстремум сделок по символу,
+ * а SL на бирже переносится, только когда новый уровень отличается от текущего хотя бы на один tickSize.
+ * Состояние сессий хранится в параллельных массивах (индекс = слот), чтобы тысячи сессий
+ * не создавали объектов и мусора на каждом тике.
+ * Перенос SL (REST) выполняется в отдельном потоке; пока он идет, новые уровни только запоминаются —
+ * после завершения отправляется последний. Для воспроизведения записи рынка перенос можно выполнять
+ * прямо в потоке тика ({@code new TrailingManager(mover, Runnable::run)}) — тогда решения не зависят от планировщика.
+ */
+public class TrailingManager {
+
+    /**
+     * Перенос SL сделки на бирже.
+     */
+    @FunctionalInterface
+    public interface StopMover {
+        OperationResult move(Deal deal, double newStop);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final TrailingSession.State[] STATES = TrailingSession.State.values();
+
+    private final StopMover stopMover;
+    private final Executor moveExecutor;
+
+    // --- состояние по слотам ---
+    private Deal[] deals = new Deal[INITIAL_CAPACITY];
+    private byte[] state = new byte[INITIAL_CAPACITY];
+    private boolean[] isLong = new boolean[INITIAL_CAPACITY];
+    private double[] entry = new double[INITIAL_CAPACITY];
+    private double[] watermark = new double[INITIAL_CAPACITY];   // максимум для LONG, минимум для SHORT
+    private double[] stop = new double[INITIAL_CAPACITY];        // подтвержденный SL
+    private double[] pendingStop = new double[INITIAL_CAPACITY]; // последний желаемый SL, NaN — нет
+    private boolean[] moving = new boolean[INITIAL_CAPACITY];
+    private double[] tickSize = new double[INITIAL_CAPACITY];
+    private int[] priceScale = new int[INITIAL_CAPACITY];
+    private double[] activationPct = new double[INITIAL_CAPACITY];
+    private double[] loosePct = new double[INITIAL_CAPACITY];
+    private double[] tightPct = new double[INITIAL_CAPACITY];
+    private double[] tightenPct = new double[INITIAL_CAPACITY];
+
+    private int size; // занятых слотов + дырок, далее только свободные
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private final Map<String, Integer> slotByDealId = new HashMap<>();
+    private final Map<Symbol, int[]> slotsBySymbol = new HashMap<>();
+
+    public TrailingManager(StopMover stopMover) {
+        this(stopMover, Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "trailing-sl-mover");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param moveExecutor где выполняется перенос SL; {@code Runnable::run} — синхронно в потоке тика
+     */
+    public TrailingManager(StopMover stopMover, Executor moveExecutor) {
+        this.stopMover = stopMover;
+        this.moveExecutor = moveExecutor;
+    }
+
+    /**
+     * Запускает трейлинг с параметрами из конфига стратегии сделки.
+     *
+     * @param tickSize шаг цены инструмента
+     */
+    public synchronized OperationResult start(Deal deal, double tickSize) {
+        if (deal.getStopLoss() == null || deal.getEntryPrice() <= 0) {
+            return OperationResult.failure("Трейлинг не запущен: у сделки " + deal.getId() + " нет SL или цены входа");
+        }
+        if (tickSize <= 0) {
+            return OperationResult.failure("Трейлинг не запущен: некорректный tickSize " + tickSize);
+        }
+        stop(deal.getId());
+        StrategyConfig config = deal.getStrategy().getConfig();
+        if (config == null) {
+            config = new StrategyConfig(); // у стратегии нет конфига — параметры трейлинга по умолчанию
+        }
+
+        int slot = allocateSlot();
+        deals[slot] = deal;
+        state[slot] = (byte) TrailingSession.State.WAITING_FOR_PROFIT.ordinal();
+        isLong[slot] = deal.getDirection() == Direction.LONG;
+        entry[slot] = deal.getEntryPrice();
+        watermark[slot] = deal.getEntryPrice();
+        stop[slot] = deal.getStopLoss();
+        pendingStop[slot] = Double.NaN;
+        moving[slot] = false;
+        this.tickSize[slot] = tickSize;
+        priceScale[slot] = FixedPointUtils.scaleOf(tickSize);
+        activationPct[slot] = config.getTrailingActivationPercent();
+        loosePct[slot] = config.getTrailingLoosePercent();
+        tightPct[slot] = config.getTrailingTightPercent();
+        tightenPct[slot] = config.getTrailingTightenPercent();
+
+        slotByDealId.put(deal.getId(), slot);
+        addSymbolSlot(deal.getSymbol(), slot);
+        LoggerUtils.info("📈 Трейлинг запущен для " + deal.getSymbol() + " (" + deal.getId() + ")");
+        return OperationResult.success("Трейлинг запущен для " + deal.getSymbol());
+    }
+
+    public synchronized void stop(String dealId) {
+        Integer slot = slotByDealId.remove(dealId);
+        if (slot == null) {
+            return;
+        }
+        removeSymbolSlot(deals[slot].getSymbol(), slot);
+        deals[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    public synchronized boolean isTrailing(String dealId) {
+        return slotByDealId.containsKey(dealId);
+    }
+
+    public synchronized List<TrailingSession> getSessions() {
+        List<TrailingSession> result = new ArrayList<>(slotByDealId.size());
+        for (int slot : slotByDealId.values()) {
+            result.add(new TrailingSession(deals[slot].getId(), deals[slot].getSymbol(),
+                    STATES[state[slot]], watermark[slot], stop[slot]));
+        }
+        return result;
+    }
+
+    /**
+     * Обработка тика: вызывается из потока WebSocket, без сетевых вызовов.
+     */
+    public synchronized void onTick(Symbol symbol, double price) {
+        int[] slots = slotsBySymbol.get(symbol);
+        if (slots == null) {
+            return;
+        }
+        for (int slot : slots) {
+            if (deals[slot].isActive()) {
+                updateSlot(slot, price);
+            }
+        }
+    }
+
+    public void shutdown() {
+        if (moveExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    // Вызывается под блокировкой this
+    private void updateSlot(int slot, double price) {
+        boolean lng = isLong[slot];
+        double pricePct = (lng ? price - entry[slot] : entry[slot] - price) / entry[slot] * 100.0;
+
+        // Цена дошла до SL — его исполнит биржа, сессия больше не нужна
+        if (lng ? price <= stop[slot] : price >= stop[slot]) {
+            state[slot] = (byte) TrailingSession.State.EXITED.ordinal();
+            LoggerUtils.info("📉 Трейлинг " + deals[slot].getSymbol() + ": цена " + price + " дошла до SL " + stop[slot]);
+            stop(deals[slot].getId());
+            return;
+        }
+
+        watermark[slot] = lng ? Math.max(watermark[slot], price) : Math.min(watermark[slot], price);
+
+        TrailingSession.State current = STATES[state[slot]];
+        switch (current) {
+            case WAITING_FOR_PROFIT -> {
+                if (pricePct < activationPct[slot]) {
+                    return;
+                }
+                current = TrailingSession.State.TRAILING_LOOSE;
+                LoggerUtils.info("📈 Трейлинг " + deals[slot].getSymbol() + ": активирован (TRAILING_LOOSE)");
+            }
+            case TRAILING_LOOSE -> {
+                if (pricePct >= tightenPct[slot]) {
+                    current = TrailingSession.State.TRAILING_TIGHT;
+                    LoggerUtils.info("📈 Трейлинг " + deals[slot].getSymbol() + ": отступ сужен (TRAILING_TIGHT)");
+                }
+            }
+            default -> {
+            }
+        }
+        state[slot] = (byte) current.ordinal();
+
+        double distancePct = current == TrailingSession.State.TRAILING_TIGHT ? tightPct[slot] : loosePct[slot];
+        double tick = tickSize[slot];
+        double ticks = lng
+                ? Math.floor(watermark[slot] * (1 - distancePct / 100.0) / tick)
+                : Math.ceil(watermark[slot] * (1 + distancePct / 100.0) / tick);
+        // Округление до scale инструмента убирает хвосты double (101.80000000000001)
+        int scale = priceScale[slot];
+        double target = FixedPointUtils.toDouble(FixedPointUtils.toMantissa(ticks * tick, scale), scale);
+
+        // Переносим только в сторону прибыли и минимум на один тик
+        double reference = Double.isNaN(pendingStop[slot]) ? stop[slot] : pendingStop[slot];
+        double improvement = lng ? target - reference : reference - target;
+        if (improvement < tick - tick * 1e-6) {
+            return;
+        }
+        pendingStop[slot] = target;
+        if (!moving[slot]) {
+            moving[slot] = true;
+            Deal deal = deals[slot];
+            moveExecutor.execute(() -> moveLoop(deal));
+        }
+    }
+
+    // Отправляет последний желаемый SL, пока за время переноса не перестанут появляться новые
+    private void moveLoop(Deal deal) {
+        while (true) {
+            double target;
+            synchronized (this) {
+                Integer slot = slotByDealId.get(deal.getId());
+                if (slot == null || deals[slot] != deal || Double.isNaN(pendingStop[slot])) {
+                    if (slot != null && deals[slot] == deal) {
+                        moving[slot] = false;
+                    }
+                    return;
+                }
+                target = pendingStop[slot];
+                pendingStop[slot] = Double.NaN;
+            }
+
+            OperationResult result;
+            try {
+                result = stopMover.move(deal, target);
+            } catch (RuntimeException e) {
+                result = OperationResult.failure("Ошибка переноса SL", e);
+            }
+
+            synchronized (this) {
+                Integer slot = slotByDealId.get(deal.getId());
+                if (slot != null && deals[slot] == deal && result.isSuccess()) {
+                    stop[slot] = target;
+                }
+            }
+            if (result.isSuccess()) {
+                LoggerUtils.info("📈 Трейлинг " + deal.getSymbol() + ": SL перенесен на " + target);
+            } else {
+                result.logErrorIfFailed();
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.remove(freeSlots.size() - 1);
+        }
+        if (size == deals.length) {
+            grow(deals.length * 2);
+        }
+        return size++;
+    }
+
+    private void grow(int capacity) {
+        deals = Arrays.copyOf(deals, capacity);
+        state = Arrays.copyOf(state, capacity);
+        isLong = Arrays.copyOf(isLong, capacity);
+        entry = Arrays.copyOf(entry, capacity);
+        watermark = Arrays.copyOf(watermark, capacity);
+        stop = Arrays.copyOf(stop, capacity);
+        pendingStop = Arrays.copyOf(pendingStop, capacity);
+        moving = Arrays.copyOf(moving, capacity);
+        tickSize = Arrays.copyOf(tickSize, capacity);
+        priceScale = Arrays.copyOf(priceScale, capacity);
+        activationPct = Arrays.copyOf(activationPct, capacity);
+        loosePct = Arrays.copyOf(loosePct, capacity);
+        tightPct = Arrays.copyOf(tightPct, capacity);
+        tightenPct = Arrays.copyOf(tightenPct, capacity);
+    }
+
+    private void addSymbolSlot(Symbol symbol, int slot) {
+        int[] current = slotsBySymbol.get(symbol);
+        int[] updated = current == null ? new int[1] : Arrays.copyOf(current, current.length + 1);
+        updated[updated.length - 1] = slot;
+        slotsBySymbol.put(symbol, updated);
+    }
+
+    private void removeSymbolSlot(Symbol symbol, int slot) {
+        int[] current = slotsBySymbol.get(symbol);
+        if (current == null) {
+            return;
+        }
+        int[] updated = Arrays.stream(current).filter(s -> s != slot).toArray();
+        if (updated.length == 0) {
+            slotsBySymbol.remove(symbol);
+        } else {
+            slotsBySymbol.put(symbol, updated);
+        }
+    }
+}
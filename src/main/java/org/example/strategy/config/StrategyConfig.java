@@ -22,6 +22,16 @@ public class StrategyConfig {
     private double warningDistancePercent;
     private Map<Integer, int[]> tpExitRules;
     private Map<Double, Integer> pnlTpExitRules;
+    // трейлинг-стоп (см. TrailingManager)
+    private boolean trailingEnabled = ValuesUtil.isTrailingEnabled();
+    private double trailingActivationPercent = ValuesUtil.getTrailingActivationPercent();
+    private double trailingLoosePercent = ValuesUtil.getTrailingLoosePercent();
+    private double trailingTightPercent = ValuesUtil.getTrailingTightPercent();
+    private double trailingTightenPercent = ValuesUtil.getTrailingTightenPercent();
+    // лимиты портфеля, % от equity (см. PortfolioRiskBook)
+    private double maxPortfolioRiskPercent = ValuesUtil.getMaxPortfolioRiskPercent();
+    private double maxBucketRiskPercent = ValuesUtil.getMaxBucketRiskPercent();
+    private double maxPortfolioMarginPercent = ValuesUtil.getMaxPortfolioMarginPercent();
 
 
     public StrategyConfig() {
@@ -79,6 +89,9 @@ public class StrategyConfig {
                 ", warningDistancePercent=" + warningDistancePercent +
                 ", exitRules=" + tpExitRules.toString() +
                 ", pnlExitRules=" + pnlTpExitRules +
+                ", trailing=" + (trailingEnabled ? trailingActivationPercent + "/" + trailingLoosePercent + "/"
+                + trailingTightPercent + "/" + trailingTightenPercent : "off") +
+                ", portfolio=" + maxPortfolioRiskPercent + "/" + maxBucketRiskPercent + "/" + maxPortfolioMarginPercent +
                 '}';
     }
 }
\ No newline at end of file
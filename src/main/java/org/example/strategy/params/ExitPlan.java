@@ -5,6 +5,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.example.model.Direction;
+import org.example.model.Price;
+import org.example.util.FixedPointUtils;
 import org.example.util.LoggerUtils;
 import org.example.util.MathUtils;
 
@@ -44,7 +46,7 @@ public class ExitPlan {
 
         List<ExitStep> steps = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            steps.add(new ExitStep(takeProfits.get(i), distribution[i]));
+            steps.add(new ExitStep(Price.of(takeProfits.get(i)), distribution[i]));
         }
 
         return new ExitPlan(steps, ExitType.TP);
@@ -55,12 +57,13 @@ public class ExitPlan {
      * PnL-уровни — это проценты прибыли, при достижении которых нужно выйти.
      */
     public static ExitPlan fromPnl(Map<Double, Integer> pnlRules, double entryPrice, Direction direction)  {
-        LoggerUtils.info("📊 ExitPlan.fromPnl(): Начало создания плана по PnL");
-        LoggerUtils.info("  ➤ Цена входа: " + entryPrice +
+        LoggerUtils.debug("📊 ExitPlan.fromPnl(): Начало создания плана по PnL");
+        LoggerUtils.debug("  ➤ Цена входа: " + entryPrice +
                 "\n➤ Направление: \" + direction)" +
                 "\n➤ Количество PnL-уровней: " + pnlRules.size());
 
         List<ExitStep> steps = new ArrayList<>();
+        int priceScale = FixedPointUtils.scaleOf(entryPrice);
 
         for (Map.Entry<Double, Integer> entry : pnlRules.entrySet()) {
             double pnlPercent = entry.getKey();
@@ -69,10 +72,10 @@ public class ExitPlan {
 
             if (direction == Direction.LONG) {
                 targetPrice =MathUtils.formatPrice(entryPrice, entryPrice * (1 + pnlPercent / 100.0));                        //возможное место ошибок
-                LoggerUtils.info("  ➤ " + pnlPercent + "% → цена = " + entryPrice + " * (1 + " + (pnlPercent / 100.0) + ") = " + MathUtils.formatPrice(entryPrice, targetPrice));
+                LoggerUtils.debug("  ➤ " + pnlPercent + "% → цена = " + entryPrice + " * (1 + " + (pnlPercent / 100.0) + ") = " + MathUtils.formatPrice(entryPrice, targetPrice));
             } else {
                 targetPrice =MathUtils.formatPrice(entryPrice, entryPrice * (1 - pnlPercent / 100.0));                               //возможное место ошибок
-                LoggerUtils.info("  ➤ " + pnlPercent + "% → цена = " + entryPrice + " * (1 - " + (pnlPercent / 100.0) + ") = " + MathUtils.formatPrice(entryPrice, targetPrice));
+                LoggerUtils.debug("  ➤ " + pnlPercent + "% → цена = " + entryPrice + " * (1 - " + (pnlPercent / 100.0) + ") = " + MathUtils.formatPrice(entryPrice, targetPrice));
             }
 
             // Защита от некорректной цены
@@ -81,7 +84,7 @@ public class ExitPlan {
                 continue;
             }
 
-            steps.add(new ExitStep(targetPrice, percentage));
+            steps.add(new ExitStep(Price.of(targetPrice, priceScale), percentage));
         }
 
         if (steps.isEmpty()) {
@@ -89,7 +92,7 @@ public class ExitPlan {
             return null;
         }
 
-        LoggerUtils.info("✅ ExitPlan.fromPnl(): План создан с " + steps.size() + " шагами");
+        LoggerUtils.debug("✅ ExitPlan.fromPnl(): План создан с " + steps.size() + " шагами");
         return new ExitPlan(steps, ExitType.PNL);
     }
     @Getter
@@ -98,7 +101,7 @@ public class ExitPlan {
     @AllArgsConstructor
 
     public static class ExitStep {
-        private double takeProfit;
+        private Price takeProfit;
         private int percentage;
 
         @Override
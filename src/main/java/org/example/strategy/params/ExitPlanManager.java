@@ -7,8 +7,9 @@ import org.example.deal.Deal;
 import org.example.deal.utils.DealCalculator;
 import org.example.deal.utils.OrderManager;
 import org.example.model.Direction;
+import org.example.model.Price;
+import org.example.model.Qty;
 import org.example.result.OperationResult;
-import org.example.util.MathUtils;
 
 public class ExitPlanManager {
 
@@ -60,15 +61,16 @@ public class ExitPlanManager {
     // --- Вспомогательные методы ---
 
     private OperationResult processTakeProfitStep(Deal deal, ExitPlan.ExitStep step) {
-        double tpPrice = step.getTakeProfit();
+        Price tpPrice = step.getTakeProfit().withScale(deal.getPriceScale());
         int percentage = step.getPercentage();
-        double qty = dealCalculator.calculateExitQty(deal, percentage);
+        double rawQty = dealCalculator.calculateExitQty(deal, percentage);
 
-        if (isQuantityTooSmall(qty)) {
+        if (isQuantityTooSmall(rawQty)) {
             return OperationResult.success(
-                    "❌ TP " + String.format("%.2f", tpPrice) + ": объём < minQty — пропущен"
+                    "❌ TP " + tpPrice + ": объём < minQty — пропущен"
             );
         }
+        Qty qty = Qty.of(rawQty, deal.getQtyScale());
 
         try {
             BybitOrderResponse orderResponse = bybitOrderService.placeOrder(
@@ -84,7 +86,7 @@ public class ExitPlanManager {
         } catch (Exception e) {
             String errorMsg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
             return OperationResult.success(
-                    "❌ Ошибка TP " + MathUtils.formatPrice(deal.getEntryPrice(), tpPrice) + ": " + errorMsg
+                    "❌ Ошибка TP " + tpPrice + ": " + errorMsg
             );
         }
     }
@@ -93,19 +95,18 @@ public class ExitPlanManager {
         return qty == 0.0;
     }
 
-    private OperationResult handleFailedOrderResponse(Deal deal, double tpPrice, BybitOrderResponse response) {
+    private OperationResult handleFailedOrderResponse(Deal deal, Price tpPrice, BybitOrderResponse response) {
         String retMsg = response.getRetMsg();
         if (retMsg == null) retMsg = "Неизвестная ошибка от Bybit";
 
         if (isTriggerPriceError(retMsg)) {
             return OperationResult.success(
-                    "⚠️ TP " + MathUtils.formatPrice(deal.getEntryPrice(), tpPrice) +
-                            ": цена прошла уровень — ордер не установлен"
+                    "⚠️ TP " + tpPrice + ": цена прошла уровень — ордер не установлен"
             );
         }
 
         return OperationResult.success(
-                "❌ TP " + MathUtils.formatPrice(deal.getEntryPrice(), tpPrice) + ": " + retMsg
+                "❌ TP " + tpPrice + ": " + retMsg
         );
     }
 
@@ -117,7 +118,7 @@ public class ExitPlanManager {
                 retMsg.contains("should be lower");
     }
 
-    private OperationResult handleSuccessfulOrderResponse(Deal deal, double tpPrice, int percentage, double qty,
+    private OperationResult handleSuccessfulOrderResponse(Deal deal, Price tpPrice, int percentage, Qty qty,
                                                           BybitOrderResponse orderResponse) {
         OperationResult addResult = deal.addOrderId(
                 new OrderManager(orderResponse.getOrderResult().getOrderId(), OrderManager.OrderType.TP, tpPrice)
@@ -125,22 +126,21 @@ public class ExitPlanManager {
 
         if (!addResult.isSuccess()) {
             return OperationResult.success(
-                    "⚠️ TP " + MathUtils.formatPrice(deal.getEntryPrice(), tpPrice) +
-                            ": ордер установлен на бирже, но не сохранён локально!"
+                    "⚠️ TP " + tpPrice + ": ордер установлен на бирже, но не сохранён локально!"
             );
         }
 
         double entryPrice = deal.getEntryPrice();
         double leverage = deal.getLeverageUsed();
+        double tp = tpPrice.toDouble();
         double basePnlPercent = (deal.getDirection() == Direction.LONG
-                ? (tpPrice - entryPrice)
-                : (entryPrice - tpPrice)) / entryPrice * 100;
+                ? (tp - entryPrice)
+                : (entryPrice - tp)) / entryPrice * 100;
         double leveragedPnl = basePnlPercent * leverage;
 
-        String message = "✅ TP " +
-                MathUtils.formatPrice(entryPrice, tpPrice) +
+        String message = "✅ TP " + tpPrice +
                 " (+" + String.format("%.1f", leveragedPnl) + "%)" +
-                " (" + percentage + "%, qty " + MathUtils.formatPrice(deal.getPositionSize(), qty) + ")";
+                " (" + percentage + "%, qty " + qty + ")";
 
         return OperationResult.success(message);
     }
@@ -1,6 +1,7 @@
 
 package org.example.strategy.params;
 
+import org.example.model.Price;
 import org.example.util.ValidationUtils;
 import org.example.util.ValuesUtil;
 import java.util.*;
@@ -18,7 +19,7 @@ public class PartialExitPlanner {
 
         List<ExitPlan.ExitStep> steps = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            steps.add(new ExitPlan.ExitStep(takeProfits.get(i), distribution[i]));
+            steps.add(new ExitPlan.ExitStep(Price.of(takeProfits.get(i)), distribution[i]));
         }
         return steps;
     }
@@ -1,27 +1,92 @@
 package org.example.strategy.params;
 
+import org.example.bybit.service.OrderAmender;
 import org.example.deal.Deal;
 import org.example.model.Direction;
+import org.example.model.Price;
+import org.example.result.OperationResult;
 import org.example.util.LoggerUtils;
-import org.example.util.MathUtils;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Универсальный менеджер Stop Loss.
  * Предоставляет методы для расчета и обновления SL,
  * но не содержит конкретной логики "когда и как" это делать.
  * Эта логика должна быть в стратегии.
+ * Если задан {@link OrderAmender}, перенос SL дублируется на бирже изменением существующего SL-ордера;
+ * без него SL меняется только в сделке.
  */
 public class StopLossManager {
 
+    private final OrderAmender orderAmender;
+
+    public StopLossManager() {
+        this(null);
+    }
+
+    public StopLossManager(OrderAmender orderAmender) {
+        this.orderAmender = orderAmender;
+    }
+
     /**
      * Перемещает SL сделки на новое значение.
+     * Изменение на бирже отправляется асинхронно; если биржа его отклонит, SL в сделке откатывается.
      * @param deal Сделка для обновления.
      * @param newSl Новое значение SL.
      * @return true, если SL был успешно обновлён, false если новое значение хуже текущего.
      */
 
     public boolean moveStopLoss(Deal deal, double newSl) {
-        newSl = MathUtils.formatPrice(newSl, deal.getStopLoss());
+        if (!moveLocally(deal, newSl)) {
+            return false;
+        }
+        syncWithExchange(deal).thenAccept(OperationResult::logErrorIfFailed);
+        return true;
+    }
+
+    /**
+     * То же, что {@link #moveStopLoss}, но результат изменения на бирже возвращается вызывающему.
+     * @return успех, если SL перенесен и биржа подтвердила изменение (или биржа не подключена).
+     */
+    public CompletableFuture<OperationResult> moveStopLossConfirmed(Deal deal, double newSl) {
+        Double oldSl = deal.getStopLoss();
+        if (!moveLocally(deal, newSl)) {
+            return CompletableFuture.completedFuture(
+                    OperationResult.failure("SL " + newSl + " не лучше текущего " + oldSl + " для сделки " + deal.getId()));
+        }
+        return syncWithExchange(deal);
+    }
+
+    private CompletableFuture<OperationResult> syncWithExchange(Deal deal) {
+        if (orderAmender == null) {
+            return CompletableFuture.completedFuture(OperationResult.success());
+        }
+        if (!OrderAmender.hasStopLossOrder(deal)) {
+            LoggerUtils.warn("У сделки " + deal.getId() + " нет SL-ордера на бирже — SL " + deal.getStopLoss() + " изменен только локально");
+            return CompletableFuture.completedFuture(OperationResult.success());
+        }
+        Double newSl = deal.getStopLoss();
+        return orderAmender.amendStopLoss(deal).thenApply(result -> {
+            // Откатываем, только если SL с тех пор никто не поменял. Откат — на SL, подтвержденный биржей,
+            // а не на значение до этого вызова: OrderAmender мог объединить несколько переносов в один запрос,
+            // и промежуточные значения на биржу не уходили
+            Double confirmedSl = OrderAmender.confirmedStopLoss(deal);
+            if (!result.isSuccess() && Objects.equals(deal.getStopLoss(), newSl) && confirmedSl != null) {
+                deal.setStopLoss(confirmedSl);
+                LoggerUtils.warn("SL сделки " + deal.getId() + " возвращен на " + confirmedSl + ": биржа не приняла " + newSl);
+            }
+            return result;
+        });
+    }
+
+    private boolean moveLocally(Deal deal, double newSl) {
+        // Округление до scale цены инструмента, если он известен (трейлинг присылает уровень, уже кратный tickSize)
+        int scale = deal.getInstrumentPriceScale();
+        if (scale >= 0) {
+            newSl = Price.of(newSl, scale).toDouble();
+        }
 
         // Проверяем, что новый SL лучше текущего
         boolean isBetter = false;
@@ -32,7 +97,7 @@ public class StopLossManager {
         }
 
         if (isBetter) {
-            double oldSl = deal.getStopLoss();
+            Double oldSl = deal.getStopLoss();
             deal.setStopLoss(newSl);
             LoggerUtils.debug("SL для сделки " + deal.getId() + " перемещён с " + oldSl + " на " + newSl);
             return true;
@@ -3,6 +3,8 @@ import org.example.strategy.strategies.strategies.superStrategy.AbstractStrategy
 import org.example.util.LoggerUtils;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 //Фабрика для создания экземпляров торговых стратегий.
@@ -10,14 +12,25 @@ public class StrategyFactory {
 
     private static final List<String> AVAILABLE_STRATEGIES = List.of("ai", "free" /*,"new"*/);      // добавить имя сюда
 
+    // Стратегии не хранят состояния сделок: один общий экземпляр на имя для всех сделок
+    private static final Map<String, AbstractStrategy> SHARED = new ConcurrentHashMap<>();
 
-    //Получает экземпляр стратегии по её имени.
+
+    //Получает общий экземпляр стратегии по её имени (конфиг у него не меняется, см. AbstractStrategy#setConfig).
     public static AbstractStrategy getStrategy(String name) throws IllegalArgumentException {
         if (name == null || name.isEmpty()) {
             throw new IllegalArgumentException("Имя стратегии не может быть null или пустым.");
         }
+        String key = name.toLowerCase();
+        AbstractStrategy shared = SHARED.get(key);
+        if (shared != null) {
+            return shared;
+        }
+        return SHARED.computeIfAbsent(key, StrategyFactory::createShared);
+    }
 
-        return switch (name.toLowerCase()) {
+    private static AbstractStrategy createShared(String name) {
+        AbstractStrategy strategy = switch (name) {
             case "ai" -> new BasedStrategy();
             case "free" -> new FreeStrategy();
             //case "new" -> new NewStrategy();                                                      // добавить имя сюда
@@ -26,6 +39,8 @@ public class StrategyFactory {
                 throw new IllegalArgumentException("Неизвестная стратегия: " + name);
             }
         };
+        strategy.markShared();
+        return strategy;
     }
 
     //Проверяет, доступна ли стратегия с заданным именем.
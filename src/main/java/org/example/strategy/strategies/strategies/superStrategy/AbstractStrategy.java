@@ -10,6 +10,8 @@ import org.example.bybit.service.BybitOrderService;
 import org.example.deal.Deal;
 import org.example.deal.utils.DealCalculator;
 import org.example.deal.utils.DealValidator;
+import org.example.metrics.TraceStage;
+import org.example.metrics.Tracer;
 import org.example.result.OperationResult;
 import org.example.strategy.strategies.strategies.StrategyException;
 import org.example.strategy.strategies.strategies.TradingStrategy;
@@ -38,6 +40,7 @@ public abstract class AbstractStrategy implements TradingStrategy {
     private final StrategyDealCreator strategyDealCreator;
     @Getter
     private final OnePriceUpdateController onePriceUpdateController;
+    private volatile boolean shared; // общий экземпляр из StrategyFactory (один на все сделки)
     public AbstractStrategy() {
         this.config = createConfig();
         this.strategyDealCreator = new StrategyDealCreator();
@@ -57,16 +60,21 @@ public abstract class AbstractStrategy implements TradingStrategy {
 
     public boolean openPosition(BybitOrderService bybitOrderService, Deal deal) {
         // Этап 1: Установка плеча
+        long leverageStart = System.nanoTime();
         try {
             bybitOrderService.setLeverage(deal);
+            Tracer.record(deal, TraceStage.LEVERAGE, leverageStart, true);
         } catch (Exception e) {
+            Tracer.record(deal, TraceStage.LEVERAGE, leverageStart, false);
             throw new RuntimeException("❌ Ошибка при установке плеча для символа " + deal.getSymbol(), e);
         }
 
         // Этап 2: Выставление ордера
+        long entryStart = System.nanoTime();
         try {
             BybitOrderRequest request = BybitOrderRequest.forEntry(deal);
             BybitOrderResponse orderResponse = bybitOrderService.placeOrder(request);
+            Tracer.record(deal, TraceStage.ENTRY_ORDER, entryStart, orderResponse.isSuccess());
 
             // Логируем ответ от Bybit, даже если всё ок
             String retMsg = orderResponse.getRetMsg();
@@ -82,6 +90,7 @@ public abstract class AbstractStrategy implements TradingStrategy {
             }
         } catch (Exception e) {
             // Ловим исключение до того, как retMsg будет доступен
+            Tracer.record(deal, TraceStage.ENTRY_ORDER, entryStart, false);
             throw new RuntimeException("❌ Ошибка при выставлении ордера для символа " + deal.getSymbol(), e);
         }
     }
@@ -103,6 +112,13 @@ public abstract class AbstractStrategy implements TradingStrategy {
     }
 
         public OperationResult setSL(Deal deal, BybitManager bybitManager) {
+            long start = System.nanoTime();
+            OperationResult result = placeStopLoss(deal, bybitManager);
+            Tracer.record(deal, TraceStage.STOP_LOSS, start, result.isSuccess());
+            return result;
+        }
+
+        private OperationResult placeStopLoss(Deal deal, BybitManager bybitManager) {
             try {
                 double currentPrice = bybitManager.getBybitMarketService().getLastPrice(deal.getSymbol().toString());
                 Direction dir = deal.getDirection();
@@ -131,6 +147,13 @@ public abstract class AbstractStrategy implements TradingStrategy {
 
 
     public OperationResult setTP(Deal deal, BybitManager bybitManager) {
+        long start = System.nanoTime();
+        OperationResult result = placeTakeProfits(deal, bybitManager);
+        Tracer.record(deal, TraceStage.TAKE_PROFITS, start, result.isSuccess());
+        return result;
+    }
+
+    private OperationResult placeTakeProfits(Deal deal, BybitManager bybitManager) {
         try {
             ExitPlan plan = deal.getStrategy().planExit(deal);
             if (plan == null || plan.getSteps().isEmpty()) {
@@ -156,7 +179,7 @@ public abstract class AbstractStrategy implements TradingStrategy {
 
     public ExitPlan planExit(Deal deal) {
         try {
-            LoggerUtils.info("🔍 " + getClass().getSimpleName() + ": Начало сделки " + deal.getId());
+            LoggerUtils.debug("🔍 " + getClass().getSimpleName() + ": Начало сделки " + deal.getId());
 
             StrategyConfig config = this.getConfig();
             double entryPrice = deal.getEntryPrice();
@@ -174,14 +197,14 @@ public abstract class AbstractStrategy implements TradingStrategy {
             // 2. Попытка по PnL
             Map<Double, Integer> pnlRules = config.getPnlTpExitRules();
             if (pnlRules != null && !pnlRules.isEmpty()) {
-                LoggerUtils.info("📈 PnL-правила: " + pnlRules);
-                LoggerUtils.info("➤ Вызываю ExitPlan.fromPnl() для создания плана по PnL");
+                LoggerUtils.debug("📈 PnL-правила: " + pnlRules);
+                LoggerUtils.debug("➤ Вызываю ExitPlan.fromPnl() для создания плана по PnL");
 
                 // 🔥 Здесь происходит NoSuchMethodError
                 ExitPlan plan = ExitPlan.fromPnl(pnlRules, entryPrice, direction);
 
                 if (plan != null && !plan.getSteps().isEmpty()) {
-                    LoggerUtils.info("✅ План по PnL создан");
+                    LoggerUtils.debug("✅ План по PnL создан");
                     return plan;
                 }
             }
@@ -202,16 +225,8 @@ public abstract class AbstractStrategy implements TradingStrategy {
 
 
     public double RiskUpdate(BybitAccountService bybitAccountService) {
-        double updateLoss = bybitAccountService.getUsdtBalance() / 100 * ValuesUtil.getDefaultLossPrecent();
-        this.config = new StrategyConfig(
-                null,
-                updateLoss,
-                new int[]{5, 10, 20},
-                15.0,
-                null,
-                null
-        );
-        return updateLoss;
+        // Только расчет: конфиг общего экземпляра стратегии не подменяется для всех сделок сразу
+        return bybitAccountService.getUsdtBalance() / 100 * ValuesUtil.getDefaultLossPrecent();
     }
 
 
@@ -220,6 +235,25 @@ public abstract class AbstractStrategy implements TradingStrategy {
         return config;
     }
 
+    /**
+     * Замена конфига (бэктест и подбор параметров прогоняют одну стратегию с разными конфигами).
+     * Только для собственных экземпляров: общий экземпляр из StrategyFactory разделяют все сделки.
+     */
+    public void setConfig(StrategyConfig config) {
+        if (shared) {
+            throw new IllegalStateException("Конфиг общей стратегии " + getClass().getSimpleName()
+                    + " не меняется — создайте отдельный экземпляр");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Помечает экземпляр как общий (вызывает StrategyFactory): после этого конфиг не заменяется.
+     */
+    public void markShared() {
+        this.shared = true;
+    }
+
 
     @Override
     public void onPriceUpdate(Deal deal, PriceUpdate priceUpdate, UpdateManager updateManager, StopLossManager stopLossManager, BybitManager bybitManager) {
@@ -5,6 +5,8 @@ import org.example.bybit.service.BybitPositionTrackerService;
 import org.example.deal.Deal;
 import org.example.deal.dto.DealRequest;
 import org.example.deal.utils.ActiveDealStore;
+import org.example.metrics.TraceStage;
+import org.example.metrics.Tracer;
 import org.example.model.Direction;
 import org.example.model.EntryType;
 import org.example.model.Symbol;
@@ -77,12 +79,18 @@ public class StrategyDealCreator {
     public Deal createDealBySignal(AiService aiService, String messageText, long chatId, String strategyName, ActiveDealStore activeDealStore) {
         LoggerUtils.debug("Создание сделки по сигналу: " + messageText);
         try {
+            long parseStart = System.nanoTime();
             DealRequest request = aiService.parseSignal(messageText);
+            long parseEnd = System.nanoTime();
             Deal deal = new Deal(request);
             deal.setChatId(chatId);
             deal.setStrategyName(strategyName);
+            Tracer.begin(deal, parseStart);
+            Tracer.record(deal, TraceStage.AI_PARSE, parseStart, parseEnd, true);
 
-            activeDealStore.addDeal(deal);
+            long storeStart = System.nanoTime();
+            OperationResult addDealResult = activeDealStore.addDeal(deal);
+            Tracer.record(deal, TraceStage.STORE, storeStart, addDealResult.isSuccess());
             return deal;
         } catch (Exception e) {
             LoggerUtils.error("❌ Не удалось создать сделку по сигналу: " + messageText, e);
@@ -1,12 +1,10 @@
 package org.example.update;
 
-import org.example.bybit.BybitManager;
 import org.example.deal.utils.ActiveDealStore;
 import org.example.deal.Deal;
 import org.example.monitor.dto.PositionInfo;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class DealUpdater {
 
@@ -17,18 +15,19 @@ public class DealUpdater {
     }
 
     /**
-     * Обновляет все активные сделки на основе текущих позиций.
+     * Обновляет все активные сделки на основе снимка биржи.
+     * Позиция и ордера сделки берутся из снимка по символу, без запросов к бирже.
      */
-    public UpdateResult updateExistingDeals(ActiveDealStore store, List<PositionInfo> positions, BybitManager bybitManager) {
+    public UpdateResult updateExistingDeals(ActiveDealStore store, ExchangeStateSnapshot snapshot) {
         StringBuilder log = new StringBuilder();
         List<String> updatedSymbols = new ArrayList<>();
         List<String> closedSymbols = new ArrayList<>();
 
-        // Копия для поиска новых позиций
-        List<PositionInfo> remainingPositions = new ArrayList<>(positions);
+        // Позиции, к которым нашлась сделка (для поиска новых позиций)
+        Set<PositionInfo> matchedPositions = Collections.newSetFromMap(new IdentityHashMap<>());
 
         for (Deal deal : store.getAllDeals()) {
-            PositionInfo pos = findPosition(positions, deal.getSymbol().toString());
+            PositionInfo pos = snapshot.positionFor(deal.getSymbol());
 
             if (pos == null) {
                 // Сделка закрыта
@@ -37,21 +36,20 @@ public class DealUpdater {
                 closedSymbols.add(deal.getSymbol().toString());
             } else {
                 // Обновляем данные
-                orderRestorer.restoreOrders(deal, bybitManager);
+                orderRestorer.restoreOrders(deal, snapshot);
                 deal.updateDealFromBybitPosition(pos);
                 log.append("✅ ").append(deal.getSymbol()).append(" — обновлена.\n");
                 updatedSymbols.add(deal.getSymbol().toString());
-                remainingPositions.remove(pos);
+                matchedPositions.add(pos);
             }
         }
 
+        List<PositionInfo> remainingPositions = new ArrayList<>();
+        for (PositionInfo pos : snapshot.getPositions()) {
+            if (!matchedPositions.contains(pos)) {
+                remainingPositions.add(pos);
+            }
+        }
         return new UpdateResult(log.toString(), updatedSymbols, closedSymbols, remainingPositions);
     }
-
-    private PositionInfo findPosition(List<PositionInfo> positions, String symbol) {
-        return positions.stream()
-                .filter(p -> p.getSymbol().equals(symbol))
-                .findFirst()
-                .orElse(null);
-    }
-}
\ No newline at end of file
+}
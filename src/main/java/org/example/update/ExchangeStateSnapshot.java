@@ -0,0 +1,91 @@
+package org.example.update;
+
+import lombok.Getter;
+import org.example.bybit.service.BybitPositionTrackerService;
+import org.example.deal.Deal;
+import org.example.deal.utils.OrderManager;
+import org.example.model.Symbol;
+import org.example.monitor.dto.PositionInfo;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Снимок состояния биржи на момент сверки: позиции и все USDT-ордера, сгруппированные по символу.
+ * Строится один раз (два запроса), после чего поиск позиции/ордеров сделки — O(1),
+ * а сверка в целом линейна по объёму данных, а не O(сделки × позиции).
+ */
+@Getter
+public class ExchangeStateSnapshot {
+
+    private final List<PositionInfo> positions;
+    private final List<BybitPositionTrackerService.OrderInfo> orders;
+    private final Map<Symbol, PositionInfo> positionsBySymbol;
+    private final Map<Symbol, List<BybitPositionTrackerService.OrderInfo>> ordersBySymbol;
+
+    // id уже привязанных ордеров по сделке (по ссылке на сделку), заполняется лениво
+    private final Map<Deal, Set<String>> boundOrderIds = new ConcurrentHashMap<>();
+
+    public ExchangeStateSnapshot(List<PositionInfo> positions, List<BybitPositionTrackerService.OrderInfo> orders) {
+        this.positions = positions == null ? List.of() : positions;
+        this.orders = orders == null ? List.of() : orders;
+
+        this.positionsBySymbol = new HashMap<>(this.positions.size() * 2);
+        for (PositionInfo pos : this.positions) {
+            positionsBySymbol.putIfAbsent(new Symbol(pos.getSymbol()), pos); // как и раньше — первая позиция по символу
+        }
+        this.ordersBySymbol = new HashMap<>();
+        for (BybitPositionTrackerService.OrderInfo order : this.orders) {
+            if (order.getSymbol() != null) {
+                ordersBySymbol.computeIfAbsent(order.getSymbol(), k -> new ArrayList<>()).add(order);
+            }
+        }
+    }
+
+    /**
+     * Загружает позиции и ордера по settleCoin=USDT — ровно два запроса к бирже.
+     */
+    public static ExchangeStateSnapshot load(BybitPositionTrackerService trackerService) throws IOException {
+        return new ExchangeStateSnapshot(trackerService.getPositionList(), trackerService.getOrdersBySettleCoin("USDT"));
+    }
+
+    public PositionInfo positionFor(Symbol symbol) {
+        return positionsBySymbol.get(symbol);
+    }
+
+    public List<BybitPositionTrackerService.OrderInfo> ordersFor(Symbol symbol) {
+        return ordersBySymbol.getOrDefault(symbol, List.of());
+    }
+
+    /**
+     * Изменяемое множество id ордеров, уже привязанных к сделке. Строится один раз на сделку.
+     */
+    public Set<String> boundOrderIds(Deal deal) {
+        return boundOrderIds.computeIfAbsent(deal, ExchangeStateSnapshot::collectBoundOrderIds);
+    }
+
+    static Set<String> collectBoundOrderIds(Deal deal) {
+        List<OrderManager> bound = deal.getOrdersIdList();
+        Set<String> ids = new HashSet<>(bound.size() * 2);
+        for (OrderManager order : bound) {
+            if (order.getOrderId() != null) {
+                ids.add(order.getOrderId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Лимитные ордера (orderType = "Limit") по всем USDT-контрактам.
+     */
+    public List<BybitPositionTrackerService.OrderInfo> limitOrders() {
+        List<BybitPositionTrackerService.OrderInfo> result = new ArrayList<>();
+        for (BybitPositionTrackerService.OrderInfo order : orders) {
+            if ("Limit".equals(order.getOrderType()) && order.getSymbol() != null) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+}
@@ -5,71 +5,83 @@ import org.example.bybit.service.BybitPositionTrackerService;
 import org.example.deal.Deal;
 import org.example.deal.utils.OrderManager;
 import org.example.model.Direction;
+import org.example.model.Price;
 import org.example.result.OperationResult;
 import org.example.util.JsonUtils;
 import org.example.util.LoggerUtils;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 public class OrderRestorer {
 
     public OperationResult restoreOrders(Deal deal, BybitManager bybitManager) {
+        String symbol = deal.getSymbol().toString();
+        try {
+            List<BybitPositionTrackerService.OrderInfo> orders = bybitManager.getBybitPositionTrackerService().getOrders(symbol);
+            return restoreOrders(deal, orders);
+        } catch (IOException e) {
+            return OperationResult.failure("⚠️ Не удалось загрузить ордера с Bybit для символа " + symbol, e);
+        }
+    }
+
+    /**
+     * Привязывает к сделке уже загруженные ордера её символа (без запроса к бирже).
+     * Используется при массовой сверке, где ордера получены одним запросом по settleCoin.
+     */
+    public OperationResult restoreOrders(Deal deal, List<BybitPositionTrackerService.OrderInfo> orders) {
+        return restoreOrders(deal, orders, ExchangeStateSnapshot.collectBoundOrderIds(deal));
+    }
 
-        BybitPositionTrackerService trackerService = bybitManager.getBybitPositionTrackerService();
+    /**
+     * Привязывает ордера символа сделки из снимка биржи. Множество привязанных id берется из снимка.
+     */
+    public OperationResult restoreOrders(Deal deal, ExchangeStateSnapshot snapshot) {
+        return restoreOrders(deal, snapshot.ordersFor(deal.getSymbol()), snapshot.boundOrderIds(deal));
+    }
+
+    private OperationResult restoreOrders(Deal deal, List<BybitPositionTrackerService.OrderInfo> orders, Set<String> boundOrderIds) {
         String symbol = deal.getSymbol().toString();
         StringBuilder result = new StringBuilder();
 
-        try {
-            List<BybitPositionTrackerService.OrderInfo> orders = trackerService.getOrders(symbol);
-            if (orders == null || orders.isEmpty()) {
-                return OperationResult.success("📭 Нет активных ордеров для символа " + symbol);
-            }
+        if (orders == null || orders.isEmpty()) {
+            return OperationResult.success("📭 Нет активных ордеров для символа " + symbol);
+        }
 
 
-            //Возможна ситуация, когда на бирже нет ордера который есть у Deal
-            //надо подумать в каких случаях это корректно, а в каких нет, пока оставлю
+        //Возможна ситуация, когда на бирже нет ордера который есть у Deal
+        //надо подумать в каких случаях это корректно, а в каких нет, пока оставлю
 
-            LoggerUtils.info("📥 ОРДЕРА " + symbol + ": " + JsonUtils.toJson(orders));
+        LoggerUtils.info("📥 ОРДЕРА " + symbol + ": " + JsonUtils.toJson(orders));
 
-            for (var order : orders) {
-                if (!Boolean.TRUE.equals(order.getReduceOnly())) continue;
+        for (var order : orders) {
+            if (!Boolean.TRUE.equals(order.getReduceOnly())) continue;
 
-                // Уже привязан?
-                if (isAlreadyBound(deal, order.getOrderId())) continue;
+            // Уже привязан?
+            if (order.getOrderId() != null && !boundOrderIds.add(order.getOrderId())) continue;
 
-                if ("Stop".equals(order.getStopOrderType())) {
-                    Double triggerPrice = parseDouble(order.getTriggerPrice());
-                    if (triggerPrice == null) continue;
+            if ("Stop".equals(order.getStopOrderType())) {
+                Price triggerPrice = parsePrice(order.getTriggerPrice());
+                if (triggerPrice == null) continue;
 
-                    boolean isStopLoss = isStopLossPrice(triggerPrice, deal.getDirection(), deal.getEntryPrice());
-                    OrderManager.OrderType type = isStopLoss ? OrderManager.OrderType.SL : OrderManager.OrderType.TP;
-                    result.append(deal.addOrderId(new OrderManager(order.getOrderId(), type, triggerPrice)).getMessage());
+                boolean isStopLoss = isStopLossPrice(triggerPrice.toDouble(), deal.getDirection(), deal.getEntryPrice());
+                OrderManager.OrderType type = isStopLoss ? OrderManager.OrderType.SL : OrderManager.OrderType.TP;
+                result.append(deal.addOrderId(new OrderManager(order.getOrderId(), type, triggerPrice)).getMessage());
 
-                } else if (order.getPrice() != null && !order.getPrice().isEmpty()) {
-                    if (isTakeProfitOrder(order, deal.getDirection())) {
-                        Double price = parseDouble(order.getPrice());
-                        if (price != null) {
-                            result.append(deal.addOrderId(new OrderManager(order.getOrderId(), OrderManager.OrderType.TP, price)).getMessage());
-                        }
+            } else if (order.getPrice() != null && !order.getPrice().isEmpty()) {
+                if (isTakeProfitOrder(order, deal.getDirection())) {
+                    Price price = parsePrice(order.getPrice());
+                    if (price != null) {
+                        result.append(deal.addOrderId(new OrderManager(order.getOrderId(), OrderManager.OrderType.TP, price)).getMessage());
                     }
                 }
             }
-        } catch (IOException e) {
-            OperationResult.failure("⚠️ Не удалось загрузить ордера с Bybit для символа " + symbol, e);
         }
 
         return OperationResult.success(result.toString());
     }
 
-    private boolean isAlreadyBound(Deal deal, String orderId) {
-        return deal.getOrdersIdList() != null &&
-                deal.getOrdersIdList().stream()
-                        .anyMatch(om -> Objects.equals(om.getOrderId(), orderId));
-    }
-
     private boolean isStopLossPrice(double price, Direction direction, double entryPrice) {
         return direction == Direction.LONG ? price < entryPrice : price > entryPrice;
     }
@@ -79,28 +91,9 @@ public class OrderRestorer {
                 (direction == Direction.SHORT && "Buy".equals(order.getSide()));
     }
 
-    /**
-     * Возвращает только лимитные ордера (orderType = "Limit") по всем USDT-контрактам.
-     * Используется для создания сделок по ожидающим входам.
-     */
-    public List<BybitPositionTrackerService.OrderInfo> getUsdtLimitOrders(Object bybitManager) throws IOException {
-        BybitPositionTrackerService trackerService = ((BybitManager) bybitManager).getBybitPositionTrackerService();
-
-        List<BybitPositionTrackerService.OrderInfo> allOrders = trackerService.getOrdersBySettleCoin("USDT");
-
-        if (allOrders == null || allOrders.isEmpty()) {
-            return List.of();
-        }
-
-        return allOrders.stream()
-                .filter(order -> "Limit".equals(order.getOrderType()))
-                .filter(order -> order.getSymbol() != null)
-                .collect(Collectors.toList());
-    }
-
-    private Double parseDouble(String s) {
+    private Price parsePrice(String s) {
         try {
-            return s != null ? Double.parseDouble(s.trim()) : null;
+            return s != null ? Price.parse(s.trim()) : null;
         } catch (NumberFormatException e) {
             return null;
         }
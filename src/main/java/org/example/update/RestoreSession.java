@@ -0,0 +1,47 @@
+package org.example.update;
+
+import lombok.Getter;
+import org.example.bybit.service.BybitPositionTrackerService;
+import org.example.monitor.dto.PositionInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Состояние пошагового восстановления сделок (/update) одного чата:
+ * очередь новых позиций или лимитных ордеров и индекс текущей, для которой ждем стратегию.
+ */
+@Getter
+public class RestoreSession {
+
+    private boolean createDealsProcess = false;
+    private List<BybitPositionTrackerService.OrderInfo> pendingLimitOrders = new ArrayList<>();
+    private List<PositionInfo> pendingNewPositions = new ArrayList<>();
+    private int currentRestoreIndex = 0;
+
+    void startFromPositions(List<PositionInfo> newPositions) {
+        this.pendingLimitOrders = new ArrayList<>();
+        this.pendingNewPositions = new ArrayList<>(newPositions);
+        this.currentRestoreIndex = 0;
+        this.createDealsProcess = true;
+    }
+
+    void startFromOrders(List<BybitPositionTrackerService.OrderInfo> orders) {
+        this.pendingNewPositions = new ArrayList<>();
+        this.pendingLimitOrders = new ArrayList<>(orders);
+        this.currentRestoreIndex = 0;
+        this.createDealsProcess = true;
+    }
+
+    void advance(CreationResult result) {
+        this.currentRestoreIndex = result.nextIndex();
+        this.createDealsProcess = result.stillCreating();
+    }
+
+    public void reset() {
+        this.createDealsProcess = false;
+        this.pendingNewPositions = new ArrayList<>();
+        this.pendingLimitOrders = new ArrayList<>();
+        this.currentRestoreIndex = 0;
+    }
+}
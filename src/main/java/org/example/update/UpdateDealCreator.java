@@ -33,7 +33,7 @@ public class UpdateDealCreator {
         if (pendingOrdersForDealCreation.isEmpty()) {
             return createNextDealByOpenPosition(strategyName, activeDealStore, chatId, bybitManager, pendingPositions, currentIndex, orderRestorer);
         }
-        return createNextDealByLimitOrder(strategyName, activeDealStore, chatId, pendingOrdersForDealCreation, currentIndex);
+        return createNextDealByLimitOrder(strategyName, activeDealStore, chatId, bybitManager, pendingOrdersForDealCreation, currentIndex);
     }
 
     public CreationResult createNextDealByOpenPosition(
@@ -58,41 +58,8 @@ public class UpdateDealCreator {
         }
 
         try {
-            AbstractStrategy strategy = StrategyFactory.getStrategy(strategyName);
-            Deal deal = strategy.getStrategyDealCreator().createDealByOpenPosition(pos, chatId, strategyName, activeDealStore);
-            deal.setId(pos.getSymbol() + "_" + strategyName + "_" + System.currentTimeMillis());
-
-            StringBuilder msg = new StringBuilder();
-
-            //Пытаемся привязать ордера
-            OperationResult restoreOrdersResult = orderRestorer.restoreOrders(deal, bybitManager);
-            if (!restoreOrdersResult.isSuccess()){
-                msg.append("Частичный успех! ").append(restoreOrdersResult.getMessage());
-            }
-
-            // Если TP отсутствуют — устанавливаем
-            if (deal.getTakeProfits().isEmpty()) {
-                OperationResult setTPResult = strategy.setTP(deal, bybitManager);
-                if (!setTPResult.isSuccess()) {
-                    setTPResult.logErrorIfFailed();
-                }
-            }
-
-            //Если SL отсутствуют — устанавливаем
-            Double currentSL = deal.getStopLoss();
-            if (currentSL == null || currentSL <= 0.0) {
-                double newSL = dealCalculator.getStopLossForUpdatePosition(deal, strategy.getConfig());
-                // Дополнительная защита: если расчёт дал 0 — не ставим
-                if (newSL <= 0) {
-                    msg.append("Частичный успех! Рассчитанный SL <= 0 для ").append(deal.getSymbol()).append(". Пропуск установки.");
-                } else {
-                    deal.setStopLoss(newSL);
-                    msg.append(strategy.setSL(deal, bybitManager));
-                }
-            }
-
-            activeDealStore.addDeal(deal);
-            msg.append("✅ Deal для ").append(pos.getSymbol()).append(" восстановлена со стратегией '").append(strategyName).append("'.\n");
+            StringBuilder msg = new StringBuilder(restoreFromPosition(
+                    pos, strategyName, activeDealStore, chatId, bybitManager, orderRestorer, null));
 
             if (currentIndex < pendingPositions.size()) {
                 PositionInfo next = pendingPositions.get(currentIndex);
@@ -114,6 +81,7 @@ public class UpdateDealCreator {
             String strategyName,
             ActiveDealStore activeDealStore,
             long chatId,
+            BybitManager bybitManager,
             List<BybitPositionTrackerService.OrderInfo> pendingOrdersForDealCreation,
             int currentIndex) {
 
@@ -147,12 +115,7 @@ public class UpdateDealCreator {
         }
 
         try {
-            AbstractStrategy strategy = StrategyFactory.getStrategy(strategyName);
-            Deal deal = strategy.getStrategyDealCreator().createDealByLimitOrder(orderInfo, chatId, strategyName, activeDealStore);
-            deal.setId(symbol + "_" + strategyName + "_" + System.currentTimeMillis());
-
-            StringBuilder msg = new StringBuilder();
-            msg.append("✅ Deal для ордера ").append(symbol).append(" создана со стратегией '").append(strategyName).append("'.\n");
+            StringBuilder msg = new StringBuilder(restoreFromLimitOrder(orderInfo, strategyName, activeDealStore, chatId, bybitManager));
 
             if (currentIndex + 1 < pendingOrdersForDealCreation.size()) {
                 BybitPositionTrackerService.OrderInfo nextOrderInfo = pendingOrdersForDealCreation.get(currentIndex + 1);
@@ -168,4 +131,79 @@ public class UpdateDealCreator {
         }
     }
 
-}
\ No newline at end of file
+
+    /**
+     * Создает сделку по открытой позиции, привязывает ордера и при необходимости выставляет TP/SL.
+     *
+     * @param prefetchedOrders ордера символа, уже загруженные с биржи; null — загрузить отдельным запросом
+     * @return сообщение для пользователя
+     */
+    public String restoreFromPosition(PositionInfo pos, String strategyName, ActiveDealStore activeDealStore, long chatId,
+                                      BybitManager bybitManager, OrderRestorer orderRestorer,
+                                      List<BybitPositionTrackerService.OrderInfo> prefetchedOrders) {
+        AbstractStrategy strategy = StrategyFactory.getStrategy(strategyName);
+        Deal deal = strategy.getStrategyDealCreator().createDealByOpenPosition(pos, chatId, strategyName, activeDealStore);
+        deal.setId(pos.getSymbol() + "_" + strategyName + "_" + System.currentTimeMillis());
+        applyInstrumentScales(deal, bybitManager);
+
+        StringBuilder msg = new StringBuilder();
+
+        //Пытаемся привязать ордера
+        OperationResult restoreOrdersResult = prefetchedOrders == null
+                ? orderRestorer.restoreOrders(deal, bybitManager)
+                : orderRestorer.restoreOrders(deal, prefetchedOrders);
+        if (!restoreOrdersResult.isSuccess()){
+            msg.append("Частичный успех! ").append(restoreOrdersResult.getMessage());
+        }
+
+        // Если TP отсутствуют — устанавливаем
+        if (deal.getTakeProfits().isEmpty()) {
+            OperationResult setTPResult = strategy.setTP(deal, bybitManager);
+            if (!setTPResult.isSuccess()) {
+                setTPResult.logErrorIfFailed();
+            }
+        }
+
+        //Если SL отсутствуют — устанавливаем
+        Double currentSL = deal.getStopLoss();
+        if (currentSL == null || currentSL <= 0.0) {
+            double newSL = dealCalculator.getStopLossForUpdatePosition(deal, strategy.getConfig());
+            // Дополнительная защита: если расчёт дал 0 — не ставим
+            if (newSL <= 0) {
+                msg.append("Частичный успех! Рассчитанный SL <= 0 для ").append(deal.getSymbol()).append(". Пропуск установки.");
+            } else {
+                deal.setStopLoss(newSL);
+                msg.append(strategy.setSL(deal, bybitManager));
+            }
+        }
+
+        activeDealStore.addDeal(deal);
+        msg.append("✅ Deal для ").append(pos.getSymbol()).append(" восстановлена со стратегией '").append(strategyName).append("'.\n");
+        return msg.toString();
+    }
+
+    /**
+     * Создает сделку по ожидающему лимитному ордеру на вход.
+     *
+     * @return сообщение для пользователя
+     */
+    public String restoreFromLimitOrder(BybitPositionTrackerService.OrderInfo orderInfo, String strategyName,
+                                        ActiveDealStore activeDealStore, long chatId, BybitManager bybitManager) {
+        AbstractStrategy strategy = StrategyFactory.getStrategy(strategyName);
+        Deal deal = strategy.getStrategyDealCreator().createDealByLimitOrder(orderInfo, chatId, strategyName, activeDealStore);
+        deal.setId(orderInfo.getSymbol() + "_" + strategyName + "_" + System.currentTimeMillis());
+        applyInstrumentScales(deal, bybitManager);
+        return "✅ Deal для ордера " + orderInfo.getSymbol() + " создана со стратегией '" + strategyName + "'.\n";
+    }
+
+    // Scale цены и объёма с биржи, как в DealCalculator.calculate: без них TP и SL округляются по догадке из цен сделки
+    private static void applyInstrumentScales(Deal deal, BybitManager bybitManager) {
+        String symbol = deal.getSymbol().toString();
+        try {
+            deal.setPriceScale(bybitManager.getBybitMarketService().getPriceScale(symbol));
+            deal.setQtyScale(bybitManager.getBybitMarketService().getQtyScale(symbol));
+        } catch (RuntimeException e) {
+            LoggerUtils.warn("Не удалось получить scale инструмента " + symbol + " для сделки " + deal.getId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package org.example.update;
 
-import lombok.Getter;
 import org.example.bybit.BybitManager;
 import org.example.bybit.service.BybitPositionTrackerService;
 import org.example.deal.utils.ActiveDealStore;
 import org.example.deal.utils.DealCalculator;
+import org.example.deal.Deal;
+import org.example.model.Symbol;
 import org.example.monitor.dto.PositionInfo;
+import org.example.strategy.strategies.strategies.StrategyFactory;
+import org.example.util.LoggerUtils;
+import org.example.util.ValuesUtil;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class UpdateManager {
 
@@ -18,11 +22,12 @@ public class UpdateManager {
     private final BybitManager bybitManager;
     private final OrderRestorer orderRestorer;
 
-    @Getter
-    private boolean createDealsProcess = false;
-    private List<BybitPositionTrackerService.OrderInfo> pendingLimitOrdersForDealCreation = new ArrayList<>();
-    private List<PositionInfo> pendingNewPositions = new ArrayList<>();
-    private int currentRestoreIndex = 0;
+    // Пул для /reconcile: REST-вызовы по разным символам идут параллельно (ограничение — RateLimiter клиента)
+    private final ExecutorService reconcileExecutor = Executors.newFixedThreadPool(ValuesUtil.getReconcileThreads(), r -> {
+        Thread thread = new Thread(r, "reconcile-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public UpdateManager(BybitManager bybitManager, DealCalculator dealCalculator) {
         this.updateDealCreator = new UpdateDealCreator(dealCalculator);
@@ -31,30 +36,34 @@ public class UpdateManager {
         this.bybitManager = bybitManager;
     }
 
-    public String updateDeals(ActiveDealStore store, long chatId, String strategyNameInput) throws IOException {
-        if (createDealsProcess) {
-            return handleDealCreation(strategyNameInput, store, chatId);
+    /**
+     * @param session состояние восстановления чата, из которого вызвана команда
+     */
+    public String updateDeals(ActiveDealStore store, long chatId, String strategyNameInput, RestoreSession session) throws IOException {
+        if (session.isCreateDealsProcess()) {
+            return handleDealCreation(strategyNameInput, store, chatId, session);
         }
 
-        List<PositionInfo> bybitPositionsList = bybitManager.getBybitPositionTrackerService().getPositionList();
-        List<BybitPositionTrackerService.OrderInfo> limitOrders = orderRestorer.getUsdtLimitOrders(bybitManager);
+        ExchangeStateSnapshot snapshot = ExchangeStateSnapshot.load(bybitManager.getBybitPositionTrackerService());
+        List<PositionInfo> bybitPositionsList = snapshot.getPositions();
+        List<BybitPositionTrackerService.OrderInfo> limitOrders = snapshot.limitOrders();
 
         // Сценарий 1: Есть активные позиции → работаем с ними
         if (!bybitPositionsList.isEmpty()) {
-            UpdateResult result = dealUpdater.updateExistingDeals(store, bybitPositionsList, bybitManager);
+            UpdateResult result = dealUpdater.updateExistingDeals(store, snapshot);
             StringBuilder sb = new StringBuilder("🔄 Результат обновления:\n").append(result.log());
 
             if (!result.newPositions().isEmpty()) {
-                startCreationDealProcess(result.newPositions());
+                session.startFromPositions(result.newPositions());
                 sb.append("\n🆕 Найдена новая позиция: ")
-                        .append(pendingNewPositions.get(0).getSymbol())
+                        .append(session.getPendingNewPositions().get(0).getSymbol())
                         .append(". Укажите стратегию:");
                 return sb.toString();
             }
 
             // Новых позиций нет → проверяем, есть ли лимитные ордера
             if (!limitOrders.isEmpty()) {
-                startCreationDealProcessFromOrders(limitOrders);
+                session.startFromOrders(limitOrders);
                 sb.append("\n✅ Все сделки по позициям синхронизированы.\n")
                         .append("🆕 Найдены лимитные ордера. Укажите стратегию для: ")
                         .append(limitOrders.get(0).getSymbol());
@@ -67,35 +76,125 @@ public class UpdateManager {
 
         // Сценарий 2: Нет позиций → работаем с лимитными ордерами
         if (!limitOrders.isEmpty()) {
-            startCreationDealProcessFromOrders(limitOrders);
+            session.startFromOrders(limitOrders);
             return "🆕 Найдены лимитные ордера. Укажите стратегию для: " + limitOrders.get(0).getSymbol();
         }
 
         // Сценарий 3: Ничего нет
         return "✅ Нет активных позиций и лимитных ордеров на Bybit.";
     }
-    public PositionInfo updateOneDeal(String symbol) {
-        return bybitManager.getBybitPositionTrackerService().getPositionBySymbol(symbol);
+    /**
+     * Неинтерактивная сверка всех сделок с биржей.
+     * Позиции и все USDT-ордера загружаются двумя запросами в {@link ExchangeStateSnapshot},
+     * после чего каждая сделка обновляется/создается параллельно. Новые позиции и лимитные ордера на вход
+     * получают стратегию defaultStrategy. Возвращает одну сводку вместо диалога по каждому символу.
+     */
+    public String reconcileAll(ActiveDealStore store, long chatId, String defaultStrategy, RestoreSession session) throws IOException {
+        if (!StrategyFactory.isStrategyAvailable(defaultStrategy)) {
+            return "⚠️ Strategy '" + defaultStrategy + "' не найдена. Доступные: " +
+                    String.join(", ", StrategyFactory.getAvailableStrategies());
+        }
+        long start = System.currentTimeMillis();
+
+        // Интерактивное восстановление больше не нужно — сверяем всё сразу
+        session.reset();
+
+        ExchangeStateSnapshot snapshot = ExchangeStateSnapshot.load(bybitManager.getBybitPositionTrackerService());
+
+        StringBuilder closedLog = new StringBuilder();
+        // Список, а не карта по символу: у одного символа может быть несколько сделок
+        List<ReconcileTask> tasks = new ArrayList<>();
+        Set<Symbol> symbolsWithDeal = new HashSet<>();
+        int closed = 0;
+
+        // 1. Существующие сделки
+        for (Deal deal : store.getAllDeals()) {
+            Symbol symbol = deal.getSymbol();
+            symbolsWithDeal.add(symbol);
+            PositionInfo pos = snapshot.positionFor(symbol);
+
+            if (pos != null) {
+                tasks.add(new ReconcileTask(symbol, () -> {
+                    orderRestorer.restoreOrders(deal, snapshot);
+                    deal.updateDealFromBybitPosition(pos);
+                    return "✅ " + symbol + " — обновлена.";
+                }));
+            } else if (findEntryLimitOrder(snapshot.ordersFor(symbol)) == null) {
+                store.removeDeal(deal.getId());
+                closedLog.append("🗑️ ").append(symbol).append(" — закрыта, удалена.\n");
+                closed++;
+            }
+        }
+
+        // 2. Позиции без сделки
+        for (Map.Entry<Symbol, PositionInfo> entry : snapshot.getPositionsBySymbol().entrySet()) {
+            Symbol symbol = entry.getKey();
+            if (symbolsWithDeal.contains(symbol)) continue;
+            PositionInfo pos = entry.getValue();
+            tasks.add(new ReconcileTask(symbol, () -> updateDealCreator.restoreFromPosition(
+                    pos, defaultStrategy, store, chatId, bybitManager, orderRestorer, snapshot.ordersFor(symbol)).trim()));
+        }
+
+        // 3. Лимитные ордера на вход без сделки и без позиции
+        for (Map.Entry<Symbol, List<BybitPositionTrackerService.OrderInfo>> entry : snapshot.getOrdersBySymbol().entrySet()) {
+            Symbol symbol = entry.getKey();
+            if (symbolsWithDeal.contains(symbol) || snapshot.positionFor(symbol) != null) continue;
+            BybitPositionTrackerService.OrderInfo entryOrder = findEntryLimitOrder(entry.getValue());
+            if (entryOrder != null) {
+                tasks.add(new ReconcileTask(symbol, () -> updateDealCreator.restoreFromLimitOrder(entryOrder, defaultStrategy, store, chatId, bybitManager).trim()));
+            }
+        }
+
+        List<Future<String>> futures = new ArrayList<>(tasks.size());
+        for (ReconcileTask task : tasks) {
+            futures.add(reconcileExecutor.submit(task.task()));
+        }
+
+        StringBuilder log = new StringBuilder();
+        int failed = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            Symbol symbol = tasks.get(i).symbol();
+            try {
+                log.append(futures.get(i).get()).append("\n");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.append("❌ ").append(symbol).append(" — прервано.\n");
+                failed++;
+            } catch (ExecutionException e) {
+                LoggerUtils.error("Ошибка сверки сделки " + symbol, e.getCause());
+                log.append("❌ ").append(symbol).append(" — ").append(e.getCause().getMessage()).append("\n");
+                failed++;
+            }
+        }
+        log.append(closedLog);
+
+        long took = System.currentTimeMillis() - start;
+        return "🔄 Сверка с Bybit (" + defaultStrategy + "): позиций " + snapshot.getPositions().size() +
+                ", ордеров " + snapshot.getOrders().size() + ", обработано " + futures.size() +
+                ", закрыто " + closed + ", ошибок " + failed + " за " + took + " мс\n" + log;
     }
-    private String handleDealCreation(String strategyName, ActiveDealStore activeDealStore, long chatId) {
-        CreationResult result = updateDealCreator.dealCreationTypeSorter(
-                strategyName, activeDealStore, chatId, bybitManager, pendingNewPositions, pendingLimitOrdersForDealCreation, currentRestoreIndex, orderRestorer);
-        currentRestoreIndex = result.nextIndex();
-        createDealsProcess = result.stillCreating();
-        return result.message();
+
+    private record ReconcileTask(Symbol symbol, Callable<String> task) {
     }
 
-    private void startCreationDealProcessFromOrders(List<BybitPositionTrackerService.OrderInfo> orders) {
-        this.pendingNewPositions.clear();
-        this.pendingLimitOrdersForDealCreation = new ArrayList<>(orders);
-        this.currentRestoreIndex = 0;
-        this.createDealsProcess = true;
+    // Лимитный ордер на вход (не reduceOnly) — по нему сделка еще ожидает открытия
+    private BybitPositionTrackerService.OrderInfo findEntryLimitOrder(List<BybitPositionTrackerService.OrderInfo> orders) {
+        for (BybitPositionTrackerService.OrderInfo order : orders) {
+            if ("Limit".equals(order.getOrderType()) && !Boolean.TRUE.equals(order.getReduceOnly())) {
+                return order;
+            }
+        }
+        return null;
     }
 
-    private void startCreationDealProcess(List<PositionInfo> newPositions) {
-        this.pendingLimitOrdersForDealCreation.clear();
-        this.pendingNewPositions = new ArrayList<>(newPositions);
-        this.currentRestoreIndex = 0;
-        this.createDealsProcess = true;
+    public PositionInfo updateOneDeal(String symbol) {
+        return bybitManager.getBybitPositionTrackerService().getPositionBySymbol(symbol);
+    }
+    private String handleDealCreation(String strategyName, ActiveDealStore activeDealStore, long chatId, RestoreSession session) {
+        CreationResult result = updateDealCreator.dealCreationTypeSorter(
+                strategyName, activeDealStore, chatId, bybitManager, session.getPendingNewPositions(),
+                session.getPendingLimitOrders(), session.getCurrentRestoreIndex(), orderRestorer);
+        session.advance(result);
+        return result.message();
     }
-}
\ No newline at end of file
+}
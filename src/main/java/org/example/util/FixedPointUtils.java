@@ -0,0 +1,232 @@
+package org.example.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Общие операции для десятичных чисел с фиксированной точкой (long мантисса + scale).
+ * Используется в {@link org.example.model.Price} и {@link org.example.model.Qty}.
+ * Значение = mantissa / 10^scale.
+ */
+public class FixedPointUtils {
+
+    public static final int MAX_SCALE = 12;
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        long p = 1;
+        for (int i = 0; i < POW10.length; i++) {
+            POW10[i] = p;
+            p *= 10;
+        }
+    }
+
+    public static long pow10(int scale) {
+        checkScale(scale);
+        return POW10[scale];
+    }
+
+    public static void checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Недопустимый scale: " + scale + " (допустимо 0.." + MAX_SCALE + ")");
+        }
+    }
+
+    /**
+     * Переводит double в мантиссу с округлением до ближайшего значения на заданном scale.
+     * Шум double (0.30000000000000004) на этом шаге исчезает.
+     */
+    public static long toMantissa(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Недопустимое значение: " + value);
+        }
+        return Math.round(value * pow10(scale));
+    }
+
+    public static double toDouble(long mantissa, int scale) {
+        return (double) mantissa / pow10(scale);
+    }
+
+    /**
+     * Количество знаков после запятой в кратчайшем представлении double (65000.0 → 0, 0.0125 → 4).
+     */
+    public static int scaleOf(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || value == 0) {
+            return 0;
+        }
+        int scale = BigDecimal.valueOf(value).stripTrailingZeros().scale();
+        return Math.max(0, Math.min(scale, MAX_SCALE));
+    }
+
+    /**
+     * Количество знаков после запятой в строке вида "0.0100" (без учета хвостовых нулей → 2).
+     */
+    public static int scaleOf(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        int dot = value.indexOf('.');
+        if (dot < 0) {
+            return 0;
+        }
+        int end = value.length();
+        while (end > dot + 1 && value.charAt(end - 1) == '0') {
+            end--;
+        }
+        return Math.min(end - dot - 1, MAX_SCALE);
+    }
+
+    /**
+     * Переводит мантиссу с одного scale на другой. При уменьшении scale округляет half-up.
+     */
+    public static long rescale(long mantissa, int fromScale, int toScale) {
+        if (fromScale == toScale) {
+            return mantissa;
+        }
+        if (toScale > fromScale) {
+            return Math.multiplyExact(mantissa, pow10(toScale - fromScale));
+        }
+        long divisor = pow10(fromScale - toScale);
+        long quotient = mantissa / divisor;
+        long remainder = Math.abs(mantissa % divisor);
+        if (remainder * 2 >= divisor) {
+            quotient += mantissa < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    public static int compare(long m1, int s1, long m2, int s2) {
+        if (s1 == s2) {
+            return Long.compare(m1, m2);
+        }
+        try {
+            int scale = Math.max(s1, s2);
+            return Long.compare(rescale(m1, s1, scale), rescale(m2, s2, scale));
+        } catch (ArithmeticException overflow) {
+            return BigDecimal.valueOf(m1, s1).compareTo(BigDecimal.valueOf(m2, s2));
+        }
+    }
+
+    /**
+     * Хэш, не зависящий от хвостовых нулей: 1.50 (scale 2) и 1.5 (scale 1) дают одно значение.
+     */
+    public static int normalizedHash(long mantissa, int scale) {
+        while (scale > 0 && mantissa % 10 == 0) {
+            mantissa /= 10;
+            scale--;
+        }
+        return 31 * Long.hashCode(mantissa) + scale;
+    }
+
+    /**
+     * Разбирает десятичную строку ("123.4500", "-0.5", "1e-3" не поддерживается) в мантиссу на заданном scale.
+     * Лишние знаки после запятой округляются half-up.
+     */
+    public static long parseMantissa(CharSequence text, int scale) {
+        checkScale(scale);
+        if (text == null) {
+            throw new NumberFormatException("null");
+        }
+        int len = text.length();
+        int i = 0;
+        while (i < len && text.charAt(i) == ' ') i++;
+        while (len > i && text.charAt(len - 1) == ' ') len--;
+        if (i == len) {
+            throw new NumberFormatException("Пустая строка");
+        }
+
+        boolean negative = false;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int fractionDigits = -1; // -1 — точка еще не встречена
+        boolean roundUp = false;
+        boolean hasDigits = false;
+        for (; i < len; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == ',') {
+                if (fractionDigits >= 0) {
+                    throw new NumberFormatException("Две точки в числе: " + text);
+                }
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Недопустимый символ '" + c + "' в числе: " + text);
+            }
+            hasDigits = true;
+            if (fractionDigits >= 0) {
+                if (fractionDigits == scale) {
+                    roundUp = c >= '5';
+                    fractionDigits++;
+                    continue;
+                }
+                if (fractionDigits > scale) {
+                    continue;
+                }
+                fractionDigits++;
+            }
+            mantissa = Math.addExact(Math.multiplyExact(mantissa, 10), c - '0');
+        }
+        if (!hasDigits) {
+            throw new NumberFormatException("Нет цифр в числе: " + text);
+        }
+
+        int written = Math.max(0, Math.min(fractionDigits, scale));
+        mantissa = Math.multiplyExact(mantissa, POW10[scale - written]);
+        if (roundUp) {
+            mantissa++;
+        }
+        return negative ? -mantissa : mantissa;
+    }
+
+    /**
+     * Количество знаков после запятой в строке без отбрасывания хвостовых нулей ("1.50" → 2).
+     */
+    public static int declaredScale(CharSequence text) {
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == ',') {
+                int end = len;
+                while (end > i + 1 && text.charAt(end - 1) == ' ') end--;
+                return Math.min(end - i - 1, MAX_SCALE);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Форматирует мантиссу в строку без экспоненты и без String.format: (12345, 2) → "123.45".
+     * Хвостовые нули дробной части сохраняются, т.к. scale задает точность инструмента.
+     */
+    public static String toPlainString(long mantissa, int scale) {
+        if (scale == 0) {
+            return Long.toString(mantissa);
+        }
+        boolean negative = mantissa < 0;
+        long abs = Math.abs(mantissa);
+        long divisor = POW10[scale];
+        long integerPart = abs / divisor;
+        long fractionPart = abs % divisor;
+
+        StringBuilder sb = new StringBuilder(21 + scale);
+        if (negative) {
+            sb.append('-');
+        }
+        sb.append(integerPart).append('.');
+        // дополняем ведущими нулями дробную часть: 5 при scale 3 → "005"
+        for (long p = divisor / 10; p > fractionPart && p > 1; p /= 10) {
+            sb.append('0');
+        }
+        sb.append(fractionPart);
+        return sb.toString();
+    }
+
+    private FixedPointUtils() {
+    }
+}
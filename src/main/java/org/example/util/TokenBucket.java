@@ -0,0 +1,56 @@
+package org.example.util;
+
+/**
+ * Маркерная корзина: до capacity запросов подряд, затем не чаще refillPerSecond в секунду.
+ * В отличие от {@link org.example.bybit.client.RateLimiter} не усыпляет поток, а сообщает,
+ * через сколько появится маркер, — вызывающий сам решает, ждать или заняться другим.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000.0;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Забирает маркер, если он есть.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Сколько наносекунд ждать до появления маркера (0 — доступен сейчас).
+     */
+    public synchronized long nanosUntilAvailable() {
+        refill();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / refillPerNano);
+    }
+
+    /**
+     * Обнуляет маркеры — например, когда сервер сам попросил подождать.
+     */
+    public synchronized void drain() {
+        refill();
+        tokens = 0;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -18,6 +18,57 @@ public class  ValuesUtil {
     //процент отступа для стоп лосса по умолчанию
     private static final double defaultSlPercent = 0.15; // 20%
     @Getter
+    //количество потоков для параллельной сверки сделок с биржей (/reconcile)
+    private static final int reconcileThreads = 8;
+    @Getter
+    //глубина очереди команд чата, начиная с которой пользователю отправляется "занято, в очереди"
+    private static final int chatBusyQueueDepth = 3;
+    @Getter
+    //через сколько минут бездействия состояние диалога чата удаляется из памяти
+    private static final int chatSessionIdleMinutes = 180;
+    @Getter
+    //лимиты Telegram на исходящие сообщения: в один чат (подряд / в секунду) и всего в секунду
+    private static final int telegramChatBurst = 3;
+    @Getter
+    private static final double telegramChatPerSecond = 1;
+    @Getter
+    private static final int telegramGlobalPerSecond = 30;
+    @Getter
+    //потоков, параллельно отправляющих сообщения в Telegram (в разные чаты)
+    private static final int telegramSenderThreads = 4;
+    @Getter
+    //сколько секунд снимок баланса аккаунта считается свежим (без push-обновлений из приватного WebSocket)
+    private static final int walletMaxAgeSeconds = 30;
+    @Getter
+    //после исполнения ордера: сколько ждать push баланса, прежде чем запросить его по REST
+    private static final int walletPushGraceMillis = 500;
+    @Getter
+    //сколько последних трасс сделок (/trace) хранится в памяти
+    private static final int traceBufferSize = 256;
+    @Getter
+    //трейлинг-стоп: включен ли по умолчанию для стратегий
+    private static final boolean trailingEnabled = false;
+    @Getter
+    //трейлинг-стоп: % движения цены от входа, после которого начинается подтягивание SL
+    private static final double trailingActivationPercent = 1.0;
+    @Getter
+    //трейлинг-стоп: отступ SL от экстремума в % (свободный режим)
+    private static final double trailingLoosePercent = 3.0;
+    @Getter
+    //трейлинг-стоп: отступ SL от экстремума в % (плотный режим)
+    private static final double trailingTightPercent = 1.5;
+    @Getter
+    //трейлинг-стоп: % движения цены от входа, после которого отступ сужается до плотного
+    private static final double trailingTightenPercent = 6.0;
+    @Getter
+    //лимиты портфеля (PortfolioRiskBook), % от equity: суммарный убыток по SL всех сделок,
+    //убыток по SL в одной группе коррелирующих монет в одном направлении, суммарная маржа
+    private static final double maxPortfolioRiskPercent = 6.0;
+    @Getter
+    private static final double maxBucketRiskPercent = 3.0;
+    @Getter
+    private static final double maxPortfolioMarginPercent = 80.0;
+    @Getter
     //порядок проверки плечей для позиции
     private static final int[] defaultLeverageTrails = {7, 10, 20};
     //правила выхода - количество тейков - %позиции на тейк
@@ -34,6 +85,15 @@ public class  ValuesUtil {
         DEFAULT_TP_EXIT_RULES.put(8, new int[]{22, 16, 14, 10, 9, 8, 7, 4});
         DEFAULT_TP_EXIT_RULES.put(9, new int[]{20, 15, 13, 10, 9, 8, 7, 6, 2});
     }
+    //группы коррелирующих монет для лимита риска (базовая монета → группа); остальные — "alts"
+    private static final Map<String, String> RISK_BUCKETS = new HashMap<>();
+    static {
+        RISK_BUCKETS.put("BTC", "btc");
+        RISK_BUCKETS.put("ETH", "eth");
+        for (String coin : new String[]{"SOL", "BNB", "XRP", "ADA", "DOGE", "TRX", "TON", "AVAX", "LINK", "DOT"}) {
+            RISK_BUCKETS.put(coin, "large_caps");
+        }
+    }
     // правила выхода по значению pnl
     private static final Map<Double, Integer> DEFAULT_PNL_TP_EXIT_RULES = new HashMap<>();
     static {
@@ -49,6 +109,17 @@ public class  ValuesUtil {
 
     }
 
+    public static String getRiskBucket(String symbol) {
+        String coin = symbol;
+        for (String quote : new String[]{"USDT", "USDC", "PERP"}) {
+            if (symbol.endsWith(quote)) {
+                coin = symbol.substring(0, symbol.length() - quote.length());
+                break;
+            }
+        }
+        return RISK_BUCKETS.getOrDefault(coin, "alts");
+    }
+
     public static Map<Integer, int[]> getDefaultTpExitRules() {
         // Создаем глубокую копию, так как массивы int[] изменяемы
         Map<Integer, int[]> copy = new HashMap<>();